@@ -0,0 +1,19 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.netcdf;
+
+import org.geotools.gce.netcdf.NetCDFResources;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Releases the file handles, threads and MBeans the NetCDF module holds for the whole JVM when the application context shuts down, so an
+ * undeployed or redeployed GeoServer does not leak them.
+ */
+public class NetCDFResourcesDisposer implements DisposableBean {
+
+    public void destroy() throws Exception {
+        NetCDFResources.dispose();
+    }
+}
@@ -0,0 +1,208 @@
+package org.geoserver.wps.gs;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.GeoTools;
+import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureImpl;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * The magnatude and direction arrows of sampled u and v values, computed as they are iterated instead of held as features.
+ *
+ * An iterator hands out the same feature and point for every arrow, updated on each next(), as the renderer draws a feature before it asks for
+ * the next one. A caller keeping features beyond that must copy them; {@link #toArray()} gives copies.
+ */
+class ArrowFeatureCollection extends AbstractFeatureCollection {
+
+	private static final int MAGNATUDE = 1;
+	private static final int DIRECTION = 2;
+
+	private final double[] points;
+	private final float[] u;
+	private final float[] v;
+	private final Integer gsize;
+	private final int size;
+	private final ReferencedEnvelope bounds;
+
+	/**
+	 * @param featureType - the type of {@link MagnatudeDirectionProcess#createFeatureType()}.
+	 * @param points - longitude and latitude of each arrow, one after the other.
+	 * @param u - u value at each arrow, NaN where it has no data. Not copied.
+	 * @param v - v value at each arrow, NaN where it has no data. Not copied.
+	 * @param gsize - graphic size of every arrow.
+	 */
+	ArrowFeatureCollection(SimpleFeatureType featureType, double[] points, float[] u, float[] v, int gsize) {
+		super(featureType);
+		this.points = points;
+		this.u = u;
+		this.v = v;
+		this.gsize = Integer.valueOf(gsize);
+
+		// arrows with both components only, in one pass over the values.
+		int count = 0;
+		bounds = new ReferencedEnvelope(featureType.getCoordinateReferenceSystem());
+		for (int i = 0; i < u.length; i++) {
+			if (isArrow(i)) {
+				count++;
+				bounds.expandToInclude(points[i * 2], points[i * 2 + 1]);
+			}
+		}
+		this.size = count;
+	}
+
+	private boolean isArrow(int i) {
+		return !Float.isNaN(u[i]) && !Float.isNaN(v[i]);
+	}
+
+	static double calcMagnatude(double u, double v) {
+		return Math.sqrt((u * u) + (v * v));
+	}
+
+	static double calcDirection(double u, double v) {
+		return Math.toDegrees(Math.atan2(u, v)) + 180.0;
+	}
+
+	@Override
+	protected Iterator<SimpleFeature> openIterator() {
+		return new ArrowIterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public ReferencedEnvelope getBounds() {
+		return new ReferencedEnvelope(bounds);
+	}
+
+	/**
+	 * Copies of the features, unlike the iterator.
+	 */
+	@Override
+	public Object[] toArray() {
+		List<SimpleFeature> copies = new ArrayList<SimpleFeature>(size);
+		SimpleFeatureIterator it = features();
+		try {
+			while (it.hasNext()) {
+				copies.add(SimpleFeatureBuilder.deep(it.next()));
+			}
+		} finally {
+			it.close();
+		}
+		return copies.toArray();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <O> O[] toArray(O[] a) {
+		Object[] copies = toArray();
+		if (a.length < copies.length) {
+			a = (O[]) Array.newInstance(a.getClass().getComponentType(), copies.length);
+		}
+		System.arraycopy(copies, 0, a, 0, copies.length);
+		if (a.length > copies.length) {
+			a[copies.length] = null;
+		}
+		return a;
+	}
+
+	/**
+	 * Feature id of the arrows, the number of the arrow as the Magnatude Direction Process gave them, made into a string only when asked for.
+	 */
+	private static final class ArrowId extends FeatureIdImpl {
+		private int number;
+
+		ArrowId() {
+			super("0");
+		}
+
+		@Override
+		public String getID() {
+			return String.valueOf(number);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof FeatureIdImpl && getID().equals(((FeatureIdImpl) obj).getID());
+		}
+
+		@Override
+		public int hashCode() {
+			return getID().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return getID();
+		}
+	}
+
+	private final class ArrowIterator implements SimpleFeatureIterator, Iterator<SimpleFeature> {
+		private final Point point;
+		private final CoordinateSequence coordinate;
+		private final ArrowId id = new ArrowId();
+		private final SimpleFeature feature;
+
+		private int next = -1;
+		private int number = -1;
+
+		ArrowIterator() {
+			GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
+			point = geometryFactory.createPoint(new Coordinate());
+			coordinate = point.getCoordinateSequence();
+			feature = new SimpleFeatureImpl(new Object[] { point, null, null, gsize }, schema, id, false);
+			advance();
+		}
+
+		private void advance() {
+			do {
+				next++;
+			} while (next < u.length && !isArrow(next));
+		}
+
+		public boolean hasNext() {
+			return next < u.length;
+		}
+
+		public SimpleFeature next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int i = next;
+			coordinate.setOrdinate(0, CoordinateSequence.X, points[i * 2]);
+			coordinate.setOrdinate(0, CoordinateSequence.Y, points[i * 2 + 1]);
+			point.geometryChanged();
+			feature.setAttribute(MAGNATUDE, calcMagnatude(u[i], v[i]));
+			feature.setAttribute(DIRECTION, calcDirection(u[i], v[i]));
+			id.number = ++number;
+			advance();
+			return feature;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() {
+			// nothing to release, the values belong to the collection.
+		}
+	}
+}
@@ -11,6 +11,7 @@ import javax.media.jai.iterator.RandomIterFactory;
 import mil.navy.fnmoc.gis.wps.util.meteogram.AreaGetCoverageRequest;
 import net.opengis.wcs10.DescribeCoverageType;
 
+import org.apache.log4j.Logger;
 import org.geoserver.catalog.Catalog;
 import org.geoserver.config.GeoServer;
 import org.geoserver.platform.GeoServerExtensions;
@@ -19,33 +20,31 @@ import org.geoserver.wcs.DefaultWebCoverageService111;
 import org.geoserver.wcs.responses.CoverageResponseDelegateFinder;
 import org.geoserver.wcs.xml.v1_0_0.WcsXmlReader;
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.factory.GeoTools;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.FeatureCollections;
-import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
-import org.geotools.geometry.jts.JTSFactoryFinder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.ProcessException;
 import org.geotools.process.factory.DescribeParameter;
 import org.geotools.process.factory.DescribeProcess;
 import org.geotools.process.factory.DescribeResult;
 import org.geotools.process.gs.GSProcess;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.wcs.WCSConfiguration;
-import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
-import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Point;
 //import org.opengis.geometry.primitive.Point;
 
 @DescribeProcess(title="Magnatude Direction Process", description="Unknown at this time.")
 public class MagnatudeDirectionProcess implements GSProcess {
 
+	private static final Logger LOGGER = Logger.getLogger(MagnatudeDirectionProcess.class);
+
 	private static final GeoServer geoServer = GeoServerExtensions.bean(GeoServer.class);
 	private static final String    namespace = "https://oceanography.navy.mil";
 
@@ -54,7 +53,7 @@ public class MagnatudeDirectionProcess implements GSProcess {
 	 * @author pcoleman, altered by jcraft
 	 */
 
-	private static SimpleFeatureType createFeatureType() {
+	static SimpleFeatureType createFeatureType() {
 
 		SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
 		builder.setName("magnatude_direction");
@@ -73,13 +72,6 @@ public class MagnatudeDirectionProcess implements GSProcess {
 		return FEATURE_TYPE;
 	}
 
-	private RandomIter getIter(RenderedImage renderedImage) {
-
-		RandomIter iter = RandomIterFactory.create(renderedImage, null); 
-
-		return iter;
-	}
-
 	public DescribeCoverageType getDescribeType(String source) throws Exception {
 
 		WCSConfiguration configuration = new WCSConfiguration();
@@ -102,33 +94,6 @@ public class MagnatudeDirectionProcess implements GSProcess {
 		return cap;
 	}
 
-	private double calcDirection(double u, double v){
-
-		double retVal = 0.0;
-
-		try{
-			retVal = Math.toDegrees(Math.atan2(u, v)) + 180.0;    		
-		}catch(Exception ex){
-			System.out.println("calcDirection : " + ex.getMessage());
-		}
-
-		// Alternate calculation   
-		// retVal = (270-Math.atan2(v,u)*180/Math.PI)%360;
-
-		return retVal;
-	}
-
-	private double calcMagnatude(double u, double v){
-		double retVal = 0.0;
-
-		try{
-			retVal = Math.sqrt((u*u)+(v*v));
-		}catch(Exception ex){
-			System.out.println("calcMagnatude : " + ex.getMessage());
-		}
-		return retVal;
-	}
-
 	private String convertDate(Date date){
 		java.text.DateFormat df = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'.000Z'");
 		// explicitly set timezone of input if needed
@@ -182,10 +147,8 @@ public class MagnatudeDirectionProcess implements GSProcess {
 			) {
 
 		boolean wmsOnePointOne = (wmscrs.getCoordinateSystem().getAxis(0).getAbbreviation().compareTo("Long")==0);
-		DefaultFeatureCollection collection = new DefaultFeatureCollection();   	
+		SimpleFeatureCollection collection = new DefaultFeatureCollection();   	
 		SimpleFeatureType featureType =  createFeatureType();
-		SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(featureType);
-		GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory( GeoTools.getDefaultHints() );
 		CoverageResponseDelegateFinder crdf = null;
 		DefaultWebCoverageService100 wcs100 = new DefaultWebCoverageService100(geoServer, crdf);
 
@@ -309,72 +272,70 @@ public class MagnatudeDirectionProcess implements GSProcess {
 
 			GridCoverage2D[] v = (GridCoverage2D[]) wcs100.getCoverage(vacr.getGetCoverageType());
 
-			int widthPixels = u[0].getGridGeometry().getGridRange2D().width;
-			int heightPixels = u[0].getGridGeometry().getGridRange2D().height;
-
-
-			int baseX, baseY;
-
-			baseX = u[0].getGridGeometry().getGridRange2D().x;
-			baseY = u[0].getGridGeometry().getGridRange2D().y;
-
-			RandomIter uIter = getIter(u[0].getRenderedImage());
-			RandomIter vIter = getIter(v[0].getRenderedImage());  
+			GridEnvelope2D range = u[0].getGridGeometry().getGridRange2D();
+			int widthPixels = range.width;
+			int heightPixels = range.height;
 
 			double xIncrement = Math.abs(calcLonSpan(leftLon, rightLon)/widthPixels);
 			double yIncrement = Math.abs((upperLat-lowerLat)/heightPixels);
 
-			Double mag, dir;
-
-			// Debug statements
-			System.out.println("WMS Width :" + wmswidth + ":: WMS Height : " + wmsheight);
-			System.out.println("G2C Width :" + width + ":: G2C Height : "  + height);
-			System.out.println("WCS Width :" + widthPixels + ":: WCS Height : " + heightPixels);
-    		System.out.println("LL: " + leftLon + " RL: " + rightLon + " LLat: " + lowerLat + "UL: " + upperLat);
-			System.out.println("Scale : " + scale);
-			System.out.println("Shift Level : " + shift + " / Gsize Level : " + gsize);
-			
-
-			for(int xc=baseX, x=0, fC=0; xc<(baseX+widthPixels); xc+=shift){
-				for(int yc=baseY, y=0; yc<(baseY+heightPixels); yc+=shift){
-
-					Double uVal = uIter.getSampleDouble(xc, yc, 0);
-					Double vVal = vIter.getSampleDouble(xc, yc, 0);
-
-					if((uVal != null && uVal.isNaN() == false) && (vVal != null && vVal.isNaN() == false)){
-						Coordinate coord= new Coordinate();
-
-						//Calc and set data point
-						coord.x = leftLon+(xIncrement*x);
-						coord.y = upperLat-(yIncrement*y);
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("WMS Width :" + wmswidth + ":: WMS Height : " + wmsheight);
+				LOGGER.debug("G2C Width :" + width + ":: G2C Height : "  + height);
+				LOGGER.debug("WCS Width :" + widthPixels + ":: WCS Height : " + heightPixels);
+				LOGGER.debug("LL: " + leftLon + " RL: " + rightLon + " LLat: " + lowerLat + "UL: " + upperLat);
+				LOGGER.debug("Scale : " + scale);
+				LOGGER.debug("Shift Level : " + shift + " / Gsize Level : " + gsize);
+			}
 
-						featureBuilder.add(geometryFactory.createPoint(coord));
+			collection = sampleArrows(featureType, u[0].getRenderedImage(), v[0].getRenderedImage(), range, shift,
+					leftLon, upperLat, xIncrement, yIncrement, gsize);
 
-						//Calc and set Magnatude
-						mag = calcMagnatude(uVal, vVal);
-						featureBuilder.add(mag);
-						//Calc and set Direction
-						dir = calcDirection(uVal, vVal);
-						featureBuilder.add(dir);
-						
-						featureBuilder.add(gsize);
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("gs:MagnatudeDirection Returning " + collection.size() + " items in Point collection.");
+			}
 
-						//build the feature
-						SimpleFeature feature = featureBuilder.buildFeature( String.valueOf(fC++) );
+		} catch (Exception e) {
+			LOGGER.error("gs:MagnatudeDirection failed for " + uLayerName + " and " + vLayerName, e);
+			throw new ProcessException("Unable to compute the magnatude and direction of " + uLayerName + " and "
+					+ vLayerName, e);
+		}
+		
+		return collection;
+	}
 
-						collection.add(feature);        				
-					}
+	/**
+	 * The u and v values of every shift-th pixel of the grid range, from its upper left pixel, into arrays the features are computed from
+	 * as they are drawn.
+	 *
+	 * @param xIncrement - longitude span of a pixel.
+	 * @param yIncrement - latitude span of a pixel.
+	 */
+	static ArrowFeatureCollection sampleArrows(SimpleFeatureType featureType, RenderedImage uImage, RenderedImage vImage,
+			GridEnvelope2D range, int shift, double leftLon, double upperLat, double xIncrement, double yIncrement, int gsize) {
+		RandomIter uIter = RandomIterFactory.create(uImage, null);
+		RandomIter vIter = RandomIterFactory.create(vImage, null);
+		try {
+			int columns = (range.width + shift - 1) / shift;
+			int rows = (range.height + shift - 1) / shift;
+			double[] points = new double[columns * rows * 2];
+			float[] uValues = new float[columns * rows];
+			float[] vValues = new float[columns * rows];
+			for(int xc=range.x, x=0, i=0; xc<(range.x+range.width); xc+=shift){
+				for(int yc=range.y, y=0; yc<(range.y+range.height); yc+=shift){
+					uValues[i] = uIter.getSampleFloat(xc, yc, 0);
+					vValues[i] = vIter.getSampleFloat(xc, yc, 0);
+					points[i * 2] = leftLon+(xIncrement*x);
+					points[i * 2 + 1] = upperLat-(yIncrement*y);
+					i++;
 					y+=shift;
 				}
 				x+=shift;
 			}
-			
-			System.out.println("gs:MagnatudeDirection Returning " + collection.size() + " items in Point collection.");
-
-		} catch (Exception e) {
-
+			return new ArrowFeatureCollection(featureType, points, uValues, vValues, gsize);
+		} finally {
+			uIter.done();
+			vIter.done();
 		}
-		
-		return collection;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package org.geoserver.wps.gs;
+
+import java.awt.image.RenderedImage;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.media.jai.iterator.RandomIter;
+import javax.media.jai.iterator.RandomIterFactory;
+
+import org.apache.log4j.Logger;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CoverageInfo;
+import org.geoserver.data.util.CoverageUtils;
+import org.geoserver.ows.kvp.ElevationKvpParser;
+import org.geoserver.ows.kvp.TimeKvpParser;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.GridCoverage2DReader;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.ProcessException;
+import org.geotools.process.factory.DescribeParameter;
+import org.geotools.process.factory.DescribeProcess;
+import org.geotools.process.factory.DescribeResult;
+import org.geotools.process.gs.GSProcess;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.opengis.coverage.SampleDimension;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.parameter.GeneralParameterDescriptor;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Magnatude and direction arrows of the u and v layers of a vector field, as the {@link MagnatudeDirectionProcess} gives them, read from the
+ * coverage readers of the layers instead of through two WCS GetCoverage requests.
+ *
+ * Each component is read with a single reader call, both with the same grid geometry of one cell per arrow, so only the values at the arrows
+ * are read and an arrow layer costs about one raster read. Magnatude and direction are computed over the sampled arrays.
+ *
+ * The inputs are those of the {@link MagnatudeDirectionProcess}, so a style switches to this process by its name only. The data coverage of the
+ * layer the style is applied to is accepted but not read, the u and v values come from their own layers.
+ */
+@DescribeProcess(title="Vector Field Process", description="Magnatude and direction arrows of a u and v vector field, read at the arrows only.")
+public class VectorFieldProcess implements GSProcess {
+
+	private static final Logger LOGGER = Logger.getLogger(VectorFieldProcess.class);
+
+	private final Catalog catalog;
+
+	public VectorFieldProcess(Catalog catalog) {
+		this.catalog = catalog;
+	}
+
+	@DescribeResult(
+			name="result",
+			description="Feature Collection of the arrow points, with the properties of the Magnatude Direction Process: " +
+					"geometry (Point), magnatude (Double), direction (Double) and gsize (Integer)."
+			)
+	public SimpleFeatureCollection execute(
+			@DescribeParameter(name="data", description="Layer Data") GridCoverage2D g2c,
+			@DescribeParameter(name="currentU", description="Current U Layer") String uLayerName,
+			@DescribeParameter(name="currentV", description="Current V Layer") String vLayerName,
+			@DescribeParameter(name="wms_time", description="Requested Time") String wmsTime,
+			@DescribeParameter(name="wms_elevation", description="Requested Elevation") String wmsElevation,
+			@DescribeParameter(name="wms_width", description="Width") int wmswidth,
+			@DescribeParameter(name="wms_height", description="Height") int wmsheight,
+			@DescribeParameter(name="wms_crs", description="Coordinate Reference System") CoordinateReferenceSystem wmscrs,
+			@DescribeParameter(name="wms_scale_denominator", description="Scale") int scale,
+			@DescribeParameter(name="wms_bbox", description="Envelope") ReferencedEnvelope env,
+			@DescribeParameter(name="scalelevel", description="Denominator levels") int[] scaleLevel,
+			@DescribeParameter(name="shiftlevel", description="Pixel Cube Skip Levels") int[] shiftLevel,
+			@DescribeParameter(name="gsizelevel", description="Graphic Size Levels") int[] gsizeLevel,
+			@DescribeParameter(name="viewportwidth", description="Viewport Width Levels") int[] viewportwidth,
+			@DescribeParameter(name="viewportheight", description="Viewport Height Levels") int[] viewportheight
+			) throws ProcessException {
+
+		SimpleFeatureCollection collection = new DefaultFeatureCollection();
+
+		// the levels of the first scale denominator below the scale.
+		int shift = 0;
+		int gsize = 0;
+		int width = 0;
+		int height = 0;
+		for (int count = 0; count < scaleLevel.length; count++) {
+			if (scale > scaleLevel[count]) {
+				shift = shiftLevel[count];
+				gsize = gsizeLevel[count];
+				width = viewportwidth[count];
+				height = viewportheight[count];
+				break;
+			}
+		}
+		// a level without a viewport size spreads the arrows over the map.
+		if (width <= 0 || height <= 0) {
+			width = wmswidth;
+			height = wmsheight;
+		}
+		if (shift <= 0 || width <= 0 || height <= 0) {
+			return collection;
+		}
+
+		try {
+			// the bounding box is in the map CRS when it carries none.
+			ReferencedEnvelope lonLat = env;
+			if (env.getCoordinateReferenceSystem() == null && wmscrs != null) {
+				lonLat = new ReferencedEnvelope(env, wmscrs);
+			}
+			if (!CRS.equalsIgnoreMetadata(lonLat.getCoordinateReferenceSystem(), DefaultGeographicCRS.WGS84)) {
+				lonLat = lonLat.transform(DefaultGeographicCRS.WGS84, true);
+			}
+
+			// one cell per arrow, shift pixels of the viewport apart.
+			int columns = (width + shift - 1) / shift;
+			int rows = (height + shift - 1) / shift;
+			GridGeometry2D gridGeometry = new GridGeometry2D(new GridEnvelope2D(0, 0, columns, rows), lonLat);
+
+			// longitude and latitude of the arrows, the centers of the cells from the upper left.
+			double xIncrement = lonLat.getWidth() / columns;
+			double yIncrement = lonLat.getHeight() / rows;
+			double[] points = new double[columns * rows * 2];
+			for (int y = 0, i = 0; y < rows; y++) {
+				for (int x = 0; x < columns; x++) {
+					points[i++] = lonLat.getMinX() + xIncrement * (x + 0.5);
+					points[i++] = lonLat.getMaxY() - yIncrement * (y + 0.5);
+				}
+			}
+
+			List<Object> times = parseTimes(wmsTime);
+			List<Object> elevations = parseElevations(wmsElevation);
+			float[] u = read(uLayerName, gridGeometry, times, elevations, points);
+			float[] v = read(vLayerName, gridGeometry, times, elevations, points);
+
+			collection = new ArrowFeatureCollection(MagnatudeDirectionProcess.createFeatureType(), points, u, v, gsize);
+
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("gs:VectorField returning " + collection.size() + " of " + columns + "x" + rows
+						+ " arrows at scale " + scale);
+			}
+		} catch (ProcessException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ProcessException("Unable to read the vector field of " + uLayerName + " and " + vLayerName, e);
+		}
+
+		return collection;
+	}
+
+	private static List<Object> parseTimes(String wmsTime) throws ParseException {
+		List<Object> result = new ArrayList<Object>();
+		if (wmsTime != null && wmsTime.length() > 0) {
+			result.addAll((Collection<?>) new TimeKvpParser("time").parse(wmsTime));
+		}
+		return result;
+	}
+
+	private static List<Object> parseElevations(String wmsElevation) throws ParseException {
+		List<Object> result = new ArrayList<Object>();
+		if (wmsElevation != null && wmsElevation.length() > 0) {
+			result.addAll((Collection<?>) new ElevationKvpParser("elevation").parse(wmsElevation));
+		}
+		return result;
+	}
+
+	/**
+	 * Read the layer on the grid geometry, with a single reader call.
+	 *
+	 * @param points - longitude and latitude of the points to sample.
+	 * @return the value of the layer at each point, NaN where it has no data.
+	 */
+	private float[] read(String layerName, GridGeometry2D gridGeometry, List<Object> times, List<Object> elevations,
+			double[] points) throws Exception {
+		CoverageInfo coverageInfo = catalog.getCoverageByName(layerName);
+		if (coverageInfo == null) {
+			throw new ProcessException("Unknown coverage layer " + layerName);
+		}
+		GridCoverage2DReader reader = (GridCoverage2DReader) coverageInfo.getGridCoverageReader(null, null);
+
+		// the configured parameters of the layer, as the WCS reads it, plus the grid geometry, time and elevation.
+		ParameterValueGroup readParametersDescriptor = reader.getFormat().getReadParameters();
+		GeneralParameterValue[] readParameters = CoverageUtils.getParameters(readParametersDescriptor,
+				coverageInfo.getParameters());
+		readParameters = (readParameters != null ? readParameters : new GeneralParameterValue[0]);
+		List<GeneralParameterDescriptor> parameterDescriptors = new ArrayList<GeneralParameterDescriptor>(
+				readParametersDescriptor.getDescriptor().descriptors());
+		parameterDescriptors.addAll(reader.getDynamicParameters());
+
+		readParameters = CoverageUtils.mergeParameter(parameterDescriptors, readParameters, gridGeometry,
+				AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().getCode());
+		if (!times.isEmpty()) {
+			readParameters = CoverageUtils.mergeParameter(parameterDescriptors, readParameters, times, "TIME", "Time");
+		}
+		if (!elevations.isEmpty()) {
+			readParameters = CoverageUtils.mergeParameter(parameterDescriptors, readParameters, elevations,
+					"ELEVATION", "Elevation");
+		}
+
+		GridCoverage2D coverage = reader.read(readParameters);
+		float[] values = new float[points.length / 2];
+		if (coverage == null) {
+			Arrays.fill(values, Float.NaN);
+			return values;
+		}
+		try {
+			sample(coverage, points, values);
+		} finally {
+			coverage.dispose(true);
+		}
+		return values;
+	}
+
+	/**
+	 * Sample the first band of the coverage at the points, all transformed to its grid at once. The grid is the requested one for readers
+	 * honouring the requested grid geometry, but need not be.
+	 */
+	private static void sample(GridCoverage2D coverage, double[] points, float[] values) throws Exception {
+		MathTransform toGrid = coverage.getGridGeometry().getCRSToGrid2D(PixelOrientation.UPPER_LEFT);
+		CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem2D();
+		if (!CRS.equalsIgnoreMetadata(crs, DefaultGeographicCRS.WGS84)) {
+			toGrid = ConcatenatedTransform.create(CRS.findMathTransform(DefaultGeographicCRS.WGS84, crs, true), toGrid);
+		}
+		double[] grid = new double[points.length];
+		toGrid.transform(points, 0, grid, 0, values.length);
+
+		double[] noData = getNoDataValues(coverage.getSampleDimension(0));
+		RenderedImage image = coverage.getRenderedImage();
+		int minX = image.getMinX();
+		int minY = image.getMinY();
+		int maxX = minX + image.getWidth();
+		int maxY = minY + image.getHeight();
+		RandomIter iter = RandomIterFactory.create(image, null);
+		try {
+			for (int i = 0; i < values.length; i++) {
+				int x = (int) Math.floor(grid[i * 2]);
+				int y = (int) Math.floor(grid[i * 2 + 1]);
+				float value = Float.NaN;
+				if (x >= minX && x < maxX && y >= minY && y < maxY) {
+					value = iter.getSampleFloat(x, y, 0);
+					for (double noDataValue : noData) {
+						if (value == noDataValue) {
+							value = Float.NaN;
+							break;
+						}
+					}
+				}
+				values[i] = value;
+			}
+		} finally {
+			iter.done();
+		}
+	}
+
+	private static double[] getNoDataValues(SampleDimension sampleDimension) {
+		double[] noData = null;
+		try {
+			noData = sampleDimension.getNoDataValues();
+		} catch (IllegalStateException e) {
+			// no single set of no data values, NaN is the only one then.
+		}
+		return noData != null ? noData : new double[0];
+	}
+}
@@ -0,0 +1,117 @@
+package org.geoserver.wps.gs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Point;
+
+public class ArrowFeatureCollectionTest {
+
+	private static final SimpleFeatureType FEATURE_TYPE = MagnatudeDirectionProcess.createFeatureType();
+
+	@Test
+	public void testSizeAndBounds() {
+		// the second arrow has no u value, the third no v value.
+		double[] points = { 10, 40, 20, 50, 30, 60, 12, 45 };
+		float[] u = { 3, Float.NaN, 1, 0 };
+		float[] v = { 4, 1, Float.NaN, -2 };
+		ArrowFeatureCollection arrows = new ArrowFeatureCollection(FEATURE_TYPE, points, u, v, 8);
+
+		assertEquals(2, arrows.size());
+		ReferencedEnvelope bounds = arrows.getBounds();
+		assertEquals(10, bounds.getMinX(), 0);
+		assertEquals(12, bounds.getMaxX(), 0);
+		assertEquals(40, bounds.getMinY(), 0);
+		assertEquals(45, bounds.getMaxY(), 0);
+		assertEquals(FEATURE_TYPE.getCoordinateReferenceSystem(), bounds.getCoordinateReferenceSystem());
+	}
+
+	@Test
+	public void testIteratorReuse() {
+		double[] points = { 10, 40, 20, 50 };
+		float[] u = { 3, 0 };
+		float[] v = { 4, -2 };
+		ArrowFeatureCollection arrows = new ArrowFeatureCollection(FEATURE_TYPE, points, u, v, 8);
+
+		SimpleFeatureIterator it = arrows.features();
+		try {
+			SimpleFeature first = it.next();
+			assertEquals("0", first.getID());
+			assertEquals(5, ((Double) first.getAttribute("magnatude")).doubleValue(), 1e-9);
+			Point point = (Point) first.getDefaultGeometry();
+			assertEquals(10, point.getX(), 0);
+
+			// the same feature and point, updated to the next arrow.
+			SimpleFeature second = it.next();
+			assertSame(first, second);
+			assertSame(point, second.getDefaultGeometry());
+			assertEquals("1", second.getID());
+			assertEquals(20, point.getX(), 0);
+			assertEquals(50, point.getY(), 0);
+			assertEquals(2, ((Double) second.getAttribute("magnatude")).doubleValue(), 1e-9);
+			assertEquals(ArrowFeatureCollection.calcDirection(0, -2),
+					((Double) second.getAttribute("direction")).doubleValue(), 1e-9);
+			assertEquals(Integer.valueOf(8), second.getAttribute("gsize"));
+			assertFalse(it.hasNext());
+		} finally {
+			it.close();
+		}
+
+		// copies, unlike the iterator.
+		Object[] copies = arrows.toArray();
+		assertEquals(2, copies.length);
+		assertNotSame(copies[0], copies[1]);
+		assertEquals(10, ((Point) ((SimpleFeature) copies[0]).getDefaultGeometry()).getX(), 0);
+		assertEquals(20, ((Point) ((SimpleFeature) copies[1]).getDefaultGeometry()).getX(), 0);
+	}
+
+	@Test
+	public void testSubsampling() {
+		// 5 by 3 pixels, u is 10 times the column plus the row, v 1 everywhere.
+		BufferedImage uImage = new BufferedImage(5, 3, BufferedImage.TYPE_BYTE_GRAY);
+		BufferedImage vImage = new BufferedImage(5, 3, BufferedImage.TYPE_BYTE_GRAY);
+		WritableRaster uRaster = uImage.getRaster();
+		WritableRaster vRaster = vImage.getRaster();
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 5; x++) {
+				uRaster.setSample(x, y, 0, x * 10 + y);
+				vRaster.setSample(x, y, 0, 1);
+			}
+		}
+
+		// every second pixel: columns 0, 2 and 4 of rows 0 and 2, column by column.
+		ArrowFeatureCollection arrows = MagnatudeDirectionProcess.sampleArrows(FEATURE_TYPE, uImage, vImage,
+				new GridEnvelope2D(0, 0, 5, 3), 2, -10, 50, 0.5, 0.25, 8);
+		assertEquals(6, arrows.size());
+		int[] columns = { 0, 0, 2, 2, 4, 4 };
+		int[] rows = { 0, 2, 0, 2, 0, 2 };
+		SimpleFeatureIterator it = arrows.features();
+		try {
+			for (int i = 0; i < 6; i++) {
+				assertTrue(it.hasNext());
+				SimpleFeature arrow = it.next();
+				Point point = (Point) arrow.getDefaultGeometry();
+				assertEquals(-10 + 0.5 * columns[i], point.getX(), 1e-9);
+				assertEquals(50 - 0.25 * rows[i], point.getY(), 1e-9);
+				assertEquals(ArrowFeatureCollection.calcMagnatude(columns[i] * 10 + rows[i], 1),
+						((Double) arrow.getAttribute("magnatude")).doubleValue(), 1e-6);
+			}
+			assertFalse(it.hasNext());
+		} finally {
+			it.close();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package org.geoserver.wps.gs;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Collections;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CoverageInfo;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.util.ProgressListener;
+
+import com.vividsolutions.jts.geom.Point;
+
+public class VectorFieldProcessTest {
+
+	private static final int COLUMNS = 4;
+	private static final int ROWS = 2;
+
+	private File uFile;
+	private File vFile;
+	private GeoTiffReader uReader;
+	private GeoTiffReader vReader;
+
+	/**
+	 * u is the column plus one, v the row from the top, on 1 degree cells from 0, 0.
+	 */
+	@Before
+	public void createLayers() throws Exception {
+		float[][] u = new float[ROWS][COLUMNS];
+		float[][] v = new float[ROWS][COLUMNS];
+		for (int y = 0; y < ROWS; y++) {
+			for (int x = 0; x < COLUMNS; x++) {
+				u[y][x] = x + 1;
+				v[y][x] = y;
+			}
+		}
+		ReferencedEnvelope envelope = new ReferencedEnvelope(0, COLUMNS, 0, ROWS, DefaultGeographicCRS.WGS84);
+		uFile = write("u", u, envelope);
+		vFile = write("v", v, envelope);
+		uReader = new GeoTiffReader(uFile);
+		vReader = new GeoTiffReader(vFile);
+	}
+
+	private static File write(String name, float[][] values, ReferencedEnvelope envelope) throws Exception {
+		GridCoverage2D coverage = new GridCoverageFactory().create(name, values, envelope);
+		File file = File.createTempFile(name, ".tif");
+		GeoTiffWriter writer = new GeoTiffWriter(file);
+		try {
+			writer.write(coverage, null);
+		} finally {
+			writer.dispose();
+		}
+		return file;
+	}
+
+	@After
+	public void deleteLayers() {
+		uReader.dispose();
+		vReader.dispose();
+		uFile.delete();
+		vFile.delete();
+	}
+
+	private static CoverageInfo coverageInfo(GeoTiffReader reader) throws Exception {
+		CoverageInfo coverageInfo = createMock(CoverageInfo.class);
+		expect(coverageInfo.getGridCoverageReader((ProgressListener) anyObject(), (Hints) anyObject()))
+				.andReturn(reader).anyTimes();
+		expect(coverageInfo.getParameters()).andReturn(Collections.<String, Serializable> emptyMap()).anyTimes();
+		replay(coverageInfo);
+		return coverageInfo;
+	}
+
+	@Test
+	public void testUVGrid() throws Exception {
+		Catalog catalog = createMock(Catalog.class);
+		CoverageInfo uInfo = coverageInfo(uReader);
+		CoverageInfo vInfo = coverageInfo(vReader);
+		expect(catalog.getCoverageByName("u")).andReturn(uInfo);
+		expect(catalog.getCoverageByName("v")).andReturn(vInfo);
+		replay(catalog);
+
+		// no viewport size at the level: an arrow every pixel of the 4 by 2 map, on the cells of the layers.
+		ReferencedEnvelope bbox = new ReferencedEnvelope(0, COLUMNS, 0, ROWS, null);
+		SimpleFeatureCollection arrows = new VectorFieldProcess(catalog).execute(null, "u", "v", "", "", COLUMNS,
+				ROWS, DefaultGeographicCRS.WGS84, 5000, bbox, new int[] { 1000 }, new int[] { 1 },
+				new int[] { 12 }, new int[] { 0 }, new int[] { 0 });
+		verify(catalog);
+
+		assertEquals(COLUMNS * ROWS, arrows.size());
+		SimpleFeatureIterator it = arrows.features();
+		try {
+			while (it.hasNext()) {
+				SimpleFeature arrow = it.next();
+				Point point = (Point) arrow.getDefaultGeometry();
+				int x = (int) Math.floor(point.getX());
+				int y = (int) Math.floor(ROWS - point.getY());
+				assertEquals(x + 0.5, point.getX(), 1e-9);
+				assertEquals(ROWS - y - 0.5, point.getY(), 1e-9);
+				assertEquals(ArrowFeatureCollection.calcMagnatude(x + 1, y),
+						((Double) arrow.getAttribute("magnatude")).doubleValue(), 1e-6);
+				assertEquals(ArrowFeatureCollection.calcDirection(x + 1, y),
+						((Double) arrow.getAttribute("direction")).doubleValue(), 1e-6);
+				assertEquals(Integer.valueOf(12), arrow.getAttribute("gsize"));
+			}
+		} finally {
+			it.close();
+		}
+	}
+}
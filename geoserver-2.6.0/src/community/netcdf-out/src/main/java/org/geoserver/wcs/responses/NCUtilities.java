@@ -67,6 +67,13 @@ public class NCUtilities {
 
     public final static String MISSING_VALUE = "missing_value";
 
+    public final static String SCALE_FACTOR = "scale_factor";
+
+    public final static String ADD_OFFSET = "add_offset";
+
+    /** The fill value of data packed to short, out of the range of the packed values */
+    public final static short PACKED_FILL_VALUE = Short.MIN_VALUE;
+
     public final static String LON_UNITS = "degrees_east";
 
     public final static String LAT_UNITS = "degrees_north";
@@ -0,0 +1,396 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wcs.responses;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Writes a NetCDF-3 file (classic or 64-bit offset format) straight to an {@link OutputStream}, without a file to seek in.
+ *
+ * The header and the position of every variable are computed up front from the dimension sizes of the definitions, so the
+ * values only have to be written in the order of the file: variables in the order they are defined, and the slices of a
+ * variable by increasing origin. Values skipped over, such as a missing slice, are written as zeros. Record variables
+ * (unlimited dimensions) are not supported.
+ */
+class NetCDF3StreamWriter {
+
+    private static final byte[] MAGIC = { 'C', 'D', 'F' };
+
+    private static final byte CLASSIC_FORMAT = 1;
+
+    private static final byte OFFSET_64BIT_FORMAT = 2;
+
+    private static final int NC_DIMENSION = 0x0A;
+
+    private static final int NC_VARIABLE = 0x0B;
+
+    private static final int NC_ATTRIBUTE = 0x0C;
+
+    /** Largest vsize of a variable, only the last one may be larger. */
+    private static final long MAX_VSIZE = 0xFFFFFFFCL;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream output;
+
+    private final List<Variable> variables;
+
+    private final Map<String, Integer> variableIndexes = new HashMap<String, Integer>();
+
+    /** Bytes of the values of each variable, before padding. */
+    private final long[] sizes;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+
+    /** The variable being written. */
+    private int current;
+
+    /** Bytes of the current variable already written. */
+    private long written;
+
+    private boolean closed;
+
+    /**
+     * Write the header of the file.
+     *
+     * @param definitions the dimensions, attributes and variables of the file, as a {@link ucar.nc2.NetcdfFileWriter} in define
+     *        mode holds them.
+     * @param output where to write the file.
+     * @throws IOException
+     */
+    NetCDF3StreamWriter(final NetcdfFile definitions, final OutputStream output) throws IOException {
+        this.output = output;
+        this.variables = definitions.getRootGroup().getVariables();
+        this.sizes = new long[variables.size()];
+        for (int i = 0; i < variables.size(); i++) {
+            final Variable variable = variables.get(i);
+            variableIndexes.put(variable.getShortName(), i);
+            sizes[i] = variable.getSize() * getTypeSize(variable.getDataType());
+            if (i < variables.size() - 1 && sizes[i] > MAX_VSIZE) {
+                throw new IllegalArgumentException("Only the last variable of a NetCDF-3 file may be larger than 4GB: "
+                        + variable.getShortName());
+            }
+        }
+
+        // The header length depends on the width of the offsets only, not on their values.
+        final long[] begins = new long[variables.size()];
+        boolean largeFile = false;
+        layout(begins, encodeHeader(definitions, begins, false).length);
+        if (begins.length > 0 && begins[begins.length - 1] > Integer.MAX_VALUE) {
+            largeFile = true;
+            layout(begins, encodeHeader(definitions, begins, true).length);
+        }
+        output.write(encodeHeader(definitions, begins, largeFile));
+    }
+
+    private void layout(final long[] begins, final long headerSize) {
+        long begin = headerSize;
+        for (int i = 0; i < begins.length; i++) {
+            begins[i] = begin;
+            begin += padding(sizes[i]) + sizes[i];
+        }
+    }
+
+    /**
+     * Write all the values of a variable.
+     *
+     * @see #write(Variable, int[], Array)
+     */
+    void write(final Variable variable, final Array values) throws IOException {
+        write(variable, new int[variable.getRank()], values);
+    }
+
+    /**
+     * Write a contiguous slice of the values of a variable, converted to the data type of the variable.
+     *
+     * @param variable the variable, not before the last one written.
+     * @param origin where the slice starts in the variable, not before the end of the last slice written.
+     * @param values the slice. When it has less dimensions than the variable, they are the last dimensions of the variable.
+     *        The dimensions after its first one of more than one value must be whole.
+     * @throws IOException
+     */
+    void write(final Variable variable, final int[] origin, final Array values) throws IOException {
+        final Integer index = variableIndexes.get(variable.getShortName());
+        if (index == null) {
+            throw new IllegalArgumentException("The specified variable is not defined: " + variable.getShortName());
+        }
+        final int[] shape = variable.getShape();
+        final int[] valuesShape = values.getShape();
+        final int lead = shape.length - valuesShape.length;
+        if (origin.length != shape.length || lead < 0) {
+            throw new IllegalArgumentException("The slice doesn't match the dimensions of the variable: "
+                    + variable.getShortName());
+        }
+        // once a dimension of the slice has more than one value, the following ones must be whole
+        boolean whole = false;
+        for (int d = 0; d < valuesShape.length; d++) {
+            if (origin[lead + d] + valuesShape[d] > shape[lead + d]
+                    || (whole && (origin[lead + d] != 0 || valuesShape[d] != shape[lead + d]))) {
+                throw new IllegalArgumentException("Only contiguous slices of a variable can be streamed: "
+                        + variable.getShortName());
+            }
+            whole |= valuesShape[d] > 1;
+        }
+
+        // element offset of the origin
+        long offset = 0;
+        for (int d = 0; d < shape.length; d++) {
+            offset = offset * shape[d] + origin[d];
+        }
+        final DataType dataType = variable.getDataType();
+        offset *= getTypeSize(dataType);
+
+        if (index < current || (index == current && offset < written)) {
+            throw new IllegalStateException("Values must be written in the order of the file: "
+                    + variable.getShortName());
+        }
+        while (current < index) {
+            finishVariable();
+        }
+        fill(offset - written);
+        written = offset;
+
+        final IndexIterator iterator = values.getIndexIterator();
+        while (iterator.hasNext()) {
+            if (buffer.remaining() < 8) {
+                flushBuffer();
+            }
+            switch (dataType) {
+            case BYTE:
+            case CHAR:
+                buffer.put(iterator.getByteNext());
+                break;
+            case SHORT:
+                buffer.putShort(iterator.getShortNext());
+                break;
+            case INT:
+                buffer.putInt(iterator.getIntNext());
+                break;
+            case FLOAT:
+                buffer.putFloat(iterator.getFloatNext());
+                break;
+            case DOUBLE:
+                buffer.putDouble(iterator.getDoubleNext());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported NetCDF-3 data type: " + dataType);
+            }
+        }
+        written += values.getSize() * getTypeSize(dataType);
+        flushBuffer();
+    }
+
+    /**
+     * Write whatever was not written yet as zeros, and flush the output. The output is not closed.
+     *
+     * @throws IOException
+     */
+    void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        while (current < variables.size()) {
+            finishVariable();
+        }
+        output.flush();
+        closed = true;
+    }
+
+    private void finishVariable() throws IOException {
+        final long size = sizes[current];
+        fill(size - written + padding(size));
+        current++;
+        written = 0;
+    }
+
+    private void flushBuffer() throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private void fill(long bytes) throws IOException {
+        final byte[] zeros = new byte[(int) Math.min(bytes, BUFFER_SIZE)];
+        while (bytes > 0) {
+            final int length = (int) Math.min(bytes, zeros.length);
+            output.write(zeros, 0, length);
+            bytes -= length;
+        }
+    }
+
+    private static int padding(final long size) {
+        return (int) ((4 - size % 4) % 4);
+    }
+
+    /**
+     * Encode the header, as in the NetCDF-3 file format specification.
+     */
+    private byte[] encodeHeader(final NetcdfFile definitions, final long[] begins, final boolean largeFile)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream header = new DataOutputStream(bytes);
+        header.write(MAGIC);
+        header.write(largeFile ? OFFSET_64BIT_FORMAT : CLASSIC_FORMAT);
+        // numrecs, no record variables
+        header.writeInt(0);
+
+        final List<Dimension> dimensions = definitions.getRootGroup().getDimensions();
+        final Map<String, Integer> dimensionIds = new HashMap<String, Integer>();
+        if (dimensions.isEmpty()) {
+            header.writeInt(0);
+            header.writeInt(0);
+        } else {
+            header.writeInt(NC_DIMENSION);
+            header.writeInt(dimensions.size());
+            for (Dimension dimension : dimensions) {
+                if (dimension.isUnlimited()) {
+                    throw new IllegalArgumentException("Unlimited dimensions can't be streamed: "
+                            + dimension.getShortName());
+                }
+                dimensionIds.put(dimension.getShortName(), dimensionIds.size());
+                writeName(header, dimension.getShortName());
+                header.writeInt(dimension.getLength());
+            }
+        }
+
+        writeAttributes(header, definitions.getRootGroup().getAttributes());
+
+        if (variables.isEmpty()) {
+            header.writeInt(0);
+            header.writeInt(0);
+        } else {
+            header.writeInt(NC_VARIABLE);
+            header.writeInt(variables.size());
+            for (int i = 0; i < variables.size(); i++) {
+                final Variable variable = variables.get(i);
+                writeName(header, variable.getShortName());
+                final List<Dimension> variableDimensions = variable.getDimensions();
+                header.writeInt(variableDimensions.size());
+                for (Dimension dimension : variableDimensions) {
+                    header.writeInt(dimensionIds.get(dimension.getShortName()));
+                }
+                writeAttributes(header, variable.getAttributes());
+                header.writeInt(getTypeCode(variable.getDataType()));
+                final long vsize = padding(sizes[i]) + sizes[i];
+                header.writeInt(vsize > MAX_VSIZE ? -1 : (int) vsize);
+                if (largeFile) {
+                    header.writeLong(begins[i]);
+                } else {
+                    header.writeInt((int) begins[i]);
+                }
+            }
+        }
+        header.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeAttributes(final DataOutputStream header, final List<Attribute> attributes)
+            throws IOException {
+        if (attributes.isEmpty()) {
+            header.writeInt(0);
+            header.writeInt(0);
+            return;
+        }
+        header.writeInt(NC_ATTRIBUTE);
+        header.writeInt(attributes.size());
+        for (Attribute attribute : attributes) {
+            writeName(header, attribute.getShortName());
+            if (attribute.isString()) {
+                final String value = attribute.getStringValue();
+                final byte[] chars = value != null ? value.getBytes("UTF-8") : new byte[0];
+                header.writeInt(getTypeCode(DataType.CHAR));
+                header.writeInt(chars.length);
+                header.write(chars);
+                header.write(new byte[padding(chars.length)]);
+            } else {
+                final DataType dataType = attribute.getDataType();
+                final int length = attribute.getLength();
+                header.writeInt(getTypeCode(dataType));
+                header.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    final Number value = attribute.getNumericValue(i);
+                    switch (dataType) {
+                    case BYTE:
+                        header.writeByte(value.byteValue());
+                        break;
+                    case SHORT:
+                        header.writeShort(value.shortValue());
+                        break;
+                    case INT:
+                        header.writeInt(value.intValue());
+                        break;
+                    case FLOAT:
+                        header.writeFloat(value.floatValue());
+                        break;
+                    case DOUBLE:
+                        header.writeDouble(value.doubleValue());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported NetCDF-3 data type: " + dataType);
+                    }
+                }
+                header.write(new byte[padding((long) length * getTypeSize(dataType))]);
+            }
+        }
+    }
+
+    private static void writeName(final DataOutputStream header, final String name) throws IOException {
+        final byte[] chars = name.getBytes("UTF-8");
+        header.writeInt(chars.length);
+        header.write(chars);
+        header.write(new byte[padding(chars.length)]);
+    }
+
+    private static int getTypeCode(final DataType dataType) {
+        switch (dataType) {
+        case BYTE:
+            return 1;
+        case CHAR:
+            return 2;
+        case SHORT:
+            return 3;
+        case INT:
+            return 4;
+        case FLOAT:
+            return 5;
+        case DOUBLE:
+            return 6;
+        default:
+            throw new IllegalArgumentException("Unsupported NetCDF-3 data type: " + dataType);
+        }
+    }
+
+    private static int getTypeSize(final DataType dataType) {
+        switch (dataType) {
+        case BYTE:
+        case CHAR:
+            return 1;
+        case SHORT:
+            return 2;
+        case INT:
+        case FLOAT:
+            return 4;
+        case DOUBLE:
+            return 8;
+        default:
+            throw new IllegalArgumentException("Unsupported NetCDF-3 data type: " + dataType);
+        }
+    }
+}
@@ -36,6 +36,11 @@ public class NetCDFCoverageResponseDelegate extends BaseCoverageResponseDelegate
 
     public static final Logger LOGGER = Logging.getLogger("org.geoserver.wcs.responses.NetCDFCoverageResponseDelegate");
 
+    /**
+     * System property disabling the streaming of NetCDF-3 outputs, to go back to writing them to a temporary file first.
+     */
+    public static final String STREAMING_KEY = "NetCDFCoverageResponseDelegate.streaming";
+
     @SuppressWarnings("serial")
     public NetCDFCoverageResponseDelegate(GeoServer geoserver) {
         super(geoserver, Arrays.asList("NetCDF"/* ,"netcdf-GZIP" */), // output formats
@@ -78,23 +83,74 @@ public class NetCDFCoverageResponseDelegate extends BaseCoverageResponseDelegate
         // gzipOut = new GZIPOutputStream(output);
         // output = gzipOut;
         // }
+        final NetCDFEncodingParameters parameters = NetCDFEncodingParameters.parse(econdingParameters);
+        try {
+            // NetCDF-4 is written by the NetCDF C library, to a file
+            if (!parameters.getVersion().isNetdf4format() && isStreaming()) {
+                encodeToStream(granuleStack, parameters, output);
+            } else {
+                encodeToFile(granuleStack, parameters, output);
+            }
+        } finally {
+            sourceCoverage.dispose(true);
+        }
+    }
+
+    private boolean isStreaming() {
+        final String value = System.getProperty(STREAMING_KEY);
+        return value == null || Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Write the NetCDF output straight to the output stream, as the granules are read.
+     * @param granuleStack the granules to encode
+     * @param parameters the encoding parameters, of a NetCDF-3 version
+     * @param output the outputStream where to write the output
+     * @throws IOException
+     */
+    private void encodeToStream(final GranuleStack granuleStack,
+            final NetCDFEncodingParameters parameters, final OutputStream output) throws IOException {
+        NetCDFOutputManager manager = null;
+        try {
+            manager = new NetCDFOutputManager(granuleStack, parameters);
+            manager.write(output);
+
+        } catch (InvalidRangeException e) {
+            throw new IOException(e);
+        } finally {
+            if (manager != null) {
+                manager.close();
+            }
+        }
+    }
+
+    /**
+     * Write the NetCDF output to a temporary file, then stream it back.
+     * @param granuleStack the granules to encode
+     * @param parameters the encoding parameters
+     * @param output the outputStream where to write the output
+     * @throws IOException
+     */
+    private void encodeToFile(final GranuleStack granuleStack,
+            final NetCDFEncodingParameters parameters, final OutputStream output) throws IOException {
         File tempFile = null;
         NetCDFOutputManager manager = null;
         try {
             tempFile = File.createTempFile("tempNetCDF", ".nc");
-            manager = new NetCDFOutputManager(granuleStack, tempFile);
+            manager = new NetCDFOutputManager(granuleStack, tempFile, parameters);
             manager.write();
             streamBack(tempFile, output);
 
         } catch (InvalidRangeException e) {
             throw new IOException(e);
         } finally {
-            sourceCoverage.dispose(true);
             boolean deleted = FileUtils.deleteQuietly(tempFile);
-            if (!deleted) {
+            if (!deleted && tempFile != null) {
                 LOGGER.warning("Could not delete temp file: " + tempFile.getAbsolutePath());
             }
-            manager.close();
+            if (manager != null) {
+                manager.close();
+            }
         }
     }
 
@@ -0,0 +1,171 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wcs.responses;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geoserver.platform.ServiceException;
+import org.geotools.util.logging.Logging;
+
+import ucar.nc2.NetcdfFileWriter.Version;
+import ucar.nc2.jni.netcdf.Nc4Iosp;
+
+/**
+ * The encoding parameters of a NetCDF output, as the extensions of a WCS GetCoverage request give them.
+ *
+ * <ul>
+ * <li>{@value #VERSION}: <code>netcdf3</code> (default) or <code>netcdf4</code>. NetCDF-4 needs the NetCDF C library,
+ * NetCDF-3 is written instead when it is missing.</li>
+ * <li>{@value #DEFLATE_LEVEL}: deflate level of the data, from 0 (none) to 9, 4 by default. NetCDF-4 only.</li>
+ * <li>{@value #SHUFFLE}: whether the bytes of the data are shuffled before deflating them, true by default. NetCDF-4
+ * only.</li>
+ * <li>{@value #CHUNK_WIDTH}, {@value #CHUNK_HEIGHT}: size of the chunks of the data in a lat lon slice, the whole slice
+ * by default. Chunks never span more than one slice. NetCDF-4 only.</li>
+ * <li>{@value #DATA_PACKING}: <code>short</code> to pack float data to shorts, with <code>scale_factor</code> and
+ * <code>add_offset</code> attributes, or <code>none</code> (default).</li>
+ * </ul>
+ */
+public class NetCDFEncodingParameters {
+
+    private static final Logger LOGGER = Logging.getLogger(NetCDFEncodingParameters.class);
+
+    public static final String VERSION = "version";
+
+    public static final String DEFLATE_LEVEL = "deflatelevel";
+
+    public static final String SHUFFLE = "shuffle";
+
+    public static final String CHUNK_WIDTH = "chunkwidth";
+
+    public static final String CHUNK_HEIGHT = "chunkheight";
+
+    public static final String DATA_PACKING = "datapacking";
+
+    /** The parameters of a request having none. */
+    public static final NetCDFEncodingParameters DEFAULT = new NetCDFEncodingParameters();
+
+    private Version version = Version.netcdf3;
+
+    private int deflateLevel = 4;
+
+    private boolean shuffle = true;
+
+    /** 0 for the whole slice */
+    private int chunkWidth;
+
+    /** 0 for the whole slice */
+    private int chunkHeight;
+
+    private boolean dataPacking;
+
+    private NetCDFEncodingParameters() {
+    }
+
+    /**
+     * Parse the encoding parameters of a request.
+     *
+     * @param encodingParameters the parameters, may be null.
+     * @return the parameters
+     * @throws ServiceException in case of an invalid parameter value.
+     */
+    public static NetCDFEncodingParameters parse(final Map<String, String> encodingParameters)
+            throws ServiceException {
+        final NetCDFEncodingParameters parameters = new NetCDFEncodingParameters();
+        if (encodingParameters == null) {
+            return parameters;
+        }
+        final String version = encodingParameters.get(VERSION);
+        if (version != null) {
+            if ("netcdf4".equalsIgnoreCase(version)) {
+                if (isNetCDF4Available()) {
+                    parameters.version = Version.netcdf4;
+                } else if (LOGGER.isLoggable(Level.WARNING)) {
+                    LOGGER.warning("The NetCDF C library is not available, writing NetCDF-3 instead of NetCDF-4");
+                }
+            } else if (!"netcdf3".equalsIgnoreCase(version)) {
+                throw invalid(VERSION, version);
+            }
+        }
+        parameters.deflateLevel = parseInt(encodingParameters, DEFLATE_LEVEL, parameters.deflateLevel, 0, 9);
+        final String shuffle = encodingParameters.get(SHUFFLE);
+        if (shuffle != null) {
+            parameters.shuffle = Boolean.parseBoolean(shuffle);
+        }
+        parameters.chunkWidth = parseInt(encodingParameters, CHUNK_WIDTH, 0, 1, Integer.MAX_VALUE);
+        parameters.chunkHeight = parseInt(encodingParameters, CHUNK_HEIGHT, 0, 1, Integer.MAX_VALUE);
+        final String dataPacking = encodingParameters.get(DATA_PACKING);
+        if (dataPacking != null) {
+            if ("short".equalsIgnoreCase(dataPacking)) {
+                parameters.dataPacking = true;
+            } else if (!"none".equalsIgnoreCase(dataPacking)) {
+                throw invalid(DATA_PACKING, dataPacking);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return true if the NetCDF C library writing NetCDF-4 can be loaded.
+     */
+    static boolean isNetCDF4Available() {
+        try {
+            return Nc4Iosp.isClibraryPresent();
+        } catch (LinkageError e) {
+            // JNA itself is missing
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+            }
+            return false;
+        }
+    }
+
+    private static int parseInt(final Map<String, String> encodingParameters, final String name,
+            final int defaultValue, final int min, final int max) {
+        final String value = encodingParameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            final int result = Integer.parseInt(value.trim());
+            if (result >= min && result <= max) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // invalid as well
+        }
+        throw invalid(name, value);
+    }
+
+    private static ServiceException invalid(final String name, final String value) {
+        return new ServiceException("Invalid NetCDF encoding parameter " + name + ": " + value,
+                ServiceException.INVALID_PARAMETER_VALUE, name);
+    }
+
+    public Version getVersion() {
+        return version;
+    }
+
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    public int getChunkWidth() {
+        return chunkWidth;
+    }
+
+    public int getChunkHeight() {
+        return chunkHeight;
+    }
+
+    public boolean isDataPacking() {
+        return dataPacking;
+    }
+}
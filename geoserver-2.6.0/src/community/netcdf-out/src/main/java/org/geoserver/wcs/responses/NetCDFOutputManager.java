@@ -5,11 +5,24 @@
  */
 package org.geoserver.wcs.responses;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -21,9 +34,6 @@ import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RandomIter;
-import javax.media.jai.iterator.RandomIterFactory;
-
 import org.geoserver.wcs.responses.NetCDFDimensionManager.DimensionValuesArray;
 import org.geoserver.wcs.responses.NetCDFDimensionManager.DimensionValuesSet;
 import org.geoserver.wcs2_0.response.DimensionBean;
@@ -44,12 +54,15 @@ import ucar.ma2.Array;
 import ucar.ma2.ArrayFloat;
 import ucar.ma2.DataType;
 import ucar.ma2.Index;
+import ucar.ma2.IndexIterator;
 import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.NetcdfFileWriter.Version;
 import ucar.nc2.Variable;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.jni.netcdf.Nc4Chunking;
 
 /**
  * A class which takes care of initializing NetCDF dimension from coverages dimension, variables, values for the NetCDF output file
@@ -76,6 +89,19 @@ public class NetCDFOutputManager {
 
     /** The underlying {@link NetcdfFileWriter} which will be used to write down data. */
     private NetcdfFileWriter writer;
+
+    /** The {@link NetCDF3StreamWriter} writing data instead of the writer, when the output is a stream. */
+    private NetCDF3StreamWriter streamWriter;
+
+    /** The encoding parameters of the output. */
+    private final NetCDFEncodingParameters parameters;
+
+    /** Whether the data is packed to short, with {@link #scaleFactor} and {@link #addOffset}. */
+    private boolean packData;
+
+    private float scaleFactor;
+
+    private float addOffset;
     
     private final int getNumDimensions() {
         return dimensionMapping.keySet().size();
@@ -88,8 +114,46 @@ public class NetCDFOutputManager {
      * @throws IOException
      */
     public NetCDFOutputManager(final GranuleStack granuleStack, final File file) throws IOException {
+        this(granuleStack, file, NetCDFEncodingParameters.DEFAULT);
+    }
+
+    /**
+     * {@link NetCDFOutputManager} constructor.
+     * @param granuleStack the granule stack to be written
+     * @param file an output file
+     * @param parameters the encoding parameters: NetCDF version, chunking, compression and packing
+     * @throws IOException
+     */
+    public NetCDFOutputManager(final GranuleStack granuleStack, final File file,
+            final NetCDFEncodingParameters parameters) throws IOException {
         this.granuleStack = granuleStack;
-        this.writer = NetcdfFileWriter.createNew(Version.netcdf3, file.getAbsolutePath());
+        this.parameters = parameters;
+        initialize();
+        final Version version = parameters.getVersion();
+        if (version.isNetdf4format()) {
+            // Chunks and compression of the data variable
+            final Nc4Chunking chunking = new NetCDFSliceChunking(sampleGranule.getName().toString(), parameters);
+            this.writer = NetcdfFileWriter.createNew(version, file.getAbsolutePath(), chunking);
+        } else {
+            this.writer = NetcdfFileWriter.createNew(version, file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * {@link NetCDFOutputManager} constructor for a NetCDF-3 output written to a stream by {@link #write(OutputStream)}.
+     * @param granuleStack the granule stack to be written
+     * @param parameters the encoding parameters, of a NetCDF-3 version
+     * @throws IOException
+     */
+    public NetCDFOutputManager(final GranuleStack granuleStack, final NetCDFEncodingParameters parameters)
+            throws IOException {
+        if (parameters.getVersion().isNetdf4format()) {
+            throw new IllegalArgumentException("Only NetCDF-3 outputs can be streamed");
+        }
+        this.granuleStack = granuleStack;
+        this.parameters = parameters;
+        // The writer only collects the definitions, its file is never created
+        this.writer = NetcdfFileWriter.createNew(Version.netcdf3, "stream.nc");
         initialize();
     }
 
@@ -252,7 +316,92 @@ public class NetCDFOutputManager {
             netCDFDimensions.add(manager.getNetCDFDimension());
         }
         final String coverageName = sampleGranule.getName().toString();
-        writer.addVariable(null, coverageName, DataType.FLOAT, netCDFDimensions);
+        initializePacking();
+        if (packData) {
+            final Variable var = writer.addVariable(null, coverageName, DataType.SHORT, netCDFDimensions);
+            writer.addVariableAttribute(var, new Attribute(NCUtilities.SCALE_FACTOR, scaleFactor));
+            writer.addVariableAttribute(var, new Attribute(NCUtilities.ADD_OFFSET, addOffset));
+            writer.addVariableAttribute(var, new Attribute(NCUtilities.FILLVALUE, NCUtilities.PACKED_FILL_VALUE));
+        } else {
+            writer.addVariable(null, coverageName, DataType.FLOAT, netCDFDimensions);
+        }
+    }
+
+    /**
+     * Compute the scale factor and offset packing the data to short from the range of all the granules,
+     * when packing is requested for float data. The granules are read once more for that.
+     * NaN and infinite values are left out of the range.
+     */
+    private void initializePacking() {
+        final int imageDataType = sampleGranule.getRenderedImage().getSampleModel().getDataType();
+        packData = parameters.isDataPacking()
+                && (imageDataType == DataBuffer.TYPE_FLOAT || imageDataType == DataBuffer.TYPE_DOUBLE);
+        if (!packData) {
+            return;
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double[] samples = null;
+        for (GridCoverage2D granule : granuleStack.getGranules()) {
+            final RenderedImage ri = granule.getRenderedImage();
+            final Rectangle imageBounds = new Rectangle(ri.getMinX(), ri.getMinY(), ri.getWidth(), ri.getHeight());
+            for (int tileY = ri.getMinTileY(); tileY < ri.getMinTileY() + ri.getNumYTiles(); tileY++) {
+                for (int tileX = ri.getMinTileX(); tileX < ri.getMinTileX() + ri.getNumXTiles(); tileX++) {
+                    final Raster tile = ri.getTile(tileX, tileY);
+                    final Rectangle bounds = tile.getBounds().intersection(imageBounds);
+                    if (bounds.isEmpty()) {
+                        continue;
+                    }
+                    final int length = bounds.width * bounds.height;
+                    if (samples == null || samples.length < length) {
+                        samples = new double[length];
+                    }
+                    tile.getSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0, samples);
+                    for (int i = 0; i < length; i++) {
+                        if (Double.isInfinite(samples[i])) {
+                            continue;
+                        }
+                        // NaN fails both comparisons
+                        if (samples[i] < min) {
+                            min = samples[i];
+                        }
+                        if (samples[i] > max) {
+                            max = samples[i];
+                        }
+                    }
+                }
+            }
+        }
+        if (min > max) {
+            // no values at all
+            min = max = 0;
+        }
+
+        // Values spread over [-32767, 32767], -32768 being the fill value
+        scaleFactor = max > min ? (float) ((max - min) / (2d * Short.MAX_VALUE)) : 1f;
+        addOffset = (float) ((max + min) / 2d);
+    }
+
+    /**
+     * Pack a slice of float data to short, with the scale factor and offset.
+     * NaN values become the fill value, infinite values the ends of the packed range.
+     */
+    private Array pack(final Array slice) {
+        final Array packed = Array.factory(DataType.SHORT, slice.getShape());
+        final short[] values = (short[]) packed.getStorage();
+        final IndexIterator iterator = slice.getIndexIterator();
+        for (int i = 0; i < values.length; i++) {
+            final double value = iterator.getDoubleNext();
+            if (Double.isNaN(value)) {
+                values[i] = NCUtilities.PACKED_FILL_VALUE;
+            } else {
+                // Math.round saturates infinite values
+                final long packedValue = Math.round((value - addOffset) / scaleFactor);
+                values[i] = (short) Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, packedValue));
+            }
+        }
+        return packed;
     }
 
     /**
@@ -276,7 +425,7 @@ public class NetCDFOutputManager {
                 throw new IllegalArgumentException("Unable to find the specified coordinate variable: " + dimensionName);
             }
             // Writing coordinate variable values
-            writer.write(var, manager.getDimensionData(false));
+            write(var, manager.getDimensionData(false));
 
             // handle ranges
             DimensionBean coverageDimension = manager.getCoverageDimension();
@@ -284,15 +433,18 @@ public class NetCDFOutputManager {
                 boolean isRange = coverageDimension.isRange();
                 if (isRange) {
                     var = writer.findVariable(dimensionName + NCUtilities.BOUNDS_SUFFIX);
-                    writer.write(var, manager.getDimensionData(true));
+                    write(var, manager.getDimensionData(true));
                 }
             }
         }
     }
 
     /**
-     * Set the variables values
-     * @param writer
+     * Set the variables values, one granule at a time: the 2D slice of each granule is written at its origin
+     * as soon as it is read, and the granule is released before reading the next one.
+     * Granules are written in the order of their slices in the file, as a stream needs them.
+     * Slices missing from the granule stack are written with the fill value, so that NetCDF-3 files,
+     * streams and NetCDF-4 files read the same.
      * @throws IOException
      * @throws InvalidRangeException
      */
@@ -314,95 +466,242 @@ public class NetCDFOutputManager {
         // Get the data type for a sample image (All granules of the same coverage will use
         final int imageDataType = sampleGranule.getRenderedImage().getSampleModel().getDataType();
         final DataType netCDFDataType = NCUtilities.transcodeImageDataType(imageDataType);
-        final Array matrix = NCUtilities.getArray(dimSize, netCDFDataType);
-
-        // Loop over all granules
-        for (GridCoverage2D gridCoverage: granuleStack.getGranules()) {
-            final RenderedImage ri = gridCoverage.getRenderedImage();
-
-            //
-            // Preparing tile properties for future scan
-            //
-            int width = ri.getWidth();
-            int height = ri.getHeight();
-            int minX = ri.getMinX();
-            int minY = ri.getMinY();
-            int maxX = minX + width - 1;
-            int maxY = minY + height - 1;
-            int tileWidth = Math.min(ri.getTileWidth(), width);
-            int tileHeight = Math.min(ri.getTileHeight(), height);
-
-            int minTileX = minX / tileWidth - (minX < 0 ? (-minX % tileWidth > 0 ? 1 : 0): 0);
-            int minTileY = minY / tileHeight - (minY < 0 ? (-minY % tileHeight > 0 ? 1 : 0): 0);
-            int maxTileX = maxX / tileWidth - (maxX < 0 ? (-maxX % tileWidth > 0 ? 1 : 0): 0);
-            int maxTileY = maxY / tileHeight - (maxY < 0 ? (-maxY % tileHeight > 0 ? 1 : 0): 0);
-
-            final Index matrixIndex = matrix.getIndex();
-            final int indexing[] = new int[numDimensions];
-
-            // Update the NetCDF array indexing to set values for a specific 2D slice 
-            updateIndexing(indexing, gridCoverage);
-
-            // ----------------
-            // Fill data matrix
-            // ----------------
-
-            // Loop over bands using a RandomIter 
-            final RandomIter data = RandomIterFactory.create(ri, null);
-            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-                for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-                    for (int trow = 0; trow < tileHeight; trow++) {
-                        int j = (tileY * tileHeight) + trow;
-                        if ((j >= minY) && (j <= maxY)) {
-                            for (int tcol = 0; tcol < tileWidth; tcol++) {
-                                int col = (tileX * tileWidth) + tcol;
-                                if ((col >= minX) && (col <= maxX)) {
-                                    int k = col;
-                                    final int yPos = height - j + minY - 1;
-
-                                    // Simply setting lat and lon
-                                    indexing[numDimensions - 1] = k - minX;
-                                    indexing[numDimensions - 2] = yPos;
-                                    matrixIndex.set(indexing);
-
-                                    // Write data
-                                    switch (netCDFDataType) {
-                                    case BYTE:
-                                        byte sampleByte = (byte) data.getSampleFloat(k, j, 0);
-                                        matrix.setByte(matrixIndex, sampleByte);
-                                        break;
-                                    case SHORT:
-                                        short sampleShort = (short) data.getSampleFloat(k, j, 0);
-                                        matrix.setShort(matrixIndex, sampleShort);
-                                        break;
-                                    case INT:
-                                        int sampleInt = (int) data.getSampleFloat(k, j, 0);
-                                        matrix.setInt(matrixIndex, sampleInt);
-                                        break;
-                                    case FLOAT:
-                                        float sampleFloat = data.getSampleFloat(k, j, 0);
-                                        matrix.setFloat(matrixIndex, sampleFloat);
-                                        break;
-                                    case DOUBLE:
-                                        double sampleDouble = data.getSampleDouble(k, j, 0);
-                                        matrix.setDouble(matrixIndex, sampleDouble);
-                                        break;
-                                    }
-                                }
-                            }
+
+        // Get the origin of the slice of each granule from its dimension values
+        final List<GridCoverage2D> granules = granuleStack.getGranules();
+        final int[][] origins = new int[granules.size()][];
+        final Integer[] order = new Integer[granules.size()];
+        for (int i = 0; i < order.length; i++) {
+            origins[i] = new int[numDimensions];
+            updateIndexing(origins[i], granules.get(i));
+            order[i] = i;
+        }
+        // a stable sort, so that the last of the granules having the same origin wins
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return compareOrigins(origins[o1], origins[o2]);
+            }
+        });
+
+        // A single lat lon slice of the variable
+        final int[] sliceShape = new int[numDimensions];
+        Arrays.fill(sliceShape, 1);
+        sliceShape[numDimensions - 2] = dimSize[numDimensions - 2];
+        sliceShape[numDimensions - 1] = dimSize[numDimensions - 1];
+
+        // The slice written where no granule is available
+        final Array fillSlice = getFillSlice(sliceShape);
+        final int[] nextOrigin = new int[numDimensions];
+        boolean filled = false;
+
+        for (int i = 0; i < order.length; i++) {
+            final GridCoverage2D granule = granules.get(order[i]);
+            if (i + 1 < order.length && compareOrigins(origins[order[i]], origins[order[i + 1]]) == 0) {
+                // overwritten by the next granule
+                granule.dispose(true);
+                continue;
+            }
+            final Array slice = NCUtilities.getArray(sliceShape, netCDFDataType);
+            copySamples(granule.getRenderedImage(), slice);
+
+            // Release the granule (its tiles and readers) before reading the next one
+            granule.dispose(true);
+
+            // Fill the slices before this one, then write it to the variable
+            while (!filled && compareOrigins(nextOrigin, origins[order[i]]) < 0) {
+                write(var, nextOrigin.clone(), fillSlice);
+                filled = !nextSliceOrigin(nextOrigin, dimSize);
+            }
+            write(var, origins[order[i]], packData ? pack(slice) : slice);
+            if (!filled) {
+                filled = !nextSliceOrigin(nextOrigin, dimSize);
+            }
+        }
+        while (!filled) {
+            write(var, nextOrigin.clone(), fillSlice);
+            filled = !nextSliceOrigin(nextOrigin, dimSize);
+        }
+        if (streamWriter == null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Return a slice of the data variable holding its fill value: the fill value of packed data,
+     * the default NetCDF fill value of floats otherwise.
+     */
+    private Array getFillSlice(final int[] sliceShape) {
+        final Array fillSlice;
+        if (packData) {
+            fillSlice = Array.factory(DataType.SHORT, sliceShape);
+            Arrays.fill((short[]) fillSlice.getStorage(), NCUtilities.PACKED_FILL_VALUE);
+        } else {
+            fillSlice = Array.factory(DataType.FLOAT, sliceShape);
+            Arrays.fill((float[]) fillSlice.getStorage(), N3iosp.NC_FILL_FLOAT);
+        }
+        return fillSlice;
+    }
+
+    /**
+     * Move an origin to the next lat lon slice, in file order.
+     * @return false past the last slice
+     */
+    private static boolean nextSliceOrigin(final int[] origin, final int[] dimSize) {
+        for (int i = origin.length - 3; i >= 0; i--) {
+            if (++origin[i] < dimSize[i]) {
+                return true;
+            }
+            origin[i] = 0;
+        }
+        return false;
+    }
+
+    private static int compareOrigins(final int[] origin1, final int[] origin2) {
+        for (int i = 0; i < origin1.length; i++) {
+            if (origin1[i] != origin2[i]) {
+                return origin1[i] < origin2[i] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Copy the first band of an image into a lat lon slice, rows flipped since latitudes go up.
+     * Rows are copied in bulk from the data buffer of each tile, or through the tile raster
+     * when the layout of the data buffer doesn't allow it.
+     * 
+     * @param ri the image
+     * @param slice the slice, of the data type of the image and of its size
+     */
+    private void copySamples(final RenderedImage ri, final Array slice) {
+        final Rectangle imageBounds = new Rectangle(ri.getMinX(), ri.getMinY(), ri.getWidth(), ri.getHeight());
+        final int width = imageBounds.width;
+        final Object target = slice.getStorage();
+
+        for (int tileY = ri.getMinTileY(); tileY < ri.getMinTileY() + ri.getNumYTiles(); tileY++) {
+            for (int tileX = ri.getMinTileX(); tileX < ri.getMinTileX() + ri.getNumXTiles(); tileX++) {
+                final Raster tile = ri.getTile(tileX, tileY);
+                final Rectangle bounds = tile.getBounds().intersection(imageBounds);
+                if (bounds.isEmpty()) {
+                    continue;
+                }
+
+                // Position of the first sample of the first band in the bank
+                final SampleModel sampleModel = tile.getSampleModel();
+                Object source = null;
+                int pixelStride = 0;
+                int scanlineStride = 0;
+                int sampleOffset = 0;
+                if (sampleModel instanceof ComponentSampleModel) {
+                    final ComponentSampleModel csm = (ComponentSampleModel) sampleModel;
+                    final DataBuffer buffer = tile.getDataBuffer();
+                    final int bank = csm.getBankIndices()[0];
+                    source = getBankData(buffer, bank);
+                    pixelStride = csm.getPixelStride();
+                    scanlineStride = csm.getScanlineStride();
+                    sampleOffset = buffer.getOffsets()[bank] + csm.getBandOffsets()[0]
+                            - tile.getSampleModelTranslateY() * scanlineStride
+                            - tile.getSampleModelTranslateX() * pixelStride;
+                }
+
+                for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                    final int targetPos = (imageBounds.y + imageBounds.height - 1 - y) * width
+                            + bounds.x - imageBounds.x;
+                    if (source != null && source.getClass() == target.getClass()) {
+                        final int sourcePos = sampleOffset + y * scanlineStride + bounds.x * pixelStride;
+                        if (pixelStride == 1) {
+                            System.arraycopy(source, sourcePos, target, targetPos, bounds.width);
+                        } else {
+                            copyStrided(source, sourcePos, pixelStride, target, targetPos, bounds.width);
                         }
+                    } else {
+                        final double[] row = tile.getSamples(bounds.x, y, bounds.width, 1, 0, (double[]) null);
+                        copyRow(row, target, targetPos);
                     }
                 }
             }
-            // Finalize the iterator 
-            data.done();
         }
+    }
 
-        // ------------------------------
-        // Write the data to the variable
-        // ------------------------------
-        writer.write(var, matrix);
-        writer.flush();
+    /**
+     * Return the java array of a bank of a data buffer, null for a data buffer of an unknown class.
+     */
+    private static Object getBankData(final DataBuffer buffer, final int bank) {
+        if (buffer instanceof DataBufferByte) {
+            return ((DataBufferByte) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferShort) {
+            return ((DataBufferShort) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferInt) {
+            return ((DataBufferInt) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferFloat) {
+            return ((DataBufferFloat) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferDouble) {
+            return ((DataBufferDouble) buffer).getData(bank);
+        }
+        return null;
+    }
+
+    /**
+     * Copy samples one pixel apart in the source to consecutive elements of the target, of the same type.
+     */
+    private static void copyStrided(final Object source, final int sourcePos, final int pixelStride,
+            final Object target, final int targetPos, final int length) {
+        if (target instanceof byte[]) {
+            final byte[] from = (byte[]) source, to = (byte[]) target;
+            for (int i = 0; i < length; i++) {
+                to[targetPos + i] = from[sourcePos + i * pixelStride];
+            }
+        } else if (target instanceof short[]) {
+            final short[] from = (short[]) source, to = (short[]) target;
+            for (int i = 0; i < length; i++) {
+                to[targetPos + i] = from[sourcePos + i * pixelStride];
+            }
+        } else if (target instanceof int[]) {
+            final int[] from = (int[]) source, to = (int[]) target;
+            for (int i = 0; i < length; i++) {
+                to[targetPos + i] = from[sourcePos + i * pixelStride];
+            }
+        } else if (target instanceof float[]) {
+            final float[] from = (float[]) source, to = (float[]) target;
+            for (int i = 0; i < length; i++) {
+                to[targetPos + i] = from[sourcePos + i * pixelStride];
+            }
+        } else {
+            final double[] from = (double[]) source, to = (double[]) target;
+            for (int i = 0; i < length; i++) {
+                to[targetPos + i] = from[sourcePos + i * pixelStride];
+            }
+        }
+    }
+
+    /**
+     * Copy a row of samples to consecutive elements of the target, casting them to its type.
+     */
+    private static void copyRow(final double[] row, final Object target, final int targetPos) {
+        if (target instanceof byte[]) {
+            final byte[] to = (byte[]) target;
+            for (int i = 0; i < row.length; i++) {
+                to[targetPos + i] = (byte) row[i];
+            }
+        } else if (target instanceof short[]) {
+            final short[] to = (short[]) target;
+            for (int i = 0; i < row.length; i++) {
+                to[targetPos + i] = (short) row[i];
+            }
+        } else if (target instanceof int[]) {
+            final int[] to = (int[]) target;
+            for (int i = 0; i < row.length; i++) {
+                to[targetPos + i] = (int) row[i];
+            }
+        } else if (target instanceof float[]) {
+            final float[] to = (float[]) target;
+            for (int i = 0; i < row.length; i++) {
+                to[targetPos + i] = (float) row[i];
+            }
+        } else {
+            System.arraycopy(row, 0, target, targetPos, row.length);
+        }
     }
 
     /**
@@ -545,6 +844,48 @@ public class NetCDFOutputManager {
 
     }
 
+    /**
+     * Write the NetCDF file to a stream, as the granules are read, without a temporary file.
+     * Only for a manager built with {@link #NetCDFOutputManager(GranuleStack, NetCDFEncodingParameters)}.
+     * @param output the stream. It is flushed, not closed.
+     * @throws IOException
+     * @throws InvalidRangeException
+     */
+    public void write(final OutputStream output) throws IOException, InvalidRangeException {
+        initializeNetCDFDimensions();
+        initializeNetCDFVariables();
+
+        // end of define mode: the header is written with the layout of all the variables
+        streamWriter = new NetCDF3StreamWriter(writer.getNetcdfFile(), output);
+
+        // Setting values
+        setCoordinateVariables();
+        writeDataValues();
+
+        // Write what may be missing and flush
+        streamWriter.close();
+    }
+
+    /**
+     * Write the values of a variable to the stream writer if any, to the file otherwise.
+     */
+    private void write(final Variable var, final Array values) throws IOException,
+            InvalidRangeException {
+        write(var, new int[var.getRank()], values);
+    }
+
+    /**
+     * Write a slice of a variable to the stream writer if any, to the file otherwise.
+     */
+    private void write(final Variable var, final int[] origin, final Array values)
+            throws IOException, InvalidRangeException {
+        if (streamWriter != null) {
+            streamWriter.write(var, origin, values);
+        } else {
+            writer.write(var, origin, values);
+        }
+    }
+
     /**
      * Release resources
      */
@@ -0,0 +1,58 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wcs.responses;
+
+import ucar.nc2.Variable;
+import ucar.nc2.jni.netcdf.Nc4Chunking;
+
+/**
+ * NetCDF-4 chunking of the data variable of an output along its lat lon slices: chunks of (1, ..., 1, y, x), y and x
+ * up to the whole slice, deflated and shuffled as the encoding parameters say. The coordinate variables are left
+ * contiguous and uncompressed.
+ */
+class NetCDFSliceChunking implements Nc4Chunking {
+
+    private final String dataVariableName;
+
+    private final NetCDFEncodingParameters parameters;
+
+    NetCDFSliceChunking(final String dataVariableName, final NetCDFEncodingParameters parameters) {
+        this.dataVariableName = dataVariableName;
+        this.parameters = parameters;
+    }
+
+    @Override
+    public boolean isChunked(Variable v) {
+        return dataVariableName.equals(v.getShortName()) && v.getRank() >= 2;
+    }
+
+    @Override
+    public long[] computeChunking(Variable v) {
+        final int[] shape = v.getShape();
+        final int rank = shape.length;
+        final long[] chunks = new long[rank];
+        for (int i = 0; i < rank - 2; i++) {
+            chunks[i] = 1;
+        }
+        chunks[rank - 2] = chunkSize(shape[rank - 2], parameters.getChunkHeight());
+        chunks[rank - 1] = chunkSize(shape[rank - 1], parameters.getChunkWidth());
+        return chunks;
+    }
+
+    private static long chunkSize(final int size, final int requested) {
+        return requested > 0 ? Math.min(size, requested) : size;
+    }
+
+    @Override
+    public int getDeflateLevel(Variable v) {
+        // only chunked variables can be deflated
+        return isChunked(v) ? parameters.getDeflateLevel() : 0;
+    }
+
+    @Override
+    public boolean isShuffle(Variable v) {
+        return isChunked(v) && parameters.getDeflateLevel() > 0 && parameters.isShuffle();
+    }
+}
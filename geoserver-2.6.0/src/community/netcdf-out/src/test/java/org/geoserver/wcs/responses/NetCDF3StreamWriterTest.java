@@ -0,0 +1,148 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wcs.responses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ucar.ma2.Array;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.ArrayShort;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.NetcdfFileWriter.Version;
+import ucar.nc2.Variable;
+
+public class NetCDF3StreamWriterTest {
+
+    private NetcdfFileWriter writer;
+
+    private Variable time;
+
+    private Variable data;
+
+    @Before
+    public void setUp() throws Exception {
+        // only the definitions, as the output manager does when streaming
+        writer = NetcdfFileWriter.createNew(Version.netcdf3, "test.nc");
+        final Dimension timeDim = writer.addDimension(null, "time", 3);
+        final Dimension latDim = writer.addDimension(null, NCUtilities.LAT, 2);
+        final Dimension lonDim = writer.addDimension(null, NCUtilities.LON, 3);
+        writer.addGroupAttribute(null, new Attribute("title", "stream"));
+
+        time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+        writer.addVariableAttribute(time, new Attribute(NCUtilities.UNITS, NCUtilities.TIME_ORIGIN));
+
+        final List<Dimension> dimensions = new ArrayList<Dimension>();
+        dimensions.add(timeDim);
+        dimensions.add(latDim);
+        dimensions.add(lonDim);
+        data = writer.addVariable(null, "NO2", DataType.FLOAT, dimensions);
+        writer.addVariableAttribute(data, new Attribute(NCUtilities.FILLVALUE, -1f));
+    }
+
+    private static Array slice(float first) {
+        final ArrayFloat.D2 slice = new ArrayFloat.D2(2, 3);
+        for (int i = 0; i < 6; i++) {
+            slice.setFloat(i, first + i);
+        }
+        return slice;
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final NetCDF3StreamWriter streamWriter = new NetCDF3StreamWriter(writer.getNetcdfFile(), output);
+        streamWriter.write(time, Array.factory(new double[] { 0, 3600, 7200 }));
+        // the second time is missing
+        streamWriter.write(data, new int[] { 0, 0, 0 }, slice(10));
+        // a slice of as many dimensions as the variable
+        streamWriter.write(data, new int[] { 2, 0, 0 }, slice(30).reshape(new int[] { 1, 2, 3 }));
+        streamWriter.close();
+
+        final NetcdfFile file = NetcdfFile.openInMemory("test.nc", output.toByteArray());
+        try {
+            assertEquals("stream", file.findGlobalAttribute("title").getStringValue());
+            final Variable timeVar = file.findVariable("time");
+            assertEquals(NCUtilities.TIME_ORIGIN, timeVar.findAttribute(NCUtilities.UNITS).getStringValue());
+            final ArrayDouble times = (ArrayDouble) timeVar.read();
+            assertEquals(7200, times.getDouble(2), 0d);
+
+            final Variable dataVar = file.findVariable("NO2");
+            assertEquals(-1f, dataVar.findAttribute(NCUtilities.FILLVALUE).getNumericValue().floatValue(), 0f);
+            final Array values = dataVar.read();
+            assertEquals(18, values.getSize());
+            assertEquals(10f, values.getFloat(0), 0f);
+            assertEquals(15f, values.getFloat(5), 0f);
+            assertEquals(0f, values.getFloat(6), 0f);
+            assertEquals(0f, values.getFloat(11), 0f);
+            assertEquals(30f, values.getFloat(12), 0f);
+            assertEquals(35f, values.getFloat(17), 0f);
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void testPaddingAndConversion() throws Exception {
+        // a short variable with an odd number of values is padded, shorts are written as floats
+        final NetcdfFileWriter shorts = NetcdfFileWriter.createNew(Version.netcdf3, "shorts.nc");
+        shorts.addDimension(null, NCUtilities.LON, 3);
+        final Variable lon = shorts.addVariable(null, NCUtilities.LON, DataType.SHORT, NCUtilities.LON);
+        final Variable values = shorts.addVariable(null, "values", DataType.FLOAT, NCUtilities.LON);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final NetCDF3StreamWriter streamWriter = new NetCDF3StreamWriter(shorts.getNetcdfFile(), output);
+        streamWriter.write(lon, Array.factory(new short[] { 1, 2, 3 }));
+        final ArrayShort.D1 shortValues = new ArrayShort.D1(3);
+        shortValues.set(2, (short) 7);
+        streamWriter.write(values, shortValues);
+        streamWriter.close();
+
+        final NetcdfFile file = NetcdfFile.openInMemory("shorts.nc", output.toByteArray());
+        try {
+            assertEquals(3, file.findVariable(NCUtilities.LON).read().getShort(2));
+            assertEquals(7f, file.findVariable("values").read().getFloat(2), 0f);
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void testOutOfOrder() throws Exception {
+        final NetCDF3StreamWriter streamWriter = new NetCDF3StreamWriter(writer.getNetcdfFile(),
+                new ByteArrayOutputStream());
+        streamWriter.write(data, new int[] { 1, 0, 0 }, slice(20));
+        try {
+            streamWriter.write(data, new int[] { 0, 0, 0 }, slice(10));
+            fail("A slice before the last one written can't be streamed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            streamWriter.write(time, Array.factory(new double[] { 0, 3600, 7200 }));
+            fail("A variable before the last one written can't be streamed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            streamWriter.write(data, new int[] { 2, 0, 1 }, new ArrayFloat.D3(1, 2, 2));
+            fail("A slice of partial rows isn't contiguous");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wcs.responses;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geoserver.platform.ServiceException;
+import org.junit.Test;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.NetcdfFileWriter.Version;
+import ucar.nc2.Variable;
+
+public class NetCDFEncodingParametersTest {
+
+    @Test
+    public void testDefaults() {
+        final NetCDFEncodingParameters parameters = NetCDFEncodingParameters.parse(null);
+        assertEquals(Version.netcdf3, parameters.getVersion());
+        assertEquals(4, parameters.getDeflateLevel());
+        assertTrue(parameters.isShuffle());
+        assertEquals(0, parameters.getChunkWidth());
+        assertFalse(parameters.isDataPacking());
+    }
+
+    @Test
+    public void testParse() {
+        final Map<String, String> encodingParameters = new HashMap<String, String>();
+        encodingParameters.put(NetCDFEncodingParameters.DEFLATE_LEVEL, "9");
+        encodingParameters.put(NetCDFEncodingParameters.SHUFFLE, "false");
+        encodingParameters.put(NetCDFEncodingParameters.CHUNK_WIDTH, "100");
+        encodingParameters.put(NetCDFEncodingParameters.DATA_PACKING, "short");
+        final NetCDFEncodingParameters parameters = NetCDFEncodingParameters.parse(encodingParameters);
+        assertEquals(9, parameters.getDeflateLevel());
+        assertFalse(parameters.isShuffle());
+        assertEquals(100, parameters.getChunkWidth());
+        assertEquals(0, parameters.getChunkHeight());
+        assertTrue(parameters.isDataPacking());
+    }
+
+    @Test
+    public void testNetCDF4() {
+        assumeTrue(NetCDFEncodingParameters.isNetCDF4Available());
+        assertEquals(Version.netcdf4, parseVersion("NetCDF4"));
+        assertEquals(Version.netcdf3, parseVersion("netcdf3"));
+    }
+
+    @Test
+    public void testNetCDF4Fallback() {
+        // NetCDF-3 without the NetCDF C library
+        assumeFalse(NetCDFEncodingParameters.isNetCDF4Available());
+        assertEquals(Version.netcdf3, parseVersion("netcdf4"));
+    }
+
+    private static Version parseVersion(final String version) {
+        return NetCDFEncodingParameters.parse(
+                Collections.singletonMap(NetCDFEncodingParameters.VERSION, version)).getVersion();
+    }
+
+    @Test
+    public void testInvalid() {
+        assertInvalid(NetCDFEncodingParameters.VERSION, "netcdf5");
+        assertInvalid(NetCDFEncodingParameters.DEFLATE_LEVEL, "10");
+        assertInvalid(NetCDFEncodingParameters.CHUNK_HEIGHT, "0");
+        assertInvalid(NetCDFEncodingParameters.CHUNK_WIDTH, "wide");
+        assertInvalid(NetCDFEncodingParameters.DATA_PACKING, "byte");
+    }
+
+    private static void assertInvalid(final String name, final String value) {
+        final Map<String, String> encodingParameters = new HashMap<String, String>();
+        encodingParameters.put(name, value);
+        try {
+            NetCDFEncodingParameters.parse(encodingParameters);
+            fail("Invalid " + name + " accepted: " + value);
+        } catch (ServiceException e) {
+            assertEquals(ServiceException.INVALID_PARAMETER_VALUE, e.getCode());
+            assertEquals(name, e.getLocator());
+        }
+    }
+
+    @Test
+    public void testSliceChunking() throws Exception {
+        final NetcdfFileWriter writer = NetcdfFileWriter.createNew(Version.netcdf3, "chunks.nc");
+        final List<Dimension> dimensions = new ArrayList<Dimension>();
+        dimensions.add(writer.addDimension(null, "time", 50));
+        dimensions.add(writer.addDimension(null, "elevation", 20));
+        dimensions.add(writer.addDimension(null, NCUtilities.LAT, 1000));
+        dimensions.add(writer.addDimension(null, NCUtilities.LON, 800));
+        final Variable data = writer.addVariable(null, "NO2", DataType.FLOAT, dimensions);
+        final Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+
+        final Map<String, String> encodingParameters = new HashMap<String, String>();
+        encodingParameters.put(NetCDFEncodingParameters.CHUNK_HEIGHT, "256");
+        encodingParameters.put(NetCDFEncodingParameters.CHUNK_WIDTH, "1024");
+        final NetCDFSliceChunking chunking = new NetCDFSliceChunking("NO2",
+                NetCDFEncodingParameters.parse(encodingParameters));
+
+        assertTrue(chunking.isChunked(data));
+        assertArrayEquals(new long[] { 1, 1, 256, 800 }, chunking.computeChunking(data));
+        assertEquals(4, chunking.getDeflateLevel(data));
+        assertTrue(chunking.isShuffle(data));
+
+        assertFalse(chunking.isChunked(time));
+        assertEquals(0, chunking.getDeflateLevel(time));
+        assertFalse(chunking.isShuffle(time));
+    }
+}
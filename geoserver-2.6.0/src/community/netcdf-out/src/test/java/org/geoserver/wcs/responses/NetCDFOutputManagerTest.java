@@ -0,0 +1,367 @@
+/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wcs.responses;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.media.jai.TiledImage;
+
+import org.geoserver.wcs2_0.response.DimensionBean;
+import org.geoserver.wcs2_0.response.DimensionBean.DimensionType;
+import org.geoserver.wcs2_0.response.GranuleStackImpl;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.util.DateRange;
+import org.geotools.util.NumberRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+
+public class NetCDFOutputManagerTest {
+
+    private static final String NAME = "NO2";
+
+    private static final int WIDTH = 5;
+
+    private static final int HEIGHT = 3;
+
+    private static final ReferencedEnvelope ENVELOPE = new ReferencedEnvelope(10, 15, 40, 43,
+            DefaultGeographicCRS.WGS84);
+
+    private static final DateRange[] TIMES = new DateRange[] {
+            new DateRange(new Date(1000000000000l), new Date(1000000000000l)),
+            new DateRange(new Date(1000003600000l), new Date(1000003600000l)) };
+
+    @SuppressWarnings("unchecked")
+    private static final NumberRange<Double>[] ELEVATIONS = new NumberRange[] {
+            NumberRange.create(0d, 0d), NumberRange.create(100d, 100d) };
+
+    private GranuleStackImpl stack;
+
+    private List<CountingTiledImage> tiledImages;
+
+    private File file;
+
+    /**
+     * A tiled image counting its disposals.
+     */
+    static class CountingTiledImage extends TiledImage {
+
+        int disposed;
+
+        CountingTiledImage(int minX, int minY, int width, int height, int tileGridXOffset,
+                int tileGridYOffset, SampleModel tileSampleModel, ColorModel colorModel) {
+            super(minX, minY, width, height, tileGridXOffset, tileGridYOffset, tileSampleModel, colorModel);
+        }
+
+        @Override
+        public void dispose() {
+            disposed++;
+            super.dispose();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final List<DimensionBean> dimensions = new ArrayList<DimensionBean>();
+        dimensions.add(new DimensionBean("TIME", "ISO8601", "", "java.util.Date", DimensionType.TIME, false));
+        dimensions.add(new DimensionBean("ELEVATION", "EPSG:5030", "m", "java.lang.Double",
+                DimensionType.ELEVATION, false));
+        stack = new GranuleStackImpl(NAME, DefaultGeographicCRS.WGS84, dimensions);
+        tiledImages = new ArrayList<CountingTiledImage>();
+
+        // a banded float child raster, at an offset in its parent data buffer
+        stack.addCoverage(granule(bandedChildImage(100), TIMES[1], ELEVATIONS[0]));
+        // two tiled images for the same slice, the last one wins
+        stack.addCoverage(granule(tiledImage(200), TIMES[0], ELEVATIONS[0]));
+        stack.addCoverage(granule(tiledImage(300), TIMES[0], ELEVATIONS[0]));
+        // unsigned short samples, copied through the raster
+        stack.addCoverage(granule(ushortImage(400), TIMES[0], ELEVATIONS[1]));
+
+        file = File.createTempFile("manager", ".nc");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /** The value of a pixel of an image, row 0 being the top row. */
+    private static float value(final int base, final int x, final int y) {
+        return base + 10 * y + x;
+    }
+
+    /**
+     * An image of two float bands interleaved, the first one last, in 2x2 tiles not aligned on its bounds.
+     */
+    private RenderedImage tiledImage(final int base) {
+        final PixelInterleavedSampleModel sampleModel = new PixelInterleavedSampleModel(
+                DataBuffer.TYPE_FLOAT, 2, 2, 2, 4, new int[] { 1, 0 });
+        final ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+                true, false, Transparency.TRANSLUCENT, DataBuffer.TYPE_FLOAT);
+        final CountingTiledImage image = new CountingTiledImage(1, 2, WIDTH, HEIGHT, 0, 0, sampleModel,
+                colorModel);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setSample(1 + x, 2 + y, 0, value(base, x, y));
+                image.setSample(1 + x, 2 + y, 1, -1d);
+            }
+        }
+        tiledImages.add(image);
+        return image;
+    }
+
+    /**
+     * An image of a single float band, child of a larger raster.
+     */
+    private static RenderedImage bandedChildImage(final int base) {
+        final float[] values = new float[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                values[y * WIDTH + x] = value(base, x, y);
+            }
+        }
+        return bandedChildImage(values);
+    }
+
+    /**
+     * An image of a single float band, child of a larger raster, of the given values row by row.
+     */
+    private static RenderedImage bandedChildImage(final float[] values) {
+        final WritableRaster parent = Raster.createWritableRaster(new BandedSampleModel(
+                DataBuffer.TYPE_FLOAT, WIDTH + 3, HEIGHT + 2, 1), null);
+        final WritableRaster child = parent.createWritableChild(2, 1, WIDTH, HEIGHT, 0, 0, null);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                child.setSample(x, y, 0, values[y * WIDTH + x]);
+            }
+        }
+        final ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_FLOAT);
+        return new BufferedImage(colorModel, child, false, null);
+    }
+
+    private static RenderedImage ushortImage(final int base) {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_USHORT_GRAY);
+        final WritableRaster raster = image.getRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setSample(x, y, 0, value(base, x, y));
+            }
+        }
+        return image;
+    }
+
+    private static GridCoverage2D granule(final RenderedImage image, final DateRange time,
+            final NumberRange<Double> elevation) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("TIME", time);
+        properties.put("ELEVATION", elevation);
+        return new GridCoverageFactory().create(NAME, image, ENVELOPE, null, null, properties);
+    }
+
+    @Test
+    public void testWriteFile() throws Exception {
+        final NetCDFOutputManager manager = new NetCDFOutputManager(stack, file);
+        try {
+            manager.write();
+        } finally {
+            manager.close();
+        }
+        final NetcdfFile netcdf = NetcdfFile.open(file.getAbsolutePath());
+        try {
+            assertSlices(netcdf);
+        } finally {
+            netcdf.close();
+        }
+
+        // every granule is released, the overwritten one too
+        for (CountingTiledImage image : tiledImages) {
+            assertEquals(1, image.disposed);
+        }
+    }
+
+    @Test
+    public void testWriteStream() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final NetCDFOutputManager manager = new NetCDFOutputManager(stack, NetCDFEncodingParameters.DEFAULT);
+        try {
+            manager.write(output);
+        } finally {
+            manager.close();
+        }
+        final NetcdfFile netcdf = NetcdfFile.openInMemory("manager.nc", output.toByteArray());
+        try {
+            assertSlices(netcdf);
+        } finally {
+            netcdf.close();
+        }
+    }
+
+    private static void assertSlices(final NetcdfFile netcdf) throws Exception {
+        // latitudes go up, from the bottom row of the images
+        final Array lat = netcdf.findVariable(NCUtilities.LAT).read();
+        assertEquals(HEIGHT, lat.getSize());
+        assertEquals(40.5f, lat.getFloat(0), 1e-6f);
+        assertEquals(42.5f, lat.getFloat(HEIGHT - 1), 1e-6f);
+        assertEquals(10.5f, netcdf.findVariable(NCUtilities.LON).read().getFloat(0), 1e-6f);
+
+        final Variable variable = netcdf.findVariable(NAME);
+        assertArrayEquals(new int[] { 2, 2, HEIGHT, WIDTH }, variable.getShape());
+        final Array data = variable.read();
+        assertSlice(data, 0, 0, 300);
+        assertSlice(data, 0, 1, 400);
+        assertSlice(data, 1, 0, 100);
+
+        // no granule for the last slice
+        for (int i = 3 * HEIGHT * WIDTH; i < 4 * HEIGHT * WIDTH; i++) {
+            assertEquals(N3iosp.NC_FILL_FLOAT, data.getFloat(i), 0f);
+        }
+    }
+
+    @Test
+    public void testNetCDF4() throws Exception {
+        assumeTrue(NetCDFEncodingParameters.isNetCDF4Available());
+        final Map<String, String> encodingParameters = new HashMap<String, String>();
+        encodingParameters.put(NetCDFEncodingParameters.VERSION, "netcdf4");
+        encodingParameters.put(NetCDFEncodingParameters.CHUNK_WIDTH, "2");
+        encodingParameters.put(NetCDFEncodingParameters.CHUNK_HEIGHT, "2");
+        encodingParameters.put(NetCDFEncodingParameters.DEFLATE_LEVEL, "5");
+        final NetCDFOutputManager manager = new NetCDFOutputManager(stack, file,
+                NetCDFEncodingParameters.parse(encodingParameters));
+        try {
+            manager.write();
+        } finally {
+            manager.close();
+        }
+
+        final NetcdfFile netcdf = NetcdfFile.open(file.getAbsolutePath());
+        try {
+            assertEquals("NetCDF-4", netcdf.getFileTypeId());
+            assertSlices(netcdf);
+
+            // chunks of a slice, coordinates left contiguous
+            final Attribute chunkSize = netcdf.findVariable(NAME).findAttribute("_ChunkSize");
+            assertEquals(4, chunkSize.getLength());
+            assertEquals(1, chunkSize.getNumericValue(0).intValue());
+            assertEquals(1, chunkSize.getNumericValue(1).intValue());
+            assertEquals(2, chunkSize.getNumericValue(2).intValue());
+            assertEquals(2, chunkSize.getNumericValue(3).intValue());
+            assertNull(netcdf.findVariable(NCUtilities.LAT).findAttribute("_ChunkSize"));
+        } finally {
+            netcdf.close();
+        }
+    }
+
+    @Test
+    public void testPacking() throws Exception {
+        final List<DimensionBean> dimensions = new ArrayList<DimensionBean>();
+        dimensions.add(new DimensionBean("TIME", "ISO8601", "", "java.util.Date", DimensionType.TIME, false));
+        dimensions.add(new DimensionBean("ELEVATION", "EPSG:5030", "m", "java.lang.Double",
+                DimensionType.ELEVATION, false));
+        final GranuleStackImpl packedStack = new GranuleStackImpl(NAME, DefaultGeographicCRS.WGS84, dimensions);
+        final float[] values = new float[WIDTH * HEIGHT];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = -50 + i * 10;
+        }
+        // left out of the range of the data
+        values[0] = Float.NaN;
+        values[1] = Float.POSITIVE_INFINITY;
+        values[2] = Float.NEGATIVE_INFINITY;
+        packedStack.addCoverage(granule(bandedChildImage(values), TIMES[0], ELEVATIONS[0]));
+        packedStack.addCoverage(granule(bandedChildImage(200), TIMES[1], ELEVATIONS[0]));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final NetCDFOutputManager manager = new NetCDFOutputManager(packedStack,
+                NetCDFEncodingParameters.parse(Collections.singletonMap(
+                        NetCDFEncodingParameters.DATA_PACKING, "short")));
+        try {
+            manager.write(output);
+        } finally {
+            manager.close();
+        }
+
+        final NetcdfFile netcdf = NetcdfFile.openInMemory("packed.nc", output.toByteArray());
+        try {
+            final Variable variable = netcdf.findVariable(NAME);
+            assertEquals(DataType.SHORT, variable.getDataType());
+            final float scaleFactor = variable.findAttribute(NCUtilities.SCALE_FACTOR).getNumericValue()
+                    .floatValue();
+            final float addOffset = variable.findAttribute(NCUtilities.ADD_OFFSET).getNumericValue()
+                    .floatValue();
+            // the range of the finite values, -20 to 224
+            assertEquals(244d / (2 * Short.MAX_VALUE), scaleFactor, 1e-6);
+            assertEquals(102f, addOffset, 1e-4f);
+            assertEquals(NCUtilities.PACKED_FILL_VALUE, variable.findAttribute(NCUtilities.FILLVALUE)
+                    .getNumericValue().shortValue());
+
+            final Array data = variable.read();
+            final Index index = data.getIndex();
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    index.set(0, 0, HEIGHT - 1 - y, x);
+                    final short packed = data.getShort(index);
+                    final float value = values[y * WIDTH + x];
+                    if (Float.isNaN(value)) {
+                        assertEquals(NCUtilities.PACKED_FILL_VALUE, packed);
+                    } else if (Float.isInfinite(value)) {
+                        assertEquals(value > 0 ? Short.MAX_VALUE : -Short.MAX_VALUE, packed);
+                    } else {
+                        assertEquals(value, packed * scaleFactor + addOffset, scaleFactor);
+                    }
+                    index.set(1, 0, HEIGHT - 1 - y, x);
+                    assertEquals(value(200, x, y), data.getShort(index) * scaleFactor + addOffset, scaleFactor);
+                }
+            }
+        } finally {
+            netcdf.close();
+        }
+    }
+
+    private static void assertSlice(final Array data, final int time, final int elevation, final int base) {
+        final Index index = data.getIndex();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                index.set(time, elevation, HEIGHT - 1 - y, x);
+                assertEquals("time " + time + ", elevation " + elevation + ", x " + x + ", y " + y,
+                        value(base, x, y), data.getFloat(index), 0f);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Date;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriteable;
+
+/**
+ * Writes the NetCDF files the benchmarks read, global grids of a float variable {@link #VARIABLE}(time, lat, lon) with a few missing values.
+ * Files are written once into the {@link #DIRECTORY_KEY} directory and reused by later runs.
+ *
+ * The formats are netCDF-3 ("nc3") and an NcML wrapper of the same file ("ncml"). netcdf-java 4.2, which the store reads with, writes
+ * netCDF-3 only: netCDF-4 files need the netCDF C library, so the benchmarks do not generate them. To measure one, put it in the directory under
+ * the name {@link #getFixtureFile(String, int, int)} gives; {@link BenchmarkMain} skips the cases of a format whose files are missing.
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * System property holding the directory of the benchmark files, java.io.tmpdir/gcenetcdf-benchmarks by default.
+     */
+    public static final String DIRECTORY_KEY = "org.geotools.gce.netcdf.benchmark.directory";
+
+    public static final String VARIABLE = "temp";
+
+    /**
+     * number of hourly times in every file.
+     */
+    public static final int TIME_COUNT = 4;
+
+    /**
+     * 2000-01-01 00:00:00 GMT, the time origin of the files.
+     */
+    public static final long TIME_ORIGIN = 946684800000L;
+
+    public static final long HOUR = 60 * 60 * 1000L;
+
+    private static final float FILL_VALUE = -9999f;
+
+    private BenchmarkFixtures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return true if the files of the format are written by the benchmarks, false if they have to be put in the directory.
+     */
+    public static boolean isGenerated(String format) {
+        return "nc3".equals(format) || "ncml".equals(format);
+    }
+
+    /**
+     * @return where the file of the format and grid size is, whether it exists or not.
+     */
+    public static File getFixtureFile(String format, int width, int height) {
+        File directory = new File(System.getProperty(DIRECTORY_KEY, new File(System
+                .getProperty("java.io.tmpdir"), "gcenetcdf-benchmarks").getPath()));
+        String name = "grid_" + width + "x" + height;
+        return new File(directory, name + "." + ("nc3".equals(format) ? "nc" : format));
+    }
+
+    /**
+     * @return the file of the format and grid size, written first if it does not exist.
+     */
+    public static synchronized File getFile(String format, int width, int height)
+            throws IOException {
+        File file = getFixtureFile(format, width, height);
+        if (!isGenerated(format)) {
+            if (!file.exists()) {
+                throw new IOException("No " + format + " benchmark file " + file
+                        + ": only nc3 and ncml files are generated, put the file there or leave "
+                        + format + " out with -p format=nc3,ncml");
+            }
+            return file;
+        }
+
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        File nc = getFixtureFile("nc3", width, height);
+        if (!nc.exists()) {
+            writeGrid(nc, width, height);
+        }
+        if ("ncml".equals(format) && !file.exists()) {
+            writeNcml(file, nc);
+        }
+        return file;
+    }
+
+    /**
+     * @return the request of the variable at the second time, over the part of the globe given by the ratio of its width and height, centered on
+     *         0, 0, into an image of the given size.
+     */
+    public static ParamInformation getRequest(double ratio, int imageWidth, int imageHeight) {
+        double halfWidth = 180 * Math.sqrt(ratio);
+        double halfHeight = 90 * Math.sqrt(ratio);
+        GeneralEnvelope envelope = new GeneralEnvelope(new double[] { -halfWidth, -halfHeight },
+                new double[] { halfWidth, halfHeight });
+        envelope.setCoordinateReferenceSystem(DefaultGeographicCRS.WGS84);
+
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter(VARIABLE);
+        paramInfo.setTime(new Date(TIME_ORIGIN + HOUR));
+        paramInfo.setRequestedEnvelope(envelope);
+        paramInfo.setDim(new GridEnvelope2D(0, 0, imageWidth, imageHeight));
+        return paramInfo;
+    }
+
+    /**
+     * Write a grid cell centered from -180 to 180 and -90 to 90, one time at a time.
+     */
+    private static void writeGrid(File file, int width, int height) throws IOException {
+        File partial = new File(file.getPath() + ".part");
+        NetcdfFileWriteable writer = NetcdfFileWriteable.createNew(partial.getAbsolutePath(),
+                false);
+        try {
+            Dimension time = writer.addDimension("time", TIME_COUNT);
+            Dimension lat = writer.addDimension("lat", height);
+            Dimension lon = writer.addDimension("lon", width);
+            writer.addVariable("time", DataType.DOUBLE, new Dimension[] { time });
+            writer.addVariableAttribute("time", "units", "hour since 2000-01-01 00:00:00");
+            writer.addVariable("lat", DataType.DOUBLE, new Dimension[] { lat });
+            writer.addVariableAttribute("lat", "units", "degrees_north");
+            writer.addVariable("lon", DataType.DOUBLE, new Dimension[] { lon });
+            writer.addVariableAttribute("lon", "units", "degrees_east");
+            writer.addVariable(VARIABLE, DataType.FLOAT, new Dimension[] { time, lat, lon });
+            writer.addVariableAttribute(VARIABLE, "_FillValue", FILL_VALUE);
+            writer.create();
+
+            ArrayDouble.D1 times = new ArrayDouble.D1(TIME_COUNT);
+            for (int t = 0; t < TIME_COUNT; t++) {
+                times.set(t, t);
+            }
+            ArrayDouble.D1 lats = new ArrayDouble.D1(height);
+            for (int y = 0; y < height; y++) {
+                lats.set(y, -90 + (y + 0.5) * 180 / height);
+            }
+            ArrayDouble.D1 lons = new ArrayDouble.D1(width);
+            for (int x = 0; x < width; x++) {
+                lons.set(x, -180 + (x + 0.5) * 360 / width);
+            }
+            writer.write("time", times);
+            writer.write("lat", lats);
+            writer.write("lon", lons);
+
+            ArrayFloat.D3 values = new ArrayFloat.D3(1, height, width);
+            for (int t = 0; t < TIME_COUNT; t++) {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        // a smooth field, with patches of missing values like land.
+                        double field = Math.sin(x * 0.01) * Math.cos(y * 0.02);
+                        values.set(0, y, x, field > 0.9 ? FILL_VALUE : (float) (t + field));
+                    }
+                }
+                writer.write(VARIABLE, new int[] { t, 0, 0 }, values);
+            }
+        } catch (InvalidRangeException e) {
+            throw new IOException(e);
+        } finally {
+            writer.close();
+        }
+        if (!partial.renameTo(file)) {
+            throw new IOException("Unable to rename " + partial + " to " + file);
+        }
+    }
+
+    private static void writeNcml(File ncml, File nc) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(ncml), "UTF-8");
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<netcdf xmlns=\"http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2\""
+                    + " location=\"" + nc.getName() + "\">\n");
+            writer.write("  <attribute name=\"title\" value=\"gcenetcdf benchmark\" />\n");
+            writer.write("</netcdf>\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
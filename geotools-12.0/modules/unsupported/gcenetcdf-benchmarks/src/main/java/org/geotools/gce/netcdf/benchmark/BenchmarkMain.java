@@ -0,0 +1,169 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.benchmark;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Optional;
+
+/**
+ * The main class of benchmarks.jar, runs the benchmarks like {@link Main} with the same options, less the file formats whose files are missing.
+ *
+ * Files of the formats {@link BenchmarkFixtures} does not generate, nc4, have to be put in the directory by hand. When one of the grid sizes to
+ * run has no file of such a format, the format is skipped with a message naming the missing files, instead of every case of it failing in its
+ * setup.
+ */
+public final class BenchmarkMain {
+
+    private static final String FORMAT = "format";
+
+    private static final String GRID_SIZE = "gridSize";
+
+    /**
+     * the benchmarks with a format and a grid size parameter.
+     */
+    private static final Class<?>[] FILE_BENCHMARKS = { ReadBenchmark.class,
+            MetadataBenchmark.class };
+
+    private BenchmarkMain() {
+        throw new AssertionError();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            // JMH reports it.
+            Main.main(args);
+            return;
+        }
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        Set<String> formats = new LinkedHashSet<String>();
+        Set<String> gridSizes = new LinkedHashSet<String>();
+        for (Class<?> benchmark : FILE_BENCHMARKS) {
+            if (isSelected(benchmark, options)) {
+                formats.addAll(getValues(benchmark, FORMAT, options));
+                gridSizes.addAll(getValues(benchmark, GRID_SIZE, options));
+            }
+        }
+        List<String> available = new ArrayList<String>();
+        for (String format : formats) {
+            List<File> missing = getMissingFiles(format, gridSizes);
+            if (missing.isEmpty()) {
+                available.add(format);
+            } else {
+                System.out.println("Skipping the " + format + " benchmarks, " + format
+                        + " files are not generated and " + missing + " are missing. Put them"
+                        + " there, or run the grid sizes there are files of with -p "
+                        + GRID_SIZE + "=<width>x<height>.");
+            }
+        }
+        if (available.size() == formats.size()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (available.isEmpty()) {
+            for (Class<?> benchmark : FILE_BENCHMARKS) {
+                builder.exclude(Pattern.quote(benchmark.getName() + "."));
+            }
+        } else {
+            builder.param(FORMAT, available.toArray(new String[available.size()]));
+        }
+        try {
+            new Runner(builder.build()).run();
+        } catch (NoBenchmarksException e) {
+            System.out.println("No benchmarks left to run.");
+        }
+    }
+
+    /**
+     * @return true if a benchmark method of the class is included, and not excluded, by the options.
+     */
+    private static boolean isSelected(Class<?> benchmark, CommandLineOptions options) {
+        for (Method method : benchmark.getMethods()) {
+            if (method.isAnnotationPresent(Benchmark.class)) {
+                String name = benchmark.getName() + "." + method.getName();
+                if ((options.getIncludes().isEmpty() || matches(options.getIncludes(), name))
+                        && !matches(options.getExcludes(), name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(List<String> regexps, String name) {
+        for (String regexp : regexps) {
+            if (Pattern.compile(regexp).matcher(name).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the values of the parameter given with -p, or else the values of its annotation.
+     */
+    private static Collection<String> getValues(Class<?> benchmark, String name,
+            CommandLineOptions options) throws NoSuchFieldException {
+        Optional<Collection<String>> values = options.getParameter(name);
+        if (values.hasValue()) {
+            return values.get();
+        }
+        return Arrays.asList(benchmark.getField(name).getAnnotation(Param.class).value());
+    }
+
+    private static List<File> getMissingFiles(String format, Set<String> gridSizes) {
+        List<File> missing = new ArrayList<File>();
+        if (!BenchmarkFixtures.isGenerated(format)) {
+            for (String gridSize : gridSizes) {
+                String[] size = gridSize.split("x");
+                File file = BenchmarkFixtures.getFixtureFile(format, Integer.parseInt(size[0]),
+                        Integer.parseInt(size[1]));
+                if (!file.exists()) {
+                    missing.add(file);
+                }
+            }
+        }
+        return missing;
+    }
+}
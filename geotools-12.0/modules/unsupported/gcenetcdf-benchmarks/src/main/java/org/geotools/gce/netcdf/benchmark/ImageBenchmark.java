@@ -0,0 +1,110 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.benchmark;
+
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.index.GridAxis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ucar.nc2.NetcdfFile;
+
+/**
+ * The work around the file reads of a request: the request coordinates of a new GrdDataEncapsulator, their file indices as
+ * NetCDFFileInspector.getTargetIndexes looks them up on the coordinate axes, and the raster the coverage is made of.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageBenchmark {
+
+    @Param({ "720x360", "4320x2160" })
+    public String gridSize;
+
+    @Param({ "256", "1024", "4096" })
+    public int outputSize;
+
+    @Param({ "1.0", "0.01" })
+    public double subsetRatio;
+
+    private ParamInformation request;
+
+    private GrdDataEncapsulator data;
+
+    private GridAxis longitudes;
+
+    private GridAxis latitudes;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] size = gridSize.split("x");
+        File file = BenchmarkFixtures.getFile("nc3", Integer.parseInt(size[0]), Integer
+                .parseInt(size[1]));
+        NetcdfFile ncFile = NetcdfFile.open(file.getPath());
+        try {
+            longitudes = new GridAxis(ncFile.findVariable("lon").read());
+            latitudes = new GridAxis(ncFile.findVariable("lat").read());
+        } finally {
+            ncFile.close();
+        }
+        request = BenchmarkFixtures.getRequest(subsetRatio, outputSize, outputSize);
+        data = new GrdDataEncapsulator(request);
+    }
+
+    private static int[] getTargetIndexes(List<Double> coordinates, GridAxis axis) {
+        int[] result = new int[coordinates.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = axis.getCoordinateIndex(coordinates.get(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public GrdDataEncapsulator newEncapsulator() {
+        return new GrdDataEncapsulator(request);
+    }
+
+    @Benchmark
+    public int[][] targetIndexes() {
+        return new int[][] { getTargetIndexes(data.getDesiredLons(), longitudes),
+                getTargetIndexes(data.getDesiredLats(), latitudes) };
+    }
+
+    @Benchmark
+    public WritableRaster writableRaster() {
+        return data.getWritableRaster();
+    }
+}
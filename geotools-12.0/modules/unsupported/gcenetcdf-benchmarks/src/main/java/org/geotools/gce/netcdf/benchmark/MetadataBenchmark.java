@@ -0,0 +1,95 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.factory.Hints;
+import org.geotools.gce.netcdf.NetCDFReader;
+import org.geotools.gce.netcdf.fileparser.DomainMetadata;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * What GeoServer asks a NetCDF store for besides the data: a new reader (catalog load), the domains of a new inspector, and the metadata values
+ * of GetCapabilities on a reader already in use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetadataBenchmark {
+
+    @Param({ "nc3", "ncml", "nc4" })
+    public String format;
+
+    @Param({ "720x360", "4320x2160" })
+    public String gridSize;
+
+    private File file;
+
+    private NetCDFReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] size = gridSize.split("x");
+        file = BenchmarkFixtures.getFile(format, Integer.parseInt(size[0]), Integer
+                .parseInt(size[1]));
+        reader = new NetCDFReader(file, new Hints());
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.dispose();
+    }
+
+    @Benchmark
+    public NetCDFReader newReader() {
+        return new NetCDFReader(file, new Hints());
+    }
+
+    @Benchmark
+    public DomainMetadata newInspectorDomains() {
+        return new NetCDFFileInspector(file).getDomainMetadata();
+    }
+
+    @Benchmark
+    public void metadataValues(Blackhole blackhole) {
+        for (String name : new String[] { NetCDFReader.HAS_TIME_DOMAIN, NetCDFReader.TIME_DOMAIN,
+                NetCDFReader.TIME_DOMAIN_MINIMUM, NetCDFReader.TIME_DOMAIN_MAXIMUM,
+                NetCDFReader.TIME_DOMAIN_RESOLUTION, NetCDFReader.HAS_ELEVATION_DOMAIN,
+                NetCDFReader.ELEVATION_DOMAIN, NetCDFReader.DIM_REFERENCE_TIME_DOMAIN }) {
+            blackhole.consume(reader.getMetadataValue(name));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.factory.Hints;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFFormat;
+import org.geotools.gce.netcdf.NetCDFReader;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+
+/**
+ * A GetMap-like read of the variable at one time, end to end through {@link NetCDFReader#read(GeneralParameterValue[])} and through
+ * {@link NetCDFFileInspector#parseFiles(ParamInformation)} without the coverage around it.
+ *
+ * The request covers the ratio of the globe given by subsetRatio, into a square image of outputSize. parallelism is the number of row bands
+ * read at the same time ({@link ReadMetrics#setParallelism(int)}), run with -t for concurrent requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Param({ "nc3", "ncml", "nc4" })
+    public String format;
+
+    @Param({ "720x360", "1440x720", "4320x2160" })
+    public String gridSize;
+
+    @Param({ "256", "1024" })
+    public int outputSize;
+
+    @Param({ "1.0", "0.25", "0.01" })
+    public double subsetRatio;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private NetCDFReader reader;
+
+    private GeneralParameterValue[] parameters;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] size = gridSize.split("x");
+        File file = BenchmarkFixtures.getFile(format, Integer.parseInt(size[0]), Integer
+                .parseInt(size[1]));
+        ReadMetrics.getInstance().setParallelism(parallelism);
+        reader = new NetCDFReader(file, new Hints());
+
+        ParamInformation request = getRequest();
+        ParameterValue<String> parameter = NetCDFFormat.PARAMETER.createValue();
+        parameter.setValue(BenchmarkFixtures.VARIABLE);
+        @SuppressWarnings("rawtypes")
+        ParameterValue<List> time = NetCDFFormat.TIME.createValue();
+        time.setValue(Collections.singletonList(request.getTime()));
+        ParameterValue<GridGeometry2D> gridGeometry = AbstractGridFormat.READ_GRIDGEOMETRY2D
+                .createValue();
+        gridGeometry.setValue(new GridGeometry2D(request.getDim(), request
+                .getRequestedEnvelope()));
+        parameters = new GeneralParameterValue[] { parameter, time, gridGeometry };
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.dispose();
+        ReadMetrics.getInstance().setParallelism(1);
+    }
+
+    private ParamInformation getRequest() {
+        return BenchmarkFixtures.getRequest(subsetRatio, outputSize, outputSize);
+    }
+
+    @Benchmark
+    public GridCoverage2D read() throws IOException {
+        return reader.read(parameters);
+    }
+
+    @Benchmark
+    public GrdDataEncapsulator parseFiles() {
+        return reader.getFileInsp().parseFiles(getRequest());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.index.GridAxis;
+import org.geotools.gce.netcdf.read.OverSamplingReadStrategy;
+import org.geotools.gce.netcdf.read.ReadStrategy;
+import org.geotools.gce.netcdf.read.ReadStrategyFactory;
+import org.geotools.gce.netcdf.read.StridedSectionReadStrategy;
+import org.geotools.gce.netcdf.read.UnderSamplingReadStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * The read strategies on the same file indices, to check the thresholds of {@link ReadStrategyFactory} against measurements: "factory" is the
+ * strategy the factory picks for the request.
+ *
+ * Reads one time of the variable of a netCDF-3 file, through a handle of the benchmark thread, so -t runs concurrent readers of the file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReadStrategyBenchmark {
+
+    @Param({ "overSampling", "underSampling", "stridedSection", "factory" })
+    public String strategy;
+
+    @Param({ "1440x720", "4320x2160" })
+    public String gridSize;
+
+    @Param({ "64", "256" })
+    public int outputSize;
+
+    @Param({ "1.0", "0.05", "0.001" })
+    public double subsetRatio;
+
+    private NetcdfFile ncFile;
+
+    private Variable variable;
+
+    private ParamInformation request;
+
+    private int[] longitudeIndices;
+
+    private int[] latitudeIndices;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] size = gridSize.split("x");
+        File file = BenchmarkFixtures.getFile("nc3", Integer.parseInt(size[0]), Integer
+                .parseInt(size[1]));
+        ncFile = NetcdfFile.open(file.getPath());
+        variable = ncFile.findVariable(BenchmarkFixtures.VARIABLE);
+
+        request = BenchmarkFixtures.getRequest(subsetRatio, outputSize, outputSize);
+        GrdDataEncapsulator data = new GrdDataEncapsulator(request);
+        longitudeIndices = getIndices(data.getDesiredLons(), new GridAxis(ncFile.findVariable(
+                "lon").read()));
+        latitudeIndices = getIndices(data.getDesiredLats(), new GridAxis(ncFile.findVariable(
+                "lat").read()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ncFile.close();
+    }
+
+    private static int[] getIndices(List<Double> coordinates, GridAxis axis) {
+        int[] result = new int[coordinates.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = axis.getCoordinateIndex(coordinates.get(i));
+        }
+        return result;
+    }
+
+    private ReadStrategy createStrategy() {
+        if ("overSampling".equals(strategy)) {
+            return new OverSamplingReadStrategy();
+        } else if ("underSampling".equals(strategy)) {
+            return new UnderSamplingReadStrategy();
+        } else if ("stridedSection".equals(strategy)) {
+            return new StridedSectionReadStrategy();
+        }
+        return ReadStrategyFactory.getReadStrategy(longitudeIndices, latitudeIndices, variable);
+    }
+
+    @Benchmark
+    public GrdDataEncapsulator read() throws IOException, InvalidRangeException {
+        ReadStrategy readStrategy = createStrategy();
+        readStrategy.setVariable(variable);
+        readStrategy.setTimeIndex(1);
+        GrdDataEncapsulator data = new GrdDataEncapsulator(request);
+        readStrategy.read(longitudeIndices, latitudeIndices, data);
+        return data;
+    }
+}
@@ -20,6 +20,7 @@ import java.awt.Point;
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BandedSampleModel;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
@@ -27,7 +28,8 @@ import java.awt.image.Raster;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.io.Serializable;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.media.jai.DataBufferFloat;
@@ -35,6 +37,8 @@ import javax.media.jai.DataBufferFloat;
 import org.geotools.geometry.Envelope2D;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
 
 /**
  * Provides a place to assemble data and then generate a WritableRaster and Envelope based on that data.
@@ -61,9 +65,13 @@ public class GrdDataEncapsulator implements Serializable {
 
     private static final int MIN_LON_MINUS_180 = -MAX_LON_180;
 
-    private static final long serialVersionUID = 5274683324298458872L;
+    private static final long serialVersionUID = -3518093409566417442L;
 
-    private Float[][] imageArray;
+    /**
+     * the image samples, row-major with the first row at the north edge. this is the bank of the raster returned by getWritableRaster, so the read
+     * strategies write straight into the final layout.
+     */
+    private float[] imageData;
 
     private int imageWidth;
 
@@ -81,36 +89,49 @@ public class GrdDataEncapsulator implements Serializable {
 
     private List<Double> lonList;
 
+    /**
+     * the CRS of the requested envelope, WGS84 if it has none.
+     */
+    private CoordinateReferenceSystem crs;
+
     public GrdDataEncapsulator(ParamInformation paramInput) {
-        this.latList = new LinkedList<Double>();
-        this.lonList = new LinkedList<Double>();
+        this.latList = new ArrayList<Double>();
+        this.lonList = new ArrayList<Double>();
 
         /*
          * We need to create a buffer for the resulting image. The size of the image is dictated by the WMS request
          */
         imageWidth = Math.abs(paramInput.getDim().getSpan(0));
         imageHeight = Math.abs(paramInput.getDim().getSpan(1));
-        imageArray = new Float[imageWidth][imageHeight];
+        imageData = new float[imageWidth * imageHeight];
 
         /*
          * We want to initialize the points to NaN, When these values are being populated, we will look at the "best" files first (the ones with the
          * latest initial time and the highest resolution, that way the "best" data will go into the data encapsulator first, if the NCParser detects
          * that a value has already been added in a specific position, it will skip that position
          */
-        for (int i = 0; i < imageWidth; i++) {
-            for (int j = 0; j < imageHeight; j++) {
-                imageArray[i][j] = Float.NaN;
-            }
-        }
+        Arrays.fill(imageData, Float.NaN);
 
         /*
          * We need to store the bounding region that we're interested in for this particular request
          */
         Rectangle2D rec = paramInput.getRequestedEnvelope().toRectangle2D();
-        gridLeftLon = rec.getMinX() < MIN_LON_MINUS_180 ? MIN_LON_MINUS_180 : rec.getMinX();
-        gridRightLon = rec.getMaxX() > MAX_LON_180 ? MAX_LON_180 : rec.getMaxX();
-        gridUpLat = rec.getMaxY() > MAX_LAT_90 ? MAX_LAT_90 : rec.getMaxY();
-        gridLowLat = rec.getMinY() < MIN_LAT_MINUS_90 ? MIN_LAT_MINUS_90 : rec.getMinY();
+        crs = paramInput.getRequestedEnvelope().getCoordinateReferenceSystem();
+        if (crs == null) {
+            crs = DefaultGeographicCRS.WGS84;
+        }
+        if (crs instanceof GeographicCRS) {
+            gridLeftLon = rec.getMinX() < MIN_LON_MINUS_180 ? MIN_LON_MINUS_180 : rec.getMinX();
+            gridRightLon = rec.getMaxX() > MAX_LON_180 ? MAX_LON_180 : rec.getMaxX();
+            gridUpLat = rec.getMaxY() > MAX_LAT_90 ? MAX_LAT_90 : rec.getMaxY();
+            gridLowLat = rec.getMinY() < MIN_LAT_MINUS_90 ? MIN_LAT_MINUS_90 : rec.getMinY();
+        } else {
+            // projected x and y of the native grid of the file, not bounded like longitudes and latitudes.
+            gridLeftLon = rec.getMinX();
+            gridRightLon = rec.getMaxX();
+            gridUpLat = rec.getMaxY();
+            gridLowLat = rec.getMinY();
+        }
 
 //        if (Math.abs(gridLeftLon - gridRightLon) < 0.05) {
 //            /*
@@ -155,45 +176,103 @@ public class GrdDataEncapsulator implements Serializable {
     }
 
     /**
-     * Provides an Envelope based on this class's grid properties.
+     * Provides an Envelope based on this class's grid properties, in the CRS of the requested envelope.
      */
     public Envelope getGeneralEnvelope() {
-        final Envelope returnedEnv = new Envelope2D(DefaultGeographicCRS.WGS84, gridLeftLon,
+        final Envelope returnedEnv = new Envelope2D(crs, gridLeftLon,
                 gridLowLat, (gridRightLon - gridLeftLon), (gridUpLat - gridLowLat));
         return returnedEnv;
     }
 
     /**
-     * Provides a WritableRaster based on this class's imageArray and imageWidth and imageHeight.
+     * Provides a WritableRaster based on this class's imageData and imageWidth and imageHeight. The raster wraps imageData without copying it.
      */
     public WritableRaster getWritableRaster() {
-        int imageBufferLen = imageWidth * imageHeight;
-        float[] imageBuffer = new float[imageBufferLen];
-
-        int k = 0;
-        for (int height = 0; height < imageArray[0].length; height++) {
-            for (int width = 0; width < imageArray.length; width++) {
-                imageBuffer[k] = imageArray[width][height];
-                k++;
-            }
-        }
-
         int[] nBits = { N_BITS_32 };
         ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
         ColorModel cm = new ComponentColorModel(cs, nBits, false, true, Transparency.OPAQUE,
                 DataBuffer.TYPE_FLOAT);
         SampleModel sm = cm.createCompatibleSampleModel(imageWidth, imageHeight);
-        WritableRaster raster = Raster.createWritableRaster(sm, new DataBufferFloat(imageBuffer,
-                imageBuffer.length), new Point(0, 0));
+        WritableRaster raster = Raster.createWritableRaster(sm, new DataBufferFloat(imageData,
+                imageData.length), new Point(0, 0));
         return raster;
     }
 
+    /**
+     * Provides a WritableRaster with a band for each of the encapsulators, all of the same request envelope and size, in their order. The raster
+     * wraps their imageData without copying it.
+     */
+    public static WritableRaster getWritableRaster(List<GrdDataEncapsulator> bands) {
+        GrdDataEncapsulator first = bands.get(0);
+        float[][] bankData = new float[bands.size()][];
+        for (int i = 0; i < bankData.length; i++) {
+            GrdDataEncapsulator band = bands.get(i);
+            if (band.imageWidth != first.imageWidth || band.imageHeight != first.imageHeight) {
+                throw new IllegalArgumentException("Band " + i + " is " + band.imageWidth + "x"
+                        + band.imageHeight + ", expected " + first.imageWidth + "x"
+                        + first.imageHeight);
+            }
+            bankData[i] = band.imageData;
+        }
+        SampleModel sm = new BandedSampleModel(DataBuffer.TYPE_FLOAT, first.imageWidth,
+                first.imageHeight, bankData.length);
+        return Raster.createWritableRaster(sm, new DataBufferFloat(bankData,
+                first.imageData.length), new Point(0, 0));
+    }
+
+    /**
+     * The image samples, row-major with the first row at the north edge: the sample of column x and row y is at index y * imageWidth + x. Writes go
+     * straight to the raster returned by getWritableRaster.
+     */
+    public float[] getImageData() {
+        return imageData;
+    }
+
+    public float getValue(int column, int row) {
+        return imageData[row * imageWidth + column];
+    }
+
+    public void setValue(int column, int row, float value) {
+        imageData[row * imageWidth + column] = value;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    /**
+     * Copy of the image as [column][row].
+     * 
+     * @deprecated use {@link #getImageData()} or {@link #getValue(int, int)}, this copies and boxes every sample.
+     */
+    @Deprecated
     public Float[][] getImageArray() {
+        Float[][] imageArray = new Float[imageWidth][imageHeight];
+        for (int row = 0; row < imageHeight; row++) {
+            for (int column = 0; column < imageWidth; column++) {
+                imageArray[column][row] = imageData[row * imageWidth + column];
+            }
+        }
         return imageArray;
     }
 
+    /**
+     * Replace the image with a [column][row] array of the same size.
+     * 
+     * @deprecated use {@link #getImageData()} or {@link #setValue(int, int, float)}.
+     */
+    @Deprecated
     public void setImageArray(Float[][] imageArray) {
-        this.imageArray = imageArray.clone();
+        for (int column = 0; column < imageWidth; column++) {
+            for (int row = 0; row < imageHeight; row++) {
+                Float value = imageArray[column][row];
+                imageData[row * imageWidth + column] = value == null ? Float.NaN : value;
+            }
+        }
     }
 
     public double getGridLeftLon() {
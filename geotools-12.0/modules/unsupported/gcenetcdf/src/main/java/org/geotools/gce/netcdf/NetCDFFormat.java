@@ -27,12 +27,15 @@ import org.geotools.factory.Hints;
 import org.geotools.parameter.DefaultParameterDescriptor;
 import org.geotools.parameter.DefaultParameterDescriptorGroup;
 import org.geotools.parameter.ParameterGroup;
+import org.geotools.util.NumberRange;
 import org.opengis.coverage.grid.Format;
 import org.opengis.coverage.grid.GridCoverageWriter;
 import org.opengis.filter.Filter;
 import org.opengis.parameter.GeneralParameterDescriptor;
 import org.opengis.parameter.ParameterDescriptor;
 
+import com.vividsolutions.jts.geom.Geometry;
+
 /**
  * Provides a grid format for NetCDF data files. NetCDF data files can contain many dimensions, and this currently handles elevation, time and
  * reference time.
@@ -68,6 +71,17 @@ public class NetCDFFormat extends AbstractGridFormat implements Format {
     public static final ParameterDescriptor<List> REFERENCE_TIME = DefaultParameterDescriptor
             .create(REFERENCE_TIME_NAME, "Model run time", List.class, null, false);
 
+    /* The point or line of a vertical profile or section, see NetCDFReader.readSection */
+    public static final ParameterDescriptor<Geometry> SECTION_PATH = DefaultParameterDescriptor
+            .create("SECTION_PATH", "Point or line of a vertical profile or section",
+                    Geometry.class, null, false);
+
+    /* The elevations of a vertical profile or section */
+    @SuppressWarnings("rawtypes")
+    public static final ParameterDescriptor<NumberRange> ELEVATION_RANGE = DefaultParameterDescriptor
+            .create("ELEVATION_RANGE", "Elevations of a vertical profile or section",
+                    NumberRange.class, null, false);
+
     /* The CQL filter contents */
     public static final ParameterDescriptor<Filter> FILTER = DefaultParameterDescriptor.create(
             "Filter", "Filter", Filter.class, null, false);
@@ -81,7 +95,8 @@ public class NetCDFFormat extends AbstractGridFormat implements Format {
         mInfo.put("version", "0.2");
         readParameters = new ParameterGroup(new DefaultParameterDescriptorGroup(mInfo,
                 new GeneralParameterDescriptor[] { READ_GRIDGEOMETRY2D, PARAMETER, ELEVATION, TIME,
-                        REFERENCE_TIME, FILTER }));
+                        REFERENCE_TIME, FILTER, SECTION_PATH, ELEVATION_RANGE,
+                        INTERPOLATION }));
     }
 
     /**
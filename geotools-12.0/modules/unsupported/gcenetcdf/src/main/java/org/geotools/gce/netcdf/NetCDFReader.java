@@ -16,6 +16,7 @@
  */
 package org.geotools.gce.netcdf;
 
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.io.IOException;
@@ -28,10 +29,15 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.imageio.ImageReadParam;
+import javax.media.jai.Interpolation;
+import javax.media.jai.InterpolationBicubic;
+import javax.media.jai.InterpolationBicubic2;
+import javax.media.jai.InterpolationBilinear;
+
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.coverage.grid.GridEnvelope2D;
@@ -41,11 +47,17 @@ import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.OverviewPolicy;
 import org.geotools.data.DataSourceException;
 import org.geotools.factory.Hints;
+import org.geotools.gce.netcdf.fileparser.DomainMetadata;
 import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.index.InterpolationKernel;
 import org.geotools.gce.netcdf.log.LogUtil;
+import org.geotools.gce.netcdf.overview.Overviews;
+import org.geotools.gce.netcdf.series.SeriesVisitor;
+import org.geotools.gce.netcdf.series.VerticalSection;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
+import org.geotools.util.NumberRange;
 import org.geotools.util.logging.Logging;
 import org.opengis.coverage.grid.Format;
 import org.opengis.coverage.grid.GridCoverageReader;
@@ -60,6 +72,8 @@ import org.opengis.referencing.datum.PixelInCell;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 
+import com.vividsolutions.jts.geom.Geometry;
+
 /**
  * Provides a GridCoverageReader for NetCDF data files. NetCDF data files can contain many dimensions, and this currently handles elevation, time and
  * reference time.
@@ -81,9 +95,14 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
      */
     private static final String HINT_DIMENSION_DEFAULT_VALUE_NAME = "DefaultValue";
 
+    /**
+     * separates the names of a PARAMETER value of several parameters, each read into a band of its own.
+     */
+    private static final String PARAMETER_SEPARATOR = ",";
+
     private static final Logger LOG = Logging.getLogger(NetCDFReader.class);
 
-    private NetCDFFileInspector fileInsp;
+    private final NetCDFFileInspector fileInsp;
 
     /**
      * constructor.
@@ -108,16 +127,32 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
         // Basically the lat/lon range divided by the number of lat/lon points.
         highestRes = calculateHighestResolution(originalEnvelope, fileInsp.getOriginalDim(), crs);
 
-        numOverviews = 0;
+        // overview levels are optional, see Overviews.LEVELS_KEY.
+        Rectangle originalDim = fileInsp.getOriginalDim();
+        if (highestRes != null && originalDim != null) {
+            numOverviews = Overviews.getLevelCount(originalDim.width, originalDim.height);
+        } else {
+            numOverviews = 0;
+        }
+        overViewResolutions = new double[numOverviews][];
+        for (int level = 1; level <= numOverviews; level++) {
+            overViewResolutions[level - 1] = new double[] { highestRes[0] * (1 << level),
+                    highestRes[1] * (1 << level) };
+        }
 
         LogUtil.logElapsedTime(LOG, methodBeginDate, this.getFileInsp().getFileName());
     }
 
+    /**
+     * The native CRS of the grid, from the CF grid_mapping of the file, EPSG:4326 for a grid of longitudes and latitudes.
+     */
     private CoordinateReferenceSystem calculateCoordinateReferenceSystem() {
-        CoordinateReferenceSystem result = null;
+        CoordinateReferenceSystem result = fileInsp.getCoordinateReferenceSystem();
+        if (result != null) {
+            return result;
+        }
 
         try {
-            // TODO support other coords
             result = CRS.decode("EPSG:4326");
             
         } catch (NoSuchAuthorityCodeException e1) {
@@ -142,6 +177,10 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
         return result;
     }
 
+    /**
+     * A request of several parameters (separated by commas), times or elevations gives a coverage with a band for each of them, ordered by
+     * parameter, then time, then elevation, as {@link ParamInformation#getSlices()} gives them.
+     */
     @Override
     public GridCoverage2D read(GeneralParameterValue[] params) throws IOException {
         Date methodBeginDate = new Date();
@@ -151,11 +190,25 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
             throw new IllegalArgumentException("Params must not be null");
         }
 
-        GrdDataEncapsulator ncData = this.getFileInsp().parseFiles(paramInfo);
+        if (paramInfo.getSectionPath() != null) {
+            return createSectionCoverage(this.getFileInsp().readSection(paramInfo));
+        }
 
+        paramInfo.setOverviewLevel(pickOverviewLevel(paramInfo));
         final GridCoverageFactory factory = new GridCoverageFactory(hints);
-        GridCoverage2D coverage = factory.create(this.coverageName, ncData.getWritableRaster(),
-                ncData.getGeneralEnvelope());
+        GridCoverage2D coverage;
+        List<ParamInformation> slices = paramInfo.getSlices();
+        if (slices.size() > 1) {
+            // every requested parameter, time and elevation into a band of its own, from one pass over the file.
+            List<GrdDataEncapsulator> bands = this.getFileInsp().parseFiles(slices);
+            coverage = factory.create(this.coverageName,
+                    GrdDataEncapsulator.getWritableRaster(bands), bands.get(0)
+                            .getGeneralEnvelope());
+        } else {
+            GrdDataEncapsulator ncData = this.getFileInsp().parseFiles(paramInfo);
+            coverage = factory.create(this.coverageName, ncData.getWritableRaster(),
+                    ncData.getGeneralEnvelope());
+        }
 
         LogUtil.logElapsedTime(LOG, methodBeginDate, this.getFileInsp().getFileName());
 
@@ -164,7 +217,71 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
     }
 
     /**
-     * read the parameters and set variables in the returned ParamInformation and also set the 'variable name in file' properties of the NetCDFReader.
+     * Build the overview levels of the slice the parameters ask for, which the first read of the slice at a lower resolution otherwise builds.
+     * 
+     * @return false if the file has no overview levels or they could not be stored.
+     */
+    public boolean buildOverviews(GeneralParameterValue[] params) throws IOException {
+        return this.getFileInsp().buildOverviews(paramReader(params));
+    }
+
+    /**
+     * Read the vertical profile at the SECTION_PATH point, or the vertical section along the SECTION_PATH line, across the ELEVATION_RANGE
+     * elevations or all the elevations of the file, at the requested time. A read with a SECTION_PATH parameter gives the same section as a
+     * coverage, see {@link VerticalSection#getEnvelope()}.
+     * 
+     * @see NetCDFFileInspector#readSection
+     */
+    public VerticalSection readSection(GeneralParameterValue[] params) throws IOException {
+        ParamInformation paramInfo = paramReader(params);
+        if (paramInfo.getSectionPath() == null) {
+            throw new IllegalArgumentException("No "
+                    + NetCDFFormat.SECTION_PATH.getName().toString() + " parameter to read");
+        }
+        return this.getFileInsp().readSection(paramInfo);
+    }
+
+    private GridCoverage2D createSectionCoverage(VerticalSection section) {
+        final GridCoverageFactory factory = new GridCoverageFactory(hints);
+        return factory.create(this.coverageName, section.getWritableRaster(),
+                section.getEnvelope());
+    }
+
+    /**
+     * Read the values of the parameter at the cells of the READ_GRIDGEOMETRY2D envelope, a point or a small box, across every time, reference
+     * time and elevation of the file, or the ones the parameters ask for, and give them to the visitor as they are read. A meteogram of a point is
+     * a single read of the file instead of a coverage read for every time.
+     * 
+     * @return false if the visitor stopped the read.
+     * @see NetCDFFileInspector#readSeries
+     */
+    public boolean readSeries(GeneralParameterValue[] params, SeriesVisitor visitor)
+            throws IOException {
+        return this.getFileInsp().readSeries(paramReader(params), visitor);
+    }
+
+    /**
+     * @return the overview level the overview policy chooses for the requested resolution, 0 for the file grid.
+     */
+    private int pickOverviewLevel(ParamInformation paramInfo) throws IOException {
+        if (numOverviews <= 0) {
+            return 0;
+        }
+        GridEnvelope dim = paramInfo.getDim();
+        Rectangle requestedDim = new Rectangle(dim.getLow(0), dim.getLow(1), dim.getSpan(0),
+                dim.getSpan(1));
+        try {
+            return setReadParams(paramInfo.getOverviewPolicy(), new ImageReadParam(),
+                    paramInfo.getRequestedEnvelope(), requestedDim);
+        } catch (TransformException e) {
+            LOG.log(Level.WARNING, "Unable to choose an overview level, reading the file grid.", e);
+            return 0;
+        }
+    }
+
+    /**
+     * read the parameters and set variables, including the 'variable name in file' hints, in the returned ParamInformation. nothing is stored on the
+     * reader, so concurrent reads do not see each other's parameters.
      * 
      * paramReader, toNativeCrs and toReferencedEnvelope are heavily based on the ArcSDEGridCoverage2DReaderJAI class in geotools.
      * 
@@ -189,12 +306,12 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
             final String name = param.getDescriptor().getName().getCode();
             if (name.equals(NetCDFFormat.TIME.getName().toString())) {
                 if (param.getValue() != null) {
-                    parsedParams.setTime(getParameterValueAsDate(param.getValue(),
+                    parsedParams.setTimes(getParameterValueAsDates(param.getValue(),
                             NetCDFFormat.TIME.getName().toString()));
                 }
                 // get a non-default file variable name, if provided.
-                // this.fileInsp.setTimeVariableNameInFile(param.getHints().get(ATTRIBUTE));
-                this.fileInsp.setTimeVariableNameInFile(getHintValueIfGetHintsMethodIsAvailable(
+                // parsedParams.setTimeVariableNameInFile(param.getHints().get(ATTRIBUTE));
+                parsedParams.setTimeVariableNameInFile(getHintValueIfGetHintsMethodIsAvailable(
                         param, HINT_DIMENSION_ATTRIBUTE_NAME));
             } else if (name.equals(NetCDFFormat.REFERENCE_TIME.getName().toString())) {
                 if (param.getValue() != null) {
@@ -202,21 +319,33 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
                             NetCDFFormat.REFERENCE_TIME.getName().toString()));
                 }
                 // get a non-default file variable name, if provided.
-                // this.fileInsp.setRuntimeVariableNameInFile(param.getHints().get(ATTRIBUTE));
-                this.fileInsp.setRuntimeVariableNameInFile(getHintValueIfGetHintsMethodIsAvailable(
+                // parsedParams.setRuntimeVariableNameInFile(param.getHints().get(ATTRIBUTE));
+                parsedParams.setRuntimeVariableNameInFile(getHintValueIfGetHintsMethodIsAvailable(
                         param, HINT_DIMENSION_ATTRIBUTE_NAME));
                 // TODO: this is just a start, for reference time, we have other file specific names to consider.
                 // if no runtime var in file, we then look for tau var, and its time_origin attribute, and then global time_origin attribute.
             } else if (name.equals(NetCDFFormat.ELEVATION.getName().toString())) {
-                parsedParams.setElevation(getElevationParameterValue(param,
+                parsedParams.setElevations(getElevationParameterValues(param,
                         parsedParams.getParameter()));
                 // get a non-default file variable name, if provided.
-                // this.fileInsp.setElevationVariableNameInFile(param.getHints().get(ATTRIBUTE));
-                this.fileInsp
+                // parsedParams.setElevationVariableNameInFile(param.getHints().get(ATTRIBUTE));
+                parsedParams
                         .setElevationVariableNameInFile(getHintValueIfGetHintsMethodIsAvailable(
                                 param, HINT_DIMENSION_ATTRIBUTE_NAME));
             } else if (name.equals(NetCDFFormat.PARAMETER.getName().toString())) {
-                parsedParams.setParameter((String) param.getValue());
+                // several parameters, like the u and v of a current, are separated by commas.
+                String parameter = (String) param.getValue();
+                if (parameter != null && parameter.indexOf(PARAMETER_SEPARATOR) >= 0) {
+                    List<String> parameters = new ArrayList<String>();
+                    for (String parameterName : parameter.split(PARAMETER_SEPARATOR)) {
+                        if (!parameterName.trim().isEmpty()) {
+                            parameters.add(parameterName.trim());
+                        }
+                    }
+                    parsedParams.setParameters(parameters);
+                } else {
+                    parsedParams.setParameter(parameter);
+                }
             } else if (name.equals(AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().toString())) {
                 final GridGeometry2D gg = (GridGeometry2D) param.getValue();
                 reqEnvelope = new GeneralEnvelope((Envelope) gg.getEnvelope2D());
@@ -232,6 +361,15 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
                 }
 
                 dim = gg.getGridRange2D();
+            } else if (name.equals(NetCDFFormat.SECTION_PATH.getName().toString())) {
+                if (param.getValue() != null) {
+                    parsedParams.setSectionPath(((Geometry) param.getValue()).getCoordinates());
+                }
+            } else if (name.equals(NetCDFFormat.ELEVATION_RANGE.getName().toString())) {
+                parsedParams.setElevationRange((NumberRange<?>) param.getValue());
+            } else if (name.equals(AbstractGridFormat.INTERPOLATION.getName().toString())) {
+                parsedParams.setInterpolation(toInterpolationKernel((Interpolation) param
+                        .getValue()));
             } else if (name.equals(AbstractGridFormat.OVERVIEW_POLICY.getName().toString())) {
                 OverviewPolicy overviewPolicy = (OverviewPolicy) param.getValue();
                 parsedParams.setOverviewPolicy((overviewPolicy == null) ? OverviewPolicy.NEAREST
@@ -290,9 +428,9 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
      * method.
      * <ul>
      * <li>replace:</li>
-     * <li>this.fileInsp.setTimeVariableNameInFile(getAttributeValueIfAvailable(param))</li>
+     * <li>parsedParams.setTimeVariableNameInFile(getAttributeValueIfAvailable(param))</li>
      * <li>with:</li>
-     * <li>this.fileInsp.setTimeVariableNameInFile(param.getHints().get(ATTRIBUTE));</li>
+     * <li>parsedParams.setTimeVariableNameInFile(param.getHints().get(ATTRIBUTE));</li>
      * </ul>
      * 
      * protected instead of private only for unit test.
@@ -326,26 +464,34 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
     /**
      * @param param the request parameter information for elevation
      * @param parameter for logging msg. the parameter(variable) (too many meanings of the word 'parameter'!)
+     * @return every requested elevation, each a Double or, for special case elevations like surface, the Object requested. A single default
+     *         elevation, which may be null, if none is requested.
      */
-    private Object getElevationParameterValue(ParameterValue<?> param, String parameter) {
-        Object result = null;
-
-        // first, look at the param's value. try first as Double and if not, then Object.
-        result = getParameterValueAsDouble(param.getValue(), NetCDFFormat.ELEVATION.getName()
-                .toString());
-        if (result == null) {
-            result = getParameterValueAsObject(param.getValue(), NetCDFFormat.ELEVATION.getName()
-                    .toString());
+    private List<Object> getElevationParameterValues(ParameterValue<?> param, String parameter) {
+        List<Object> results = new ArrayList<Object>();
+
+        // first, look at the param's values. try first as Double and if not, then Object.
+        List<?> values = param.getValue() == null ? new ArrayList<Object>() : (List<?>) param
+                .getValue();
+        for (Object value : values) {
+            if (value instanceof Number) {
+                results.add(((Number) value).doubleValue());
+            } else if (value instanceof String && convertStringToDouble((String) value) != null) {
+                results.add(convertStringToDouble((String) value));
+            } else if (value != null) {
+                results.add(value);
+            }
+        }
+        if (!results.isEmpty()) {
+            return results;
         }
 
         // if not found, look for default value in the param's hints.
-        if (result == null) {
-            String defaultElevationAsString = getHintValueIfGetHintsMethodIsAvailable(param,
-                    HINT_DIMENSION_DEFAULT_VALUE_NAME);
-            Double defaultElevationAsDouble = convertStringToDouble(defaultElevationAsString);
-            result = (defaultElevationAsDouble != null) ? defaultElevationAsDouble
-                    : defaultElevationAsString;
-        }
+        String defaultElevationAsString = getHintValueIfGetHintsMethodIsAvailable(param,
+                HINT_DIMENSION_DEFAULT_VALUE_NAME);
+        Double defaultElevationAsDouble = convertStringToDouble(defaultElevationAsString);
+        Object result = (defaultElevationAsDouble != null) ? defaultElevationAsDouble
+                : defaultElevationAsString;
 
         // if still not found, log. note that the parameter may not be known yet.
         if (result == null) {
@@ -354,6 +500,28 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
                     new Object[] { this.fileInsp.getFileName(), parameter });
         }
 
+        results.add(result);
+        return results;
+    }
+
+    /**
+     * @return every requested time that is a Date or can be parsed as one.
+     */
+    private List<Date> getParameterValueAsDates(Object parameterValue, String msgLabel) {
+        List<Date> result = new ArrayList<Date>();
+        for (Object value : (List<?>) parameterValue) {
+            if (value instanceof Date) {
+                result.add((Date) value);
+            } else if (value instanceof String) {
+                SimpleDateFormat sdf = NetCdfDateFormatUtil.getDateFormat3();
+                try {
+                    result.add(sdf.parse((String) value));
+                } catch (ParseException e) {
+                    LOG.log(Level.WARNING, "Could not parse date for request parameter " + msgLabel
+                            + ": " + value + ".", e);
+                }
+            }
+        }
         return result;
     }
 
@@ -382,40 +550,6 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
         return result;
     }
 
-    private Double getParameterValueAsDouble(Object parameterValue, String msgLabel) {
-        Double result = null;
-
-        List<?> values = (List<?>) parameterValue;
-        if (!values.isEmpty()) {
-            Object firstValue = values.get(0);
-            if (firstValue instanceof Number) {
-                result = (Double) firstValue;
-            } else if (firstValue instanceof String) {
-                result = convertStringToDouble((String) firstValue);
-            }
-            if (values.size() > 1) {
-                LOG.log(Level.INFO, "Requested Parameter for " + msgLabel
-                        + " list has more than one value: {0}.  Using first.", values.size());
-            }
-        }
-
-        return result;
-    }
-
-    private Object getParameterValueAsObject(Object parameterValue, String msgLabel) {
-        Object result = null;
-
-        List<?> values = (List<?>) parameterValue;
-        if (!values.isEmpty()) {
-            result = values.get(0);
-        }
-        if (values.size() > 1) {
-            LOG.log(Level.INFO, "Requested Parameter for " + msgLabel
-                    + " list has more than one value: {0}.  Using first.", values.size());
-        }
-        return result;
-    }
-
     /**
      * @return Double if successful, null if not.
      */
@@ -433,6 +567,20 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
         return result;
     }
 
+    /**
+     * @return the kernel the file values are interpolated with for a JAI interpolation, nearest for the others and for null.
+     */
+    private static InterpolationKernel toInterpolationKernel(Interpolation interpolation) {
+        if (interpolation instanceof InterpolationBicubic
+                || interpolation instanceof InterpolationBicubic2) {
+            return InterpolationKernel.BICUBIC;
+        }
+        if (interpolation instanceof InterpolationBilinear) {
+            return InterpolationKernel.BILINEAR;
+        }
+        return InterpolationKernel.NEAREST;
+    }
+
     private static ReferencedEnvelope toNativeCrs(final GeneralEnvelope requestedEnvelope,
             final CoordinateReferenceSystem nativeCRS) {
 
@@ -497,13 +645,11 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
             return superValue;
         }
 
+        // computed once per version of the file, these are asked for many times per request.
+        DomainMetadata domains = fileInsp.getDomainMetadata();
+
         if (name.equalsIgnoreCase(HAS_ELEVATION_DOMAIN)) {
-            SortedSet<Object> elevations = fileInsp.getElevations();
-            if (elevations != null && elevations.size() > 0) {
-                return String.valueOf(true);
-            } else {
-                return String.valueOf(false);
-            }
+            return String.valueOf(domains.hasElevations());
         }
 
         /*
@@ -520,26 +666,39 @@ public class NetCDFReader extends AbstractGridCoverage2DReader implements GridCo
 
         /* Get the time string */
         if (name.equalsIgnoreCase(TIME_DOMAIN)) {
-            return fileInsp.getTimeString();
+            return domains.getTimeString();
         }
         /* Get the elevation string */
         if (name.equalsIgnoreCase(ELEVATION_DOMAIN)) {
-            return fileInsp.getElevationString();
+            return domains.getElevationString();
         }
         /* Get the reference_time (model run time) string */
         if (name.equalsIgnoreCase(DIM_REFERENCE_TIME_DOMAIN)) {
-            return fileInsp.getReferenceTimeString();
+            return domains.getReferenceTimeString();
         }
 
         if (name.equalsIgnoreCase(TIME_DOMAIN_MINIMUM)) {
-            return fileInsp.getTimeMinimum();
+            return domains.getTimeMinimum();
         }
         if (name.equalsIgnoreCase(TIME_DOMAIN_MAXIMUM)) {
-            return fileInsp.getTimeMaximum();
+            return domains.getTimeMaximum();
+        }
+        if (name.equalsIgnoreCase(TIME_DOMAIN_RESOLUTION)) {
+            return domains.getTimeResolution();
+        }
+
+        if (name.equalsIgnoreCase(ELEVATION_DOMAIN_MINIMUM)) {
+            return domains.getElevationMinimum();
+        }
+        if (name.equalsIgnoreCase(ELEVATION_DOMAIN_MAXIMUM)) {
+            return domains.getElevationMaximum();
+        }
+        if (name.equalsIgnoreCase(ELEVATION_DOMAIN_RESOLUTION)) {
+            return domains.getElevationResolution();
         }
 
         if (name.equalsIgnoreCase(NetCDFFormat.NETCDF_PARAMETER_NAME)) {
-            return fileInsp.getVariablesString();
+            return domains.getVariablesString();
         }
         return superValue;
     }
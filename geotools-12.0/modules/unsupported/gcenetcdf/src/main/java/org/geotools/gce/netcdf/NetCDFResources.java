@@ -0,0 +1,47 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2013, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf;
+
+import org.geotools.gce.netcdf.cache.NetCDFFileCache;
+import org.geotools.gce.netcdf.cache.TileCache;
+import org.geotools.gce.netcdf.read.ParallelBandReads;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+
+/**
+ * The resources the module holds for the whole JVM: the open file handles and sweeper thread of the {@link NetCDFFileCache}, the tiles of the
+ * {@link TileCache}, the pool of the {@link ParallelBandReads} and the MBeans of all of them.
+ *
+ * The application that loaded the module owns their shutdown, and calls {@link #dispose()} when it unloads it, e.g. a web application on
+ * undeploy; the GeoServer plugin does on the shutdown of its application context. The threads are daemon threads, so a standalone application
+ * may as well exit without it.
+ */
+public final class NetCDFResources {
+
+    private NetCDFResources() {
+    }
+
+    /**
+     * Close the idle file handles, stop the threads and unregister the MBeans of the module, so its class loader can be collected. Handles still
+     * leased are closed when released.
+     */
+    public static void dispose() {
+        NetCDFFileCache.getInstance().dispose();
+        TileCache.getInstance().dispose();
+        ParallelBandReads.getInstance().dispose();
+        ReadMetrics.getInstance().dispose();
+    }
+}
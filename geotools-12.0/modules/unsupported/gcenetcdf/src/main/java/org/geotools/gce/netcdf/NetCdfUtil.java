@@ -86,6 +86,13 @@ public class NetCdfUtil {
 
     public static final Collection<String> LAT_VARIABLE_NAMES = Arrays.asList("lat", "latitude");
 
+    /**
+     * standard_name of the axes of a projected grid, see {@link #getXAxisVariable(NetcdfFile)}.
+     */
+    public static final String PROJECTION_X_COORDINATE = "projection_x_coordinate";
+
+    public static final String PROJECTION_Y_COORDINATE = "projection_y_coordinate";
+
     public static final Collection<String> ELEVATION_VARIABLE_NAMES = Arrays.asList(
             ELEVATION_VARIABLE_NAME_DEPTH, ELEVATION_VARIABLE_NAME_HEIGHT, "pressure", "sigma");
 
@@ -209,6 +216,78 @@ public class NetCdfUtil {
         return NOT_FOUND;
     }
 
+    /**
+     * Get the variable of the x axis of the grid: the longitude variable, or on a projected grid the coordinate variable with a standard_name of
+     * projection_x_coordinate or an axis attribute of X. Returns null if not found.
+     */
+    public static Variable getXAxisVariable(NetcdfFile netCdfFile) {
+        return getAxisVariable(netCdfFile, LON_VARIABLE_NAMES, PROJECTION_X_COORDINATE, "X");
+    }
+
+    /**
+     * Get the variable of the y axis of the grid: the latitude variable, or on a projected grid the coordinate variable with a standard_name of
+     * projection_y_coordinate or an axis attribute of Y. Returns null if not found.
+     */
+    public static Variable getYAxisVariable(NetcdfFile netCdfFile) {
+        return getAxisVariable(netCdfFile, LAT_VARIABLE_NAMES, PROJECTION_Y_COORDINATE, "Y");
+    }
+
+    /**
+     * Get the index of the x axis dimension of a variable, see {@link #getXAxisVariable(NetcdfFile)}. Returns -1 if not found.
+     */
+    public static int getXDimensionIndex(Variable var) {
+        return getAxisDimensionIndex(var, LON_VARIABLE_NAMES, PROJECTION_X_COORDINATE, "X");
+    }
+
+    /**
+     * Get the index of the y axis dimension of a variable, see {@link #getYAxisVariable(NetcdfFile)}. Returns -1 if not found.
+     */
+    public static int getYDimensionIndex(Variable var) {
+        return getAxisDimensionIndex(var, LAT_VARIABLE_NAMES, PROJECTION_Y_COORDINATE, "Y");
+    }
+
+    private static Variable getAxisVariable(NetcdfFile netCdfFile,
+            Collection<String> geographicNames, String standardName, String axis) {
+        Variable result = getFileVariableByName(netCdfFile, geographicNames);
+        if (result != null || netCdfFile == null) {
+            return result;
+        }
+        for (Variable variable : netCdfFile.getVariables()) {
+            if (variable.isCoordinateVariable() && isAxis(variable, standardName, axis)) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    private static int getAxisDimensionIndex(Variable var, Collection<String> geographicNames,
+            String standardName, String axis) {
+        int result = getVariableDimensionIndexByName(var, geographicNames);
+        if (result != NOT_FOUND || var == null) {
+            return result;
+        }
+        int dimensionIndex = 0;
+        for (Dimension dimension : var.getDimensions()) {
+            Variable coordinate = var.getParentGroup().findVariable(dimension.getName());
+            if (coordinate != null && isAxis(coordinate, standardName, axis)) {
+                return dimensionIndex;
+            }
+            dimensionIndex++;
+        }
+        return NOT_FOUND;
+    }
+
+    private static boolean isAxis(Variable variable, String standardName, String axis) {
+        Attribute standardNameAttribute = variable.findAttribute("standard_name");
+        if (standardNameAttribute != null && standardNameAttribute.isString()
+                && standardName.equals(standardNameAttribute.getStringValue())) {
+            return true;
+        }
+        Attribute axisAttribute = variable.findAttribute("axis");
+        return axisAttribute != null && axisAttribute.isString()
+                && axis.equalsIgnoreCase(axisAttribute.getStringValue());
+    }
+
     /**
      * limitation: so far, only tested for variable with 1D String array.
      */
@@ -16,12 +16,19 @@
  */
 package org.geotools.gce.netcdf;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.geotools.coverage.grid.io.OverviewPolicy;
+import org.geotools.gce.netcdf.index.InterpolationKernel;
 import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.util.NumberRange;
 import org.opengis.coverage.grid.GridEnvelope;
 
+import com.vividsolutions.jts.geom.Coordinate;
+
 /**
  * Provides convenience object to contain request parameter information for NetCDF project.
  */
@@ -36,10 +43,59 @@ public class ParamInformation {
 
     private String parameter = null;
 
+    /**
+     * every requested parameter, time and elevation, for a read of several slices into the bands of one coverage. null when only the single
+     * value is requested.
+     */
+    private List<String> parameters = null;
+
+    private List<Date> times = null;
+
+    private List<Object> elevations = null;
+
     private GridEnvelope dim = null;
 
     private OverviewPolicy overviewPolicy = null;
 
+    /**
+     * the overview level to read, as chosen by the overview policy. 0 for the grid of the file.
+     */
+    private int overviewLevel = 0;
+
+    /**
+     * how values between the values of the file are computed, see the INTERPOLATION read parameter.
+     */
+    private InterpolationKernel interpolation = InterpolationKernel.NEAREST;
+
+    /**
+     * non-default names of the dimension variables in the file, given with this request. null means use the store configuration or defaults.
+     */
+    private String timeVariableNameInFile = null;
+
+    private String elevationVariableNameInFile = null;
+
+    private String runtimeVariableNameInFile = null;
+
+    /**
+     * longitude/latitude points of the vertical profile or section to read, null for a read of the requested envelope.
+     */
+    private Coordinate[] sectionPath = null;
+
+    /**
+     * elevations of a vertical profile or section, null for all the elevations of the file.
+     */
+    private NumberRange<?> elevationRange = null;
+
+    /**
+     * set from any thread to give up the request, checked by the reads between row bands.
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * the request this is a slice of, cancelled along with it. null for a request of its own.
+     */
+    private ParamInformation parent = null;
+
     public GeneralEnvelope getRequestedEnvelope() {
         return requestedEnvelope;
     }
@@ -52,8 +108,12 @@ public class ParamInformation {
         return elevation;
     }
 
+    /**
+     * Request this elevation alone.
+     */
     public void setElevation(Object elevation) {
         this.elevation = elevation;
+        this.elevations = null;
     }
 
     public Date getTime() {
@@ -64,16 +124,108 @@ public class ParamInformation {
         }
     }
 
+    /**
+     * Request this time alone.
+     */
     public void setTime(Date time) {
         this.time = time;
+        this.times = null;
     }
 
     public String getParameter() {
         return parameter;
     }
 
+    /**
+     * Request this parameter alone.
+     */
     public void setParameter(String parameter) {
         this.parameter = parameter;
+        this.parameters = null;
+    }
+
+    /**
+     * @return every requested parameter, the single parameter if only one is requested.
+     */
+    public List<String> getParameters() {
+        return parameters != null ? parameters : Collections.singletonList(parameter);
+    }
+
+    /**
+     * Request several parameters, each read into a band of its own. The first one is the parameter.
+     */
+    public void setParameters(List<String> parameters) {
+        this.parameters = parameters.size() > 1 ? new ArrayList<String>(parameters) : null;
+        this.parameter = parameters.isEmpty() ? null : parameters.get(0);
+    }
+
+    /**
+     * @return every requested time, the single time, which may be null, if only one is requested.
+     */
+    public List<Date> getTimes() {
+        return times != null ? times : Collections.singletonList(getTime());
+    }
+
+    /**
+     * Request several times, each read into a band of its own. The first one is the time.
+     */
+    public void setTimes(List<Date> times) {
+        this.times = times.size() > 1 ? new ArrayList<Date>(times) : null;
+        this.time = times.isEmpty() ? null : times.get(0);
+    }
+
+    /**
+     * @return every requested elevation, the single elevation, which may be null, if only one is requested.
+     */
+    public List<Object> getElevations() {
+        return elevations != null ? elevations : Collections.singletonList(elevation);
+    }
+
+    /**
+     * Request several elevations, each read into a band of its own. The first one is the elevation.
+     */
+    public void setElevations(List<Object> elevations) {
+        this.elevations = elevations.size() > 1 ? new ArrayList<Object>(elevations) : null;
+        this.elevation = elevations.isEmpty() ? null : elevations.get(0);
+    }
+
+    /**
+     * @return a request of a single slice for each requested parameter, time and elevation, ordered by parameter, then time, then elevation, or
+     *         this request alone if it is a single slice. Slices are cancelled with this request.
+     */
+    public List<ParamInformation> getSlices() {
+        List<String> sliceParameters = getParameters();
+        List<Date> sliceTimes = getTimes();
+        List<Object> sliceElevations = getElevations();
+        if (sliceParameters.size() * sliceTimes.size() * sliceElevations.size() == 1) {
+            return Collections.singletonList(this);
+        }
+
+        List<ParamInformation> result = new ArrayList<ParamInformation>();
+        for (String sliceParameter : sliceParameters) {
+            for (Date sliceTime : sliceTimes) {
+                for (Object sliceElevation : sliceElevations) {
+                    ParamInformation slice = new ParamInformation();
+                    slice.requestedEnvelope = requestedEnvelope;
+                    slice.elevation = sliceElevation;
+                    slice.time = sliceTime;
+                    slice.referenceTime = referenceTime;
+                    slice.parameter = sliceParameter;
+                    slice.dim = dim;
+                    slice.overviewPolicy = overviewPolicy;
+                    slice.overviewLevel = overviewLevel;
+                    slice.interpolation = interpolation;
+                    slice.timeVariableNameInFile = timeVariableNameInFile;
+                    slice.elevationVariableNameInFile = elevationVariableNameInFile;
+                    slice.runtimeVariableNameInFile = runtimeVariableNameInFile;
+                    slice.sectionPath = sectionPath;
+                    slice.elevationRange = elevationRange;
+                    slice.parent = this;
+                    result.add(slice);
+                }
+            }
+        }
+        return result;
     }
 
     public GridEnvelope getDim() {
@@ -92,6 +244,25 @@ public class ParamInformation {
         this.overviewPolicy = overviewPolicy;
     }
 
+    public int getOverviewLevel() {
+        return overviewLevel;
+    }
+
+    public void setOverviewLevel(int overviewLevel) {
+        this.overviewLevel = overviewLevel;
+    }
+
+    public InterpolationKernel getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * @param interpolation - null for the nearest value.
+     */
+    public void setInterpolation(InterpolationKernel interpolation) {
+        this.interpolation = interpolation == null ? InterpolationKernel.NEAREST : interpolation;
+    }
+
     public Date getReferenceTime() {
         if (referenceTime == null) {
             return referenceTime;
@@ -104,4 +275,54 @@ public class ParamInformation {
         this.referenceTime = referenceTime;
     }
 
+    public String getTimeVariableNameInFile() {
+        return timeVariableNameInFile;
+    }
+
+    public void setTimeVariableNameInFile(String timeVariableNameInFile) {
+        this.timeVariableNameInFile = timeVariableNameInFile;
+    }
+
+    public String getElevationVariableNameInFile() {
+        return elevationVariableNameInFile;
+    }
+
+    public void setElevationVariableNameInFile(String elevationVariableNameInFile) {
+        this.elevationVariableNameInFile = elevationVariableNameInFile;
+    }
+
+    public String getRuntimeVariableNameInFile() {
+        return runtimeVariableNameInFile;
+    }
+
+    public void setRuntimeVariableNameInFile(String runtimeVariableNameInFile) {
+        this.runtimeVariableNameInFile = runtimeVariableNameInFile;
+    }
+
+    public Coordinate[] getSectionPath() {
+        return sectionPath;
+    }
+
+    public void setSectionPath(Coordinate[] sectionPath) {
+        this.sectionPath = sectionPath;
+    }
+
+    public NumberRange<?> getElevationRange() {
+        return elevationRange;
+    }
+
+    public void setElevationRange(NumberRange<?> elevationRange) {
+        this.elevationRange = elevationRange;
+    }
+
+    /**
+     * Give up the request. Reads not started yet are skipped and the read throws a CancellationException.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
 }
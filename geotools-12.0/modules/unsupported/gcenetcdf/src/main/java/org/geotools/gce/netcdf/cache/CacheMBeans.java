@@ -0,0 +1,81 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Registration of the MBeans of the module in the platform MBean server. The names are suffixed with the class loader of this module, so every web
+ * application of a container has its own MBeans and none replaces the MBean of another.
+ */
+public final class CacheMBeans {
+
+    private static final Logger LOG = Logging.getLogger(CacheMBeans.class);
+
+    private static final String DOMAIN = "org.geotools.gce.netcdf";
+
+    private CacheMBeans() {
+    }
+
+    /**
+     * @return the name of the MBean of the type for the class loader of this module.
+     */
+    public static ObjectName getObjectName(String type) throws MalformedObjectNameException {
+        ClassLoader loader = CacheMBeans.class.getClassLoader();
+        return new ObjectName(DOMAIN + ":type=" + type + ",loader="
+                + Integer.toHexString(System.identityHashCode(loader)));
+    }
+
+    /**
+     * @return the name the MBean was registered under, null if it could not be registered.
+     */
+    public static ObjectName register(Object mbean, String type) {
+        try {
+            ObjectName name = getObjectName(type);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+            return name;
+        } catch (Exception e) {
+            LOG.log(Level.INFO, "Unable to register the " + type + " MBean.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param name - as returned by {@link #register(Object, String)}, may be null.
+     */
+    public static void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.INFO, "Unable to unregister the " + name + " MBean.", e);
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+import org.geotools.util.logging.Logging;
+
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.NetcdfDataset;
+
+/**
+ * Bounded pool of open {@link NetcdfFile} handles, shared by all the readers in the JVM.
+ *
+ * Opening a NetCDF/NcML file parses its whole header, which is expensive for large model output. Callers {@link #acquire(File)} a handle, use it
+ * exclusively, and {@link #release(NetcdfFile)} it back instead of closing it. Released handles stay open for reuse until they are evicted by the
+ * LRU bound ({@link #getMaxIdleHandles()}) or the idle timeout ({@link #getIdleTimeoutMillis()}). Handles are keyed by file path and checked
+ * against the file modification time and length on every acquire, so a rewritten file is reopened and the stale handles are closed.
+ *
+ * A handle is never shared between two callers at the same time, since NetcdfFile reads are not thread safe. Concurrent callers on the same file
+ * get separate handles.
+ *
+ * The shared instance is disposed of by {@link org.geotools.gce.netcdf.NetCDFResources#dispose()}.
+ */
+public final class NetCDFFileCache implements NetCDFFileCacheMBean {
+
+    private static final Logger LOG = Logging.getLogger(NetCDFFileCache.class);
+
+    /**
+     * System property holding the maximum number of idle handles kept open.
+     */
+    public static final String MAX_IDLE_HANDLES_KEY = "org.geotools.gce.netcdf.cache.maxIdleHandles";
+
+    /**
+     * System property holding the number of milliseconds an idle handle is kept open.
+     */
+    public static final String IDLE_TIMEOUT_KEY = "org.geotools.gce.netcdf.cache.idleTimeoutMillis";
+
+    private static final int DEFAULT_MAX_IDLE_HANDLES = 32;
+
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
+    private static final String MBEAN_TYPE = "NetCDFFileCache";
+
+    private static final long SWEEP_PERIOD_MILLIS = 60 * 1000L;
+
+    private static final NetCDFFileCache INSTANCE = new NetCDFFileCache(Integer.getInteger(
+            MAX_IDLE_HANDLES_KEY, DEFAULT_MAX_IDLE_HANDLES), Long.getLong(IDLE_TIMEOUT_KEY,
+            DEFAULT_IDLE_TIMEOUT_MILLIS));
+
+    static {
+        INSTANCE.registerMBean(MBEAN_TYPE);
+        INSTANCE.startSweeper(SWEEP_PERIOD_MILLIS);
+    }
+
+    /**
+     * Entries in access order, so the first entry holds the least recently used handles.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16,
+            0.75f, true);
+
+    private final Map<NetcdfFile, Entry> leased = new IdentityHashMap<NetcdfFile, Entry>();
+
+    private int idleCount;
+
+    private volatile int maxIdleHandles;
+
+    private volatile long idleTimeoutMillis;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private long invalidationCount;
+
+    private ObjectName objectName;
+
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * package private so tests can use a private instance.
+     */
+    NetCDFFileCache(int maxIdleHandles, long idleTimeoutMillis) {
+        this.maxIdleHandles = maxIdleHandles;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public static NetCDFFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get an open handle on the file for the exclusive use of the caller. Must be given back with {@link #release(NetcdfFile)}, not closed.
+     */
+    public NetcdfFile acquire(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        List<NetcdfFile> toClose = new ArrayList<NetcdfFile>();
+        Entry entry;
+        IdleHandle idle;
+
+        synchronized (this) {
+            entry = entries.get(path);
+            if (entry != null && !entry.matches(lastModified, length)) {
+                // the file changed on disk, retire every handle opened on the old version.
+                entry.stale = true;
+                invalidationCount += entry.idle.size();
+                idleCount -= entry.idle.size();
+                drain(entry, toClose);
+                entries.remove(path);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(path, lastModified, length);
+                entries.put(path, entry);
+            }
+
+            idle = entry.idle.pollLast();
+            if (idle != null) {
+                idleCount--;
+                hitCount++;
+                leased.put(idle.ncFile, entry);
+            } else {
+                missCount++;
+            }
+            entry.leasedCount++;
+        }
+        closeAll(toClose);
+        if (idle != null) {
+            return idle.ncFile;
+        }
+
+        // open outside of the lock, parsing the header is the slow part.
+        NetcdfFile ncFile = null;
+        try {
+            ncFile = NetcdfDataset.openFile(path, null);
+        } finally {
+            synchronized (this) {
+                if (ncFile == null) {
+                    entry.leasedCount--;
+                } else {
+                    leased.put(ncFile, entry);
+                }
+            }
+        }
+        return ncFile;
+    }
+
+    /**
+     * Give a handle obtained with {@link #acquire(File)} back to the cache. Handles that were not obtained from this cache are simply closed.
+     */
+    public void release(NetcdfFile ncFile) {
+        if (ncFile == null) {
+            return;
+        }
+        List<NetcdfFile> toClose = new ArrayList<NetcdfFile>();
+        synchronized (this) {
+            Entry entry = leased.remove(ncFile);
+            if (entry == null) {
+                toClose.add(ncFile);
+            } else {
+                entry.leasedCount--;
+                if (entry.stale || maxIdleHandles <= 0) {
+                    toClose.add(ncFile);
+                } else {
+                    entry.idle.addLast(new IdleHandle(ncFile, System.currentTimeMillis()));
+                    idleCount++;
+                    // touch the entry so it becomes the most recently used.
+                    entries.get(entry.path);
+                    evict(toClose, System.currentTimeMillis());
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Close the idle handles of a file and make sure the leased ones are closed on release. Next acquire reopens the file.
+     */
+    public void invalidate(File file) {
+        List<NetcdfFile> toClose = new ArrayList<NetcdfFile>();
+        synchronized (this) {
+            Entry entry = entries.remove(file.getAbsolutePath());
+            if (entry != null) {
+                entry.stale = true;
+                invalidationCount += entry.idle.size();
+                idleCount -= entry.idle.size();
+                drain(entry, toClose);
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Close the idle handles that have been waiting longer than the idle timeout.
+     */
+    public void sweep() {
+        List<NetcdfFile> toClose = new ArrayList<NetcdfFile>();
+        synchronized (this) {
+            evict(toClose, System.currentTimeMillis());
+        }
+        closeAll(toClose);
+    }
+
+    public void clear() {
+        List<NetcdfFile> toClose = new ArrayList<NetcdfFile>();
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                evictionCount += entry.idle.size();
+                drain(entry, toClose);
+                if (entry.leasedCount == 0) {
+                    it.remove();
+                }
+            }
+            idleCount = 0;
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * must hold the lock.
+     */
+    private void evict(List<NetcdfFile> toClose, long now) {
+        long oldestAllowed = now - idleTimeoutMillis;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            // least recently used entries first, oldest handle of each entry first.
+            while (!entry.idle.isEmpty()
+                    && (idleCount > maxIdleHandles || entry.idle.peekFirst().releasedAt < oldestAllowed)) {
+                toClose.add(entry.idle.pollFirst().ncFile);
+                idleCount--;
+                evictionCount++;
+            }
+            if (entry.idle.isEmpty() && entry.leasedCount == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private void drain(Entry entry, List<NetcdfFile> toClose) {
+        for (IdleHandle idle : entry.idle) {
+            toClose.add(idle.ncFile);
+        }
+        entry.idle.clear();
+    }
+
+    private void closeAll(List<NetcdfFile> toClose) {
+        for (NetcdfFile ncFile : toClose) {
+            try {
+                ncFile.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Close NetCDF file: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public synchronized int getLeasedHandleCount() {
+        return leased.size();
+    }
+
+    public synchronized int getIdleHandleCount() {
+        return idleCount;
+    }
+
+    public int getMaxIdleHandles() {
+        return maxIdleHandles;
+    }
+
+    public void setMaxIdleHandles(int maxIdleHandles) {
+        this.maxIdleHandles = maxIdleHandles;
+        sweep();
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        sweep();
+    }
+
+    /**
+     * Stop the sweeper thread, unregister the MBean and close the idle handles, so the class loader of this module can be collected. Handles
+     * released afterwards, including the ones still leased, are closed instead of kept.
+     */
+    public void dispose() {
+        ScheduledExecutorService sweeper;
+        ObjectName objectName;
+        synchronized (this) {
+            sweeper = this.sweeper;
+            objectName = this.objectName;
+            this.sweeper = null;
+            this.objectName = null;
+            maxIdleHandles = 0;
+        }
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        CacheMBeans.unregister(objectName);
+        clear();
+    }
+
+    /**
+     * package private so tests can register a private instance under a name of their own.
+     */
+    synchronized void registerMBean(String type) {
+        objectName = CacheMBeans.register(this, type);
+    }
+
+    /**
+     * package private so tests can sweep a private instance more often.
+     */
+    synchronized void startSweeper(long periodMillis) {
+        sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "NetCDFFileCache-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                sweep();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * All handles opened on one version of one file.
+     */
+    private static class Entry {
+        private final String path;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final Deque<IdleHandle> idle = new ArrayDeque<IdleHandle>();
+
+        private int leasedCount;
+
+        /**
+         * set when the file changed, leased handles of a stale entry are closed on release.
+         */
+        private boolean stale;
+
+        Entry(String path, long lastModified, long length) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean matches(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+    }
+
+    private static class IdleHandle {
+        private final NetcdfFile ncFile;
+
+        private final long releasedAt;
+
+        IdleHandle(NetcdfFile ncFile, long releasedAt) {
+            this.ncFile = ncFile;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
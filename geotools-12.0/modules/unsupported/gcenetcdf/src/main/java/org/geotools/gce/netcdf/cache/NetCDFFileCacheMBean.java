@@ -0,0 +1,66 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+/**
+ * JMX management interface for the {@link NetCDFFileCache}.
+ */
+public interface NetCDFFileCacheMBean {
+
+    /**
+     * @return number of acquire calls served by an already open handle.
+     */
+    long getHitCount();
+
+    /**
+     * @return number of acquire calls that had to open the NetCDF file.
+     */
+    long getMissCount();
+
+    /**
+     * @return number of idle handles closed because of the LRU bound or the idle timeout.
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of handles closed because the underlying file changed or was invalidated.
+     */
+    long getInvalidationCount();
+
+    /**
+     * @return number of handles currently handed out to callers.
+     */
+    int getLeasedHandleCount();
+
+    /**
+     * @return number of open handles waiting in the cache for reuse.
+     */
+    int getIdleHandleCount();
+
+    int getMaxIdleHandles();
+
+    void setMaxIdleHandles(int maxIdleHandles);
+
+    long getIdleTimeoutMillis();
+
+    void setIdleTimeoutMillis(long idleTimeoutMillis);
+
+    /**
+     * Close all idle handles. Leased handles are closed when they are released.
+     */
+    void clear();
+}
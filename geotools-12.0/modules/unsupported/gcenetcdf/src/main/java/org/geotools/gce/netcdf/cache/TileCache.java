@@ -0,0 +1,454 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import org.geotools.gce.netcdf.index.InterpolationKernel;
+
+/**
+ * Bounded cache of the decoded values of reads, shared by all the readers in the JVM, so tiled clients asking for the same tiles again do not
+ * read and unpack the file again.
+ *
+ * A tile is keyed by what the read resolved the request to, not by the request itself: the file version, the parameter, the time, elevation and
+ * reference time indices and the file indices of every row and column (with the fractional positions of an interpolated read). Two requests
+ * resolving to the same cells of the same slice share a tile, whatever their envelopes.
+ *
+ * The cache is off unless it is given a size in bytes ({@link #getMaxBytes()}), and drops the least recently used tiles to stay within it. Tiles
+ * are kept in the Java heap, or in direct buffers outside of it when {@link #isOffHeap()}. Tiles of a file are dropped as soon as a lookup finds
+ * the file modification time or length changed.
+ *
+ * The shared instance is disposed of by {@link org.geotools.gce.netcdf.NetCDFResources#dispose()}.
+ */
+public final class TileCache implements TileCacheMBean {
+
+    /**
+     * System property holding the largest number of bytes the cached tiles may hold, 0 (the default) to turn the cache off.
+     */
+    public static final String MAX_BYTES_KEY = "org.geotools.gce.netcdf.cache.tileCache.maxBytes";
+
+    /**
+     * System property set to true to keep the tiles in direct buffers, outside of the Java heap.
+     */
+    public static final String OFF_HEAP_KEY = "org.geotools.gce.netcdf.cache.tileCache.offHeap";
+
+    private static final String MBEAN_TYPE = "TileCache";
+
+    /**
+     * rough size of a key and its map entries, on top of its index arrays.
+     */
+    private static final int KEY_OVERHEAD_BYTES = 128;
+
+    private static final TileCache INSTANCE = new TileCache(Long.getLong(MAX_BYTES_KEY, 0),
+            Boolean.getBoolean(OFF_HEAP_KEY));
+
+    static {
+        INSTANCE.objectName = CacheMBeans.register(INSTANCE, MBEAN_TYPE);
+    }
+
+    /**
+     * Tiles in access order, so the first tile is the least recently used.
+     */
+    private final LinkedHashMap<Key, Tile> tiles = new LinkedHashMap<Key, Tile>(16, 0.75f, true);
+
+    /**
+     * The keys of the tiles of each file, all of the same version of the file.
+     */
+    private final Map<String, Set<Key>> fileKeys = new HashMap<String, Set<Key>>();
+
+    private long sizeBytes;
+
+    private volatile long maxBytes;
+
+    private volatile boolean offHeap;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private long invalidationCount;
+
+    private ObjectName objectName;
+
+    /**
+     * package private so tests can use a private instance.
+     */
+    TileCache(long maxBytes, boolean offHeap) {
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    public static TileCache getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Copy the values of the tile of the key into values.
+     *
+     * @return false if there is no such tile, values are left as they are.
+     */
+    public boolean get(Key key, float[] values) {
+        Tile tile;
+        synchronized (this) {
+            if (!isEnabled()) {
+                return false;
+            }
+            dropOtherVersions(key);
+            tile = tiles.get(key);
+            if (tile == null || tile.size() != values.length) {
+                missCount++;
+                return false;
+            }
+            hitCount++;
+        }
+        // tiles are never modified, copying needs no lock.
+        tile.copyTo(values);
+        return true;
+    }
+
+    /**
+     * Keep a copy of the values read for the key, if they fit in the cache.
+     */
+    public void put(Key key, float[] values) {
+        long bytes = values.length * 4L + key.getSizeBytes();
+        if (!isEnabled() || bytes > maxBytes) {
+            return;
+        }
+        // copied outside of the lock.
+        Tile tile = offHeap ? new OffHeapTile(values) : new HeapTile(values);
+        synchronized (this) {
+            dropOtherVersions(key);
+            Tile previous = tiles.put(key, tile);
+            if (previous != null) {
+                sizeBytes -= previous.size() * 4L + key.getSizeBytes();
+            }
+            sizeBytes += bytes;
+            Set<Key> keys = fileKeys.get(key.path);
+            if (keys == null) {
+                keys = new HashSet<Key>();
+                fileKeys.put(key.path, keys);
+            }
+            keys.add(key);
+            evict();
+        }
+    }
+
+    /**
+     * Drop the tiles of a file.
+     */
+    public synchronized void invalidate(File file) {
+        Set<Key> keys = fileKeys.remove(file.getAbsolutePath());
+        if (keys != null) {
+            invalidationCount += keys.size();
+            remove(keys);
+        }
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+        fileKeys.clear();
+        sizeBytes = 0;
+    }
+
+    /**
+     * Drop the tiles of the file of the key read from another version of it. must hold the lock.
+     */
+    private void dropOtherVersions(Key key) {
+        Set<Key> keys = fileKeys.get(key.path);
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        Key other = keys.iterator().next();
+        if (other.lastModified != key.lastModified || other.length != key.length) {
+            fileKeys.remove(key.path);
+            invalidationCount += keys.size();
+            remove(keys);
+        }
+    }
+
+    /**
+     * must hold the lock.
+     */
+    private void remove(Set<Key> keys) {
+        for (Key key : keys) {
+            Tile tile = tiles.remove(key);
+            if (tile != null) {
+                sizeBytes -= tile.size() * 4L + key.getSizeBytes();
+            }
+        }
+    }
+
+    /**
+     * Drop the least recently used tiles until the cache is within its size. must hold the lock.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, Tile>> it = tiles.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, Tile> entry = it.next();
+            Key key = entry.getKey();
+            it.remove();
+            sizeBytes -= entry.getValue().size() * 4L + key.getSizeBytes();
+            evictionCount++;
+            Set<Key> keys = fileKeys.get(key.path);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    fileKeys.remove(key.path);
+                }
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        evict();
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Tiles already cached stay where they are.
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Unregister the MBean and drop the tiles, so the class loader of this module can be collected.
+     */
+    public void dispose() {
+        ObjectName objectName;
+        synchronized (this) {
+            objectName = this.objectName;
+            this.objectName = null;
+        }
+        CacheMBeans.unregister(objectName);
+        clear();
+    }
+
+    /**
+     * What a read of one slice of one version of a file resolved to.
+     */
+    public static final class Key {
+        private final String path;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final String parameter;
+
+        private final Integer timeIndex;
+
+        private final Integer elevationIndex;
+
+        private final Integer runtimeIndex;
+
+        private final InterpolationKernel interpolation;
+
+        private final int[] longitudeIndices;
+
+        private final int[] latitudeIndices;
+
+        private final double[] longitudePositions;
+
+        private final double[] latitudePositions;
+
+        private final int hashCode;
+
+        /**
+         * @param file - the file read, its modification time and length are taken now.
+         * @param parameter - the parameter read, with the expression of a derived parameter so a new definition does not hit the old tiles.
+         * @param interpolation - how the values were computed from the file values.
+         * @param longitudePositions - the fractional file indices of an interpolated read, null for a read of the nearest values.
+         */
+        public Key(File file, String parameter, Integer timeIndex, Integer elevationIndex,
+                Integer runtimeIndex, InterpolationKernel interpolation, int[] longitudeIndices,
+                int[] latitudeIndices, double[] longitudePositions, double[] latitudePositions) {
+            this.path = file.getAbsolutePath();
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.parameter = parameter;
+            this.timeIndex = timeIndex;
+            this.elevationIndex = elevationIndex;
+            this.runtimeIndex = runtimeIndex;
+            this.interpolation = interpolation;
+            this.longitudeIndices = longitudeIndices.clone();
+            this.latitudeIndices = latitudeIndices.clone();
+            this.longitudePositions = longitudePositions == null ? null : longitudePositions
+                    .clone();
+            this.latitudePositions = latitudePositions == null ? null : latitudePositions
+                    .clone();
+
+            int hash = path.hashCode();
+            hash = 31 * hash + (int) (lastModified ^ (lastModified >>> 32));
+            hash = 31 * hash + parameter.hashCode();
+            hash = 31 * hash + (timeIndex == null ? 0 : timeIndex);
+            hash = 31 * hash + (elevationIndex == null ? 0 : elevationIndex);
+            hash = 31 * hash + (runtimeIndex == null ? 0 : runtimeIndex);
+            hash = 31 * hash + Arrays.hashCode(this.longitudeIndices);
+            hash = 31 * hash + Arrays.hashCode(this.latitudeIndices);
+            this.hashCode = hash;
+        }
+
+        long getSizeBytes() {
+            long bytes = KEY_OVERHEAD_BYTES + (longitudeIndices.length + latitudeIndices.length)
+                    * 4L;
+            if (longitudePositions != null) {
+                bytes += longitudePositions.length * 8L;
+            }
+            if (latitudePositions != null) {
+                bytes += latitudePositions.length * 8L;
+            }
+            return bytes;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && lastModified == other.lastModified
+                    && length == other.length && path.equals(other.path)
+                    && parameter.equals(other.parameter) && equal(timeIndex, other.timeIndex)
+                    && equal(elevationIndex, other.elevationIndex)
+                    && equal(runtimeIndex, other.runtimeIndex)
+                    && interpolation == other.interpolation
+                    && Arrays.equals(longitudeIndices, other.longitudeIndices)
+                    && Arrays.equals(latitudeIndices, other.latitudeIndices)
+                    && Arrays.equals(longitudePositions, other.longitudePositions)
+                    && Arrays.equals(latitudePositions, other.latitudePositions);
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public String toString() {
+            return "Key [" + path + ", " + parameter + ", time=" + timeIndex + ", elevation="
+                    + elevationIndex + ", runtime=" + runtimeIndex + ", "
+                    + longitudeIndices.length + "x" + latitudeIndices.length + "]";
+        }
+    }
+
+    /**
+     * The values of one read, never modified once cached.
+     */
+    private interface Tile {
+        int size();
+
+        void copyTo(float[] values);
+    }
+
+    private static final class HeapTile implements Tile {
+        private final float[] values;
+
+        HeapTile(float[] values) {
+            this.values = values.clone();
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public void copyTo(float[] values) {
+            System.arraycopy(this.values, 0, values, 0, this.values.length);
+        }
+    }
+
+    /**
+     * A tile in a direct buffer, given back to the system when the buffer is garbage collected.
+     */
+    private static final class OffHeapTile implements Tile {
+        private final FloatBuffer values;
+
+        OffHeapTile(float[] values) {
+            this.values = ByteBuffer.allocateDirect(values.length * 4)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            this.values.put(values);
+        }
+
+        public int size() {
+            return values.capacity();
+        }
+
+        public void copyTo(float[] values) {
+            // a duplicate has a position of its own, for concurrent copies.
+            FloatBuffer buffer = this.values.duplicate();
+            buffer.rewind();
+            buffer.get(values);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+/**
+ * JMX management interface for the {@link TileCache}.
+ */
+public interface TileCacheMBean {
+
+    /**
+     * @return number of reads served by a cached tile.
+     */
+    long getHitCount();
+
+    /**
+     * @return number of reads that had to read the NetCDF file, while the cache was enabled.
+     */
+    long getMissCount();
+
+    /**
+     * @return number of tiles dropped to keep the cache within {@link #getMaxBytes()}.
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of tiles dropped because their file changed or was invalidated.
+     */
+    long getInvalidationCount();
+
+    /**
+     * @return number of tiles in the cache.
+     */
+    int getTileCount();
+
+    /**
+     * @return bytes held by the cached tiles and their keys.
+     */
+    long getSizeBytes();
+
+    /**
+     * @return the largest number of bytes the cached tiles may hold, 0 when the cache is off.
+     */
+    long getMaxBytes();
+
+    void setMaxBytes(long maxBytes);
+
+    /**
+     * @return true if new tiles are kept in direct buffers, outside of the Java heap.
+     */
+    boolean isOffHeap();
+
+    void setOffHeap(boolean offHeap);
+
+    /**
+     * Drop all cached tiles.
+     */
+    void clear();
+}
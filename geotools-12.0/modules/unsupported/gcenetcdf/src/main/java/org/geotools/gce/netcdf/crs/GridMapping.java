@@ -0,0 +1,295 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.crs;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.measure.unit.SI;
+import javax.measure.unit.Unit;
+import javax.measure.quantity.Length;
+
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.cs.DefaultCartesianCS;
+import org.geotools.referencing.cs.DefaultEllipsoidalCS;
+import org.geotools.referencing.datum.DefaultEllipsoid;
+import org.geotools.referencing.datum.DefaultGeodeticDatum;
+import org.geotools.referencing.datum.DefaultPrimeMeridian;
+import org.geotools.referencing.operation.DefiningConversion;
+import org.geotools.util.logging.Logging;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.cs.CartesianCS;
+import org.opengis.referencing.datum.Ellipsoid;
+
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Reads the CF grid_mapping of a NetCDF file into a CoordinateReferenceSystem, so a grid on projected x and y axes, like the polar stereographic
+ * and Lambert conformal grids of weather and ocean models, is served in its own CRS instead of being reprojected to longitudes and latitudes
+ * ahead of time.
+ *
+ * The grid mapping variable is the one named by the grid_mapping attribute of the first variable of the file that has one. Its
+ * grid_mapping_name and projection attributes follow the CF conventions, appendix F, and the earth shape is given by earth_radius,
+ * semi_major_axis with semi_minor_axis or inverse_flattening, or is WGS84 when there is none of them.
+ */
+public final class GridMapping {
+
+    private static final Logger LOG = Logging.getLogger(GridMapping.class);
+
+    public static final String GRID_MAPPING_ATTRIBUTE = "grid_mapping";
+
+    public static final String GRID_MAPPING_NAME_ATTRIBUTE = "grid_mapping_name";
+
+    /**
+     * grid_mapping_name of a grid of longitudes and latitudes.
+     */
+    public static final String LATITUDE_LONGITUDE = "latitude_longitude";
+
+    private GridMapping() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return the grid mapping variable of the file, null if no variable of the file names one.
+     */
+    public static Variable getGridMappingVariable(NetcdfFile ncFile) {
+        for (Variable variable : ncFile.getVariables()) {
+            Attribute gridMapping = variable.findAttribute(GRID_MAPPING_ATTRIBUTE);
+            if (gridMapping != null && gridMapping.isString()) {
+                Variable result = ncFile.findVariable(gridMapping.getStringValue().trim());
+                if (result == null) {
+                    LOG.log(Level.WARNING, "Grid mapping variable {0} of {1} not found.",
+                            new Object[] { gridMapping.getStringValue(), variable.getShortName() });
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the file has a grid mapping other than latitude_longitude, so its grid is on projected x and y axes.
+     */
+    public static boolean isProjected(NetcdfFile ncFile) {
+        Variable gridMapping = getGridMappingVariable(ncFile);
+        return gridMapping != null && !LATITUDE_LONGITUDE.equals(getString(gridMapping,
+                GRID_MAPPING_NAME_ATTRIBUTE));
+    }
+
+    /**
+     * @param xAxis - the x axis variable of the grid, for the unit of the projected coordinates, meters if it has none.
+     * @return the CRS of the grid mapping of the file, null if the file has no grid mapping.
+     * @throws FactoryException if the grid mapping is not supported, or its parameters are not valid.
+     */
+    public static CoordinateReferenceSystem getCoordinateReferenceSystem(NetcdfFile ncFile,
+            Variable xAxis) throws FactoryException {
+        Variable gridMapping = getGridMappingVariable(ncFile);
+        if (gridMapping == null) {
+            return null;
+        }
+        String name = getString(gridMapping, GRID_MAPPING_NAME_ATTRIBUTE);
+        GeographicCRS baseCRS = getBaseCRS(gridMapping);
+        if (name == null || LATITUDE_LONGITUDE.equals(name)) {
+            return baseCRS;
+        }
+
+        ParameterValueGroup parameters;
+        if ("polar_stereographic".equals(name)) {
+            double centralMeridian = getDouble(gridMapping,
+                    "straight_vertical_longitude_from_pole", getDouble(gridMapping,
+                            "longitude_of_projection_origin", 0));
+            if (gridMapping.findAttribute("standard_parallel") != null) {
+                parameters = getDefaultParameters("Polar Stereographic (variant B)");
+                parameters.parameter("central_meridian").setValue(centralMeridian);
+                parameters.parameter("Standard_Parallel_1").setValue(
+                        getDouble(gridMapping, "standard_parallel", 90));
+            } else {
+                parameters = getDefaultParameters("Polar_Stereographic");
+                parameters.parameter("central_meridian").setValue(centralMeridian);
+                parameters.parameter("latitude_of_origin").setValue(
+                        getDouble(gridMapping, "latitude_of_projection_origin", 90));
+                parameters.parameter("scale_factor").setValue(
+                        getDouble(gridMapping, "scale_factor_at_projection_origin", 1));
+            }
+        } else if ("lambert_conformal_conic".equals(name)) {
+            double[] standardParallels = getDoubles(gridMapping, "standard_parallel");
+            if (standardParallels.length > 1) {
+                parameters = getDefaultParameters("Lambert_Conformal_Conic_2SP");
+                parameters.parameter("standard_parallel_1").setValue(standardParallels[0]);
+                parameters.parameter("standard_parallel_2").setValue(standardParallels[1]);
+                parameters.parameter("latitude_of_origin").setValue(
+                        getDouble(gridMapping, "latitude_of_projection_origin", 0));
+            } else {
+                // a tangent cone touches at its standard parallel, the latitude of origin.
+                parameters = getDefaultParameters("Lambert_Conformal_Conic_1SP");
+                parameters.parameter("latitude_of_origin").setValue(
+                        standardParallels.length == 1 ? standardParallels[0] : getDouble(
+                                gridMapping, "latitude_of_projection_origin", 0));
+            }
+            parameters.parameter("central_meridian").setValue(
+                    getDouble(gridMapping, "longitude_of_central_meridian", 0));
+        } else if ("mercator".equals(name)) {
+            if (gridMapping.findAttribute("standard_parallel") != null) {
+                parameters = getDefaultParameters("Mercator_2SP");
+                parameters.parameter("standard_parallel_1").setValue(
+                        getDouble(gridMapping, "standard_parallel", 0));
+            } else {
+                parameters = getDefaultParameters("Mercator_1SP");
+                parameters.parameter("scale_factor").setValue(
+                        getDouble(gridMapping, "scale_factor_at_projection_origin", 1));
+            }
+            parameters.parameter("central_meridian").setValue(
+                    getDouble(gridMapping, "longitude_of_projection_origin", 0));
+        } else if ("transverse_mercator".equals(name)) {
+            parameters = getDefaultParameters("Transverse_Mercator");
+            parameters.parameter("central_meridian").setValue(
+                    getDouble(gridMapping, "longitude_of_central_meridian", 0));
+            parameters.parameter("latitude_of_origin").setValue(
+                    getDouble(gridMapping, "latitude_of_projection_origin", 0));
+            parameters.parameter("scale_factor").setValue(
+                    getDouble(gridMapping, "scale_factor_at_central_meridian", 1));
+        } else if ("albers_conical_equal_area".equals(name)) {
+            double[] standardParallels = getDoubles(gridMapping, "standard_parallel");
+            parameters = getDefaultParameters("Albers_Conic_Equal_Area");
+            parameters.parameter("central_meridian").setValue(
+                    getDouble(gridMapping, "longitude_of_central_meridian", 0));
+            parameters.parameter("latitude_of_origin").setValue(
+                    getDouble(gridMapping, "latitude_of_projection_origin", 0));
+            if (standardParallels.length > 0) {
+                parameters.parameter("standard_parallel_1").setValue(standardParallels[0]);
+                parameters.parameter("standard_parallel_2").setValue(
+                        standardParallels[standardParallels.length - 1]);
+            }
+        } else if ("lambert_azimuthal_equal_area".equals(name)) {
+            parameters = getDefaultParameters("Lambert_Azimuthal_Equal_Area");
+            parameters.parameter("longitude_of_center").setValue(
+                    getDouble(gridMapping, "longitude_of_projection_origin", 0));
+            parameters.parameter("latitude_of_center").setValue(
+                    getDouble(gridMapping, "latitude_of_projection_origin", 0));
+        } else if ("stereographic".equals(name) || "orthographic".equals(name)) {
+            parameters = getDefaultParameters("stereographic".equals(name) ? "Oblique_Stereographic"
+                    : "Orthographic");
+            parameters.parameter("central_meridian").setValue(
+                    getDouble(gridMapping, "longitude_of_projection_origin", 0));
+            parameters.parameter("latitude_of_origin").setValue(
+                    getDouble(gridMapping, "latitude_of_projection_origin", 0));
+            if ("stereographic".equals(name)) {
+                parameters.parameter("scale_factor").setValue(
+                        getDouble(gridMapping, "scale_factor_at_projection_origin", 1));
+            }
+        } else {
+            throw new FactoryException("Unsupported grid mapping " + name + " of "
+                    + gridMapping.getShortName());
+        }
+        parameters.parameter("false_easting").setValue(
+                getDouble(gridMapping, "false_easting", 0));
+        parameters.parameter("false_northing").setValue(
+                getDouble(gridMapping, "false_northing", 0));
+
+        Map<String, String> properties = Collections.singletonMap(IdentifiedObject.NAME_KEY,
+                name);
+        return ReferencingFactoryFinder.getCRSFactory(null).createProjectedCRS(properties,
+                baseCRS, new DefiningConversion(name, parameters), getCartesianCS(xAxis));
+    }
+
+    private static ParameterValueGroup getDefaultParameters(String method)
+            throws FactoryException {
+        return ReferencingFactoryFinder.getMathTransformFactory(null).getDefaultParameters(method);
+    }
+
+    /**
+     * @return WGS84, or the sphere or ellipsoid of the grid mapping attributes.
+     */
+    private static GeographicCRS getBaseCRS(Variable gridMapping) {
+        double earthRadius = getDouble(gridMapping, "earth_radius", Double.NaN);
+        double semiMajor = getDouble(gridMapping, "semi_major_axis", Double.NaN);
+        double semiMinor = getDouble(gridMapping, "semi_minor_axis", Double.NaN);
+        double inverseFlattening = getDouble(gridMapping, "inverse_flattening", Double.NaN);
+
+        Ellipsoid ellipsoid;
+        if (!Double.isNaN(earthRadius)) {
+            ellipsoid = DefaultEllipsoid.createEllipsoid("Sphere", earthRadius, earthRadius,
+                    SI.METER);
+        } else if (!Double.isNaN(semiMajor) && !Double.isNaN(semiMinor)) {
+            ellipsoid = DefaultEllipsoid.createEllipsoid("Ellipsoid", semiMajor, semiMinor,
+                    SI.METER);
+        } else if (!Double.isNaN(semiMajor) && !Double.isNaN(inverseFlattening)) {
+            ellipsoid = inverseFlattening == 0 ? DefaultEllipsoid.createEllipsoid("Sphere",
+                    semiMajor, semiMajor, SI.METER) : DefaultEllipsoid.createFlattenedSphere(
+                    "Ellipsoid", semiMajor, inverseFlattening, SI.METER);
+        } else {
+            return DefaultGeographicCRS.WGS84;
+        }
+        DefaultGeodeticDatum datum = new DefaultGeodeticDatum(ellipsoid.getName().getCode(),
+                ellipsoid, DefaultPrimeMeridian.GREENWICH);
+        return new DefaultGeographicCRS(ellipsoid.getName().getCode(), datum,
+                DefaultEllipsoidalCS.GEODETIC_2D);
+    }
+
+    /**
+     * @return easting and northing axes in the unit of the x axis variable, kilometers or meters.
+     */
+    private static CartesianCS getCartesianCS(Variable xAxis) {
+        return DefaultCartesianCS.PROJECTED.usingUnit(getLengthUnit(xAxis));
+    }
+
+    /**
+     * @return the unit of the projected coordinates of the axis variable, meters when its units attribute is missing or not a known length.
+     */
+    public static Unit<Length> getLengthUnit(Variable axis) {
+        String units = axis == null ? null : getString(axis, "units");
+        if (units != null) {
+            units = units.trim().toLowerCase();
+            if ("km".equals(units) || units.startsWith("kilomet")) {
+                return SI.KILOMETER;
+            }
+        }
+        return SI.METER;
+    }
+
+    private static String getString(Variable variable, String name) {
+        Attribute attribute = variable.findAttribute(name);
+        return attribute == null || !attribute.isString() ? null : attribute.getStringValue();
+    }
+
+    private static double getDouble(Variable variable, String name, double defaultValue) {
+        Attribute attribute = variable.findAttribute(name);
+        return attribute == null || attribute.isString() ? defaultValue : attribute
+                .getNumericValue().doubleValue();
+    }
+
+    private static double[] getDoubles(Variable variable, String name) {
+        Attribute attribute = variable.findAttribute(name);
+        if (attribute == null || attribute.isString()) {
+            return new double[0];
+        }
+        double[] result = new double[attribute.getLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = attribute.getNumericValue(i).doubleValue();
+        }
+        return result;
+    }
+}
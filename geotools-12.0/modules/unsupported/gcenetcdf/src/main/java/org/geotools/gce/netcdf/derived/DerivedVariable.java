@@ -0,0 +1,108 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.derived;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parameter computed from variables of the NetCDF file, like the magnitude of a current from its u and v components. Declared by an expression
+ * over the source variables, for example:
+ *
+ * <pre>
+ * sqrt("u-vel"^2 + "v-vel"^2)
+ * mod(degrees(atan2(-"u-wind", -"v-wind")), 360)
+ * </pre>
+ *
+ * The expression has the operators +, -, *, / and ^, and the functions sqrt, abs, exp, log, log10, sin, cos, tan, atan, degrees, radians, floor,
+ * ceil, pow, atan2, min, max and mod. A missing (NaN) source value gives a missing result.
+ */
+public final class DerivedVariable {
+
+    private final String name;
+
+    private final String expression;
+
+    private final ExpressionNode root;
+
+    private final List<String> sourceNames;
+
+    private final int scratchCount;
+
+    /**
+     * @param name - the parameter name the derived variable is requested by.
+     * @param expression - the expression over the source variables.
+     * @throws IllegalArgumentException if the expression is not valid or uses no source variable.
+     */
+    public DerivedVariable(String name, String expression) {
+        ExpressionParser parser = new ExpressionParser(expression);
+        this.name = name;
+        this.expression = expression;
+        this.root = parser.parse();
+        this.sourceNames = Collections.unmodifiableList(parser.getSourceNames());
+        this.scratchCount = root.setDepth(0);
+        if (sourceNames.isEmpty()) {
+            throw new IllegalArgumentException("Derived variable " + name
+                    + " does not use any variable: " + expression);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the names of the variables the expression uses, in order of first use.
+     */
+    public List<String> getSourceNames() {
+        return sourceNames;
+    }
+
+    /**
+     * Compute the derived values, one row of the image at a time.
+     *
+     * @param sources - row-major values of the source variables, indexed like {@link #getSourceNames()}.
+     * @param width - number of values in a row.
+     * @param result - receives the derived values. May be one of the sources, each row is read before it is written.
+     */
+    public void evaluate(float[][] sources, int width, float[] result) {
+        if (sources.length != sourceNames.size()) {
+            throw new IllegalArgumentException("Expected " + sourceNames.size()
+                    + " sources for " + name + ", got " + sources.length);
+        }
+        if (result.length == 0) {
+            return;
+        }
+        int blockLength = Math.max(1, Math.min(width, result.length));
+        float[] block = new float[blockLength];
+        float[][] scratch = new float[scratchCount][blockLength];
+        for (int offset = 0; offset < result.length; offset += blockLength) {
+            int length = Math.min(blockLength, result.length - offset);
+            root.evaluate(sources, offset, length, block, scratch);
+            System.arraycopy(block, 0, result, offset, length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DerivedVariable [" + name + " = " + expression + "]";
+    }
+}
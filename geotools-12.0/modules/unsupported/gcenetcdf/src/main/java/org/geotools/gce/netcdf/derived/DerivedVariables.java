@@ -0,0 +1,119 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.derived;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * The derived variables known to all the readers in the JVM, by parameter name. A file variable of the same name takes precedence over a derived
+ * variable.
+ *
+ * Holds adcircMagnitude, the current speed of ADCIRC output, by default. More are declared in a properties file of name=expression lines named by
+ * the {@link #DEFINITIONS_KEY} system property, or registered with {@link #register(String, String)}.
+ */
+public final class DerivedVariables {
+
+    private static final Logger LOG = Logging.getLogger(DerivedVariables.class);
+
+    /**
+     * System property holding the path of a properties file of derived variable name=expression lines.
+     */
+    public static final String DEFINITIONS_KEY = "org.geotools.gce.netcdf.derived.definitions";
+
+    private static final DerivedVariables INSTANCE = new DerivedVariables();
+
+    static {
+        INSTANCE.register("adcircMagnitude", "sqrt(\"u-vel\"^2 + \"v-vel\"^2)");
+        String definitions = System.getProperty(DEFINITIONS_KEY);
+        if (definitions != null) {
+            try {
+                INSTANCE.load(definitions);
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Unable to read derived variables from " + definitions, e);
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, DerivedVariable> variables = new ConcurrentHashMap<String, DerivedVariable>();
+
+    private DerivedVariables() {
+    }
+
+    public static DerivedVariables getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Declare a derived variable, replacing any of the same name.
+     *
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    public DerivedVariable register(String name, String expression) {
+        DerivedVariable variable = new DerivedVariable(name, expression);
+        variables.put(name, variable);
+        LOG.log(Level.FINE, "Registered {0}", variable);
+        return variable;
+    }
+
+    public void remove(String name) {
+        variables.remove(name);
+    }
+
+    /**
+     * @return the derived variable requested by the parameter name, or null.
+     */
+    public DerivedVariable get(String name) {
+        return name == null ? null : variables.get(name);
+    }
+
+    public Collection<DerivedVariable> getAll() {
+        return Collections.unmodifiableCollection(new ArrayList<DerivedVariable>(variables
+                .values()));
+    }
+
+    /**
+     * Declare the derived variables of a properties file of name=expression lines. Invalid expressions are logged and skipped.
+     */
+    public void load(String path) throws IOException {
+        Properties properties = new Properties();
+        InputStream input = new FileInputStream(path);
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        for (String name : properties.stringPropertyNames()) {
+            try {
+                register(name, properties.getProperty(name));
+            } catch (IllegalArgumentException e) {
+                LOG.log(Level.SEVERE, "Invalid derived variable " + name + " in " + path, e);
+            }
+        }
+    }
+}
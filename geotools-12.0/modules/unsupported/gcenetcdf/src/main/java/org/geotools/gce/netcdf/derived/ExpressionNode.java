@@ -0,0 +1,379 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.derived;
+
+import java.util.Arrays;
+
+/**
+ * A node of a parsed derived variable expression. Nodes work on a block of values at a time, a row of the image, with one simple loop per
+ * operation, instead of walking the tree for every value.
+ *
+ * A node writes its result to the first length values of out. A node with two operands evaluates the first into out and the second into
+ * scratch[depth], so every level of the tree needs one scratch block and nodes at the same level share it.
+ */
+abstract class ExpressionNode {
+
+    /**
+     * level of the node in the tree, the root is at 0.
+     */
+    int depth;
+
+    /**
+     * Set the depth of the node and its operands.
+     *
+     * @return the number of scratch blocks the node and its operands need.
+     */
+    int setDepth(int depth) {
+        this.depth = depth;
+        return 0;
+    }
+
+    /**
+     * @param sources - the source variable values, indexed like {@link DerivedVariable#getSourceNames()}.
+     * @param offset - index in the sources of the first value of the block.
+     * @param length - number of values in the block.
+     * @param out - receives the values of the block.
+     * @param scratch - blocks for intermediate results.
+     */
+    abstract void evaluate(float[][] sources, int offset, int length, float[] out,
+            float[][] scratch);
+
+    /**
+     * @return the value if the node is a constant, NaN otherwise.
+     */
+    double getConstant() {
+        return Double.NaN;
+    }
+
+    static final class Constant extends ExpressionNode {
+        private final float value;
+
+        Constant(double value) {
+            this.value = (float) value;
+        }
+
+        @Override
+        void evaluate(float[][] sources, int offset, int length, float[] out, float[][] scratch) {
+            Arrays.fill(out, 0, length, value);
+        }
+
+        @Override
+        double getConstant() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    static final class Source extends ExpressionNode {
+        private final int index;
+
+        private final String name;
+
+        Source(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        @Override
+        void evaluate(float[][] sources, int offset, int length, float[] out, float[][] scratch) {
+            System.arraycopy(sources[index], offset, out, 0, length);
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + name + "\"";
+        }
+    }
+
+    /**
+     * An operation on one operand.
+     */
+    static final class Unary extends ExpressionNode {
+        private final UnaryOperator operator;
+
+        private final ExpressionNode operand;
+
+        Unary(UnaryOperator operator, ExpressionNode operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        int setDepth(int depth) {
+            this.depth = depth;
+            return operand.setDepth(depth);
+        }
+
+        @Override
+        void evaluate(float[][] sources, int offset, int length, float[] out, float[][] scratch) {
+            operand.evaluate(sources, offset, length, out, scratch);
+            operator.apply(out, length);
+        }
+
+        @Override
+        public String toString() {
+            return operator.name().toLowerCase() + "(" + operand + ")";
+        }
+    }
+
+    /**
+     * An operation on two operands.
+     */
+    static final class Binary extends ExpressionNode {
+        private final BinaryOperator operator;
+
+        private final ExpressionNode left;
+
+        private final ExpressionNode right;
+
+        Binary(BinaryOperator operator, ExpressionNode left, ExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int setDepth(int depth) {
+            this.depth = depth;
+            return Math.max(depth + 1,
+                    Math.max(left.setDepth(depth + 1), right.setDepth(depth + 1)));
+        }
+
+        @Override
+        void evaluate(float[][] sources, int offset, int length, float[] out, float[][] scratch) {
+            float[] second = scratch[depth];
+            left.evaluate(sources, offset, length, out, scratch);
+            right.evaluate(sources, offset, length, second, scratch);
+            operator.apply(out, second, length);
+        }
+
+        @Override
+        public String toString() {
+            return operator.name().toLowerCase() + "(" + left + ", " + right + ")";
+        }
+    }
+
+    enum UnaryOperator {
+        NEGATE {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = -values[i];
+                }
+            }
+        },
+        SQUARE {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = values[i] * values[i];
+                }
+            }
+        },
+        SQRT {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.sqrt(values[i]);
+                }
+            }
+        },
+        ABS {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = Math.abs(values[i]);
+                }
+            }
+        },
+        EXP {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.exp(values[i]);
+                }
+            }
+        },
+        LOG {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.log(values[i]);
+                }
+            }
+        },
+        LOG10 {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.log10(values[i]);
+                }
+            }
+        },
+        SIN {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.sin(values[i]);
+                }
+            }
+        },
+        COS {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.cos(values[i]);
+                }
+            }
+        },
+        TAN {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.tan(values[i]);
+                }
+            }
+        },
+        ATAN {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.atan(values[i]);
+                }
+            }
+        },
+        DEGREES {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.toDegrees(values[i]);
+                }
+            }
+        },
+        RADIANS {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.toRadians(values[i]);
+                }
+            }
+        },
+        FLOOR {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.floor(values[i]);
+                }
+            }
+        },
+        CEIL {
+            @Override
+            void apply(float[] values, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.ceil(values[i]);
+                }
+            }
+        };
+
+        abstract void apply(float[] values, int length);
+    }
+
+    enum BinaryOperator {
+        ADD {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = values[i] + second[i];
+                }
+            }
+        },
+        SUBTRACT {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = values[i] - second[i];
+                }
+            }
+        },
+        MULTIPLY {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = values[i] * second[i];
+                }
+            }
+        },
+        DIVIDE {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = values[i] / second[i];
+                }
+            }
+        },
+        POW {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.pow(values[i], second[i]);
+                }
+            }
+        },
+        ATAN2 {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) Math.atan2(values[i], second[i]);
+                }
+            }
+        },
+        MIN {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = Math.min(values[i], second[i]);
+                }
+            }
+        },
+        MAX {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = Math.max(values[i], second[i]);
+                }
+            }
+        },
+        /**
+         * remainder with the sign of the divisor, so mod(-90, 360) is 270, as needed for directions.
+         */
+        MOD {
+            @Override
+            void apply(float[] values, float[] second, int length) {
+                for (int i = 0; i < length; i++) {
+                    values[i] = (float) (values[i] - second[i]
+                            * Math.floor((double) values[i] / second[i]));
+                }
+            }
+        };
+
+        abstract void apply(float[] values, float[] second, int length);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.derived;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.geotools.gce.netcdf.derived.ExpressionNode.BinaryOperator;
+import org.geotools.gce.netcdf.derived.ExpressionNode.UnaryOperator;
+
+/**
+ * Recursive descent parser of derived variable expressions:
+ *
+ * <pre>
+ * expression = term { ("+" | "-") term }
+ * term       = unary { ("*" | "/") unary }
+ * unary      = "-" unary | power
+ * power      = primary [ "^" unary ]
+ * primary    = number | name | '"' name '"' | function "(" expression { "," expression } ")" | "(" expression ")"
+ * </pre>
+ *
+ * Names are source variables. A name that is not a plain identifier, like u-vel, is quoted.
+ */
+final class ExpressionParser {
+
+    private final String text;
+
+    private int position;
+
+    /**
+     * source variable names in order of first use.
+     */
+    private final List<String> sourceNames = new ArrayList<String>();
+
+    ExpressionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a valid expression.
+     */
+    ExpressionNode parse() {
+        ExpressionNode result = parseExpression();
+        skipSpaces();
+        if (position < text.length()) {
+            throw error("Unexpected '" + text.charAt(position) + "'");
+        }
+        return result;
+    }
+
+    List<String> getSourceNames() {
+        return sourceNames;
+    }
+
+    private ExpressionNode parseExpression() {
+        ExpressionNode result = parseTerm();
+        while (true) {
+            if (accept('+')) {
+                result = new ExpressionNode.Binary(BinaryOperator.ADD, result, parseTerm());
+            } else if (accept('-')) {
+                result = new ExpressionNode.Binary(BinaryOperator.SUBTRACT, result, parseTerm());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private ExpressionNode parseTerm() {
+        ExpressionNode result = parseUnary();
+        while (true) {
+            if (accept('*')) {
+                result = new ExpressionNode.Binary(BinaryOperator.MULTIPLY, result, parseUnary());
+            } else if (accept('/')) {
+                result = new ExpressionNode.Binary(BinaryOperator.DIVIDE, result, parseUnary());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private ExpressionNode parseUnary() {
+        if (accept('-')) {
+            ExpressionNode operand = parseUnary();
+            if (!Double.isNaN(operand.getConstant())) {
+                return new ExpressionNode.Constant(-operand.getConstant());
+            }
+            return new ExpressionNode.Unary(UnaryOperator.NEGATE, operand);
+        }
+        return parsePower();
+    }
+
+    private ExpressionNode parsePower() {
+        ExpressionNode base = parsePrimary();
+        if (!accept('^')) {
+            return base;
+        }
+        ExpressionNode exponent = parseUnary();
+        // the common squares and square roots without Math.pow.
+        double constant = exponent.getConstant();
+        if (constant == 1) {
+            return base;
+        } else if (constant == 2) {
+            return new ExpressionNode.Unary(UnaryOperator.SQUARE, base);
+        } else if (constant == 0.5) {
+            return new ExpressionNode.Unary(UnaryOperator.SQRT, base);
+        }
+        return new ExpressionNode.Binary(BinaryOperator.POW, base, exponent);
+    }
+
+    private ExpressionNode parsePrimary() {
+        skipSpaces();
+        if (position >= text.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char c = text.charAt(position);
+        if (accept('(')) {
+            ExpressionNode result = parseExpression();
+            expect(')');
+            return result;
+        }
+        if (c == '"') {
+            int end = text.indexOf('"', position + 1);
+            if (end < 0) {
+                throw error("Unterminated quoted name");
+            }
+            String name = text.substring(position + 1, end);
+            position = end + 1;
+            return source(name);
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return parseNumber();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            int start = position;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position))
+                            || text.charAt(position) == '_' || text.charAt(position) == '.')) {
+                position++;
+            }
+            String name = text.substring(start, position);
+            if (accept('(')) {
+                return parseFunction(name);
+            }
+            return source(name);
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private ExpressionNode parseNumber() {
+        int start = position;
+        while (position < text.length()
+                && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < text.length() && Character.toLowerCase(text.charAt(position)) == 'e') {
+            position++;
+            if (position < text.length()
+                    && (text.charAt(position) == '+' || text.charAt(position) == '-')) {
+                position++;
+            }
+            while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                position++;
+            }
+        }
+        try {
+            return new ExpressionNode.Constant(Double.parseDouble(text.substring(start, position)));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + text.substring(start, position));
+        }
+    }
+
+    /**
+     * parse the arguments of a function, the opening parenthesis already read.
+     */
+    private ExpressionNode parseFunction(String name) {
+        List<ExpressionNode> arguments = new ArrayList<ExpressionNode>();
+        arguments.add(parseExpression());
+        while (accept(',')) {
+            arguments.add(parseExpression());
+        }
+        expect(')');
+
+        String upperName = name.toUpperCase(Locale.ENGLISH);
+        if (arguments.size() == 1) {
+            for (UnaryOperator operator : UnaryOperator.values()) {
+                if (operator != UnaryOperator.NEGATE && operator.name().equals(upperName)) {
+                    return new ExpressionNode.Unary(operator, arguments.get(0));
+                }
+            }
+        } else if (arguments.size() == 2) {
+            for (BinaryOperator operator : BinaryOperator.values()) {
+                if (operator.name().equals(upperName)) {
+                    return new ExpressionNode.Binary(operator, arguments.get(0), arguments.get(1));
+                }
+            }
+        }
+        throw error("Unknown function " + name + " of " + arguments.size() + " argument(s)");
+    }
+
+    private ExpressionNode source(String name) {
+        int index = sourceNames.indexOf(name);
+        if (index < 0) {
+            index = sourceNames.size();
+            sourceNames.add(name);
+        }
+        return new ExpressionNode.Source(index, name);
+    }
+
+    private void skipSpaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean accept(char c) {
+        skipSpaces();
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position
+                + " of expression: " + text);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.fileparser;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.geotools.gce.netcdf.NetCdfDateFormatUtil;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.joda.time.Period;
+import org.joda.time.PeriodType;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.ISOPeriodFormat;
+
+/**
+ * The time, elevation, reference time and variable domains of one version of a NetCDF file, with the strings the reader gives for them as metadata
+ * values. Built once from the values read from the file, so the strings are not formatted again on every GetCapabilities or dimension check.
+ *
+ * Values that the file does not have are null.
+ */
+public final class DomainMetadata {
+
+    /**
+     * name of the system property that turns on start/end/period encoding of evenly spaced time domains, off by default as not every client reads
+     * the period.
+     */
+    public static final String PERIOD_ENCODING_PROPERTY = "org.geotools.gce.netcdf.domain.periodEncoding";
+
+    /**
+     * A domain with no values at all, for a file that could not be read.
+     */
+    static final DomainMetadata EMPTY = new DomainMetadata(null, null, null, null, false);
+
+    private final SortedSet<String> times;
+
+    private final String timeString;
+
+    private final String timeMinimum;
+
+    private final String timeMaximum;
+
+    private final String timeResolution;
+
+    private final SortedSet<Object> elevations;
+
+    private final String elevationString;
+
+    private final String elevationMinimum;
+
+    private final String elevationMaximum;
+
+    private final String elevationResolution;
+
+    private final String referenceTimeString;
+
+    private final SortedSet<String> variables;
+
+    private final String variablesString;
+
+    /**
+     * @param times - the times of the file, null if it has no time dimension.
+     * @param elevations - the elevations of the file, numbers or special case names like surface, null if it has no elevation dimension.
+     * @param referenceTimes - the reference times of the file, null if it has none.
+     * @param variables - the variable names of the file.
+     * @param periodEncoding - whether to give an evenly spaced time domain as start/end/period instead of a list.
+     */
+    public DomainMetadata(SortedSet<Date> times, SortedSet<Object> elevations,
+            List<Date> referenceTimes, SortedSet<String> variables, boolean periodEncoding) {
+        SimpleDateFormat dateFormat = NetCdfDateFormatUtil.getDateFormat3();
+
+        if (times == null) {
+            this.times = null;
+            this.timeString = null;
+            this.timeMinimum = null;
+            this.timeMaximum = null;
+            this.timeResolution = null;
+        } else {
+            this.times = Collections.unmodifiableSortedSet(format(times, dateFormat));
+            long step = getStep(times);
+            this.timeResolution = step > 0 ? getPeriod(step) : null;
+            if (periodEncoding && step > 0 && times.size() > 2) {
+                this.timeString = this.times.first() + "/" + this.times.last() + "/"
+                        + timeResolution;
+            } else {
+                this.timeString = NetCdfUtil.getDomainListAsString(this.times);
+            }
+            this.timeMinimum = this.times.isEmpty() ? null : this.times.first();
+            this.timeMaximum = this.times.isEmpty() ? null : this.times.last();
+        }
+
+        if (elevations == null) {
+            this.elevations = null;
+            this.elevationString = null;
+            this.elevationMinimum = null;
+            this.elevationMaximum = null;
+            this.elevationResolution = null;
+        } else {
+            this.elevations = Collections.unmodifiableSortedSet(new TreeSet<Object>(elevations));
+            this.elevationString = NetCdfUtil.getDomainListAsString(this.elevations);
+            boolean numeric = !elevations.isEmpty() && elevations.first() instanceof Number;
+            this.elevationMinimum = numeric ? String.valueOf(elevations.first()) : null;
+            this.elevationMaximum = numeric ? String.valueOf(elevations.last()) : null;
+            this.elevationResolution = numeric ? getResolution(elevations) : null;
+        }
+
+        if (referenceTimes == null) {
+            this.referenceTimeString = null;
+        } else {
+            List<String> referenceTimesAsStrings = new ArrayList<String>(referenceTimes.size());
+            for (Date referenceTime : referenceTimes) {
+                referenceTimesAsStrings.add(dateFormat.format(referenceTime));
+            }
+            this.referenceTimeString = NetCdfUtil.getDomainListAsString(referenceTimesAsStrings);
+        }
+
+        if (variables == null) {
+            this.variables = null;
+            this.variablesString = null;
+        } else {
+            this.variables = Collections.unmodifiableSortedSet(new TreeSet<String>(variables));
+            this.variablesString = NetCdfUtil.getDomainListAsString(this.variables);
+        }
+    }
+
+    private static SortedSet<String> format(Collection<Date> dates, SimpleDateFormat dateFormat) {
+        SortedSet<String> result = new TreeSet<String>();
+        for (Date date : dates) {
+            result.add(dateFormat.format(date));
+        }
+        return result;
+    }
+
+    /**
+     * @return the milliseconds between consecutive times if they are evenly spaced, 0 otherwise.
+     */
+    private static long getStep(SortedSet<Date> times) {
+        if (times.size() < 2) {
+            return 0;
+        }
+        Iterator<Date> iterator = times.iterator();
+        long previous = iterator.next().getTime();
+        long step = 0;
+        while (iterator.hasNext()) {
+            long time = iterator.next().getTime();
+            if (step == 0) {
+                step = time - previous;
+            } else if (time - previous != step) {
+                return 0;
+            }
+            previous = time;
+        }
+        return step;
+    }
+
+    /**
+     * @return the spacing of the elevations if they are evenly spaced, null otherwise.
+     */
+    private static String getResolution(SortedSet<Object> elevations) {
+        if (elevations.size() < 2) {
+            return null;
+        }
+        Iterator<Object> iterator = elevations.iterator();
+        double previous = ((Number) iterator.next()).doubleValue();
+        double step = Double.NaN;
+        while (iterator.hasNext()) {
+            Object next = iterator.next();
+            if (!(next instanceof Number)) {
+                return null;
+            }
+            double elevation = ((Number) next).doubleValue();
+            if (Double.isNaN(step)) {
+                step = elevation - previous;
+            } else if (Math.abs(elevation - previous - step) > NetCdfUtil.FLOATING_POINT_EPSILON) {
+                return null;
+            }
+            previous = elevation;
+        }
+        return String.valueOf(step);
+    }
+
+    /**
+     * @return the ISO 8601 period of the milliseconds, in days and time fields, like P1D or PT3H.
+     */
+    static String getPeriod(long millis) {
+        Period period = new Period(millis, PeriodType.dayTime(), ISOChronology.getInstanceUTC());
+        return ISOPeriodFormat.standard().print(period);
+    }
+
+    /**
+     * @return the times, formatted like the time domain, or null.
+     */
+    public SortedSet<String> getTimes() {
+        return times;
+    }
+
+    public String getTimeString() {
+        return timeString;
+    }
+
+    public String getTimeMinimum() {
+        return timeMinimum;
+    }
+
+    public String getTimeMaximum() {
+        return timeMaximum;
+    }
+
+    /**
+     * @return the ISO 8601 period between the times if they are evenly spaced, null otherwise.
+     */
+    public String getTimeResolution() {
+        return timeResolution;
+    }
+
+    /**
+     * @return the elevations, or null.
+     */
+    public SortedSet<Object> getElevations() {
+        return elevations;
+    }
+
+    public boolean hasElevations() {
+        return elevations != null && !elevations.isEmpty();
+    }
+
+    public String getElevationString() {
+        return elevationString;
+    }
+
+    /**
+     * @return the lowest elevation if the elevations are numbers, null otherwise.
+     */
+    public String getElevationMinimum() {
+        return elevationMinimum;
+    }
+
+    /**
+     * @return the highest elevation if the elevations are numbers, null otherwise.
+     */
+    public String getElevationMaximum() {
+        return elevationMaximum;
+    }
+
+    /**
+     * @return the spacing of the elevations if they are evenly spaced numbers, null otherwise.
+     */
+    public String getElevationResolution() {
+        return elevationResolution;
+    }
+
+    public String getReferenceTimeString() {
+        return referenceTimeString;
+    }
+
+    /**
+     * @return the variable names, or null.
+     */
+    public SortedSet<String> getVariables() {
+        return variables;
+    }
+
+    public String getVariablesString() {
+        return variablesString;
+    }
+
+    @Override
+    public String toString() {
+        return "DomainMetadata [times=" + (times == null ? 0 : times.size()) + ", elevations="
+                + (elevations == null ? 0 : elevations.size()) + ", referenceTimes="
+                + referenceTimeString + "]";
+    }
+}
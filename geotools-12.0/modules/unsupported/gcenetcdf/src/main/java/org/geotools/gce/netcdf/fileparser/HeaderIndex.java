@@ -0,0 +1,415 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.fileparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * What a NetCDFReader needs of one version of a NetCDF file before any read, kept in a sidecar file next to it (file.nc.hdx) so a new reader
+ * does not open the file: the bounds and grid size, the longitude and latitude values (or x and y values of a projected grid) and its CRS, and
+ * the values of the time, elevation, reference time and variable domains once they have been read.
+ *
+ * The sidecar starts with the length and modification time of the NetCDF file it was built from, and is not used when they do not match the
+ * file any more. It is replaced as a whole, through a temporary file renamed over it, so readers never see half of it.
+ */
+public final class HeaderIndex {
+
+    /**
+     * name of the system property that turns the sidecar off, true by default.
+     */
+    public static final String ENABLED_KEY = "org.geotools.gce.netcdf.headerIndex.enabled";
+
+    /**
+     * suffix of the sidecar file name, after the NetCDF file name.
+     */
+    public static final String SUFFIX = ".hdx";
+
+    private static final int MAGIC = 0x4e434858;
+
+    private static final int VERSION = 2;
+
+    private static final byte ELEVATION_NUMBER = 0;
+
+    private static final byte ELEVATION_NAME = 1;
+
+    private final long sourceLength;
+
+    private final long sourceLastModified;
+
+    private final float[] bounds;
+
+    private final int width;
+
+    private final int height;
+
+    private final boolean longitude0to360;
+
+    private final double[] longitudes;
+
+    private final double[] latitudes;
+
+    /**
+     * WKT of the CRS of the grid mapping of the file, null if the file has none.
+     */
+    private final String crsWkt;
+
+    /**
+     * the variable names the domains were looked up with, null if the domains have not been read.
+     */
+    private final String domainKey;
+
+    private final SortedSet<Date> times;
+
+    private final SortedSet<Object> elevations;
+
+    private final List<Date> referenceTimes;
+
+    private final SortedSet<String> variables;
+
+    /**
+     * @param bounds - [minimum longitude, maximum longitude, minimum latitude, maximum latitude], as NetCDFFileInspector.getBounds gives them.
+     * @param longitudes - the values of the longitude variable, not copied.
+     * @param latitudes - the values of the latitude variable, not copied.
+     * @param crsWkt - WKT of the CRS of the grid mapping of the file, null if the file has none.
+     * @param domainKey - the variable names the domains were looked up with, null if they have not been read. The domains are null where the
+     *        file does not have them, as for {@link DomainMetadata}.
+     */
+    public HeaderIndex(long sourceLength, long sourceLastModified, float[] bounds, int width,
+            int height, boolean longitude0to360, double[] longitudes, double[] latitudes,
+            String crsWkt, String domainKey, SortedSet<Date> times, SortedSet<Object> elevations,
+            List<Date> referenceTimes, SortedSet<String> variables) {
+        this.sourceLength = sourceLength;
+        this.sourceLastModified = sourceLastModified;
+        this.bounds = bounds.clone();
+        this.width = width;
+        this.height = height;
+        this.longitude0to360 = longitude0to360;
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+        this.crsWkt = crsWkt;
+        this.domainKey = domainKey;
+        this.times = times;
+        this.elevations = elevations;
+        this.referenceTimes = referenceTimes;
+        this.variables = variables;
+    }
+
+    /**
+     * @return the same header, with the domains read with the variable names of domainKey.
+     */
+    public HeaderIndex withDomains(String domainKey, SortedSet<Date> times,
+            SortedSet<Object> elevations, List<Date> referenceTimes, SortedSet<String> variables) {
+        return new HeaderIndex(sourceLength, sourceLastModified, bounds, width, height,
+                longitude0to360, longitudes, latitudes, crsWkt, domainKey, times, elevations,
+                referenceTimes, variables);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(ENABLED_KEY, "true"));
+    }
+
+    public static File getSidecarFile(File source) {
+        return new File(source.getPath() + SUFFIX);
+    }
+
+    /**
+     * @return the header of the version of the file given by its length and modification time, or null if the sidecar does not exist or is of
+     *         another version.
+     * @throws IOException if the sidecar can not be read, or is cut short.
+     */
+    public static HeaderIndex read(File source, long sourceLength, long sourceLastModified)
+            throws IOException {
+        File sidecar = getSidecarFile(source);
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                sidecar)));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                    || input.readLong() != sourceLength
+                    || input.readLong() != sourceLastModified) {
+                return null;
+            }
+            float[] bounds = new float[4];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = input.readFloat();
+            }
+            int width = input.readInt();
+            int height = input.readInt();
+            boolean longitude0to360 = input.readBoolean();
+            double[] longitudes = readDoubles(input);
+            double[] latitudes = readDoubles(input);
+            String crsWkt = input.readBoolean() ? input.readUTF() : null;
+
+            String domainKey = null;
+            SortedSet<Date> times = null;
+            SortedSet<Object> elevations = null;
+            List<Date> referenceTimes = null;
+            SortedSet<String> variables = null;
+            if (input.readBoolean()) {
+                domainKey = input.readUTF();
+                List<Date> timeList = readDates(input);
+                times = timeList == null ? null : new TreeSet<Date>(timeList);
+                elevations = readElevations(input);
+                referenceTimes = readDates(input);
+                variables = readStrings(input);
+            }
+            return new HeaderIndex(sourceLength, sourceLastModified, bounds, width, height,
+                    longitude0to360, longitudes, latitudes, crsWkt, domainKey, times, elevations,
+                    referenceTimes, variables);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Replace the sidecar of the file with this header.
+     */
+    public void write(File source) throws IOException {
+        File sidecar = getSidecarFile(source);
+        File partial = File.createTempFile(sidecar.getName(), ".part", sidecar
+                .getAbsoluteFile().getParentFile());
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(partial)));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(sourceLength);
+                output.writeLong(sourceLastModified);
+                for (float bound : bounds) {
+                    output.writeFloat(bound);
+                }
+                output.writeInt(width);
+                output.writeInt(height);
+                output.writeBoolean(longitude0to360);
+                writeDoubles(output, longitudes);
+                writeDoubles(output, latitudes);
+                output.writeBoolean(crsWkt != null);
+                if (crsWkt != null) {
+                    output.writeUTF(crsWkt);
+                }
+
+                output.writeBoolean(domainKey != null);
+                if (domainKey != null) {
+                    output.writeUTF(domainKey);
+                    writeDates(output, times);
+                    writeElevations(output, elevations);
+                    writeDates(output, referenceTimes);
+                    writeStrings(output, variables);
+                }
+            } finally {
+                output.close();
+            }
+            // renameTo does not replace an existing file everywhere.
+            if (!partial.renameTo(sidecar) && !(sidecar.delete() && partial.renameTo(sidecar))) {
+                throw new IOException("Unable to rename " + partial + " to " + sidecar);
+            }
+        } finally {
+            partial.delete();
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0 || count * 8L > input.available()) {
+            throw new IOException("Invalid count of values " + count);
+        }
+        double[] result = new double[count];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = input.readDouble();
+        }
+        return result;
+    }
+
+    private static void writeDoubles(DataOutputStream output, double[] values) throws IOException {
+        output.writeInt(values.length);
+        for (double value : values) {
+            output.writeDouble(value);
+        }
+    }
+
+    /**
+     * null is written as a count of -1.
+     */
+    private static List<Date> readDates(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<Date> result = new ArrayList<Date>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new Date(input.readLong()));
+        }
+        return result;
+    }
+
+    private static void writeDates(DataOutputStream output, Collection<Date> dates)
+            throws IOException {
+        if (dates == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(dates.size());
+        for (Date date : dates) {
+            output.writeLong(date.getTime());
+        }
+    }
+
+    /**
+     * elevations are numbers or special case names like surface.
+     */
+    private static SortedSet<Object> readElevations(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            return null;
+        }
+        SortedSet<Object> result = new TreeSet<Object>();
+        for (int i = 0; i < count; i++) {
+            if (input.readByte() == ELEVATION_NUMBER) {
+                result.add(input.readDouble());
+            } else {
+                result.add(input.readUTF());
+            }
+        }
+        return result;
+    }
+
+    private static void writeElevations(DataOutputStream output, SortedSet<Object> elevations)
+            throws IOException {
+        if (elevations == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(elevations.size());
+        for (Object elevation : elevations) {
+            if (elevation instanceof Number) {
+                output.writeByte(ELEVATION_NUMBER);
+                output.writeDouble(((Number) elevation).doubleValue());
+            } else {
+                output.writeByte(ELEVATION_NAME);
+                output.writeUTF(String.valueOf(elevation));
+            }
+        }
+    }
+
+    private static SortedSet<String> readStrings(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            return null;
+        }
+        SortedSet<String> result = new TreeSet<String>();
+        for (int i = 0; i < count; i++) {
+            result.add(input.readUTF());
+        }
+        return result;
+    }
+
+    private static void writeStrings(DataOutputStream output, SortedSet<String> strings)
+            throws IOException {
+        if (strings == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+    }
+
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    public long getSourceLastModified() {
+        return sourceLastModified;
+    }
+
+    public float[] getBounds() {
+        return bounds.clone();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isLongitude0to360() {
+        return longitude0to360;
+    }
+
+    /**
+     * @return the values of the longitude variable, not to be modified.
+     */
+    public double[] getLongitudes() {
+        return longitudes;
+    }
+
+    /**
+     * @return the values of the latitude variable, not to be modified.
+     */
+    public double[] getLatitudes() {
+        return latitudes;
+    }
+
+    /**
+     * @return WKT of the CRS of the grid mapping of the file, null if the file has none.
+     */
+    public String getCrsWkt() {
+        return crsWkt;
+    }
+
+    /**
+     * @return the variable names the domains were looked up with, null if the domains have not been read.
+     */
+    public String getDomainKey() {
+        return domainKey;
+    }
+
+    /**
+     * @return the domains, if they were read with the variable names of domainKey, null otherwise.
+     */
+    public DomainMetadata getDomainMetadata(String domainKey, boolean periodEncoding) {
+        if (this.domainKey == null || !this.domainKey.equals(domainKey)) {
+            return null;
+        }
+        return new DomainMetadata(times, elevations, referenceTimes, variables, periodEncoding);
+    }
+
+    @Override
+    public String toString() {
+        return "HeaderIndex [" + width + "x" + height + ", domains="
+                + (domainKey != null) + "]";
+    }
+}
@@ -24,41 +24,69 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.measure.quantity.Length;
+import javax.measure.unit.SI;
+import javax.measure.unit.Unit;
+
 import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.gce.netcdf.GrdDataEncapsulator;
 import org.geotools.gce.netcdf.NetCdfDateFormatUtil;
 import org.geotools.gce.netcdf.NetCdfUtil;
 import org.geotools.gce.netcdf.ParamInformation;
-import org.geotools.gce.netcdf.index.IndexingStrategy;
-import org.geotools.gce.netcdf.index.NearestNeighborAscending;
-import org.geotools.gce.netcdf.index.NearestNeighborDescending;
+import org.geotools.gce.netcdf.cache.NetCDFFileCache;
+import org.geotools.gce.netcdf.cache.TileCache;
+import org.geotools.gce.netcdf.crs.GridMapping;
+import org.geotools.gce.netcdf.derived.DerivedVariable;
+import org.geotools.gce.netcdf.derived.DerivedVariables;
+import org.geotools.gce.netcdf.index.DimensionIndex;
+import org.geotools.gce.netcdf.index.GridAxis;
+import org.geotools.gce.netcdf.index.InterpolationKernel;
+import org.geotools.gce.netcdf.log.LogUtil;
+import org.geotools.gce.netcdf.overview.OverviewStore;
+import org.geotools.gce.netcdf.overview.Overviews;
+import org.geotools.gce.netcdf.read.InterpolatingReadStrategy;
+import org.geotools.gce.netcdf.read.ParallelBandReads;
+import org.geotools.gce.netcdf.read.ReadMetrics;
 import org.geotools.gce.netcdf.read.ReadStrategy;
 import org.geotools.gce.netcdf.read.ReadStrategyFactory;
+import org.geotools.gce.netcdf.series.SectionRead;
+import org.geotools.gce.netcdf.series.SeriesRead;
+import org.geotools.gce.netcdf.series.SeriesVisitor;
+import org.geotools.gce.netcdf.series.VerticalSection;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.ows.ServiceException;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.util.NumberRange;
 import org.geotools.util.logging.Logging;
 import org.joda.time.DateTime;
 import org.joda.time.Hours;
 import org.opengis.parameter.InvalidParameterValueException;
+import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
 
 import ucar.ma2.Array;
 import ucar.ma2.IndexIterator;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
 import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
-import ucar.nc2.dataset.NetcdfDataset;
+
+import com.vividsolutions.jts.geom.Coordinate;
 
 /**
  * Provides file access to a NetCDF data file and a place to assemble data from that file.
@@ -102,37 +130,53 @@ public class NetCDFFileInspector {
 	 */
 	private boolean isLongitude0to360;
 
+	/*
+	 * The CRS of the grid mapping of the file, null for a grid of longitudes and latitudes without one. See {@link GridMapping}.
+	 */
+	private CoordinateReferenceSystem crs;
+
 	/**
-	 * name of time variable to look for in NetCDF store. allows customization and not required. if not provided, we will look for default.
+	 * name of time variable to look for in NetCDF store. allows customization and not required. if not provided, we will look for default. a name
+	 * given in the request ParamInformation takes precedence.
 	 */
-	private String timeVariableNameInFile = null;
+	private volatile String timeVariableNameInFile = null;
 
 	/**
 	 * name of elevation variable to look for in NetCDF store. allows customization and not required. if not provided, we will look for default.
 	 */
-	private String elevationVariableNameInFile = null;
+	private volatile String elevationVariableNameInFile = null;
 
 	/**
 	 * name of runtime variable to look for in NetCDF store. allows customization and not required. if not provided, we will look for default.
 	 */
-	private String runtimeVariableNameInFile = null;
+	private volatile String runtimeVariableNameInFile = null;
 
 	/**
 	 * name of tau variable to look for in NetCDF store. allows customization and not required. if not provided, we will look for default.
 	 */
-	private String tauVariableNameInFile = null;
+	private volatile String tauVariableNameInFile = null;
 
 	/**
 	 * name of tau variable's time origin attribute to look for in NetCDF store. allows customization and not required. if not provided, we will look
 	 * for default.
 	 */
-	private String tauVariableTimeOriginAttributeNameInFile = null;
+	private volatile String tauVariableTimeOriginAttributeNameInFile = null;
 
 	/**
 	 * name of global time origin attribute to look for in NetCDF store. allows customization and not required. if not provided, we will look for
 	 * default.
 	 */
-	private String globalTimeOriginAttributeNameInFile = null;
+	private volatile String globalTimeOriginAttributeNameInFile = null;
+
+	/**
+	 * indexes of the coordinate and dimension values of the file, built once per version of the file instead of on every request.
+	 */
+	private volatile FileIndexes fileIndexes = null;
+
+	/**
+	 * the header of the version of the file bounds and originalDim are of, see {@link HeaderIndex}.
+	 */
+	private volatile HeaderIndex headerIndex = null;
 
 	public String getTimeVariableNameInFile() {
 		return timeVariableNameInFile;
@@ -140,6 +184,7 @@ public class NetCDFFileInspector {
 
 	public void setTimeVariableNameInFile(String timeVariableNameInFile) {
 		this.timeVariableNameInFile = timeVariableNameInFile;
+		clearDomainMetadata();
 	}
 
 	public String getElevationVariableNameInFile() {
@@ -148,6 +193,7 @@ public class NetCDFFileInspector {
 
 	public void setElevationVariableNameInFile(String elevationVariableNameInFile) {
 		this.elevationVariableNameInFile = elevationVariableNameInFile;
+		clearDomainMetadata();
 	}
 
 	public String getRuntimeVariableNameInFile() {
@@ -156,6 +202,7 @@ public class NetCDFFileInspector {
 
 	public void setRuntimeVariableNameInFile(String runtimeVariableNameInFile) {
 		this.runtimeVariableNameInFile = runtimeVariableNameInFile;
+		clearDomainMetadata();
 	}
 
 	public String getTauVariableNameInFile() {
@@ -164,6 +211,7 @@ public class NetCDFFileInspector {
 
 	public void setTauVariableNameInFile(String tauVariableNameInFile) {
 		this.tauVariableNameInFile = tauVariableNameInFile;
+		clearDomainMetadata();
 	}
 
 	public String getTauVariableTimeOriginAttributeNameInFile() {
@@ -173,6 +221,7 @@ public class NetCDFFileInspector {
 	public void setTauVariableTimeOriginAttributeNameInFile(
 			String tauVariableTimeOriginAttributeNameInFile) {
 		this.tauVariableTimeOriginAttributeNameInFile = tauVariableTimeOriginAttributeNameInFile;
+		clearDomainMetadata();
 	}
 
 	public String getGlobalTimeOriginAttributeNameInFile() {
@@ -181,6 +230,7 @@ public class NetCDFFileInspector {
 
 	public void setGlobalTimeOriginAttributeNameInFile(String globalTimeOriginAttributeNameInFile) {
 		this.globalTimeOriginAttributeNameInFile = globalTimeOriginAttributeNameInFile;
+		clearDomainMetadata();
 	}
 
 	/**
@@ -193,9 +243,92 @@ public class NetCDFFileInspector {
 	 * constructor.
 	 */
 	public NetCDFFileInspector(File file) {
-		validateNetCdfFile(file.getAbsolutePath());
 		this.file = file;
-		setProperties();
+		if (!loadHeaderIndex()) {
+			validateNetCdfFile(file.getAbsolutePath());
+			setProperties();
+		}
+	}
+
+	/**
+	 * Take bounds, originalDim, the coordinate axes and the domains from the header index of the current version of the file, if there is one, so
+	 * the file is not opened.
+	 * 
+	 * @return false if there is no usable header index.
+	 */
+	private boolean loadHeaderIndex() {
+		if (!HeaderIndex.isEnabled()) {
+			return false;
+		}
+		FileIndexes indexes = getFileIndexes();
+		HeaderIndex index;
+		try {
+			index = HeaderIndex.read(file, indexes.length, indexes.lastModified);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Unable to read header index of " + file.getAbsolutePath()
+					+ ", reading the file.", e);
+			return false;
+		}
+		if (index == null) {
+			return false;
+		}
+
+		this.bounds = index.getBounds();
+		this.originalDim = new Rectangle(0, 0, index.getWidth(), index.getHeight());
+		this.isLongitude0to360 = index.isLongitude0to360();
+		if (index.getCrsWkt() != null) {
+			try {
+				this.crs = CRS.parseWKT(index.getCrsWkt());
+			} catch (FactoryException e) {
+				LOG.log(Level.WARNING, "Unable to parse CRS of header index of "
+						+ file.getAbsolutePath() + ", reading the file.", e);
+				return false;
+			}
+		}
+		indexes.coordinateAxes = new CoordinateAxes(new GridAxis(index.getLongitudes()),
+				new GridAxis(index.getLatitudes()));
+		indexes.domainMetadata = index.getDomainMetadata(getDomainKey(),
+				Boolean.getBoolean(DomainMetadata.PERIOD_ENCODING_PROPERTY));
+		this.headerIndex = index;
+		LOG.log(Level.INFO, "Read bounds of {0} from {1}", new Object[] { file.getAbsolutePath(),
+				index });
+		return true;
+	}
+
+	/**
+	 * Replace the header index of the file. Failing to, in a read only directory for instance, only costs reading the file again next time.
+	 */
+	private void writeHeaderIndex(HeaderIndex index) {
+		this.headerIndex = index;
+		if (!HeaderIndex.isEnabled()) {
+			return;
+		}
+		try {
+			index.write(file);
+		} catch (IOException e) {
+			LOG.log(Level.FINE, "Unable to write header index of " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * @return the variable names the domains are looked up with, which the domains of a header index must have been read with.
+	 */
+	private String getDomainKey() {
+		StringBuilder key = new StringBuilder();
+		for (String name : new String[] { timeVariableNameInFile, elevationVariableNameInFile,
+				runtimeVariableNameInFile, tauVariableNameInFile,
+				tauVariableTimeOriginAttributeNameInFile, globalTimeOriginAttributeNameInFile }) {
+			key.append(name).append('|');
+		}
+		// derived variables are in the variable domain when their sources are in the file.
+		SortedSet<String> derivedVariables = new TreeSet<String>();
+		for (DerivedVariable derivedVariable : DerivedVariables.getInstance().getAll()) {
+			derivedVariables.add(derivedVariable.getName() + "=" + derivedVariable.getExpression());
+		}
+		for (String derivedVariable : derivedVariables) {
+			key.append(derivedVariable).append('|');
+		}
+		return key.toString();
 	}
 
 	/**
@@ -209,14 +342,17 @@ public class NetCDFFileInspector {
 		float[] minAndMaxLon = new float[] { NetCdfUtil.MIN_LON, NetCdfUtil.MAX_LON };
 		float[] minAndMaxLat = new float[] { NetCdfUtil.MIN_LAT, NetCdfUtil.MAX_LAT };
 
+		FileIndexes indexes = getFileIndexes();
 		NetcdfFile ncFile = null;
 		try {
 			// Open NetCDF
-			ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
+			ncFile = openNetCdfFile();
 
-			// Get lon and lat Variables from NetCDF
-			Variable lon = NetCdfUtil.getFileVariableByName(ncFile, NetCdfUtil.LON_VARIABLE_NAMES);
-			Variable lat = NetCdfUtil.getFileVariableByName(ncFile, NetCdfUtil.LAT_VARIABLE_NAMES);
+			// Get lon and lat Variables from NetCDF, or the x and y of a projected grid
+			Variable lon = NetCdfUtil.getXAxisVariable(ncFile);
+			Variable lat = NetCdfUtil.getYAxisVariable(ncFile);
+			this.crs = readCoordinateReferenceSystem(ncFile, lon);
+			boolean geographic = crs == null || crs instanceof GeographicCRS;
 
 			// Get the mins and maxes for lon and lat
 			Array lonArray = lon.read();
@@ -230,14 +366,14 @@ public class NetCDFFileInspector {
 			float halfLatOffset = (minAndMaxLat[MAX_INDEX] - minAndMaxLat[MIN_INDEX])
 					/ (latArray.getSize() - 1) / 2;
 
-			// Check to see if this file uses a (0 to 360) world grid
-			if (null != minAndMaxLon) {
+			// Check to see if this file uses a (0 to 360) world grid, which projected x values do not tell
+			if (geographic) {
 				this.isLongitude0to360 = minAndMaxLon[MAX_INDEX] > MAX_LON_180;
-			}
 
-			// Convert the lons if necessary
-			minAndMaxLon = convertBoundsToNeg180to180(minAndMaxLon[MIN_INDEX],
-					minAndMaxLon[MAX_INDEX]);
+				// Convert the lons if necessary
+				minAndMaxLon = convertBoundsToNeg180to180(minAndMaxLon[MIN_INDEX],
+						minAndMaxLon[MAX_INDEX]);
+			}
 
 			// Create the bounds array
 			// offsets added to bounds by Sam Foster
@@ -255,6 +391,15 @@ public class NetCDFFileInspector {
 			// basically the number of points in the original data
 			this.originalDim = new Rectangle(0, 0, width, height);
 
+			// keep the axes for the first request, and everything for the next reader of the file.
+			double[] lonValues = (double[]) lonArray.get1DJavaArray(double.class);
+			double[] latValues = (double[]) latArray.get1DJavaArray(double.class);
+			indexes.coordinateAxes = new CoordinateAxes(new GridAxis(lonValues), new GridAxis(
+					latValues));
+			writeHeaderIndex(new HeaderIndex(indexes.length, indexes.lastModified, bounds, width,
+					height, isLongitude0to360, lonValues, latValues, crs == null ? null : crs
+							.toWKT(), null, null, null, null, null));
+
 		} catch (Exception e) {
 			LOG.log(Level.SEVERE, e.getMessage(), e);
 		} finally {
@@ -263,7 +408,42 @@ public class NetCDFFileInspector {
 	}
 
 	/**
-	 * This is just a custom float array to hold the bounds. Uses a (-180 to 180) coordinate system.
+	 * @return the CRS of the grid mapping of the file, or null if the file has none, or has one that is not supported, and is a grid of longitudes
+	 *         and latitudes.
+	 */
+	private CoordinateReferenceSystem readCoordinateReferenceSystem(NetcdfFile ncFile, Variable xAxis) {
+		try {
+			return GridMapping.getCoordinateReferenceSystem(ncFile, xAxis);
+		} catch (FactoryException e) {
+			LOG.log(Level.WARNING, "Unable to read grid mapping of " + file.getAbsolutePath()
+					+ ", reading it as longitudes and latitudes.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return the native CRS of the grid of the file, from its CF grid_mapping, or null if the file does not have one and is a grid of longitudes
+	 *         and latitudes.
+	 */
+	public CoordinateReferenceSystem getCoordinateReferenceSystem() {
+		return crs;
+	}
+
+	/**
+	 * @return the kilometers of a unit of the x axis of a projected grid, NaN for a grid of longitudes and latitudes.
+	 */
+	@SuppressWarnings("unchecked")
+	private double getKilometersPerUnit() {
+		if (crs == null || crs instanceof GeographicCRS) {
+			return Double.NaN;
+		}
+		Unit<?> unit = crs.getCoordinateSystem().getAxis(0).getUnit();
+		return ((Unit<Length>) unit).getConverterTo(SI.KILOMETER).convert(1);
+	}
+
+	/**
+	 * This is just a custom float array to hold the bounds. Uses a (-180 to 180) coordinate system, or the x and y of the native CRS of a projected
+	 * grid, see {@link #getCoordinateReferenceSystem()}.
 	 * 
 	 * TODO: Either find an existing class or create one to use instead. Perhaps just use the GeneralEnvelope?
 	 * 
@@ -366,206 +546,173 @@ public class NetCDFFileInspector {
 		return new float[] { minimum, maximum };
 	}
 
-	private Float[][] calcmagnitude(Float[][] u, Float[][] v){
-		Float[][] retVal = new Float[u.length][u[0].length];
-
-		System.out.println("Calculating new matrix " + u.length + "," + u[0].length);
-		
-		for(int countX=0; countX<u.length; countX++)
-			for(int countY=0; countY<u[0].length; countY++)
-			{
-				try{
-					retVal[countX][countY] = (float) Math.sqrt((u[countX][countY]*u[countX][countY])+(v[countX][countY]*v[countX][countY]));
-				}catch(Exception ex){
-					retVal[countX][countY] = Float.NaN;
-				}
-			}
-		
-		return retVal;
-	}
-	
 	/**
 	 * For the parameter and dimensions specified in paramInfo, look for match in the file data. If we have a match, process. If not throw an
 	 * Exception.
+	 * 
+	 * Not synchronized, each call works on its own file handle and keeps the request state in paramInfo, so reads run concurrently.
+	 * 
+	 * @throws CancellationException if paramInfo is cancelled while its row bands are read in parallel.
 	 */
-	public synchronized GrdDataEncapsulator parseFiles(ParamInformation paramInfo) {
-		GrdDataEncapsulator data = new GrdDataEncapsulator(paramInfo);
+	public GrdDataEncapsulator parseFiles(ParamInformation paramInfo) {
+		return parseFiles(Collections.singletonList(paramInfo)).get(0);
+	}
 
-		// if no parameter name is provided, we will not be able to do the rest of the file work here.
-		// do not throw an exception because there are situations where we need the NetCDFReader's read to succeed
-		// even if there is no parameter name (for instance, when user creates a store using GeoServer admin ui).
-		// no parameter name has been specified at that time. it only happens when user creates a layer.
-		String parameterName = paramInfo.getParameter();
-		if (parameterName == null || parameterName == "") {
-			return data;
+	/**
+	 * Read each of the slices, requests of a single parameter, time and elevation as {@link ParamInformation#getSlices()} gives them, as
+	 * {@link #parseFiles(ParamInformation)} would, with one file handle for all of them. The dimension and coordinate lookups of the file are
+	 * shared by the slices, so a slice after the first one costs only its own read.
+	 * 
+	 * @return the data of each slice, in their order.
+	 * @throws CancellationException if a slice is cancelled while its row bands are read in parallel.
+	 */
+	public List<GrdDataEncapsulator> parseFiles(List<ParamInformation> slices) {
+		List<GrdDataEncapsulator> result = new ArrayList<GrdDataEncapsulator>();
+		for (ParamInformation paramInfo : slices) {
+			result.add(new GrdDataEncapsulator(paramInfo));
 		}
 
-		if (parameterName.compareTo("adcircMagnitude")==0){
-			
-			System.out.println("Entering adcircMagnitude trap");
-			
-			GrdDataEncapsulator udata = new GrdDataEncapsulator(paramInfo);
-			GrdDataEncapsulator vdata = new GrdDataEncapsulator(paramInfo);
-			NetcdfFile ncFile = null;
-			try {
-				ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
-
-				// check for the requested parameter in the file.
-				// if parameter not found, go ahead and throw Exception.
-				// will not find out about any dimension problems. can't see if param has runtime dim if no param.
-				Variable uparameterVariable = ncFile.findVariable("u-vel");
-				if (uparameterVariable == null) {
-					String msg = "Requested parameter " + "u-vel" + " not found in NetCDF file "
-							+ ncFile.getTitle();
-					throw new InvalidParameterValueException(msg, "parameter", paramInfo.getParameter());
+		NetcdfFile ncFile = null;
+		try {
+			for (int i = 0; i < slices.size(); i++) {
+				ParamInformation paramInfo = slices.get(i);
+
+				// if no parameter name is provided, we will not be able to do the rest of the file work here.
+				// do not throw an exception because there are situations where we need the NetCDFReader's read to succeed
+				// even if there is no parameter name (for instance, when user creates a store using GeoServer admin ui).
+				// no parameter name has been specified at that time. it only happens when user creates a layer.
+				String parameterName = paramInfo.getParameter();
+				if (parameterName == null || parameterName == "") {
+					continue;
 				}
-
-				// check for requested (dimension) variables in the file. we are prepared for time, elevation, reference time.
-				// do not throw Exception until we have reviewed each.
-				// TODO do we need to confirm that time and elev are actually dims of the parameter here?
-				// existing code assumes if they are vars in file, they are dims of the param.
-				// then later it finds their dim posn on the parameter variable.
-				// update: yes, we need to watch out for this!
-				// for example, i just fixed an existing problem by adding check in getElevationIndexInNCFile to see if parameter has elevation dimension.
-
-				// check elevation.
-				DimensionInfo udimensionInfo = new DimensionInfo();
-				udimensionInfo.setElevationIndex(getElevationIndexInNCFile(ncFile, uparameterVariable,
-						paramInfo.getElevation()));
-
-				// check time and reference time together, as they can be intertwined.
-				// assume they can be null, so set the default here, as it depends on the nc/ncml file.
-
-				// could move this inside the next step, keeping it out here means we repeat a few things.
-				// Jared working on some new default logic, so keeping default logic separate where possible.
-				// also, the next step is confusing enough without adding time default to the mix.
-				setDefaultTimeIfNoneRequested(paramInfo, uparameterVariable, ncFile);
-
-				// look for the correct indexes for both.
-				// if value of either is not found(nf), we will not process the request further and will throw Exception.
-				// ok for the runtime index to be null, as long as the time index is found.
-				// once we have identified one of the two to be nf, no need to process any further.
-				getRuntimeAndTimeIndexes(udimensionInfo, ncFile, paramInfo);
-
-				// review the dimension results and throw Exception if needed.
-				reviewDimensionsAndThrowExceptionIfNeeded(udimensionInfo, paramInfo);
-
-				// if we made it this far, go dog go!
-				parseFile(ncFile, "u-vel", udimensionInfo, udata);
-				
-				// check for the requested parameter in the file.
-				// if parameter not found, go ahead and throw Exception.
-				// will not find out about any dimension problems. can't see if param has runtime dim if no param.
-				Variable vparameterVariable = ncFile.findVariable("v-vel");
-				if (vparameterVariable == null) {
-					String msg = "Requested parameter " + "v-vel" + " not found in NetCDF file "
-							+ ncFile.getTitle();
-					throw new InvalidParameterValueException(msg, "parameter", paramInfo.getParameter());
+				if (ncFile == null) {
+					ncFile = openNetCdfFile();
 				}
 
-				// check for requested (dimension) variables in the file. we are prepared for time, elevation, reference time.
-				// do not throw Exception until we have reviewed each.
-				// TODO do we need to confirm that time and elev are actually dims of the parameter here?
-				// existing code assumes if they are vars in file, they are dims of the param.
-				// then later it finds their dim posn on the parameter variable.
-				// update: yes, we need to watch out for this!
-				// for example, i just fixed an existing problem by adding check in getElevationIndexInNCFile to see if parameter has elevation dimension.
-
-				// check elevation.
-				DimensionInfo vdimensionInfo = new DimensionInfo();
-				vdimensionInfo.setElevationIndex(getElevationIndexInNCFile(ncFile, vparameterVariable,
-						paramInfo.getElevation()));
-
-				// check time and reference time together, as they can be intertwined.
-				// assume they can be null, so set the default here, as it depends on the nc/ncml file.
-
-				// could move this inside the next step, keeping it out here means we repeat a few things.
-				// Jared working on some new default logic, so keeping default logic separate where possible.
-				// also, the next step is confusing enough without adding time default to the mix.
-				setDefaultTimeIfNoneRequested(paramInfo, vparameterVariable, ncFile);
-
-				// look for the correct indexes for both.
-				// if value of either is not found(nf), we will not process the request further and will throw Exception.
-				// ok for the runtime index to be null, as long as the time index is found.
-				// once we have identified one of the two to be nf, no need to process any further.
-				getRuntimeAndTimeIndexes(vdimensionInfo, ncFile, paramInfo);
-
-				// review the dimension results and throw Exception if needed.
-				reviewDimensionsAndThrowExceptionIfNeeded(vdimensionInfo, paramInfo);
+				Variable parameterVariable = findParameterVariable(ncFile, parameterName, paramInfo);
+				DerivedVariable derivedVariable = getDerivedVariable(ncFile, parameterName);
+				DimensionInfo dimensionInfo = getDimensionInfo(ncFile, parameterVariable, paramInfo);
 
 				// if we made it this far, go dog go!
-				parseFile(ncFile, "v-vel", vdimensionInfo, vdata);		
-				
-				Float[][] umatrix = udata.getImageArray();
-				Float[][] vmatrix = vdata.getImageArray();
-
-				Float[][] retMatrix = calcmagnitude(umatrix, vmatrix);
-				
-				data.setImageArray(retMatrix);
-				
-			} catch (InvalidParameterValueException e) {
-				throw e;
-			} catch (Exception e) {
-				LOG.log(Level.SEVERE, "Error occurred during parseFiles.", e);
-			} finally {
-				closeNetCdfFile(ncFile);
-			}			 
-		} else {
-			NetcdfFile ncFile = null;
-			try {
-				ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
-
-				// check for the requested parameter in the file.
-				// if parameter not found, go ahead and throw Exception.
-				// will not find out about any dimension problems. can't see if param has runtime dim if no param.
-				Variable parameterVariable = ncFile.findVariable(parameterName);
-				if (parameterVariable == null) {
-					String msg = "Requested parameter " + parameterName + " not found in NetCDF file "
-							+ ncFile.getTitle();
-					throw new InvalidParameterValueException(msg, "parameter", paramInfo.getParameter());
+				// low resolution requests read an overview level instead of the file grid, when there is one.
+				GrdDataEncapsulator data = result.get(i);
+				if (paramInfo.getOverviewLevel() <= 0
+						|| !readOverview(ncFile, parameterName, derivedVariable, dimensionInfo,
+								paramInfo, data)) {
+					parseFile(ncFile, parameterName, derivedVariable, dimensionInfo, paramInfo, data);
 				}
+			}
 
-				// check for requested (dimension) variables in the file. we are prepared for time, elevation, reference time.
-				// do not throw Exception until we have reviewed each.
-				// TODO do we need to confirm that time and elev are actually dims of the parameter here?
-				// existing code assumes if they are vars in file, they are dims of the param.
-				// then later it finds their dim posn on the parameter variable.
-				// update: yes, we need to watch out for this!
-				// for example, i just fixed an existing problem by adding check in getElevationIndexInNCFile to see if parameter has elevation dimension.
-
-				// check elevation.
-				DimensionInfo dimensionInfo = new DimensionInfo();
-				dimensionInfo.setElevationIndex(getElevationIndexInNCFile(ncFile, parameterVariable,
-						paramInfo.getElevation()));
-
-				// check time and reference time together, as they can be intertwined.
-				// assume they can be null, so set the default here, as it depends on the nc/ncml file.
+		} catch (InvalidParameterValueException e) {
+			throw e;
+		} catch (CancellationException e) {
+			throw e;
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE, "Error occurred during parseFiles.", e);
+		} finally {
+			closeNetCdfFile(ncFile);
+		}
+		return result;
+	}
 
-				// could move this inside the next step, keeping it out here means we repeat a few things.
-				// Jared working on some new default logic, so keeping default logic separate where possible.
-				// also, the next step is confusing enough without adding time default to the mix.
-				setDefaultTimeIfNoneRequested(paramInfo, parameterVariable, ncFile);
+	/**
+	 * @return the variable of the parameter, or the first source variable of a derived parameter.
+	 * @throws InvalidParameterValueException if the parameter is neither a variable of the file nor derived from variables of the file.
+	 */
+	private Variable findParameterVariable(NetcdfFile ncFile, String parameterName,
+			ParamInformation paramInfo) {
+		// check for the requested parameter in the file.
+		// if parameter not found, go ahead and throw Exception.
+		// will not find out about any dimension problems. can't see if param has runtime dim if no param.
+		// a parameter that is not a variable of the file may be derived from variables of the file, which then
+		// share the dimension lookups of getDimensionInfo.
+		Variable parameterVariable = ncFile.findVariable(parameterName);
+		if (parameterVariable == null) {
+			DerivedVariable derivedVariable = DerivedVariables.getInstance().get(parameterName);
+			if (derivedVariable != null) {
+				parameterVariable = getSourceVariables(ncFile, derivedVariable, paramInfo).get(0);
+			}
+		}
+		if (parameterVariable == null) {
+			String msg = "Requested parameter " + parameterName + " not found in NetCDF file "
+					+ ncFile.getTitle();
+			throw new InvalidParameterValueException(msg, "parameter", paramInfo.getParameter());
+		}
 
-				// look for the correct indexes for both.
-				// if value of either is not found(nf), we will not process the request further and will throw Exception.
-				// ok for the runtime index to be null, as long as the time index is found.
-				// once we have identified one of the two to be nf, no need to process any further.
-				getRuntimeAndTimeIndexes(dimensionInfo, ncFile, paramInfo);
+		return parameterVariable;
+	}
 
-				// review the dimension results and throw Exception if needed.
-				reviewDimensionsAndThrowExceptionIfNeeded(dimensionInfo, paramInfo);
+	/**
+	 * @return the derived variable of the parameter, null if the parameter is a variable of the file.
+	 */
+	private DerivedVariable getDerivedVariable(NetcdfFile ncFile, String parameterName) {
+		if (ncFile.findVariable(parameterName) != null) {
+			return null;
+		}
+		return DerivedVariables.getInstance().get(parameterName);
+	}
 
-				// if we made it this far, go dog go!
-				parseFile(ncFile, parameterName, dimensionInfo, data);
+	/**
+	 * Find the indexes of the requested elevation, time and reference time in the file.
+	 * 
+	 * @throws InvalidParameterValueException if a requested dimension value is not in the file.
+	 */
+	private DimensionInfo getDimensionInfo(NetcdfFile ncFile, Variable parameterVariable,
+			ParamInformation paramInfo) {
+		// check for requested (dimension) variables in the file. we are prepared for time, elevation, reference time.
+		// do not throw Exception until we have reviewed each.
+		// TODO do we need to confirm that time and elev are actually dims of the parameter here?
+		// existing code assumes if they are vars in file, they are dims of the param.
+		// then later it finds their dim posn on the parameter variable.
+		// update: yes, we need to watch out for this!
+		// for example, i just fixed an existing problem by adding check in getElevationIndexInNCFile to see if parameter has elevation dimension.
+
+		// check elevation.
+		DimensionInfo dimensionInfo = new DimensionInfo();
+		dimensionInfo.setElevationIndex(getElevationIndexInNCFile(ncFile, parameterVariable,
+				paramInfo.getElevation(), paramInfo));
+
+		// check time and reference time together, as they can be intertwined.
+		// assume they can be null, so set the default here, as it depends on the nc/ncml file.
+
+		// could move this inside the next step, keeping it out here means we repeat a few things.
+		// Jared working on some new default logic, so keeping default logic separate where possible.
+		// also, the next step is confusing enough without adding time default to the mix.
+		setDefaultTimeIfNoneRequested(paramInfo, parameterVariable, ncFile);
+
+		// look for the correct indexes for both.
+		// if value of either is not found(nf), we will not process the request further and will throw Exception.
+		// ok for the runtime index to be null, as long as the time index is found.
+		// once we have identified one of the two to be nf, no need to process any further.
+		getRuntimeAndTimeIndexes(dimensionInfo, ncFile, paramInfo);
+
+		// review the dimension results and throw Exception if needed.
+		reviewDimensionsAndThrowExceptionIfNeeded(dimensionInfo, paramInfo);
+		return dimensionInfo;
+	}
 
-			} catch (InvalidParameterValueException e) {
-				throw e;
-			} catch (Exception e) {
-				LOG.log(Level.SEVERE, "Error occurred during parseFiles.", e);
-			} finally {
-				closeNetCdfFile(ncFile);
-			}}
-		return data;
+	/**
+	 * @return the source variables of the derived variable, in the order of its source names.
+	 * @throws InvalidParameterValueException if a source variable is not in the file, or the sources do not all have the same dimensions.
+	 */
+	private List<Variable> getSourceVariables(NetcdfFile ncFile, DerivedVariable derivedVariable,
+			ParamInformation paramInfo) {
+		List<Variable> result = new ArrayList<Variable>();
+		for (String sourceName : derivedVariable.getSourceNames()) {
+			Variable source = ncFile.findVariable(sourceName);
+			if (source == null) {
+				String msg = "Variable " + sourceName + " of derived parameter "
+						+ derivedVariable.getName() + " not found in NetCDF file " + ncFile.getTitle();
+				throw new InvalidParameterValueException(msg, "parameter", paramInfo.getParameter());
+			}
+			if (!result.isEmpty() && !source.getDimensions().equals(result.get(0).getDimensions())) {
+				String msg = "Variables of derived parameter " + derivedVariable.getName()
+						+ " do not have the same dimensions in NetCDF file " + ncFile.getTitle();
+				throw new InvalidParameterValueException(msg, "parameter", paramInfo.getParameter());
+			}
+			result.add(source);
+		}
+		return result;
 	}
 
 	/**
@@ -649,7 +796,7 @@ public class NetCDFFileInspector {
 		if (paramInfo.getTime() == null) {
 			boolean parameterHasRuntimeDimension = false;
 			Variable runtimeVariable = NetCdfUtil.getFileVariableByName(ncFile,
-					this.runtimeVariableNameInFile, NetCdfUtil.RUNTIME_VARIABLE_NAMES);
+					getRuntimeVariableNameInFile(paramInfo), NetCdfUtil.RUNTIME_VARIABLE_NAMES);
 
 			if (runtimeVariable != null) {
 				int runtimeIndex = parameterVariable.findDimensionIndex(runtimeVariable.getName());
@@ -667,7 +814,7 @@ public class NetCDFFileInspector {
 					return;
 				}
 
-				Variable timeVariable = getTimeVariable(ncFile);
+				Variable timeVariable = getTimeVariable(ncFile, paramInfo);
 				if (timeVariable == null) {
 					LOG.warning("Could not get default time. Time variable not found in NetCDF file.");
 				}
@@ -680,9 +827,13 @@ public class NetCDFFileInspector {
 				}
 
 				try {
-					// TODO improve with read targetted to the index.
-					Double timeAsNumberOfHours = findHighestValueSecondDim(timeVariable.read(),
-							runtimeIndex);
+					Double timeAsNumberOfHours = findHighestValueSecondDim(
+							getDimensionIndex(timeVariable), runtimeIndex);
+					if (timeAsNumberOfHours == null) {
+						LOG.warning("Could not get default time. No times for runtime dimension "
+								+ runtimeIndex + " in NetCDF file.");
+						return;
+					}
 					Date defaultTime = getNumberOfHoursAsDate(timeAsNumberOfHours,
 							timeUnitsAttribute);
 					paramInfo.setTime(defaultTime);
@@ -693,9 +844,15 @@ public class NetCDFFileInspector {
 				}
 			} else {
 				// simple case
-				String timeAsString = getTimeMaximum();
-				Date defaultTime = NetCdfUtil.getDateFromOutputStyleString(timeAsString);
-				paramInfo.setTime(defaultTime);
+				try {
+					SortedSet<Date> times = readTimes(ncFile, paramInfo);
+					if (times != null && !times.isEmpty()) {
+						paramInfo.setTime(times.last());
+					}
+				} catch (IOException e) {
+					LOG.warning("Could not get default time.");
+					LOG.log(Level.SEVERE, e.getMessage(), e);
+				}
 			}
 		}
 	}
@@ -704,7 +861,7 @@ public class NetCDFFileInspector {
 			ParamInformation paramInfo) {
 		if (paramInfo.getReferenceTime() == null) {
 			getRuntimeAndTimeInfo_ReferenceTimeNotRequested(dimensionInfo, ncFile, paramInfo);
-		} else if (hasRuntimeVariable(ncFile)) {
+		} else if (hasRuntimeVariable(ncFile, paramInfo)) {
 			getRuntimeAndTimeInfo_ReferenceTimeRequested_HaveRuntimeDim(dimensionInfo, ncFile,
 					paramInfo);
 		} else {
@@ -736,7 +893,7 @@ public class NetCDFFileInspector {
 			return;
 		}
 
-		Variable timeVariable = getTimeVariable(ncFile);
+		Variable timeVariable = getTimeVariable(ncFile, paramInfo);
 		if (timeVariable == null) {
 			LOG.info("Time variable not found in NetCDF file.");
 			dimensionInfo.setTimeIndex(NetCdfUtil.NOT_FOUND);
@@ -754,13 +911,14 @@ public class NetCDFFileInspector {
 		double numHours = getTimeAsNumberOfHours(time, timeUnitsAttribute);
 
 		try {
-			if (hasRuntimeVariable(ncFile)) {
-				Integer[] indexes = findIndexSecondDim(timeVariable.read(), numHours, null);
+			if (hasRuntimeVariable(ncFile, paramInfo)) {
+				Integer[] indexes = findIndexSecondDim(getDimensionIndex(timeVariable), numHours,
+						null);
 				dimensionInfo.setRuntimeIndex(indexes[0]);
 				dimensionInfo.setTimeIndex(indexes[1]);
 			} else {
 				dimensionInfo.setRuntimeIndex(null);
-				dimensionInfo.setTimeIndex(findIndex(timeVariable.read(), numHours));
+				dimensionInfo.setTimeIndex(findIndex(getDimensionIndex(timeVariable), numHours));
 			}
 
 			if (dimensionInfo.getTimeIndex() == NetCdfUtil.NOT_FOUND) {
@@ -789,7 +947,7 @@ public class NetCDFFileInspector {
 			DimensionInfo dimensionInfo, NetcdfFile ncFile, ParamInformation paramInfo) {
 		Date referenceTime = paramInfo.getReferenceTime();
 
-		if (referenceTime != null && hasRuntimeVariable(ncFile)) {
+		if (referenceTime != null && hasRuntimeVariable(ncFile, paramInfo)) {
 			int runtimeIndex = getRuntimeDimensionIndexValue(paramInfo, ncFile);
 
 			if (runtimeIndex == NetCdfUtil.NOT_FOUND) {
@@ -806,7 +964,7 @@ public class NetCDFFileInspector {
 				return;
 			}
 
-			Variable timeVariable = getTimeVariable(ncFile);
+			Variable timeVariable = getTimeVariable(ncFile, paramInfo);
 			if (timeVariable == null) {
 				LOG.info("Time variable not found in NetCDF file.");
 				dimensionInfo.setTimeIndex(NetCdfUtil.NOT_FOUND);
@@ -825,7 +983,8 @@ public class NetCDFFileInspector {
 
 			// only look in the found runtime dimension.
 			try {
-				Integer[] var = findIndexSecondDim(timeVariable.read(), numHours, runtimeIndex);
+				Integer[] var = findIndexSecondDim(getDimensionIndex(timeVariable), numHours,
+						runtimeIndex);
 				dimensionInfo.setRuntimeIndex(runtimeIndex);
 				dimensionInfo.setTimeIndex(var[1]);
 
@@ -879,7 +1038,7 @@ public class NetCDFFileInspector {
 				return;
 			}
 
-			Variable timeVariable = getTimeVariable(ncFile);
+			Variable timeVariable = getTimeVariable(ncFile, paramInfo);
 			if (timeVariable == null) {
 				LOG.info("Time variable not found in NetCDF file.");
 				dimensionInfo.setTimeIndex(NetCdfUtil.NOT_FOUND);
@@ -898,7 +1057,7 @@ public class NetCDFFileInspector {
 
 			try {
 				dimensionInfo.setRuntimeIndex(null);
-				dimensionInfo.setTimeIndex(findIndex(timeVariable.read(), numHours));
+				dimensionInfo.setTimeIndex(findIndex(getDimensionIndex(timeVariable), numHours));
 
 				if (dimensionInfo.getTimeIndex() == NetCdfUtil.NOT_FOUND) {
 					LOG.log(Level.INFO, "Time match not found in NetCDF file {0} {1}",
@@ -941,24 +1100,50 @@ public class NetCDFFileInspector {
 		return new Date(timeNew.getMillis());
 	}
 
-	private Variable getElevationVariable(NetcdfFile ncfile) {
-		return NetCdfUtil.getFileVariableByName(ncfile, this.elevationVariableNameInFile,
+	/**
+	 * the variable name given with the request, if any, else the one configured on this inspector.
+	 * 
+	 * @param paramInfo may be null when not serving a read request.
+	 */
+	private String getElevationVariableNameInFile(ParamInformation paramInfo) {
+		if (paramInfo != null && paramInfo.getElevationVariableNameInFile() != null) {
+			return paramInfo.getElevationVariableNameInFile();
+		}
+		return this.elevationVariableNameInFile;
+	}
+
+	private String getTimeVariableNameInFile(ParamInformation paramInfo) {
+		if (paramInfo != null && paramInfo.getTimeVariableNameInFile() != null) {
+			return paramInfo.getTimeVariableNameInFile();
+		}
+		return this.timeVariableNameInFile;
+	}
+
+	private String getRuntimeVariableNameInFile(ParamInformation paramInfo) {
+		if (paramInfo != null && paramInfo.getRuntimeVariableNameInFile() != null) {
+			return paramInfo.getRuntimeVariableNameInFile();
+		}
+		return this.runtimeVariableNameInFile;
+	}
+
+	private Variable getElevationVariable(NetcdfFile ncfile, ParamInformation paramInfo) {
+		return NetCdfUtil.getFileVariableByName(ncfile, getElevationVariableNameInFile(paramInfo),
 				NetCdfUtil.ELEVATION_VARIABLE_NAMES);
 	}
 
-	private Variable getTimeVariable(NetcdfFile ncFile) {
-		return NetCdfUtil.getFileVariableByName(ncFile, this.timeVariableNameInFile,
+	private Variable getTimeVariable(NetcdfFile ncFile, ParamInformation paramInfo) {
+		return NetCdfUtil.getFileVariableByName(ncFile, getTimeVariableNameInFile(paramInfo),
 				NetCdfUtil.TIME_VARIABLE_NAMES);
 	}
 
 	private int getRuntimeDimensionIndexValue(ParamInformation paramInfo, NetcdfFile ncFile) {
-		return getVariableTargetValueIndex(ncFile, this.runtimeVariableNameInFile,
+		return getVariableTargetValueIndex(ncFile, getRuntimeVariableNameInFile(paramInfo),
 				NetCdfUtil.RUNTIME_VARIABLE_NAMES,
 				NetCdfDateFormatUtil.getDateFormat3().format(paramInfo.getReferenceTime()));
 	}
 
-	private boolean hasRuntimeVariable(NetcdfFile ncFile) {
-		return NetCdfUtil.getFileVariableByName(ncFile, this.runtimeVariableNameInFile,
+	private boolean hasRuntimeVariable(NetcdfFile ncFile, ParamInformation paramInfo) {
+		return NetCdfUtil.getFileVariableByName(ncFile, getRuntimeVariableNameInFile(paramInfo),
 				NetCdfUtil.RUNTIME_VARIABLE_NAMES) == null ? false : true;
 	}
 
@@ -970,13 +1155,14 @@ public class NetCDFFileInspector {
 	 * @param ncfile
 	 * @param parameterVariable expect non-null
 	 * @param targetElevation expect Double or String
+	 * @param paramInfo request holding the elevation variable name, may be null.
 	 * @return Integer index of elevation dimension.
 	 * 
 	 *         protected (instead of private) only to put under test.
 	 */
 	protected Integer getElevationIndexInNCFile(NetcdfFile ncfile, Variable parameterVariable,
-			Object targetElevation) {
-		Variable elevationVariable = getElevationVariable(ncfile);
+			Object targetElevation, ParamInformation paramInfo) {
+		Variable elevationVariable = getElevationVariable(ncfile, paramInfo);
 
 		// if no elevation dimension in file, return null. elevation dimension is not required.
 		if (elevationVariable == null) {
@@ -1026,7 +1212,7 @@ public class NetCDFFileInspector {
 		if (elevationVariable.getSize() > 1) {
 			if (targetElevation instanceof Double) {
 				try {
-					int i = findIndex(elevationVariable.read(), (Double) targetElevation);
+					int i = findIndex(getDimensionIndex(elevationVariable), (Double) targetElevation);
 					if (i == NetCdfUtil.NOT_FOUND) {
 						LOG.log(Level.WARNING,
 								"Could not find index for elevation {0} in file ({1}).",
@@ -1069,38 +1255,26 @@ public class NetCDFFileInspector {
 
 	/**
 	 * assumes elevations in the NetCDF files can be read as doubles.
+	 * 
+	 * @return the elevations, unmodifiable, or null if the file has no elevation dimension.
 	 */
 	public SortedSet<Object> getElevations() {
-		/*
-		 * TODO: a lot of code duplication here between getTimeString and getElevation string but I'm in a hurry, try to consolidate some common logic
-		 * in the future. Also a lot of duplication in TimeLayerInNCFile and ElevationLayerInNCFile
-		 */
-		SortedSet<Object> result = new TreeSet<Object>();
-		NetcdfFile ncFile = null;
-		try {
-			ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
-			Variable elevationVariable = getElevationVariable(ncFile);
-			SortedSet<Object> elevationsInFile = getElevationsInFile(elevationVariable);
+		return getDomainMetadata().getElevations();
+	}
 
-			// in some special cases, we may return elevations in a different form than the
-			// actual elevations in the NetCDF file.
-			SortedSet<Object> specialCaseElevations = getElevationsForSpecialCases(
-					elevationVariable, elevationsInFile);
+	private SortedSet<Object> readElevations(NetcdfFile ncFile) {
+		Variable elevationVariable = getElevationVariable(ncFile, null);
+		SortedSet<Object> elevationsInFile = getElevationsInFile(elevationVariable);
 
-			if (specialCaseElevations != null && specialCaseElevations.size() > 0) {
-				result = specialCaseElevations;
-			} else {
-				result = elevationsInFile;
-			}
+		// in some special cases, we may return elevations in a different form than the
+		// actual elevations in the NetCDF file.
+		SortedSet<Object> specialCaseElevations = getElevationsForSpecialCases(elevationVariable,
+				elevationsInFile);
 
-		} catch (IOException e) {
-			LOG.log(Level.SEVERE, "Error occurred during getElevations.", e);
-			return null;
-		} finally {
-			closeNetCdfFile(ncFile);
+		if (specialCaseElevations != null && specialCaseElevations.size() > 0) {
+			return specialCaseElevations;
 		}
-
-		return result;
+		return elevationsInFile;
 	}
 
 	private SortedSet<Object> getElevationsInFile(Variable elevationVariable) {
@@ -1111,9 +1285,7 @@ public class NetCDFFileInspector {
 		}
 
 		try {
-			IndexIterator ii = elevationVariable.read().getIndexIterator();
-			while (ii.hasNext()) {
-				double elevation = ii.getDoubleNext();
+			for (double elevation : getDimensionIndex(elevationVariable).getDistinctValues()) {
 				result.add(elevation);
 			}
 		} catch (IOException e) {
@@ -1171,32 +1343,11 @@ public class NetCDFFileInspector {
 	}
 
 	public String getElevationString() {
-		return NetCdfUtil.getDomainListAsString(getElevations());
+		return getDomainMetadata().getElevationString();
 	}
 
 	public String getReferenceTimeString() {
-		String result = null;
-		NetcdfFile ncFile = null;
-		try {
-			ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
-			List<Date> referenceTimes = getReferenceTimesInNcFile(ncFile);
-			if (referenceTimes != null) {
-				List<String> referenceTimesAsStrings = new ArrayList<String>();
-				for (Date referenceTime : referenceTimes) {
-					referenceTimesAsStrings.add(NetCdfDateFormatUtil.getDateFormat3().format(
-							referenceTime));
-				}
-				result = NetCdfUtil.getDomainListAsString(referenceTimesAsStrings);
-			}
-		} catch (IOException e) {
-			LOG.log(Level.WARNING,
-					"Problem getting reference time(s) for " + file.getAbsolutePath(), e);
-			result = null;
-		} finally {
-			closeNetCdfFile(ncFile);
-		}
-
-		return result;
+		return getDomainMetadata().getReferenceTimeString();
 	}
 
 	/**
@@ -1236,7 +1387,7 @@ public class NetCDFFileInspector {
 		Variable runtimeVariable = NetCdfUtil.getFileVariableByName(ncFile,
 				this.runtimeVariableNameInFile, NetCdfUtil.RUNTIME_VARIABLE_NAMES);
 		if (runtimeVariable != null) {
-			List<Object> runtimes = NetCdfUtil.getVariableCachedData(runtimeVariable);
+			List<Object> runtimes = getCachedData(runtimeVariable);
 			if (runtimes.size() > 0) {
 				result = new ArrayList<Date>();
 				for (Object runtime : runtimes) {
@@ -1316,7 +1467,7 @@ public class NetCDFFileInspector {
 					return NetCdfUtil.NOT_FOUND;
 				}
 
-				int index = NetCdfUtil.getIndexOfMatchInVariableCachedData(variable, targetValue);
+				int index = getCachedData(variable).indexOf(targetValue);
 
 				if (index == NetCdfUtil.NOT_FOUND) {
 					LOG.log(Level.INFO, "No match for {0} targetValue {1} in file. {2}", new Object[] {
@@ -1329,59 +1480,49 @@ public class NetCDFFileInspector {
 	/**
 	 * Get a list of the time values from the file.
 	 * 
-	 * @return SortedSet<String>
+	 * @return SortedSet<String>, unmodifiable, or null if the file has no time variable.
 	 */
 	public SortedSet<String> getTimes() {
-		SortedSet<String> timeStrings = new TreeSet<String>();
-		NetcdfFile ncFile = null;
-		try {
-			ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
+		return getDomainMetadata().getTimes();
+	}
 
-			Variable timeVariable = getTimeVariable(ncFile);
-			if (timeVariable == null) {
-				LOG.info("Time variable not found in NetCDF file.");
-				return null;
-			}
+	private SortedSet<Date> readTimes(NetcdfFile ncFile, ParamInformation paramInfo)
+			throws IOException {
+		SortedSet<Date> times = new TreeSet<Date>();
 
-			Attribute timeUnitsAttribute = NetCdfUtil.getVariableAttributeByName(timeVariable,
-					NetCdfUtil.TIME_UNIT_ATTRIBUTE_NAMES);
-			if (timeUnitsAttribute == null) {
-				LOG.info("Time variable unit attribute not found in NetCDF file.");
-			} else {
-				Date startTime = getDateFromString(timeUnitsAttribute.getStringValue());
-
-				Array timeArray = timeVariable.read();
-				IndexIterator ii = timeArray.getIndexIterator();
-				while (ii.hasNext()) {
-					double time = ii.getDoubleNext();
-					/*
-					 * The value here is hours since 2000-01-01 00:00:00, which is stored in startTime, we will use some joda magic to add this number
-					 * of hours and see what date we get
-					 */
-					org.joda.time.DateTime startDateTime = new org.joda.time.DateTime(
-							startTime.getTime());
-					org.joda.time.DateTime actualTime = startDateTime.plusHours((int) Math
-							.round(time));
-					timeStrings.add(NetCdfDateFormatUtil.getDateFormat3().format(
-							actualTime.toDate()));
-				}
-			}
-		} catch (IOException e) {
-			LOG.log(Level.SEVERE, "Error occurred during getTimes.", e);
+		Variable timeVariable = getTimeVariable(ncFile, paramInfo);
+		if (timeVariable == null) {
+			LOG.info("Time variable not found in NetCDF file.");
 			return null;
-		} finally {
-			closeNetCdfFile(ncFile);
 		}
 
-		return timeStrings;
+		Attribute timeUnitsAttribute = NetCdfUtil.getVariableAttributeByName(timeVariable,
+				NetCdfUtil.TIME_UNIT_ATTRIBUTE_NAMES);
+		if (timeUnitsAttribute == null) {
+			LOG.info("Time variable unit attribute not found in NetCDF file.");
+		} else {
+			Date startTime = getDateFromString(timeUnitsAttribute.getStringValue());
+			org.joda.time.DateTime startDateTime = new org.joda.time.DateTime(startTime.getTime());
+
+			for (double time : getDimensionIndex(timeVariable).getDistinctValues()) {
+				/*
+				 * The value here is hours since 2000-01-01 00:00:00, which is stored in startTime, we will use some joda magic to add this number of
+				 * hours and see what date we get
+				 */
+				org.joda.time.DateTime actualTime = startDateTime.plusHours((int) Math.round(time));
+				times.add(actualTime.toDate());
+			}
+		}
+
+		return times;
 	}
 
 	/**
-	 * This function is designed to get a geoserver formatted time string (some times separated by commas, for now, this will probably change in the
-	 * future) for the getCapabilities information
+	 * This function is designed to get a geoserver formatted time string (some times separated by commas, or start/end/period when
+	 * {@link DomainMetadata#PERIOD_ENCODING_PROPERTY} is set and the times are evenly spaced) for the getCapabilities information
 	 */
 	public String getTimeString() {
-		return NetCdfUtil.getDomainListAsString(getTimes());
+		return getDomainMetadata().getTimeString();
 	}
 
 	/**
@@ -1390,13 +1531,7 @@ public class NetCDFFileInspector {
 	 * @return String
 	 */
 	public String getTimeMinimum() {
-		SortedSet<String> times = getTimes();
-
-		if (null != times && !times.isEmpty()) {
-			return times.first();
-		}
-
-		return null;
+		return getDomainMetadata().getTimeMinimum();
 	}
 
 	/**
@@ -1405,13 +1540,7 @@ public class NetCDFFileInspector {
 	 * @return String
 	 */
 	public String getTimeMaximum() {
-		SortedSet<String> times = getTimes();
-
-		if (null != times && !times.isEmpty()) {
-			return times.last();
-		}
-
-		return null;
+		return getDomainMetadata().getTimeMaximum();
 	}
 
 	/**
@@ -1443,47 +1572,43 @@ public class NetCDFFileInspector {
 		return new Date(0);
 	}
 
+	/**
+	 * @return the variable names, unmodifiable.
+	 */
 	public SortedSet<String> getVariables() {
-		SortedSet<String> variableStrings = new TreeSet<String>();
-		NetcdfFile ncFile = null;
-
-		try {
-			ncFile = NetcdfDataset.openFile(file.getAbsolutePath(), null);
+		return getDomainMetadata().getVariables();
+	}
 
-			for (Variable variable : ncFile.getVariables()) {
-				variableStrings.add(variable.getShortName());
+	/**
+	 * @return the variable names of the file, and the names of the derived variables whose sources are all in the file.
+	 */
+	private SortedSet<String> readVariables(NetcdfFile ncFile) {
+		SortedSet<String> variableStrings = new TreeSet<String>();
+		for (Variable variable : ncFile.getVariables()) {
+			variableStrings.add(variable.getShortName());
+		}
+		for (DerivedVariable derivedVariable : DerivedVariables.getInstance().getAll()) {
+			boolean available = true;
+			for (String sourceName : derivedVariable.getSourceNames()) {
+				available &= ncFile.findVariable(sourceName) != null;
+			}
+			if (available) {
+				variableStrings.add(derivedVariable.getName());
 			}
-
-		} catch (IOException e) {
-			LOG.log(Level.SEVERE, "Error occurred during getVariables.", e);
-			return null;
-		} finally {
-			closeNetCdfFile(ncFile);
 		}
-
 		return variableStrings;
 	}
 
 	public String getVariablesString() {
-		return NetCdfUtil.getDomainListAsString(getVariables());
+		return getDomainMetadata().getVariablesString();
 	}
 
 	/**
-	 * limitation: works only for 1 dim array.
+	 * index along the first dimension of the first match, for a 1 dim array the index itself.
 	 */
-	private int findIndex(Array a, Double val) {
-		IndexIterator ii = a.getIndexIterator();
-		int index = -1;
-		while (ii.hasNext()) {
-			Double currentVal = ii.getDoubleNext();
-			int currentPos = ii.getCurrentCounter()[0];
-			if (currentVal.equals(val)) {
-				index = currentPos;
-				break;
-			}
-		}
-
-		return index;
+	private int findIndex(DimensionIndex index, Double val) {
+		int position = index.findFirst(val);
+		return position == NetCdfUtil.NOT_FOUND ? NetCdfUtil.NOT_FOUND : index.getRow(position);
 	}
 
 	// cases to consider:
@@ -1495,27 +1620,23 @@ public class NetCDFFileInspector {
 	/**
 	 * limitation: works only for 2 dim arrays.
 	 */
-	private Integer[] findIndexSecondDim(Array a, Double val, Integer firstDim) {
+	private Integer[] findIndexSecondDim(DimensionIndex index, Double val, Integer firstDim) {
+		if (index.getRank() != 2) {
+			throw new IllegalArgumentException("Expected a 2 dim array, got " + index);
+		}
+
 		Integer[] result = new Integer[2];
+		int position;
 		if (firstDim == null) {
-			result[0] = NetCdfUtil.NOT_FOUND;
+			position = index.findLast(val);
+			result[0] = position == NetCdfUtil.NOT_FOUND ? NetCdfUtil.NOT_FOUND : index
+					.getRow(position);
 		} else {
+			position = index.findLastInRow(val, firstDim);
 			result[0] = firstDim;
 		}
-		result[1] = NetCdfUtil.NOT_FOUND;
-
-		IndexIterator ii = a.getIndexIterator();
-		while (ii.hasNext()) {
-			Double currentVal = ii.getDoubleNext();
-			int[] currentPos = ii.getCurrentCounter();
-			if ((firstDim == null || currentPos[0] == firstDim) && (currentVal.equals(val))) {
-				if (firstDim == null) {
-					result[0] = currentPos[0];
-				}
-				result[1] = currentPos[1];
-				// no break first time through, so can let later match overwrite earlier.
-			}
-		}
+		result[1] = position == NetCdfUtil.NOT_FOUND ? NetCdfUtil.NOT_FOUND : index
+				.getColumn(position);
 
 		return result;
 	}
@@ -1524,20 +1645,12 @@ public class NetCDFFileInspector {
 	// a. two dim array, first dim value specified, look only at that dim for highest value in second dim.
 	/**
 	 * limitation: works only for 2 dim arrays.
+	 * 
+	 * @return null if there are no values for the first dim value.
 	 */
-	private Double findHighestValueSecondDim(Array a, Integer firstDim) {
-		Double result = null;
-
-		IndexIterator ii = a.getIndexIterator();
-		while (ii.hasNext()) {
-			Double currentVal = ii.getDoubleNext();
-			int[] currentPos = ii.getCurrentCounter();
-			if ((currentPos[0] == firstDim) && (result == null || currentVal > result)) {
-				result = currentVal;
-			}
-		}
-
-		return result;
+	private Double findHighestValueSecondDim(DimensionIndex index, Integer firstDim) {
+		double result = index.getMaximum(firstDim);
+		return Double.isNaN(result) ? null : result;
 	}
 
 	public boolean validateNetCdfFile(String absoluteFilePath) {
@@ -1550,104 +1663,962 @@ public class NetCDFFileInspector {
 		return valid;
 	}
 
-	private void parseFile(NetcdfFile ncFile, String parameterName, DimensionInfo dimensionInfo,
+	private void parseFile(NetcdfFile ncFile, String parameterName,
+			DerivedVariable derivedVariable, DimensionInfo dimensionInfo, ParamInformation paramInfo,
 			GrdDataEncapsulator data) throws IOException, InvalidRangeException {
+		CoordinateAxes axes = getCoordinateAxes(ncFile);
+
+		// Get the longitude value indices to read from the file.
+		int[] lonImagePositionAndIndexInFile = getTargetIndexes(data.getDesiredLons(), axes.lon,
+				true);
+
+		// Get the latitude value indices to read from the file.
+		int[] latImagePositionAndIndexInFile = getTargetIndexes(data.getDesiredLats(), axes.lat,
+				false);
+
+		// and the fractional indices between them, to interpolate.
+		double[] lonPositions = null;
+		double[] latPositions = null;
+		if (paramInfo.getInterpolation() != InterpolationKernel.NEAREST) {
+			lonPositions = axes.lon.getCoordinatePositions(getTargets(data.getDesiredLons(), true));
+			latPositions = axes.lat.getCoordinatePositions(getTargets(data.getDesiredLats(), false));
+		}
 
-		// Find the requested Variable.
-		Variable variable = ncFile.findVariable(parameterName);
-		if (variable == null) {
-			if (LOG.isLoggable(Level.SEVERE)) {
-				LOG.log(Level.SEVERE, "Unable to parse NetCDF file [{0}] for parameter: {1}",
-						new Object[] { ncFile.getTitle(), parameterName });
+		// requests resolving to the same cells of the same slice are served from the tile cache, when it is on.
+		TileCache tileCache = TileCache.getInstance();
+		TileCache.Key tileKey = null;
+		if (tileCache.isEnabled()) {
+			String parameterKey = derivedVariable == null ? parameterName : parameterName + "="
+					+ derivedVariable.getExpression();
+			tileKey = new TileCache.Key(file, parameterKey, dimensionInfo.getTimeIndex(),
+					dimensionInfo.getElevationIndex(), dimensionInfo.getRuntimeIndex(),
+					paramInfo.getInterpolation(), lonImagePositionAndIndexInFile,
+					latImagePositionAndIndexInFile, lonPositions, latPositions);
+			if (tileCache.get(tileKey, data.getImageData())) {
+				return;
 			}
-			return;
 		}
 
-		// Get the list of longitude values indices to read from the file.
-		List<Double> lonList = data.getDesiredLons();
-		Array lonValuesFromNcFile = NetCdfUtil.getFileVariableByName(ncFile,
-				NetCdfUtil.LON_VARIABLE_NAMES).read();
-		Map<Integer, Integer> lonImagePositionAndIndexInFile = getTargetIndexes(lonList,
-				lonValuesFromNcFile, true);
-
-		// Get the list of latitude values indices to read from the file.
-		List<Double> latList = data.getDesiredLats();
-		Array latValuesFromNcFile = NetCdfUtil.getFileVariableByName(ncFile,
-				NetCdfUtil.LAT_VARIABLE_NAMES).read();
-		Map<Integer, Integer> latImagePositionAndIndexInFile = getTargetIndexes(latList,
-				latValuesFromNcFile, false);
+		boolean read = readParameter(ncFile, parameterName, derivedVariable,
+				lonImagePositionAndIndexInFile, latImagePositionAndIndexInFile, lonPositions,
+				latPositions, dimensionInfo, paramInfo, data);
 
-		// Ask the ReadStrategyFactory for the appropriate ReadStrategy.
-		ReadStrategy readStrategy = ReadStrategyFactory.getReadStrategy(
-				lonImagePositionAndIndexInFile, latImagePositionAndIndexInFile,
-				lonValuesFromNcFile, latValuesFromNcFile);
-
-		LOG.log(Level.INFO, "Using Read Strategy: {0}", readStrategy);
+		if (read && tileKey != null) {
+			tileCache.put(tileKey, data.getImageData());
+		}
+	}
 
-		// Set the appropriate dimension indices to read.
-		readStrategy.setVariable(variable);
+	/**
+	 * Read the parameter at the indices into data. A derived parameter is computed from each of its source variables read at the same indices.
+	 * 
+	 * @param lonPositions - the fractional indices to interpolate at with the interpolation of paramInfo, null to read the nearest values.
+	 * @return false if the file has no such variable and data was left as it was.
+	 */
+	private boolean readParameter(NetcdfFile ncFile, String parameterName,
+			DerivedVariable derivedVariable, int[] lonImagePositionAndIndexInFile,
+			int[] latImagePositionAndIndexInFile, double[] lonPositions, double[] latPositions,
+			DimensionInfo dimensionInfo,
+			ParamInformation paramInfo, GrdDataEncapsulator data) throws IOException,
+			InvalidRangeException {
+		if (derivedVariable == null) {
+			// Find the requested Variable.
+			Variable variable = ncFile.findVariable(parameterName);
+			if (variable == null) {
+				if (LOG.isLoggable(Level.SEVERE)) {
+					LOG.log(Level.SEVERE, "Unable to parse NetCDF file [{0}] for parameter: {1}",
+							new Object[] { ncFile.getTitle(), parameterName });
+				}
+				return false;
+			}
+			readVariable(variable, lonImagePositionAndIndexInFile, latImagePositionAndIndexInFile,
+					lonPositions, latPositions, dimensionInfo, paramInfo, data);
+			return true;
+		}
+
+		List<Variable> sourceVariables = getSourceVariables(ncFile, derivedVariable, paramInfo);
+
+		// the first source is read into data itself, the derived values replace it row by row.
+		float[][] sources = new float[sourceVariables.size()][];
+		for (int i = 0; i < sources.length; i++) {
+			GrdDataEncapsulator sourceData = i == 0 ? data : new GrdDataEncapsulator(paramInfo);
+			readVariable(sourceVariables.get(i), lonImagePositionAndIndexInFile,
+					latImagePositionAndIndexInFile, lonPositions, latPositions, dimensionInfo,
+					paramInfo, sourceData);
+			sources[i] = sourceData.getImageData();
+		}
+
+		derivedVariable.evaluate(sources, data.getImageWidth(), data.getImageData());
+		return true;
+	}
+
+	/**
+	 * Read the variable at the indices into data, as row bands at the same time when the request is large enough and parallel reads are turned on.
+	 */
+	private void readVariable(final Variable variable, int[] lonImagePositionAndIndexInFile,
+			int[] latImagePositionAndIndexInFile, final double[] lonPositions,
+			final double[] latPositions, final DimensionInfo dimensionInfo,
+			final ParamInformation paramInfo, GrdDataEncapsulator data) throws IOException,
+			InvalidRangeException {
+		ParallelBandReads parallelReads = ParallelBandReads.getInstance();
+		int bandCount = parallelReads.getBandCount(lonImagePositionAndIndexInFile.length,
+				latImagePositionAndIndexInFile.length);
+		if (bandCount <= 1) {
+			readBand(variable, lonImagePositionAndIndexInFile, latImagePositionAndIndexInFile,
+					lonPositions, latPositions, dimensionInfo, paramInfo, data);
+			return;
+		}
+
+		// a NetcdfFile handle is not thread safe, every band reads through a handle of its own.
+		parallelReads.read(new ParallelBandReads.BandReader() {
+			public void read(int[] longitudeIndices, int[] latitudeIndices, GrdDataEncapsulator data)
+					throws IOException, InvalidRangeException {
+				NetcdfFile bandFile = openNetCdfFile();
+				try {
+					readBand(bandFile.findVariable(variable.getName()), longitudeIndices,
+							latitudeIndices, lonPositions, latPositions, dimensionInfo, paramInfo,
+							data);
+				} finally {
+					closeNetCdfFile(bandFile);
+				}
+			}
+		}, lonImagePositionAndIndexInFile, latImagePositionAndIndexInFile, bandCount, data,
+				paramInfo);
+	}
+
+	private void readBand(Variable variable, int[] lonImagePositionAndIndexInFile,
+			int[] latImagePositionAndIndexInFile, double[] lonPositions, double[] latPositions,
+			DimensionInfo dimensionInfo, ParamInformation paramInfo, GrdDataEncapsulator data)
+			throws IOException, InvalidRangeException {
+		ReadStrategy readStrategy;
+		if (lonPositions != null && latPositions != null) {
+			// the neighborhood of every position is read in the bounding box of the request.
+			readStrategy = new InterpolatingReadStrategy(paramInfo.getInterpolation(),
+					lonPositions, latPositions);
+			readStrategy.setMaxBytesPerRead(ReadMetrics.getInstance().getMaxBytesPerRead());
+		} else {
+			// Ask the ReadStrategyFactory for the appropriate ReadStrategy.
+			readStrategy = ReadStrategyFactory.getReadStrategy(lonImagePositionAndIndexInFile,
+					latImagePositionAndIndexInFile, variable);
+		}
+
+		LOG.log(Level.INFO, "Using Read Strategy: {0}", readStrategy);
+
+		// Set the appropriate dimension indices to read.
+		readStrategy.setVariable(variable);
 		if (null != dimensionInfo.getElevationIndex()) {
 			readStrategy.setElevationIndex(dimensionInfo.getElevationIndex());
-			readStrategy.setElevationVariableNameInFile(this.elevationVariableNameInFile);
+			readStrategy.setElevationVariableNameInFile(getElevationVariableNameInFile(paramInfo));
 		}
 		if (null != dimensionInfo.getTimeIndex()) {
 			readStrategy.setTimeIndex(dimensionInfo.getTimeIndex());
-			readStrategy.setTimeVariableNameInFile(this.timeVariableNameInFile);
+			readStrategy.setTimeVariableNameInFile(getTimeVariableNameInFile(paramInfo));
 
 		}
 		if (null != dimensionInfo.getRuntimeIndex()) {
 			readStrategy.setRuntimeIndex(dimensionInfo.getRuntimeIndex());
-			readStrategy.setRuntimeVariableNameInFile(this.runtimeVariableNameInFile);
+			readStrategy.setRuntimeVariableNameInFile(getRuntimeVariableNameInFile(paramInfo));
 		}
 
 		// Actually read the data from the NetCDF file.
 		readStrategy.read(lonImagePositionAndIndexInFile, latImagePositionAndIndexInFile, data);
 	}
 
-	private Map<Integer, Integer> getTargetIndexes(List<Double> targetValues, Array lookupValues,
-			boolean isLongitude) {
-		Map<Integer, Integer> desiredIndexes = new HashMap<Integer, Integer>();
+	/**
+	 * Read the values of the parameter at the cells of the requested envelope, a point or a small box, across every time, reference time and
+	 * elevation of the file, for meteograms and other series. A time, reference time or elevation given in paramInfo limits the series to it.
+	 * 
+	 * The values go to the visitor as they are read, with a single read of the file when the series fits within
+	 * {@link org.geotools.gce.netcdf.read.ReadMetrics#getMaxBytesPerRead()}, instead of a coverage read for every time, see {@link SeriesRead}.
+	 * 
+	 * @return false if the visitor stopped the read.
+	 * @throws InvalidParameterValueException if the parameter or a requested dimension value is not in the file.
+	 * @throws IllegalArgumentException if the envelope is not within the file.
+	 * @throws CancellationException if paramInfo is cancelled.
+	 */
+	public boolean readSeries(ParamInformation paramInfo, SeriesVisitor visitor) throws IOException {
+		String parameterName = paramInfo.getParameter();
+		if (parameterName == null || parameterName.isEmpty()) {
+			throw new IllegalArgumentException("No parameter to read the series of");
+		}
+
+		Date methodBeginDate = new Date();
+		NetcdfFile ncFile = null;
+		try {
+			ncFile = openNetCdfFile();
+
+			Variable parameterVariable = findParameterVariable(ncFile, parameterName, paramInfo);
+			DerivedVariable derivedVariable = getDerivedVariable(ncFile, parameterName);
+			DimensionInfo dimensionInfo = getSeriesDimensionInfo(ncFile, parameterVariable,
+					paramInfo);
+			SeriesRead read = createSeriesRead(ncFile, parameterVariable, derivedVariable,
+					dimensionInfo, paramInfo);
+			boolean completed = read.read(visitor, paramInfo);
+
+			LogUtil.logElapsedTime(LOG, methodBeginDate, file.getName() + " " + parameterName
+					+ " series of " + read.getSize() + " values");
+			return completed;
+		} catch (InvalidRangeException e) {
+			throw new IOException(e);
+		} finally {
+			closeNetCdfFile(ncFile);
+		}
+	}
+
+	/**
+	 * Find the indexes of the requested elevation, time and reference time in the file. Unlike {@link #getDimensionInfo}, a dimension that is not
+	 * requested stays null, for all of its values, and there is no default time.
+	 * 
+	 * @throws InvalidParameterValueException if a requested dimension value is not in the file.
+	 */
+	private DimensionInfo getSeriesDimensionInfo(NetcdfFile ncFile, Variable parameterVariable,
+			ParamInformation paramInfo) {
+		DimensionInfo dimensionInfo = new DimensionInfo();
+		if (paramInfo.getElevation() != null) {
+			dimensionInfo.setElevationIndex(getElevationIndexInNCFile(ncFile, parameterVariable,
+					paramInfo.getElevation(), paramInfo));
+		}
+
+		if (paramInfo.getTime() != null) {
+			getRuntimeAndTimeIndexes(dimensionInfo, ncFile, paramInfo);
+		} else if (paramInfo.getReferenceTime() != null) {
+			if (hasRuntimeVariable(ncFile, paramInfo)) {
+				dimensionInfo.setRuntimeIndex(getRuntimeDimensionIndexValue(paramInfo, ncFile));
+			} else {
+				// all of the file is of its one reference time.
+				List<Date> referenceTimes = getReferenceTimesInNcFile(ncFile);
+				if (referenceTimes == null
+						|| !referenceTimes.contains(paramInfo.getReferenceTime())) {
+					dimensionInfo.setRuntimeIndex(NetCdfUtil.NOT_FOUND);
+				}
+			}
+		}
+
+		reviewDimensionsAndThrowExceptionIfNeeded(dimensionInfo, paramInfo);
+		return dimensionInfo;
+	}
+
+	/**
+	 * The read of the cells of the requested envelope, along all the values of the dimensions dimensionInfo does not fix.
+	 */
+	private SeriesRead createSeriesRead(NetcdfFile ncFile, Variable parameterVariable,
+			DerivedVariable derivedVariable, DimensionInfo dimensionInfo, ParamInformation paramInfo)
+			throws IOException, InvalidRangeException {
+		CoordinateAxes axes = getCoordinateAxes(ncFile);
+		GeneralEnvelope envelope = paramInfo.getRequestedEnvelope();
+		Range lonRange = getSeriesRange(envelope.getMinimum(0), envelope.getMaximum(0), axes.lon,
+				true);
+		Range latRange = getSeriesRange(envelope.getMinimum(1), envelope.getMaximum(1), axes.lat,
+				false);
+
+		int lonDimension = NetCdfUtil.getXDimensionIndex(parameterVariable);
+		int latDimension = NetCdfUtil.getYDimensionIndex(parameterVariable);
+		int timeDimension = NetCdfUtil.getVariableDimensionIndexByName(parameterVariable,
+				getTimeVariableNameInFile(paramInfo), NetCdfUtil.TIME_VARIABLE_NAMES);
+		int elevationDimension = NetCdfUtil.getVariableDimensionIndexByName(parameterVariable,
+				getElevationVariableNameInFile(paramInfo), NetCdfUtil.ELEVATION_VARIABLE_NAMES);
+		int runtimeDimension = NetCdfUtil.getVariableDimensionIndexByName(parameterVariable,
+				getRuntimeVariableNameInFile(paramInfo), NetCdfUtil.RUNTIME_VARIABLE_NAMES);
+
+		List<Range> ranges = new ArrayList<Range>();
+		int[] shape = parameterVariable.getShape();
+		for (int dimension = 0; dimension < shape.length; dimension++) {
+			if (dimension == lonDimension) {
+				ranges.add(lonRange);
+			} else if (dimension == latDimension) {
+				ranges.add(latRange);
+			} else if (dimension == timeDimension) {
+				ranges.add(getSeriesRange(dimensionInfo.getTimeIndex(), shape[dimension]));
+			} else if (dimension == elevationDimension) {
+				ranges.add(getSeriesRange(dimensionInfo.getElevationIndex(), shape[dimension]));
+			} else if (dimension == runtimeDimension) {
+				ranges.add(getSeriesRange(dimensionInfo.getRuntimeIndex(), shape[dimension]));
+			} else {
+				LOG.log(Level.SEVERE,
+						"Encountered an unexpected dimension [{0}] for this Variable [{1}].",
+						new Object[] { parameterVariable.getDimension(dimension), parameterVariable });
+				ranges.add(new Range(0, 0));
+			}
+		}
+
+		List<Variable> variables = derivedVariable == null ? Collections
+				.singletonList(parameterVariable) : getSourceVariables(ncFile, derivedVariable,
+				paramInfo);
+		SeriesRead read = new SeriesRead(variables, derivedVariable, ranges);
+		read.setLongitudes(lonDimension, axes.lon);
+		read.setLatitudes(latDimension, axes.lat);
+		if (timeDimension >= 0) {
+			read.setTimes(timeDimension, getSeriesTimes(getTimeVariable(ncFile, paramInfo)));
+		}
+		if (elevationDimension >= 0) {
+			read.setElevations(elevationDimension, getSeriesElevations(getElevationVariable(
+					ncFile, paramInfo)));
+		}
+		List<Date> referenceTimes = runtimeDimension >= 0 ? getReferenceTimesFromRuntimeVariable(ncFile)
+				: getReferenceTimesInNcFile(ncFile);
+		if (referenceTimes != null) {
+			read.setReferenceTimes(runtimeDimension, referenceTimes.toArray(new Date[referenceTimes
+					.size()]));
+		}
+		return read;
+	}
+
+	/**
+	 * @return the file indices of the cells from minimum to maximum, the closest cell for a point.
+	 * @throws IllegalArgumentException if they are not within the file.
+	 */
+	private Range getSeriesRange(double minimum, double maximum, GridAxis axis, boolean isLongitude)
+			throws InvalidRangeException {
+		if (isLongitude && isLongitudeIn0to360() && minimum < 0 && maximum >= 0) {
+			throw new IllegalArgumentException("Series longitudes " + minimum + " to " + maximum
+					+ " cross the 0 to 360 seam of " + file.getName());
+		}
+		int[] indexes = getTargetIndexes(Arrays.asList(minimum, maximum), axis, isLongitude);
+		if (indexes[0] == NetCdfUtil.NOT_FOUND || indexes[1] == NetCdfUtil.NOT_FOUND) {
+			throw new IllegalArgumentException("Series " + (isLongitude ? "longitudes " : "latitudes ")
+					+ minimum + " to " + maximum + " not within " + file.getName());
+		}
+		return new Range(Math.min(indexes[0], indexes[1]), Math.max(indexes[0], indexes[1]));
+	}
+
+	/**
+	 * @return the single index, or all of the indices of the dimension when index is null.
+	 */
+	private Range getSeriesRange(Integer index, int length) throws InvalidRangeException {
+		return index == null ? new Range(0, length - 1) : new Range(index, index);
+	}
+
+	/**
+	 * @return the times by runtime index and time index, a single row for a one dimensional time variable. null if the time variable or its units
+	 *         are not in the file.
+	 */
+	private Date[][] getSeriesTimes(Variable timeVariable) throws IOException {
+		if (timeVariable == null) {
+			return null;
+		}
+		Attribute timeUnitsAttribute = NetCdfUtil.getVariableAttributeByName(timeVariable,
+				NetCdfUtil.TIME_UNIT_ATTRIBUTE_NAMES);
+		if (timeUnitsAttribute == null) {
+			LOG.info("Time variable unit attribute not found in NetCDF file.");
+			return null;
+		}
+
+		DimensionIndex index = getDimensionIndex(timeVariable);
+		int[] shape = timeVariable.getShape();
+		int rowCount = shape.length == 2 ? shape[0] : 1;
+		int columnCount = shape.length == 2 ? shape[1] : index.getSize();
+		Date[][] result = new Date[rowCount][columnCount];
+		for (int row = 0; row < rowCount; row++) {
+			for (int column = 0; column < columnCount; column++) {
+				double hours = index.getValue(row * columnCount + column);
+				result[row][column] = Double.isNaN(hours) ? null : getNumberOfHoursAsDate(hours,
+						timeUnitsAttribute);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the elevations by file index, null if the elevation variable is not in the file.
+	 */
+	private Double[] getSeriesElevations(Variable elevationVariable) throws IOException {
+		if (elevationVariable == null) {
+			return null;
+		}
+		DimensionIndex index = getDimensionIndex(elevationVariable);
+		Double[] result = new Double[index.getSize()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = index.getValue(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Read the vertical profile at the point, or the vertical section along the line, of paramInfo's section path, across the elevations of its
+	 * elevation range (all the elevations of the file without one) at the requested time, the default time of the file if none is requested.
+	 * 
+	 * The path goes through the grid cells closest to it, sampled at half the grid spacing, and the cells are read in as few hyperslabs as
+	 * {@link SectionRead} finds worth it, instead of a coverage read for every elevation.
+	 * 
+	 * @throws InvalidParameterValueException if the parameter, the requested time or reference time, or any elevation of the range is not in the
+	 *         file.
+	 * @throws IllegalArgumentException if the path is not within the file.
+	 * @throws CancellationException if paramInfo is cancelled.
+	 */
+	public VerticalSection readSection(ParamInformation paramInfo) throws IOException {
+		String parameterName = paramInfo.getParameter();
+		if (parameterName == null || parameterName.isEmpty()) {
+			throw new IllegalArgumentException("No parameter to read the section of");
+		}
+		Coordinate[] path = paramInfo.getSectionPath();
+		if (path == null || path.length == 0) {
+			throw new IllegalArgumentException("No section path to read " + parameterName + " along");
+		}
+
+		Date methodBeginDate = new Date();
+		NetcdfFile ncFile = null;
+		try {
+			ncFile = openNetCdfFile();
+
+			Variable parameterVariable = findParameterVariable(ncFile, parameterName, paramInfo);
+			DerivedVariable derivedVariable = getDerivedVariable(ncFile, parameterName);
+			DimensionInfo dimensionInfo = new DimensionInfo();
+			setDefaultTimeIfNoneRequested(paramInfo, parameterVariable, ncFile);
+			getRuntimeAndTimeIndexes(dimensionInfo, ncFile, paramInfo);
+			reviewDimensionsAndThrowExceptionIfNeeded(dimensionInfo, paramInfo);
+
+			CoordinateAxes axes = getCoordinateAxes(ncFile);
+			int[][] cells = getSectionCells(path, axes);
+			if (cells[0].length == 0) {
+				throw new IllegalArgumentException("Section path " + Arrays.asList(path)
+						+ " not within " + file.getName());
+			}
+			double[] longitudes = new double[cells[0].length];
+			double[] latitudes = new double[cells[0].length];
+			for (int i = 0; i < longitudes.length; i++) {
+				longitudes[i] = axes.lon.getValue(cells[0][i]);
+				latitudes[i] = axes.lat.getValue(cells[1][i]);
+			}
+
+			int lonDimension = NetCdfUtil.getXDimensionIndex(parameterVariable);
+			int latDimension = NetCdfUtil.getYDimensionIndex(parameterVariable);
+			int timeDimension = NetCdfUtil.getVariableDimensionIndexByName(parameterVariable,
+					getTimeVariableNameInFile(paramInfo), NetCdfUtil.TIME_VARIABLE_NAMES);
+			int elevationDimension = NetCdfUtil.getVariableDimensionIndexByName(parameterVariable,
+					getElevationVariableNameInFile(paramInfo), NetCdfUtil.ELEVATION_VARIABLE_NAMES);
+			int runtimeDimension = NetCdfUtil.getVariableDimensionIndexByName(parameterVariable,
+					getRuntimeVariableNameInFile(paramInfo), NetCdfUtil.RUNTIME_VARIABLE_NAMES);
+
+			double[] elevations = new double[] { Double.NaN };
+			Range elevationRange = null;
+			if (elevationDimension >= 0) {
+				int[] positions = getSectionElevationPositions(ncFile, paramInfo);
+				elevationRange = new Range(positions[0], positions[positions.length - 1]);
+				DimensionIndex elevationIndex = getDimensionIndex(getElevationVariable(ncFile,
+						paramInfo));
+				elevations = new double[elevationRange.length()];
+				for (int i = 0; i < elevations.length; i++) {
+					elevations[i] = elevationIndex.getValue(elevationRange.first() + i);
+				}
+			}
+
+			List<Range> ranges = new ArrayList<Range>();
+			int[] shape = parameterVariable.getShape();
+			for (int dimension = 0; dimension < shape.length; dimension++) {
+				if (dimension == lonDimension || dimension == latDimension) {
+					// set for every read of the path.
+					ranges.add(new Range(0, 0));
+				} else if (dimension == elevationDimension) {
+					ranges.add(elevationRange);
+				} else if (dimension == timeDimension) {
+					ranges.add(getSectionRange(dimensionInfo.getTimeIndex()));
+				} else if (dimension == runtimeDimension) {
+					ranges.add(getSectionRange(dimensionInfo.getRuntimeIndex()));
+				} else {
+					LOG.log(Level.SEVERE,
+							"Encountered an unexpected dimension [{0}] for this Variable [{1}].",
+							new Object[] { parameterVariable.getDimension(dimension), parameterVariable });
+					ranges.add(new Range(0, 0));
+				}
+			}
+
+			List<Variable> variables = derivedVariable == null ? Collections
+					.singletonList(parameterVariable) : getSourceVariables(ncFile, derivedVariable,
+					paramInfo);
+			SectionRead read = new SectionRead(variables, derivedVariable, ranges, lonDimension,
+					latDimension, elevationDimension);
+			VerticalSection section = read.read(cells[0], cells[1], longitudes, latitudes,
+					elevations, timeDimension >= 0 ? paramInfo.getTime() : null, getKilometersPerUnit(),
+					paramInfo);
+
+			LogUtil.logElapsedTime(LOG, methodBeginDate, file.getName() + " " + parameterName
+					+ " " + section);
+			return section;
+		} catch (InvalidRangeException e) {
+			throw new IOException(e);
+		} finally {
+			closeNetCdfFile(ncFile);
+		}
+	}
+
+	/**
+	 * @return the longitude and latitude indexes of the cells closest to the path, in order, without repeating a cell. Points of the path outside
+	 *         the file are left out.
+	 */
+	private int[][] getSectionCells(Coordinate[] path, CoordinateAxes axes) {
+		double step = Math.min(Math.abs(axes.lon.getResolution()),
+				Math.abs(axes.lat.getResolution())) / 2;
+		List<Double> sampleLons = new ArrayList<Double>();
+		List<Double> sampleLats = new ArrayList<Double>();
+		sampleLons.add(path[0].x);
+		sampleLats.add(path[0].y);
+		for (int i = 1; i < path.length; i++) {
+			double deltaLon = path[i].x - path[i - 1].x;
+			double deltaLat = path[i].y - path[i - 1].y;
+			int count = 1;
+			if (step > 0) {
+				count = (int) Math.max(1, Math.ceil(Math.max(Math.abs(deltaLon),
+						Math.abs(deltaLat)) / step));
+			}
+			for (int k = 1; k <= count; k++) {
+				sampleLons.add(path[i - 1].x + deltaLon * k / count);
+				sampleLats.add(path[i - 1].y + deltaLat * k / count);
+			}
+		}
+
+		int[] sampleLonIndexes = getTargetIndexes(sampleLons, axes.lon, true);
+		int[] sampleLatIndexes = getTargetIndexes(sampleLats, axes.lat, false);
+		int[] lonIndexes = new int[sampleLonIndexes.length];
+		int[] latIndexes = new int[sampleLatIndexes.length];
+		int count = 0;
+		for (int i = 0; i < sampleLonIndexes.length; i++) {
+			if (sampleLonIndexes[i] == NetCdfUtil.NOT_FOUND
+					|| sampleLatIndexes[i] == NetCdfUtil.NOT_FOUND) {
+				continue;
+			}
+			if (count > 0 && lonIndexes[count - 1] == sampleLonIndexes[i]
+					&& latIndexes[count - 1] == sampleLatIndexes[i]) {
+				continue;
+			}
+			lonIndexes[count] = sampleLonIndexes[i];
+			latIndexes[count] = sampleLatIndexes[i];
+			count++;
+		}
+		return new int[][] { Arrays.copyOf(lonIndexes, count), Arrays.copyOf(latIndexes, count) };
+	}
+
+	/**
+	 * @return the positions, ascending, of the elevations of the file within the requested elevation range, all of them without one.
+	 * @throws InvalidParameterValueException if no elevation of the file is within the range.
+	 */
+	private int[] getSectionElevationPositions(NetcdfFile ncFile, ParamInformation paramInfo)
+			throws IOException {
+		DimensionIndex elevationIndex = getDimensionIndex(getElevationVariable(ncFile, paramInfo));
+		NumberRange<?> range = paramInfo.getElevationRange();
+		int[] positions;
+		if (range == null) {
+			positions = new int[elevationIndex.getSize()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = i;
+			}
+		} else {
+			positions = elevationIndex.findInterval(range.getMinimum(), range.getMaximum());
+		}
+		if (positions.length == 0) {
+			throw new InvalidParameterValueException(ServiceException.INVALID_DIMENSION_VALUE
+					+ ": elevation range " + range, "elevation range", String.valueOf(range));
+		}
+		return positions;
+	}
+
+	/**
+	 * @return the single index, the first one if the index was not looked for.
+	 */
+	private Range getSectionRange(Integer index) throws InvalidRangeException {
+		return index == null ? new Range(0, 0) : new Range(index, index);
+	}
+
+	/**
+	 * Build the overview levels of the slice paramInfo asks for, as the first request for a lower resolution of the slice would, so they are
+	 * ready before that request.
+	 * 
+	 * @return false if the file has no overview levels (see {@link Overviews#LEVELS_KEY}) or they could not be stored.
+	 * @throws InvalidParameterValueException if the parameter or a requested dimension value is not in the file.
+	 */
+	public boolean buildOverviews(ParamInformation paramInfo) throws IOException {
+		String parameterName = paramInfo.getParameter();
+		if (parameterName == null || parameterName.isEmpty()) {
+			throw new IllegalArgumentException("No parameter to build the overviews of");
+		}
+
+		NetcdfFile ncFile = openNetCdfFile();
+		try {
+			Variable parameterVariable = findParameterVariable(ncFile, parameterName, paramInfo);
+			DerivedVariable derivedVariable = getDerivedVariable(ncFile, parameterName);
+			DimensionInfo dimensionInfo = getDimensionInfo(ncFile, parameterVariable, paramInfo);
+			return getOverviewValues(ncFile, parameterName, derivedVariable, dimensionInfo,
+					paramInfo, 1) != null && !getFileIndexes().overviewsDisabled;
+		} catch (InvalidRangeException e) {
+			throw new IOException(e);
+		} finally {
+			closeNetCdfFile(ncFile);
+		}
+	}
+
+	/**
+	 * Fill data from the overview level paramInfo asks for, instead of from the file grid.
+	 * 
+	 * @return false if the file has no such level or its overviews could not be stored, so the file grid is to be read instead.
+	 */
+	private boolean readOverview(NetcdfFile ncFile, String parameterName,
+			DerivedVariable derivedVariable, DimensionInfo dimensionInfo, ParamInformation paramInfo,
+			GrdDataEncapsulator data) throws IOException, InvalidRangeException {
+		int level = paramInfo.getOverviewLevel();
+		float[] values = getOverviewValues(ncFile, parameterName, derivedVariable, dimensionInfo,
+				paramInfo, level);
+		if (values == null) {
+			return false;
+		}
+
+		CoordinateAxes axes = getOverviewAxes(ncFile, level);
+		int[] lonIndexes = getTargetIndexes(data.getDesiredLons(), axes.lon, true);
+		int[] latIndexes = getTargetIndexes(data.getDesiredLats(), axes.lat, false);
+		int width = axes.lon.getSize();
+		int lastRow = data.getImageHeight() - 1;
+		for (int requestLat = 0; requestLat < latIndexes.length; requestLat++) {
+			int latIndex = latIndexes[requestLat];
+			if (latIndex == NetCdfUtil.NOT_FOUND) {
+				continue;
+			}
+			int offset = latIndex * width;
+			for (int requestLon = 0; requestLon < lonIndexes.length; requestLon++) {
+				int lonIndex = lonIndexes[requestLon];
+				if (lonIndex != NetCdfUtil.NOT_FOUND) {
+					data.setValue(requestLon, lastRow - requestLat, values[offset + lonIndex]);
+				}
+			}
+		}
+
+		LOG.log(Level.FINE, "Read {0} from overview level {1} of {2}", new Object[] { parameterName,
+				level, file.getName() });
+		return true;
+	}
+
+	/**
+	 * The values of the slice at the overview level, from the sidecar of the file. The first request for a slice builds all its levels and adds
+	 * them to the sidecar, concurrent requests for the same slice wait for it.
+	 * 
+	 * @return row-major values in the order of the file, null if the file has no such level or its overviews could not be stored.
+	 */
+	private float[] getOverviewValues(NetcdfFile ncFile, String parameterName,
+			DerivedVariable derivedVariable, DimensionInfo dimensionInfo, ParamInformation paramInfo,
+			int level) throws IOException, InvalidRangeException {
+		CoordinateAxes axes = getCoordinateAxes(ncFile);
+		int levelCount = Overviews.getLevelCount(axes.lon.getSize(), axes.lat.getSize());
+		FileIndexes indexes = getFileIndexes();
+		if (level < 1 || level > levelCount || indexes.overviewsDisabled) {
+			return null;
+		}
+
+		OverviewStore store = indexes.getOverviewStore(file);
+		String key = getOverviewKey(parameterName, derivedVariable, dimensionInfo);
+		float[] values = readStoredOverview(indexes, store, key, level);
+		if (values != null || indexes.overviewsDisabled) {
+			return values;
+		}
+		synchronized (store.getBuildLock(key)) {
+			// built by another request while this one waited.
+			values = readStoredOverview(indexes, store, key, level);
+			if (values != null || indexes.overviewsDisabled) {
+				return values;
+			}
 
-		// Default indexing strategy to nearest neighbor on an ascending array.
-		IndexingStrategy indexingStrategy = new NearestNeighborAscending();
+			float[][] levels = buildOverviewLevels(ncFile, parameterName, derivedVariable,
+					dimensionInfo, paramInfo, axes, levelCount);
+			if (levels == null) {
+				return null;
+			}
+			try {
+				store.write(key, levels);
+			} catch (IOException e) {
+				// this request still gets its level.
+				disableOverviews(indexes, store, e);
+			}
+			return levels[level - 1];
+		}
+	}
 
-		if (lookupValues.getDouble(0) > lookupValues.getDouble((int) lookupValues.getSize() - 1)) {
-			// First value is greater than the last, assume the array is
-			// sorted in descending order
-			indexingStrategy = new NearestNeighborDescending();
+	/**
+	 * @return the values from the sidecar, null if they are not there or the sidecar can not be read.
+	 */
+	private float[] readStoredOverview(FileIndexes indexes, OverviewStore store, String key,
+			int level) {
+		try {
+			return store.read(key, level);
+		} catch (IOException e) {
+			disableOverviews(indexes, store, e);
+			return null;
 		}
+	}
+
+	private void disableOverviews(FileIndexes indexes, OverviewStore store, IOException e) {
+		LOG.log(Level.WARNING, "Unable to use the overviews of " + file.getAbsolutePath() + " in "
+				+ store.getSidecarFile() + ", reading the file grid from now on.", e);
+		indexes.overviewsDisabled = true;
+	}
 
-		for (int targetValueIndex = 0; targetValueIndex < targetValues.size(); targetValueIndex++) {
-			Double targetValue = targetValues.get(targetValueIndex);
+	/**
+	 * Read the whole slice from the file and average it into the overview levels.
+	 * 
+	 * @return the values of every level, level 1 first, row-major in the order of the file, null if the file has no such variable.
+	 */
+	private float[][] buildOverviewLevels(NetcdfFile ncFile, String parameterName,
+			DerivedVariable derivedVariable, DimensionInfo dimensionInfo, ParamInformation paramInfo,
+			CoordinateAxes axes, int levelCount) throws IOException, InvalidRangeException {
+		Date methodBeginDate = new Date();
+		int width = axes.lon.getSize();
+		int height = axes.lat.getSize();
+
+		// an image of the size of the file grid, read at every index.
+		ParamInformation sliceInfo = new ParamInformation();
+		sliceInfo.setParameter(parameterName);
+		sliceInfo.setTimeVariableNameInFile(paramInfo.getTimeVariableNameInFile());
+		sliceInfo.setElevationVariableNameInFile(paramInfo.getElevationVariableNameInFile());
+		sliceInfo.setRuntimeVariableNameInFile(paramInfo.getRuntimeVariableNameInFile());
+		sliceInfo.setRequestedEnvelope(getOriginalEnvelope(crs == null ? DefaultGeographicCRS.WGS84
+				: crs));
+		sliceInfo.setDim(new GridEnvelope2D(0, 0, width, height));
+		GrdDataEncapsulator sliceData = new GrdDataEncapsulator(sliceInfo);
+
+		int[] lonIndexes = new int[width];
+		for (int i = 0; i < width; i++) {
+			lonIndexes[i] = i;
+		}
+		int[] latIndexes = new int[height];
+		for (int i = 0; i < height; i++) {
+			latIndexes[i] = i;
+		}
+		if (!readParameter(ncFile, parameterName, derivedVariable, lonIndexes, latIndexes, null,
+				null, dimensionInfo, sliceInfo, sliceData)) {
+			return null;
+		}
+
+		// the image has the last latitude of the file in its first row, swap the rows into the order of the file.
+		float[] values = sliceData.getImageData();
+		float[] row = new float[width];
+		for (int top = 0, bottom = height - 1; top < bottom; top++, bottom--) {
+			System.arraycopy(values, top * width, row, 0, width);
+			System.arraycopy(values, bottom * width, values, top * width, width);
+			System.arraycopy(row, 0, values, bottom * width, width);
+		}
+
+		float[][] result = Overviews.buildLevels(values, width, height, levelCount);
+		LogUtil.logElapsedTime(LOG, methodBeginDate, file.getName() + " " + levelCount
+				+ " overview levels of " + parameterName);
+		return result;
+	}
+
+	/**
+	 * @return the key of the slice in the overview sidecar. A derived parameter is keyed by its expression too, so a new definition is built
+	 *         again.
+	 */
+	private String getOverviewKey(String parameterName, DerivedVariable derivedVariable,
+			DimensionInfo dimensionInfo) {
+		StringBuilder key = new StringBuilder(parameterName);
+		if (derivedVariable != null) {
+			key.append('=').append(derivedVariable.getExpression());
+		}
+		key.append('/').append(dimensionInfo.getRuntimeIndex());
+		key.append('/').append(dimensionInfo.getTimeIndex());
+		key.append('/').append(dimensionInfo.getElevationIndex());
+		return key.toString();
+	}
+
+	/**
+	 * The longitude and latitude axes of the overview level, computed again only when the file has changed.
+	 */
+	private CoordinateAxes getOverviewAxes(NetcdfFile ncFile, int level) throws IOException {
+		ConcurrentMap<Integer, CoordinateAxes> overviewAxes = getFileIndexes().overviewAxes;
+		CoordinateAxes axes = overviewAxes.get(level);
+		if (axes == null) {
+			CoordinateAxes fileAxes = getCoordinateAxes(ncFile);
+			axes = new CoordinateAxes(Overviews.getAxis(fileAxes.lon, level), Overviews.getAxis(
+					fileAxes.lat, level));
+			CoordinateAxes existing = overviewAxes.putIfAbsent(level, axes);
+			if (existing != null) {
+				axes = existing;
+			}
+		}
+		return axes;
+	}
+
+	/**
+	 * The time, elevation, reference time and variable domains of the file, read again only when the file has changed since they were last read.
+	 */
+	public DomainMetadata getDomainMetadata() {
+		FileIndexes indexes = getFileIndexes();
+		DomainMetadata metadata = indexes.domainMetadata;
+		if (metadata == null) {
+			metadata = readDomainMetadata(indexes);
+			if (metadata == null) {
+				return DomainMetadata.EMPTY;
+			}
+			indexes.domainMetadata = metadata;
+		}
+		return metadata;
+	}
+
+	/**
+	 * Also adds the domains to the header index, when it is of the same version of the file.
+	 * 
+	 * @return null if the file could not be read.
+	 */
+	private DomainMetadata readDomainMetadata(FileIndexes indexes) {
+		Date methodBeginDate = new Date();
+		NetcdfFile ncFile = null;
+		try {
+			ncFile = openNetCdfFile();
+
+			SortedSet<Date> times = null;
+			boolean timesRead = false;
+			try {
+				times = readTimes(ncFile, null);
+				timesRead = true;
+			} catch (IOException e) {
+				LOG.log(Level.SEVERE, "Error occurred reading times.", e);
+			}
+
+			SortedSet<Object> elevations = readElevations(ncFile);
+			List<Date> referenceTimes = getReferenceTimesInNcFile(ncFile);
+			SortedSet<String> variables = readVariables(ncFile);
+			DomainMetadata result = new DomainMetadata(times, elevations, referenceTimes,
+					variables, Boolean.getBoolean(DomainMetadata.PERIOD_ENCODING_PROPERTY));
+
+			HeaderIndex index = headerIndex;
+			if (timesRead && index != null && index.getSourceLength() == indexes.length
+					&& index.getSourceLastModified() == indexes.lastModified) {
+				writeHeaderIndex(index.withDomains(getDomainKey(), times, elevations,
+						referenceTimes, variables));
+			}
+
+			LogUtil.logElapsedTime(LOG, methodBeginDate, file.getName() + " " + result);
+			return result;
+		} catch (IOException e) {
+			LOG.log(Level.SEVERE, "Error occurred reading domains of " + file.getAbsolutePath(), e);
+			return null;
+		} finally {
+			closeNetCdfFile(ncFile);
+		}
+	}
+
+	/**
+	 * Forget the domains, for when the variable names to look for change.
+	 */
+	private void clearDomainMetadata() {
+		FileIndexes indexes = fileIndexes;
+		if (indexes != null) {
+			indexes.domainMetadata = null;
+		}
+	}
+
+	/**
+	 * The indexes of the current version of the file, a new empty set when the file has changed since they were built.
+	 */
+	private FileIndexes getFileIndexes() {
+		long lastModified = file.lastModified();
+		long length = file.length();
+		FileIndexes indexes = fileIndexes;
+		if (indexes == null || indexes.lastModified != lastModified || indexes.length != length) {
+			indexes = new FileIndexes(lastModified, length);
+			fileIndexes = indexes;
+		}
+		return indexes;
+	}
+
+	/**
+	 * The longitude and latitude axes of the file, read again only when the file has changed since they were last read.
+	 */
+	private CoordinateAxes getCoordinateAxes(NetcdfFile ncFile) throws IOException {
+		FileIndexes indexes = getFileIndexes();
+		CoordinateAxes axes = indexes.coordinateAxes;
+		if (axes == null) {
+			GridAxis lon = new GridAxis(NetCdfUtil.getXAxisVariable(ncFile).read());
+			GridAxis lat = new GridAxis(NetCdfUtil.getYAxisVariable(ncFile).read());
+			axes = new CoordinateAxes(lon, lat);
+			indexes.coordinateAxes = axes;
+
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.log(Level.FINE, "Read coordinate axes of {0}: longitude {1}, latitude {2}",
+						new Object[] { file.getAbsolutePath(), lon, lat });
+			}
+		}
+		return axes;
+	}
+
+	/**
+	 * The sorted values of a time, runtime or elevation variable, read again only when the file has changed since they were last read.
+	 */
+	private DimensionIndex getDimensionIndex(Variable variable) throws IOException {
+		ConcurrentMap<String, DimensionIndex> dimensionIndexes = getFileIndexes().dimensionIndexes;
+		DimensionIndex index = dimensionIndexes.get(variable.getName());
+		if (index == null) {
+			index = new DimensionIndex(variable.read());
+			DimensionIndex existing = dimensionIndexes.putIfAbsent(variable.getName(), index);
+			if (existing != null) {
+				index = existing;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * The values of a variable, as NetCdfUtil.getVariableCachedData gives them, read again only when the file has changed since they were last
+	 * read.
+	 */
+	private List<Object> getCachedData(Variable variable) {
+		ConcurrentMap<String, List<Object>> cachedData = getFileIndexes().cachedData;
+		List<Object> values = cachedData.get(variable.getName());
+		if (values == null) {
+			values = Collections.unmodifiableList(NetCdfUtil.getVariableCachedData(variable));
+			List<Object> existing = cachedData.putIfAbsent(variable.getName(), values);
+			if (existing != null) {
+				values = existing;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @return the request coordinates unboxed, with western longitudes converted when the file uses a (0 to 360) world grid.
+	 */
+	private double[] getTargets(List<Double> targetValues, boolean isLongitude) {
+		boolean longitudeIn0to360 = isLongitude && isLongitudeIn0to360();
+		double[] targets = new double[targetValues.size()];
+		int targetValueIndex = 0;
+		for (Double targetValue : targetValues) {
 			// If the file uses a (0 to 360) world grid and the requested point
 			// is in the western hemisphere, convert the longitude
-			if (isLongitude && isLongitudeIn0to360() && targetValues.get(targetValueIndex) < 0) {
-				targetValue += MAX_LON_360;
-			}
-
-			int lookupValueIndex = indexingStrategy.getCoordinateIndex(lookupValues, targetValue);
-
-			if (lookupValueIndex != NetCdfUtil.NOT_FOUND) {
-				desiredIndexes.put(targetValueIndex, lookupValueIndex);
-			} else if (targetValue > (MAX_LON_360 - .5) && targetValue <= MAX_LON_360) {
-				// Special case city right here. WAM files have 0 to 359 longitudes. When we try
-				// to get the pixels between -.5 and 0 in a normal system, they return NOT_FOUND
-				// since the closest value for the range (359.5, 360] is 360 and there is no 360
-				// in the file. The closest value really is 0 since the world is sphericalish
-				// and wraps around.
-
-				// Some extra logic to make sure the NetCDF is wrapping around the
-				// entire globe and starts and ends at the prime meridian
-				// before adding the extra index.
-				// This was causing a streak on the prime meridian for files
-				// that crossed the IDL but did not cover the entire globe
-				long size = lookupValues.getSize();
-				double startValue = lookupValues.getDouble(0);
-				double endValue = lookupValues.getDouble((int) (size - 1));
-				double resolution = (endValue - startValue) / (size - 1);
-
-				if (startValue == 0.0 && endValue + resolution - 360.0 == 0.0) {
-					desiredIndexes.put(targetValueIndex, 0);
+			if (longitudeIn0to360 && targetValue < 0) {
+				targets[targetValueIndex++] = targetValue + MAX_LON_360;
+			} else {
+				targets[targetValueIndex++] = targetValue;
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * @return the file index of every target value, or NetCdfUtil.NOT_FOUND where it is outside the file.
+	 */
+	private int[] getTargetIndexes(List<Double> targetValues, GridAxis lookupValues,
+			boolean isLongitude) {
+		// Some extra logic to make sure the NetCDF is wrapping around the entire globe and starts
+		// and ends at the prime meridian before wrapping longitudes around, see below.
+		int size = lookupValues.getSize();
+		boolean wrapsAround = false;
+		if (isLongitude && size > 1) {
+			double startValue = lookupValues.getValue(0);
+			double endValue = lookupValues.getValue(size - 1);
+			double resolution = (endValue - startValue) / (size - 1);
+			wrapsAround = startValue == 0.0 && endValue + resolution - 360.0 == 0.0;
+		}
+
+		// looked up together so an irregular axis is swept once instead of searched for each value.
+		double[] targets = getTargets(targetValues, isLongitude);
+		int[] desiredIndexes = lookupValues.getCoordinateIndexes(targets);
+
+		if (wrapsAround) {
+			for (int i = 0; i < desiredIndexes.length; i++) {
+				if (desiredIndexes[i] == NetCdfUtil.NOT_FOUND && targets[i] > (MAX_LON_360 - .5)
+						&& targets[i] <= MAX_LON_360) {
+					// Special case city right here. WAM files have 0 to 359 longitudes. When we try
+					// to get the pixels between -.5 and 0 in a normal system, they return NOT_FOUND
+					// since the closest value for the range (359.5, 360] is 360 and there is no 360
+					// in the file. The closest value really is 0 since the world is sphericalish
+					// and wraps around.
+
+					// This was causing a streak on the prime meridian for files
+					// that crossed the IDL but did not cover the entire globe
+					desiredIndexes[i] = 0;
 				}
 			}
 		}
@@ -1685,13 +2656,75 @@ public class NetCDFFileInspector {
 		return new float[] { min, max };
 	}
 
+	/**
+	 * Handles come from the shared {@link NetCDFFileCache}, they must be given back with {@link #closeNetCdfFile(NetcdfFile)}.
+	 */
+	private NetcdfFile openNetCdfFile() throws IOException {
+		return NetCDFFileCache.getInstance().acquire(file);
+	}
+
 	private void closeNetCdfFile(NetcdfFile file) {
-		if (file != null) {
-			try {
-				file.close();
-			} catch (IOException e) {
-				LOG.log(Level.SEVERE, "Close NetCDF file: " + e.getMessage(), e);
+		NetCDFFileCache.getInstance().release(file);
+	}
+
+	/**
+	 * The indexes built from one version of the file.
+	 */
+	private static final class FileIndexes {
+		private final long lastModified;
+
+		private final long length;
+
+		private volatile CoordinateAxes coordinateAxes;
+
+		private volatile DomainMetadata domainMetadata;
+
+		/**
+		 * by variable name.
+		 */
+		private final ConcurrentMap<String, DimensionIndex> dimensionIndexes = new ConcurrentHashMap<String, DimensionIndex>();
+
+		/**
+		 * by variable name.
+		 */
+		private final ConcurrentMap<String, List<Object>> cachedData = new ConcurrentHashMap<String, List<Object>>();
+
+		/**
+		 * by overview level.
+		 */
+		private final ConcurrentMap<Integer, CoordinateAxes> overviewAxes = new ConcurrentHashMap<Integer, CoordinateAxes>();
+
+		private OverviewStore overviewStore;
+
+		/**
+		 * set when the overview sidecar can not be used, requests then read the file grid.
+		 */
+		private volatile boolean overviewsDisabled;
+
+		private FileIndexes(long lastModified, long length) {
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		private synchronized OverviewStore getOverviewStore(File file) {
+			if (overviewStore == null) {
+				overviewStore = OverviewStore.getInstance(file, length, lastModified);
 			}
+			return overviewStore;
+		}
+	}
+
+	/**
+	 * The longitude and latitude axes of one version of the file.
+	 */
+	private static final class CoordinateAxes {
+		private final GridAxis lon;
+
+		private final GridAxis lat;
+
+		private CoordinateAxes(GridAxis lon, GridAxis lat) {
+			this.lon = lon;
+			this.lat = lat;
 		}
 	}
 
@@ -0,0 +1,282 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.index;
+
+import java.util.Arrays;
+
+import org.geotools.gce.netcdf.NetCdfUtil;
+
+import ucar.ma2.Array;
+
+/**
+ * The values of a time, elevation or other dimension variable copied out of the NetCDF file and sorted, to find the slice of a value without
+ * scanning the variable. Handles one dimensional variables, like time(time) or depth(depth), and two dimensional ones, like time(runtime, time) in
+ * forecast files, where each row holds the valid times of one runtime.
+ *
+ * Lookups return positions in the variable in row-major order, which are the indices themselves for a one dimensional variable. Values are compared
+ * like {@link Double#equals(Object)} does, so an exact lookup matches what a scan with boxed Doubles matched.
+ */
+public final class DimensionIndex {
+
+    private final int rank;
+
+    private final int columnCount;
+
+    /**
+     * values in row-major order.
+     */
+    private final double[] values;
+
+    /**
+     * positions of the values sorted by value, and by position for equal values.
+     */
+    private final int[] sortedPositions;
+
+    /**
+     * values[sortedPositions[i]], for the binary searches.
+     */
+    private final double[] sortedValues;
+
+    /**
+     * number of values that are not NaN, which sort last.
+     */
+    private final int numberCount;
+
+    /**
+     * largest value of each row, NaN for a row without values.
+     */
+    private final double[] rowMaximums;
+
+    /**
+     * @param array - values of the dimension variable.
+     */
+    public DimensionIndex(Array array) {
+        int[] shape = array.getShape();
+        this.rank = shape.length;
+        this.values = new double[(int) array.getSize()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.getDouble(i);
+        }
+        int rowCount = rank < 2 || shape[0] == 0 ? values.length : shape[0];
+        this.columnCount = rowCount == 0 ? 1 : values.length / rowCount;
+
+        this.sortedPositions = new int[values.length];
+        for (int i = 0; i < sortedPositions.length; i++) {
+            sortedPositions[i] = i;
+        }
+        sortPositions(sortedPositions, new int[sortedPositions.length], 0, sortedPositions.length);
+        this.sortedValues = new double[values.length];
+        int numbers = 0;
+        for (int i = 0; i < sortedValues.length; i++) {
+            sortedValues[i] = values[sortedPositions[i]];
+            if (!Double.isNaN(sortedValues[i])) {
+                numbers++;
+            }
+        }
+        this.numberCount = numbers;
+
+        this.rowMaximums = new double[rowCount];
+        Arrays.fill(rowMaximums, Double.NaN);
+        for (int i = 0; i < values.length; i++) {
+            int row = getRow(i);
+            if (!Double.isNaN(values[i])
+                    && (Double.isNaN(rowMaximums[row]) || values[i] > rowMaximums[row])) {
+                rowMaximums[row] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Stable merge sort of the positions by value. The positions start in ascending order, so equal values stay sorted by position.
+     */
+    private void sortPositions(int[] positions, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortPositions(positions, buffer, from, middle);
+        sortPositions(positions, buffer, middle, to);
+        if (Double.compare(values[positions[middle - 1]], values[positions[middle]]) <= 0) {
+            return;
+        }
+        System.arraycopy(positions, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to
+                    || (left < middle && Double.compare(values[buffer[left]],
+                            values[buffer[right]]) <= 0)) {
+                positions[i] = buffer[left++];
+            } else {
+                positions[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * index in sortedValues of the first value not less than the given one.
+     */
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(sortedValues[middle], value) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * index in sortedValues of the first value greater than the given one.
+     */
+    private int upperBound(double value) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(sortedValues[middle], value) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return position of the first occurrence of the value, or {@link NetCdfUtil#NOT_FOUND}.
+     */
+    public int findFirst(double value) {
+        int lower = lowerBound(value);
+        if (lower < sortedValues.length && Double.compare(sortedValues[lower], value) == 0) {
+            return sortedPositions[lower];
+        }
+        return NetCdfUtil.NOT_FOUND;
+    }
+
+    /**
+     * @return position of the last occurrence of the value, or {@link NetCdfUtil#NOT_FOUND}.
+     */
+    public int findLast(double value) {
+        int upper = upperBound(value);
+        if (upper > 0 && Double.compare(sortedValues[upper - 1], value) == 0) {
+            return sortedPositions[upper - 1];
+        }
+        return NetCdfUtil.NOT_FOUND;
+    }
+
+    /**
+     * @return position of the last occurrence of the value in the row, or {@link NetCdfUtil#NOT_FOUND}.
+     */
+    public int findLastInRow(double value, int row) {
+        int lower = lowerBound(value);
+        for (int i = upperBound(value) - 1; i >= lower; i--) {
+            if (getRow(sortedPositions[i]) == row) {
+                return sortedPositions[i];
+            }
+        }
+        return NetCdfUtil.NOT_FOUND;
+    }
+
+    /**
+     * @return position of the first occurrence of the value closest to the given one, the lower one of two equally close values, or
+     *         {@link NetCdfUtil#NOT_FOUND} if there are no values.
+     */
+    public int findNearest(double value) {
+        if (numberCount == 0 || Double.isNaN(value)) {
+            return NetCdfUtil.NOT_FOUND;
+        }
+        int lower = lowerBound(value);
+        if (lower == numberCount) {
+            return findFirst(sortedValues[numberCount - 1]);
+        }
+        if (lower == 0 || value - sortedValues[lower - 1] > sortedValues[lower] - value) {
+            return sortedPositions[lower];
+        }
+        return findFirst(sortedValues[lower - 1]);
+    }
+
+    /**
+     * @return positions, in ascending order, of all values from minimum to maximum inclusive.
+     */
+    public int[] findInterval(double minimum, double maximum) {
+        int lower = lowerBound(minimum);
+        int upper = Math.max(lower, upperBound(maximum));
+        int[] result = Arrays.copyOfRange(sortedPositions, lower, upper);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return largest value in the row, or NaN if the row has no values.
+     */
+    public double getMaximum(int row) {
+        if (row < 0 || row >= rowMaximums.length) {
+            return Double.NaN;
+        }
+        return rowMaximums[row];
+    }
+
+    /**
+     * @return the values without duplicates, in ascending order.
+     */
+    public double[] getDistinctValues() {
+        double[] result = new double[sortedValues.length];
+        int count = 0;
+        for (double value : sortedValues) {
+            if (count == 0 || Double.compare(result[count - 1], value) != 0) {
+                result[count++] = value;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public double getValue(int position) {
+        return values[position];
+    }
+
+    /**
+     * @return index along the first dimension of the position.
+     */
+    public int getRow(int position) {
+        return position / columnCount;
+    }
+
+    /**
+     * @return index along the second dimension of the position, 0 for a one dimensional variable.
+     */
+    public int getColumn(int position) {
+        return position % columnCount;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getSize() {
+        return values.length;
+    }
+
+    @Override
+    public String toString() {
+        return "DimensionIndex [rank=" + rank + ", " + values.length + " values]";
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.index;
+
+import org.geotools.gce.netcdf.NetCdfUtil;
+
+import ucar.ma2.Array;
+
+/**
+ * The values of a one dimensional, ascending or descending, coordinate variable copied out of the NetCDF file, for repeated nearest neighbor
+ * lookups. The index of a coordinate is computed directly when the values are evenly spaced, and found with a binary search when they are not,
+ * or with a sweep from the previous index for the coordinates of a request, see {@link #getCoordinateIndexes(double[])}.
+ *
+ * Gives the same indices as {@link NearestNeighborAscending} and {@link NearestNeighborDescending}: a coordinate beyond either end of the axis
+ * still belongs to the end value when within half the spacing of the first two values, and a coordinate halfway between two values belongs to the
+ * lower index.
+ */
+public final class GridAxis {
+
+    /**
+     * Largest difference, relative to the average spacing, between a spacing and the average for the axis to count as evenly spaced.
+     */
+    private static final double REGULAR_TOLERANCE = 1.0e-5;
+
+    private final double[] values;
+
+    private final boolean descending;
+
+    private final boolean regular;
+
+    /**
+     * average spacing, negative on a descending axis.
+     */
+    private final double resolution;
+
+    /**
+     * half the spacing of the first two values, how far beyond the ends a coordinate still belongs to the end value.
+     */
+    private final double edgeTolerance;
+
+    /**
+     * @param coordinates - one dimensional Array of the coordinate values, sorted ascending or descending.
+     */
+    public GridAxis(Array coordinates) {
+        this(copy(coordinates));
+    }
+
+    /**
+     * @param values - coordinate values sorted ascending or descending, not copied.
+     */
+    public GridAxis(double[] values) {
+        this.values = values;
+
+        int last = values.length - 1;
+        this.descending = last > 0 && values[0] > values[last];
+        this.resolution = last > 0 ? (values[last] - values[0]) / last : 0;
+        this.edgeTolerance = last > 0 ? Math.abs(values[0] - values[1]) / 2 : 0;
+
+        boolean evenlySpaced = last > 0;
+        for (int i = 0; i < last && evenlySpaced; i++) {
+            double spacing = values[i + 1] - values[i];
+            evenlySpaced = Math.abs(spacing - resolution) <= Math.abs(resolution)
+                    * REGULAR_TOLERANCE;
+        }
+        this.regular = evenlySpaced;
+    }
+
+    private static double[] copy(Array coordinates) {
+        double[] result = new double[(int) coordinates.getSize()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = coordinates.getDouble(i);
+        }
+        return result;
+    }
+
+    /**
+     * Find the index of the value closest to the coordinate.
+     *
+     * @param coordinate
+     * @return the index, or {@link NetCdfUtil#NOT_FOUND} if the coordinate is outside the axis.
+     */
+    public int getCoordinateIndex(double coordinate) {
+        return getCoordinateIndex(coordinate, NetCdfUtil.NOT_FOUND);
+    }
+
+    /**
+     * Find the index of the value closest to each coordinate, as {@link #getCoordinateIndex(double)} does. On an irregular axis the search for
+     * each coordinate starts from the index of the previous one, so the evenly spaced, sorted coordinates of a request are found in a single
+     * sweep along the axis instead of a binary search each.
+     *
+     * @return the index of each coordinate, {@link NetCdfUtil#NOT_FOUND} where it is outside the axis.
+     */
+    public int[] getCoordinateIndexes(double[] coordinates) {
+        int[] result = new int[coordinates.length];
+        int previous = NetCdfUtil.NOT_FOUND;
+        for (int i = 0; i < coordinates.length; i++) {
+            result[i] = getCoordinateIndex(coordinates[i], previous);
+            if (result[i] != NetCdfUtil.NOT_FOUND) {
+                previous = result[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the fractional index of each coordinate between the values around it, for {@link InterpolationKernel}: 2.25 is a quarter of the way from
+     * the value at index 2 to the value at index 3. A coordinate beyond either end of the axis, but within the tolerance
+     * {@link #getCoordinateIndex(double)} allows, is at the end value. The values are swept along as in {@link #getCoordinateIndexes(double[])}.
+     *
+     * @return the fractional index of each coordinate, NaN where it is outside the axis.
+     */
+    public double[] getCoordinatePositions(double[] coordinates) {
+        double[] result = new double[coordinates.length];
+        int last = values.length - 1;
+        int lowIndex = descending ? last : 0;
+        int highIndex = descending ? 0 : last;
+        int previous = NetCdfUtil.NOT_FOUND;
+        for (int i = 0; i < coordinates.length; i++) {
+            double coordinate = coordinates[i];
+            if (last < 0 || Double.isNaN(coordinate)) {
+                result[i] = Double.NaN;
+            } else if (last == 0) {
+                result[i] = coordinate == values[0] ? 0 : Double.NaN;
+            } else if (coordinate < values[lowIndex]) {
+                result[i] = values[lowIndex] - coordinate < edgeTolerance ? lowIndex : Double.NaN;
+            } else if (coordinate > values[highIndex]) {
+                result[i] = coordinate - values[highIndex] <= edgeTolerance ? highIndex
+                        : Double.NaN;
+            } else {
+                int index;
+                if (regular) {
+                    index = (int) Math.floor((coordinate - values[0]) / resolution);
+                    index = Math.max(0, index);
+                } else if (previous == NetCdfUtil.NOT_FOUND) {
+                    index = binarySearch(coordinate);
+                } else {
+                    index = sweep(coordinate, previous);
+                }
+                index = Math.min(last - 1, index);
+                previous = index;
+                double fraction = (coordinate - values[index]) / (values[index + 1] - values[index]);
+                result[i] = index + Math.min(1, Math.max(0, fraction));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param start - index to sweep from to the coordinate on an irregular axis, NOT_FOUND for a binary search.
+     */
+    private int getCoordinateIndex(double coordinate, int start) {
+        int last = values.length - 1;
+        if (last < 0 || Double.isNaN(coordinate)) {
+            return NetCdfUtil.NOT_FOUND;
+        }
+        if (last == 0) {
+            return coordinate == values[0] ? 0 : NetCdfUtil.NOT_FOUND;
+        }
+
+        int lowIndex = descending ? last : 0;
+        int highIndex = descending ? 0 : last;
+        if (coordinate < values[lowIndex]) {
+            return values[lowIndex] - coordinate < edgeTolerance ? lowIndex : NetCdfUtil.NOT_FOUND;
+        }
+        if (coordinate > values[highIndex]) {
+            return coordinate - values[highIndex] <= edgeTolerance ? highIndex
+                    : NetCdfUtil.NOT_FOUND;
+        }
+
+        // index of a value next to the coordinate, the closest of its neighbors is the answer.
+        int index;
+        if (regular) {
+            index = (int) Math.floor((coordinate - values[0]) / resolution);
+        } else if (start == NetCdfUtil.NOT_FOUND) {
+            index = binarySearch(coordinate);
+        } else {
+            index = sweep(coordinate, start);
+        }
+        int from = Math.max(0, index - 1);
+        int to = Math.min(last, index + 2);
+
+        int closest = from;
+        double closestDistance = Math.abs(coordinate - values[from]);
+        for (int i = from + 1; i <= to; i++) {
+            double distance = Math.abs(coordinate - values[i]);
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * The largest index whose value is not past the coordinate, in the sort order of the axis.
+     */
+    private int binarySearch(double coordinate) {
+        int low = 0;
+        int high = values.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (descending ? values[middle] >= coordinate : values[middle] <= coordinate) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The largest index whose value is not past the coordinate, as {@link #binarySearch(double)} gives it, walking from the start index.
+     */
+    private int sweep(double coordinate, int start) {
+        int index = start;
+        while (index < values.length - 1 && !isPast(values[index + 1], coordinate)) {
+            index++;
+        }
+        while (index > 0 && isPast(values[index], coordinate)) {
+            index--;
+        }
+        return index;
+    }
+
+    private boolean isPast(double value, double coordinate) {
+        return descending ? value < coordinate : value > coordinate;
+    }
+
+    public int getSize() {
+        return values.length;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return whether the values are evenly spaced, so indices are computed instead of searched.
+     */
+    public boolean isRegular() {
+        return regular;
+    }
+
+    /**
+     * @return the average spacing of the values, negative on a descending axis.
+     */
+    public double getResolution() {
+        return resolution;
+    }
+
+    @Override
+    public String toString() {
+        String range = "";
+        if (values.length > 0) {
+            range = " from " + values[0] + " to " + values[values.length - 1];
+        }
+        return "GridAxis [" + values.length + " values" + range + (regular ? ", regular" : "")
+                + "]";
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.index;
+
+/**
+ * How the value at a position between the values of the file is computed, from the fractional position {@link GridAxis#getCoordinatePositions}
+ * gives along each axis.
+ *
+ * A kernel weighs the {@link #getSupport()} values of an axis starting {@link #getOffset()} values before the value at or before the position,
+ * the weights of the two axes of a grid multiplied together.
+ */
+public enum InterpolationKernel {
+
+    /**
+     * the value closest to the position, as the {@link IndexingStrategy} implementations find it.
+     */
+    NEAREST(0, 1),
+
+    /**
+     * linear between the two values around the position.
+     */
+    BILINEAR(0, 2),
+
+    /**
+     * cubic convolution of the four values around the position, with a = -0.5 as for JAI InterpolationBicubic.
+     */
+    BICUBIC(-1, 4);
+
+    private static final double CUBIC_A = -0.5;
+
+    private final int offset;
+
+    private final int support;
+
+    private InterpolationKernel(int offset, int support) {
+        this.offset = offset;
+        this.support = support;
+    }
+
+    /**
+     * @return the index of the first value weighed, relative to the value at or before the position.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of values weighed along an axis.
+     */
+    public int getSupport() {
+        return support;
+    }
+
+    /**
+     * Compute the weights of the values around a position.
+     *
+     * @param fraction - the distance of the position from the value at or before it, in [0, 1].
+     * @param weights - receives the {@link #getSupport()} weights, from weights[start], summing to 1.
+     */
+    public void getWeights(double fraction, double[] weights, int start) {
+        switch (this) {
+        case NEAREST:
+            weights[start] = 1;
+            break;
+        case BILINEAR:
+            weights[start] = 1 - fraction;
+            weights[start + 1] = fraction;
+            break;
+        default:
+            weights[start] = cubic(1 + fraction);
+            weights[start + 1] = cubic(fraction);
+            weights[start + 2] = cubic(1 - fraction);
+            weights[start + 3] = cubic(2 - fraction);
+            break;
+        }
+    }
+
+    /**
+     * Keys' cubic convolution kernel at a distance from 0 to 2.
+     */
+    private static double cubic(double distance) {
+        double x = Math.abs(distance);
+        if (x <= 1) {
+            return ((CUBIC_A + 2) * x - (CUBIC_A + 3)) * x * x + 1;
+        }
+        if (x < 2) {
+            return ((CUBIC_A * x - 5 * CUBIC_A) * x + 8 * CUBIC_A) * x - 4 * CUBIC_A;
+        }
+        return 0;
+    }
+}
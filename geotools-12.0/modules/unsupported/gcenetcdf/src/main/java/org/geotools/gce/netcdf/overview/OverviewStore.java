@@ -0,0 +1,321 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.overview;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * The overview levels of one version of a NetCDF file, kept in a sidecar file next to it (file.nc.ovr) so they are built once and survive
+ * restarts. Holds one record per level of every parameter and slice (reference time, time and elevation) built so far.
+ *
+ * The sidecar starts with the length and modification time of the NetCDF file it was built from, and is emptied when they do not match the
+ * file any more. Records are only appended, under a file lock, so readers in other JVMs sharing the data directory see them too.
+ *
+ * There is one store per sidecar and version in a JVM, from {@link #getInstance(File, long, long)}, so that all the readers of a file share
+ * its build locks.
+ */
+public final class OverviewStore {
+
+    private static final Logger LOG = Logging.getLogger(OverviewStore.class);
+
+    /**
+     * suffix of the sidecar file name, after the NetCDF file name.
+     */
+    public static final String SUFFIX = ".ovr";
+
+    private static final int MAGIC = 0x4e434f56;
+
+    private static final int VERSION = 1;
+
+    /**
+     * magic, version, source length and source modification time.
+     */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8;
+
+    /**
+     * the store of the last version asked for of every sidecar, by canonical path.
+     */
+    private static final ConcurrentMap<String, OverviewStore> STORES = new ConcurrentHashMap<String, OverviewStore>();
+
+    /**
+     * held while the sidecar is locked, by canonical path: file locks are held by the whole JVM, so stores of two versions of a file must not
+     * ask for them at the same time.
+     */
+    private static final ConcurrentMap<String, Object> SIDECAR_LOCKS = new ConcurrentHashMap<String, Object>();
+
+    private final File sidecar;
+
+    private final String sidecarPath;
+
+    private final long sourceLength;
+
+    private final long sourceLastModified;
+
+    /**
+     * position of the values of every record read so far, by slice key and level.
+     */
+    private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<String, Record>();
+
+    private final ConcurrentMap<String, Object> buildLocks = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * how far the sidecar has been indexed.
+     */
+    private volatile long indexedLength = HEADER_LENGTH;
+
+    /**
+     * @param source - the NetCDF file.
+     * @param sourceLength - length of the version of the file the overviews are of.
+     * @param sourceLastModified - modification time of the version of the file the overviews are of.
+     */
+    OverviewStore(File source, long sourceLength, long sourceLastModified) {
+        this.sidecar = getSidecarFile(source);
+        this.sidecarPath = getCanonicalPath(sidecar);
+        this.sourceLength = sourceLength;
+        this.sourceLastModified = sourceLastModified;
+    }
+
+    /**
+     * @param source - the NetCDF file.
+     * @param sourceLength - length of the version of the file the overviews are of.
+     * @param sourceLastModified - modification time of the version of the file the overviews are of.
+     * @return the store of the sidecar of the file in this JVM, replacing the store of another version.
+     */
+    public static OverviewStore getInstance(File source, long sourceLength, long sourceLastModified) {
+        OverviewStore created = new OverviewStore(source, sourceLength, sourceLastModified);
+        while (true) {
+            OverviewStore store = STORES.get(created.sidecarPath);
+            if (store != null && store.sourceLength == sourceLength
+                    && store.sourceLastModified == sourceLastModified) {
+                return store;
+            }
+            if (store == null ? STORES.putIfAbsent(created.sidecarPath, created) == null : STORES
+                    .replace(created.sidecarPath, store, created)) {
+                return created;
+            }
+        }
+    }
+
+    private static String getCanonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static Object getSidecarLock(String path) {
+        Object lock = new Object();
+        Object existing = SIDECAR_LOCKS.putIfAbsent(path, lock);
+        return existing == null ? lock : existing;
+    }
+
+    public static File getSidecarFile(File source) {
+        return new File(source.getPath() + SUFFIX);
+    }
+
+    public File getSidecarFile() {
+        return sidecar;
+    }
+
+    /**
+     * @return the values of the slice at the level, row-major in the order of the file, or null if they have not been built.
+     */
+    public float[] read(String key, int level) throws IOException {
+        Record record = records.get(getRecordKey(key, level));
+        if (record == null && sidecar.length() > indexedLength) {
+            // appended since last looked at, maybe by another JVM.
+            refresh();
+            record = records.get(getRecordKey(key, level));
+        }
+        if (record == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(record.count * 4);
+        RandomAccessFile input = new RandomAccessFile(sidecar, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            long position = record.position;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Overview record of " + key + " truncated in "
+                            + sidecar);
+                }
+                position += read;
+            }
+        } finally {
+            input.close();
+        }
+        buffer.flip();
+        float[] result = new float[record.count];
+        buffer.asFloatBuffer().get(result);
+        return result;
+    }
+
+    /**
+     * Append the levels of a slice to the sidecar, creating it or emptying it first if it is of another version of the NetCDF file. They are
+     * not stored when the sidecar is locked by another class loader of this JVM, the next request for the slice builds them again.
+     *
+     * @param levels - the values of every level, level 1 first, as {@link Overviews#buildLevels(float[], int, int, int)} gives them.
+     */
+    public synchronized void write(String key, float[][] levels) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (int level = 1; level <= levels.length; level++) {
+            float[] values = levels[level - 1];
+            output.writeUTF(key);
+            output.writeInt(level);
+            output.writeInt(values.length);
+            for (float value : values) {
+                output.writeFloat(value);
+            }
+        }
+        output.flush();
+
+        synchronized (getSidecarLock(sidecarPath)) {
+            writeRecords(key, levels.length, bytes.toByteArray());
+        }
+    }
+
+    private void writeRecords(String key, int levelCount, byte[] bytes) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(sidecar, "rw");
+        try {
+            FileLock lock;
+            try {
+                lock = file.getChannel().lock();
+            } catch (OverlappingFileLockException e) {
+                LOG.log(Level.FINE, "Not storing the overview levels of {0}, {1} is locked elsewhere in this JVM",
+                        new Object[] { key, sidecar });
+                return;
+            }
+            try {
+                if (!hasCurrentHeader(file)) {
+                    file.setLength(0);
+                    file.writeInt(MAGIC);
+                    file.writeInt(VERSION);
+                    file.writeLong(sourceLength);
+                    file.writeLong(sourceLastModified);
+                    records.clear();
+                    indexedLength = HEADER_LENGTH;
+                }
+                // index what other writers appended, and drop a record cut short.
+                index(file);
+                file.setLength(indexedLength);
+                file.seek(indexedLength);
+                file.write(bytes);
+                index(file);
+            } finally {
+                lock.release();
+            }
+        } finally {
+            file.close();
+        }
+        LOG.log(Level.FINE, "Wrote {0} overview levels of {1} to {2}", new Object[] {
+                levelCount, key, sidecar });
+    }
+
+    /**
+     * @return the lock to hold while building the levels of a slice, so concurrent requests build them only once.
+     */
+    public Object getBuildLock(String key) {
+        Object lock = new Object();
+        Object existing = buildLocks.putIfAbsent(key, lock);
+        return existing == null ? lock : existing;
+    }
+
+    private synchronized void refresh() throws IOException {
+        if (!sidecar.exists()) {
+            return;
+        }
+        RandomAccessFile file = new RandomAccessFile(sidecar, "r");
+        try {
+            if (hasCurrentHeader(file)) {
+                index(file);
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private boolean hasCurrentHeader(RandomAccessFile file) throws IOException {
+        if (file.length() < HEADER_LENGTH) {
+            return false;
+        }
+        file.seek(0);
+        return file.readInt() == MAGIC && file.readInt() == VERSION
+                && file.readLong() == sourceLength && file.readLong() == sourceLastModified;
+    }
+
+    /**
+     * Index the records past indexedLength. A record cut short, by a writer that died, ends the index.
+     */
+    private void index(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        file.seek(indexedLength);
+        while (file.getFilePointer() < length) {
+            try {
+                String key = file.readUTF();
+                int level = file.readInt();
+                int count = file.readInt();
+                long position = file.getFilePointer();
+                if (count < 0 || position + count * 4L > length) {
+                    break;
+                }
+                records.put(getRecordKey(key, level), new Record(position, count));
+                file.seek(position + count * 4L);
+                indexedLength = file.getFilePointer();
+            } catch (EOFException e) {
+                break;
+            }
+        }
+    }
+
+    private static String getRecordKey(String key, int level) {
+        return key + "#" + level;
+    }
+
+    /**
+     * where the values of one level of one slice are in the sidecar.
+     */
+    private static final class Record {
+        private final long position;
+
+        private final int count;
+
+        private Record(long position, int count) {
+            this.position = position;
+            this.count = count;
+        }
+    }
+}
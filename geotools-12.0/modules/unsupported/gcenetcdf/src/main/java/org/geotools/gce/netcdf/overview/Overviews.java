@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.overview;
+
+import org.geotools.gce.netcdf.index.GridAxis;
+
+/**
+ * The overview levels of a NetCDF grid. Level 0 is the grid of the file, every following level halves the number of longitudes and latitudes by
+ * averaging blocks of 2 by 2 values of the level before, ignoring missing (NaN) values. An odd last column or row is averaged on its own.
+ *
+ * Off by default: the {@link #LEVELS_KEY} system property sets how many levels below the file grid the readers offer.
+ */
+public final class Overviews {
+
+    /**
+     * System property holding the number of overview levels, 0 (the default) for none.
+     */
+    public static final String LEVELS_KEY = "org.geotools.gce.netcdf.overview.levels";
+
+    /**
+     * smallest number of longitudes or latitudes of an overview level.
+     */
+    private static final int MIN_OVERVIEW_SIZE = 2;
+
+    private Overviews() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return the number of overview levels for a grid of the given size: {@link #LEVELS_KEY}, less the levels that would be smaller than 2 by 2.
+     */
+    public static int getLevelCount(int width, int height) {
+        int levels = Integer.getInteger(LEVELS_KEY, 0);
+        int result = 0;
+        while (result < levels && getSize(width, result + 1) >= MIN_OVERVIEW_SIZE
+                && getSize(height, result + 1) >= MIN_OVERVIEW_SIZE) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of values along an axis of the given size at the level.
+     */
+    public static int getSize(int size, int level) {
+        return (int) (((long) size + (1L << level) - 1) >> level);
+    }
+
+    /**
+     * Average the grid level by level.
+     *
+     * @param values - row-major values of the file grid, not changed.
+     * @param levelCount - number of overview levels to compute.
+     * @return the values of every overview level, level 1 first.
+     */
+    public static float[][] buildLevels(float[] values, int width, int height, int levelCount) {
+        float[][] result = new float[levelCount][];
+        float[] previous = values;
+        for (int level = 1; level <= levelCount; level++) {
+            previous = average(previous, getSize(width, level - 1), getSize(height, level - 1));
+            result[level - 1] = previous;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values of the next level, the mean of the valid values of every 2 by 2 block, NaN for a block without any.
+     */
+    static float[] average(float[] values, int width, int height) {
+        int averageWidth = getSize(width, 1);
+        int averageHeight = getSize(height, 1);
+        float[] result = new float[averageWidth * averageHeight];
+        for (int y = 0; y < averageHeight; y++) {
+            int firstRow = 2 * y;
+            int lastRow = Math.min(firstRow + 1, height - 1);
+            for (int x = 0; x < averageWidth; x++) {
+                int firstColumn = 2 * x;
+                int lastColumn = Math.min(firstColumn + 1, width - 1);
+                double sum = 0;
+                int count = 0;
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        float value = values[row * width + column];
+                        if (!Float.isNaN(value)) {
+                            sum += value;
+                            count++;
+                        }
+                    }
+                }
+                result[y * averageWidth + x] = count == 0 ? Float.NaN : (float) (sum / count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the coordinates of the level, each the mean of the coordinates of the file grid it covers, averaged like the values.
+     */
+    public static GridAxis getAxis(GridAxis axis, int level) {
+        double[] values = new double[axis.getSize()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = axis.getValue(i);
+        }
+        for (int i = 0; i < level; i++) {
+            double[] next = new double[getSize(values.length, 1)];
+            for (int j = 0; j < next.length; j++) {
+                int last = Math.min(2 * j + 1, values.length - 1);
+                next[j] = (values[2 * j] + values[last]) / 2;
+            }
+            values = next;
+        }
+        return new GridAxis(values);
+    }
+}
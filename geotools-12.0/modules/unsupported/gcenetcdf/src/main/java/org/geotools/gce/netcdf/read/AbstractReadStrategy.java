@@ -17,6 +17,7 @@
 package org.geotools.gce.netcdf.read;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +31,8 @@ import org.geotools.util.logging.Logging;
 import ucar.ma2.Array;
 import ucar.ma2.Index;
 import ucar.ma2.InvalidRangeException;
-import ucar.nc2.Attribute;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
 import ucar.nc2.Dimension;
 import ucar.nc2.Variable;
 
@@ -45,13 +47,7 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
 
     protected Variable variable;
 
-    private float scaleFactor = 1.0f;
-
-    private float addOffset = 0.0f;
-
-    private float missingValue = Float.NaN;
-
-    private float fillValue = Float.NaN;
+    private PackingAttributes packing = PackingAttributes.NONE;
 
     private int elevationIndex = -1;
 
@@ -65,6 +61,8 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
 
     private String runtimeVariableNameInFile = null;
 
+    private long maxBytesPerRead = Long.MAX_VALUE;
+
     /**
      * Create a String that will be used as the parameter to the Variable.read() method. The String is a comma delimited list where each element
      * represents a Dimension on the Variable. Each Dimension element can be a single index or a colon-separated range of indices.
@@ -114,6 +112,83 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
         return readParameter.toString();
     }
 
+    /**
+     * Create the Section that will be used as the parameter to the Variable.read() method. Same as getReadParameter, but without building and
+     * parsing a String, and with strided longitude and latitude ranges.
+     * 
+     * @param longitudeRange
+     * @param latitudeRange
+     * @return Section
+     * @throws InvalidRangeException
+     */
+    protected Section getReadSection(Range longitudeRange, Range latitudeRange)
+            throws InvalidRangeException {
+        List<Dimension> dimensions = variable.getDimensions();
+        List<Range> ranges = new ArrayList<Range>(dimensions.size());
+
+        for (int dimensionIndex = 0; dimensionIndex < dimensions.size(); dimensionIndex++) {
+            if (dimensionIndex == getLongitudeDimensionIndex()) {
+                ranges.add(longitudeRange);
+            } else if (dimensionIndex == getLatitudeDimensionIndex()) {
+                ranges.add(latitudeRange);
+            } else if (dimensionIndex == getTimeDimensionIndex()) {
+                ranges.add(new Range(timeIndex, timeIndex));
+            } else if (dimensionIndex == getElevationDimensionIndex()) {
+                ranges.add(new Range(elevationIndex, elevationIndex));
+            } else if (dimensionIndex == getRuntimeDimensionIndex()) {
+                ranges.add(new Range(runtimeIndex, runtimeIndex));
+            } else {
+                if (LOG.isLoggable(Level.SEVERE)) {
+                    LOG.log(Level.SEVERE,
+                            "Encountered an unexpected dimension [{0}] for this Variable [{1}].",
+                            new Object[] { dimensions.get(dimensionIndex), variable });
+                }
+                ranges.add(new Range(0, 0));
+            }
+        }
+
+        return new Section(ranges);
+    }
+
+    /**
+     * Read the Variable from the NetCDF file, recording the bytes read in the {@link ReadMetrics}.
+     * 
+     * @param section - String from getReadParameter.
+     * @return Array
+     * @throws IOException
+     * @throws InvalidRangeException
+     */
+    protected Array read(String section) throws IOException, InvalidRangeException {
+        Array array = variable.read(section);
+        ReadMetrics.getInstance().recordRead(array.getSizeBytes());
+        return array;
+    }
+
+    /**
+     * Read the Variable from the NetCDF file, recording the bytes read in the {@link ReadMetrics}.
+     * 
+     * @param section - Section from getReadSection.
+     * @return Array
+     * @throws IOException
+     * @throws InvalidRangeException
+     */
+    protected Array read(Section section) throws IOException, InvalidRangeException {
+        Array array = variable.read(section);
+        ReadMetrics.getInstance().recordRead(array.getSizeBytes());
+        return array;
+    }
+
+    /**
+     * Number of latitude rows of the given width one read may return within {@link #getMaxBytesPerRead()}, at least 1.
+     * 
+     * @param longitudeCount - number of longitudes in each row read.
+     * @return int
+     */
+    protected int getRowsPerRead(int longitudeCount) {
+        return new ReadCostModel(variable.getElementSize()).getRowsWithinBudget(longitudeCount,
+                maxBytesPerRead);
+    }
+
     /**
      * Create a new Index object to pull a Variable value for a specific coordinate from the Array returned by the Variable.read() method call.
      * 
@@ -148,7 +223,7 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
      * @return float
      */
     protected float getAdjustedValue(float value) {
-        return (value * scaleFactor) + addOffset;
+        return packing.getAdjustedValue(value);
     }
 
     /**
@@ -158,7 +233,7 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
      * @return boolean
      */
     protected boolean isMissingValue(float value) {
-        return Math.abs(value - missingValue) < .0000001;
+        return packing.isMissingValue(value);
     }
 
     /**
@@ -168,7 +243,46 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
      * @return boolean
      */
     protected boolean isFillValue(float value) {
-        return Math.abs(value - fillValue) < .0000001;
+        return packing.isFillValue(value);
+    }
+
+    /**
+     * @return the adjusted value of a value read from the file, NaN if it is a missing or fill value.
+     */
+    protected float getValue(float dataValue) {
+        return packing.getValue(dataValue);
+    }
+
+    /**
+     * Get the minimum file index in an index array.
+     * 
+     * @param indices - file index of every request coordinate, or NetCdfUtil.NOT_FOUND.
+     * @return the minimum, or NetCdfUtil.NOT_FOUND if no request coordinate is in the file.
+     */
+    protected int getMin(int[] indices) {
+        int min = Integer.MAX_VALUE;
+        for (int index : indices) {
+            if (index != NetCdfUtil.NOT_FOUND && index < min) {
+                min = index;
+            }
+        }
+        return min == Integer.MAX_VALUE ? NetCdfUtil.NOT_FOUND : min;
+    }
+
+    /**
+     * Get the maximum file index in an index array.
+     * 
+     * @param indices - file index of every request coordinate, or NetCdfUtil.NOT_FOUND.
+     * @return the maximum, or NetCdfUtil.NOT_FOUND if no request coordinate is in the file.
+     */
+    protected int getMax(int[] indices) {
+        int max = NetCdfUtil.NOT_FOUND;
+        for (int index : indices) {
+            if (index > max) {
+                max = index;
+            }
+        }
+        return max;
     }
 
     /**
@@ -193,30 +307,7 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
 
     public void setVariable(Variable variable) {
         this.variable = variable;
-
-        // Set the scale factor if this Variable has one.
-        Attribute scaleFactorAttribute = this.variable.findAttribute("scale_factor");
-        if (null != scaleFactorAttribute) {
-            this.scaleFactor = scaleFactorAttribute.getNumericValue().floatValue();
-        }
-
-        // Set the add offset if this Variable has one.
-        Attribute addOffsetAttribute = this.variable.findAttribute("add_offset");
-        if (null != addOffsetAttribute) {
-            this.addOffset = addOffsetAttribute.getNumericValue().floatValue();
-        }
-
-        // Set the missing value if this Variable has one.
-        Attribute missingValueAttribute = this.variable.findAttribute("missing_value");
-        if (null != missingValueAttribute) {
-            this.missingValue = missingValueAttribute.getNumericValue().floatValue();
-        }
-
-        // Set the fill value if this Variable has one.
-        Attribute fillValueAttribute = this.variable.findAttribute("_FillValue");
-        if (null != fillValueAttribute) {
-            this.fillValue = fillValueAttribute.getNumericValue().floatValue();
-        }
+        this.packing = PackingAttributes.getInstance(variable);
     }
 
     public void setElevationIndex(int index) {
@@ -246,6 +337,15 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
         this.runtimeVariableNameInFile = runtimeVariableNameInFile;
     }
 
+    @Override
+    public void setMaxBytesPerRead(long maxBytesPerRead) {
+        this.maxBytesPerRead = maxBytesPerRead;
+    }
+
+    public long getMaxBytesPerRead() {
+        return maxBytesPerRead;
+    }
+
     public int getElevationDimensionIndex() {
         return NetCdfUtil.getVariableDimensionIndexByName(variable, elevationVariableNameInFile,
                 NetCdfUtil.ELEVATION_VARIABLE_NAMES);
@@ -263,14 +363,27 @@ public abstract class AbstractReadStrategy implements ReadStrategy {
     }
 
     public int getLongitudeDimensionIndex() {
-        return NetCdfUtil.getVariableDimensionIndexByName(variable, NetCdfUtil.LON_VARIABLE_NAMES);
+        return NetCdfUtil.getXDimensionIndex(variable);
     }
 
     public int getLatitudeDimensionIndex() {
-        return NetCdfUtil.getVariableDimensionIndexByName(variable, NetCdfUtil.LAT_VARIABLE_NAMES);
+        return NetCdfUtil.getYDimensionIndex(variable);
     }
 
+    /**
+     * Reads the desired grid from index Maps.
+     * 
+     * @param longitudes - Map where the keys are request indices and the values are file indices.
+     * @param latitudes - Map where the keys are request indices and the values are file indices.
+     * @param data - Object to store the image data to return in the response
+     * @throws IOException
+     * @throws InvalidRangeException
+     * @deprecated use {@link #read(int[], int[], GrdDataEncapsulator)}.
+     */
+    @Deprecated
     public void read(Map<Integer, Integer> longitudes, Map<Integer, Integer> latitudes,
             GrdDataEncapsulator data) throws IOException, InvalidRangeException {
+        read(ReadStrategyFactory.toIndices(longitudes), ReadStrategyFactory.toIndices(latitudes),
+                data);
     }
 }
@@ -0,0 +1,272 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.geotools.gce.netcdf.index.InterpolationKernel;
+import org.geotools.util.logging.Logging;
+
+import ucar.ma2.Array;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+
+/**
+ * ReadStrategy that interpolates the values of the request positions between the values of the file, bilinear or bicubic, instead of taking the
+ * nearest value. The neighborhood of every request position is read in the same hyperslab, the bounding box of the request, in tiles of whole
+ * rows within the memory budget set with {@link #setMaxBytesPerRead(long)}, and the values of the box are unpacked once before they are weighed.
+ *
+ * Missing and fill values are left out: a bilinear value is the weighted average of the values around it that are not missing, and a bicubic
+ * value falls back to bilinear when any of the sixteen values it weighs is missing. Neighbors beyond the edges of the file repeat the edge values.
+ */
+public class InterpolatingReadStrategy extends AbstractReadStrategy {
+
+    private static final Logger LOG = Logging.getLogger(InterpolatingReadStrategy.class);
+
+    private final InterpolationKernel kernel;
+
+    private final double[] longitudePositions;
+
+    private final double[] latitudePositions;
+
+    /**
+     * @param kernel - BILINEAR or BICUBIC.
+     * @param longitudePositions - fractional file index of every request longitude, as GridAxis.getCoordinatePositions gives them.
+     * @param latitudePositions - fractional file index of every request latitude.
+     */
+    public InterpolatingReadStrategy(InterpolationKernel kernel, double[] longitudePositions,
+            double[] latitudePositions) {
+        if (kernel == InterpolationKernel.NEAREST) {
+            throw new IllegalArgumentException("Nearest values are read by the other strategies");
+        }
+        this.kernel = kernel;
+        this.longitudePositions = longitudePositions;
+        this.latitudePositions = latitudePositions;
+    }
+
+    /**
+     * The neighbors of one axis: for every request coordinate, the file index of its first neighbor and the weights of its neighbors, cubic and
+     * linear.
+     */
+    private final class Neighbors {
+
+        private final int[] first;
+
+        private final double[] weights;
+
+        /**
+         * the bilinear weights of the middle two neighbors of a bicubic kernel, for its fall back.
+         */
+        private final double[] linearWeights;
+
+        private int minIndex = Integer.MAX_VALUE;
+
+        private int maxIndex = NetCdfUtil.NOT_FOUND;
+
+        private final int size;
+
+        /**
+         * @param indices - the nearest file index of every request coordinate, NOT_FOUND for the coordinates not to read.
+         * @param size - the number of values of the axis in the file.
+         */
+        Neighbors(int[] indices, double[] positions, int size) {
+            this.size = size;
+            int support = kernel.getSupport();
+            first = new int[indices.length];
+            weights = new double[indices.length * support];
+            linearWeights = new double[indices.length * 2];
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == NetCdfUtil.NOT_FOUND) {
+                    continue;
+                }
+                if (Double.isNaN(positions[i])) {
+                    // found by a special case of the nearest value lookup, like the seam of a file
+                    // wrapping around the globe, so the nearest value it is.
+                    first[i] = indices[i] + kernel.getOffset();
+                    weights[i * support - kernel.getOffset()] = 1;
+                    linearWeights[i * 2] = 1;
+                } else {
+                    int before = (int) Math.floor(positions[i]);
+                    double fraction = positions[i] - before;
+                    first[i] = before + kernel.getOffset();
+                    kernel.getWeights(fraction, weights, i * support);
+                    InterpolationKernel.BILINEAR.getWeights(fraction, linearWeights, i * 2);
+                }
+                minIndex = Math.min(minIndex, getIndex(i, 0));
+                maxIndex = Math.max(maxIndex, getIndex(i, support - 1));
+            }
+        }
+
+        /**
+         * @return the file index of a neighbor, an edge of the file for the neighbors beyond it.
+         */
+        int getIndex(int coordinate, int neighbor) {
+            return Math.min(size - 1, Math.max(0, first[coordinate] + neighbor));
+        }
+    }
+
+    @Override
+    public void read(int[] longitudes, int[] latitudes, GrdDataEncapsulator data)
+            throws IOException, InvalidRangeException {
+        int lonDimension = getLongitudeDimensionIndex();
+        int latDimension = getLatitudeDimensionIndex();
+        Neighbors lons = new Neighbors(longitudes, longitudePositions,
+                variable.getShape(lonDimension));
+        Neighbors lats = new Neighbors(latitudes, latitudePositions,
+                variable.getShape(latDimension));
+        if (lons.maxIndex == NetCdfUtil.NOT_FOUND || lats.maxIndex == NetCdfUtil.NOT_FOUND) {
+            // nothing of the file in the request.
+            return;
+        }
+
+        int support = kernel.getSupport();
+        int width = lons.maxIndex - lons.minIndex + 1;
+        int rowsPerTile = Math.max(support, getRowsPerRead(width));
+        Range lonRange = new Range(lons.minIndex, lons.maxIndex);
+
+        // tiles of file rows, each taking the request rows whose neighbors are all within it.
+        boolean[] done = new boolean[latitudes.length];
+        int tiles = 0;
+        while (true) {
+            int tileMinLat = Integer.MAX_VALUE;
+            for (int requestLat = 0; requestLat < latitudes.length; requestLat++) {
+                if (!done[requestLat] && latitudes[requestLat] != NetCdfUtil.NOT_FOUND) {
+                    tileMinLat = Math.min(tileMinLat, lats.getIndex(requestLat, 0));
+                }
+            }
+            if (tileMinLat == Integer.MAX_VALUE) {
+                break;
+            }
+            int tileMaxLat = (int) Math.min(lats.maxIndex, (long) tileMinLat + rowsPerTile - 1);
+
+            Array array = read(getReadSection(lonRange, new Range(tileMinLat, tileMaxLat)));
+            float[] tile = unpack(array, width, tileMaxLat - tileMinLat + 1, lonDimension,
+                    latDimension);
+            tiles++;
+
+            for (int requestLat = 0; requestLat < latitudes.length; requestLat++) {
+                if (done[requestLat] || latitudes[requestLat] == NetCdfUtil.NOT_FOUND
+                        || lats.getIndex(requestLat, support - 1) > tileMaxLat) {
+                    continue;
+                }
+                done[requestLat] = true;
+                int dataLatIndex = (data.getDesiredLats().size() - 1) - requestLat;
+                for (int requestLon = 0; requestLon < longitudes.length; requestLon++) {
+                    if (longitudes[requestLon] == NetCdfUtil.NOT_FOUND) {
+                        continue;
+                    }
+                    float value = interpolate(tile, width, lons, requestLon, lats, requestLat,
+                            tileMinLat);
+                    // a missing value is just NaN in the result coverage.
+                    if (!Float.isNaN(value)) {
+                        data.setValue(requestLon, dataLatIndex, value);
+                    }
+                }
+            }
+        }
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Interpolated {0} of {1} in {2} reads", new Object[] { kernel,
+                    variable.getShortName(), tiles });
+        }
+    }
+
+    /**
+     * @return the adjusted values of the tile, row by row, with NaN for missing and fill values.
+     */
+    private float[] unpack(Array array, int width, int height, int lonDimension, int latDimension) {
+        float[] result = new float[width * height];
+        Index index = array.getIndex();
+        for (int y = 0; y < height; y++) {
+            index.setDim(latDimension, y);
+            for (int x = 0; x < width; x++) {
+                index.setDim(lonDimension, x);
+                result[y * width + x] = getValue(array.getFloat(index));
+            }
+        }
+        return result;
+    }
+
+    private float interpolate(float[] tile, int width, Neighbors lons, int requestLon,
+            Neighbors lats, int requestLat, int tileMinLat) {
+        int support = kernel.getSupport();
+        double sum = 0;
+        double weightSum = 0;
+        boolean missing = false;
+        for (int j = 0; j < support; j++) {
+            double latWeight = lats.weights[requestLat * support + j];
+            if (latWeight == 0) {
+                continue;
+            }
+            int row = (lats.getIndex(requestLat, j) - tileMinLat) * width - lons.minIndex;
+            for (int i = 0; i < support; i++) {
+                double weight = latWeight * lons.weights[requestLon * support + i];
+                if (weight == 0) {
+                    continue;
+                }
+                float value = tile[row + lons.getIndex(requestLon, i)];
+                if (Float.isNaN(value)) {
+                    missing = true;
+                } else {
+                    sum += weight * value;
+                    weightSum += weight;
+                }
+            }
+        }
+        if (!missing) {
+            return (float) sum;
+        }
+        if (kernel == InterpolationKernel.BICUBIC) {
+            return interpolateLinear(tile, width, lons, requestLon, lats, requestLat, tileMinLat);
+        }
+        return weightSum > 0 ? (float) (sum / weightSum) : Float.NaN;
+    }
+
+    /**
+     * The bilinear value of the middle two by two neighbors of a bicubic kernel, for when some of its values are missing.
+     */
+    private float interpolateLinear(float[] tile, int width, Neighbors lons, int requestLon,
+            Neighbors lats, int requestLat, int tileMinLat) {
+        int middle = -kernel.getOffset();
+        double sum = 0;
+        double weightSum = 0;
+        for (int j = 0; j < 2; j++) {
+            double latWeight = lats.linearWeights[requestLat * 2 + j];
+            int row = (lats.getIndex(requestLat, middle + j) - tileMinLat) * width
+                    - lons.minIndex;
+            for (int i = 0; i < 2; i++) {
+                double weight = latWeight * lons.linearWeights[requestLon * 2 + i];
+                float value = tile[row + lons.getIndex(requestLon, middle + i)];
+                if (weight != 0 && !Float.isNaN(value)) {
+                    sum += weight * value;
+                    weightSum += weight;
+                }
+            }
+        }
+        return weightSum > 0 ? (float) (sum / weightSum) : Float.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return "InterpolatingReadStrategy [" + kernel + "]";
+    }
+}
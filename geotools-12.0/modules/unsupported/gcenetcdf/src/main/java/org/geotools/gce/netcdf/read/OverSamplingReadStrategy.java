@@ -17,18 +17,19 @@
 package org.geotools.gce.netcdf.read;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCdfUtil;
 import org.geotools.util.logging.Logging;
 import ucar.ma2.Array;
 import ucar.ma2.Index;
 import ucar.ma2.InvalidRangeException;
 
 /**
- * ReadStrategy that will read all the data for a Variable in a bounding box in one NetCDF file access.
+ * ReadStrategy that will read all the data for a Variable in a bounding box in one NetCDF file access, or in tiles of whole rows when the box does
+ * not fit in the memory budget set with {@link #setMaxBytesPerRead(long)}.
  * 
  * @author Yancy Matherne <yancy.matherne@geocent.com>
  */
@@ -37,27 +38,57 @@ public class OverSamplingReadStrategy extends AbstractReadStrategy {
     private static final Logger LOG = Logging.getLogger(OverSamplingReadStrategy.class);
 
     @Override
-    public void read(Map<Integer, Integer> longitudes, Map<Integer, Integer> latitudes,
-            GrdDataEncapsulator data) throws IOException, InvalidRangeException {
+    public void read(int[] longitudes, int[] latitudes, GrdDataEncapsulator data)
+            throws IOException, InvalidRangeException {
+
+        int minLatIndex = getMin(latitudes);
+        int maxLatIndex = getMax(latitudes);
+        int minLonIndex = getMin(longitudes);
+        int maxLonIndex = getMax(longitudes);
+        if (minLatIndex == NetCdfUtil.NOT_FOUND || minLonIndex == NetCdfUtil.NOT_FOUND) {
+            // nothing of the file in the request.
+            return;
+        }
+
+        // Read the bounding box in tiles of whole rows that each fit in the memory budget, which
+        // is a single tile unless the box is very large.
+        int rowsPerTile = getRowsPerRead(maxLonIndex - minLonIndex + 1);
+        String lonParameter = minLonIndex + ":" + maxLonIndex;
+
+        for (long tile = minLatIndex; tile <= maxLatIndex; tile += rowsPerTile) {
+            int tileMinLat = (int) tile;
+            int tileMaxLat = (int) Math.min(tile + rowsPerTile - 1, maxLatIndex);
+
+            // Read the Variable from the NetCDF file.
+            // This returns a one-dimensional UCAR array.
+            Array array = read(getReadParameter(lonParameter, tileMinLat + ":" + tileMaxLat));
 
-        // Read the Variable from the NetCDF file.
-        // This returns a one-dimensional UCAR array.
-        Array array = variable.read(getReadParameter(longitudes, latitudes));
+            readTile(array, tileMinLat, tileMaxLat, minLonIndex, longitudes, latitudes, data);
+        }
+    }
 
-        Integer minLatIndex = getMin(latitudes);
-        Integer minLonIndex = getMin(longitudes);
+    private void readTile(Array array, int tileMinLat, int tileMaxLat, int minLonIndex,
+            int[] longitudes, int[] latitudes, GrdDataEncapsulator data) {
+        for (int requestLat = 0; requestLat < latitudes.length; requestLat++) {
+            // also skips the latitudes that are not in the file.
+            if (latitudes[requestLat] < tileMinLat || latitudes[requestLat] > tileMaxLat) {
+                continue;
+            }
 
-        for (Map.Entry<Integer, Integer> latEntry : latitudes.entrySet()) {
             // We have a list of latitude indexes for the file, but here we need a latitude index
-            // for the array that we read from the file, which starts at the minimum latitude we
-            // requested.
-            int latIndex = latEntry.getValue() - minLatIndex;
+            // for the array that we read from the file, which starts at the first latitude of the
+            // tile.
+            int latIndex = latitudes[requestLat] - tileMinLat;
+
+            for (int requestLon = 0; requestLon < longitudes.length; requestLon++) {
+                if (longitudes[requestLon] == NetCdfUtil.NOT_FOUND) {
+                    continue;
+                }
 
-            for (Map.Entry<Integer, Integer> lonEntry : longitudes.entrySet()) {
                 // We have a list of longitude indexes for the file, but here we need a longitude
                 // index for the array that we read from the file, which starts at the minimum
                 // longitude we requested.
-                int lonIndex = lonEntry.getValue() - minLonIndex;
+                int lonIndex = longitudes[requestLon] - minLonIndex;
 
                 Index arrayIndex = getReadArrayIndex(array, lonIndex, latIndex);
 
@@ -72,8 +103,8 @@ public class OverSamplingReadStrategy extends AbstractReadStrategy {
                 }
 
                 // Get the indices to use in the data object.
-                int dataLonIndex = lonEntry.getKey();
-                int dataLatIndex = (data.getDesiredLats().size() - 1) - latEntry.getKey();
+                int dataLonIndex = requestLon;
+                int dataLatIndex = (data.getDesiredLats().size() - 1) - requestLat;
 
                 if (LOG.isLoggable(Level.FINER)) {
                     LOG.log(Level.FINER, "Setting the data at lon[{0}] lat[{1}] to {2}",
@@ -81,23 +112,8 @@ public class OverSamplingReadStrategy extends AbstractReadStrategy {
                 }
 
                 // Add the current adjusted value from the file to the data object.
-                data.getImageArray()[dataLonIndex][dataLatIndex] = adjustedValue;
+                data.setValue(dataLonIndex, dataLatIndex, adjustedValue);
             }
         }
     }
-
-    protected String getReadParameter(Map<Integer, Integer> longitudes,
-            Map<Integer, Integer> latitudes) {
-        return super.getReadParameter(getParameterRange(longitudes), getParameterRange(latitudes));
-    }
-
-    /*
-     * Get a String min/max range from a list of coordinate indices.
-     */
-    private String getParameterRange(Map<Integer, Integer> coordinates) {
-        Integer min = getMin(coordinates);
-        Integer max = getMax(coordinates);
-
-        return min + ":" + max;
-    }
 }
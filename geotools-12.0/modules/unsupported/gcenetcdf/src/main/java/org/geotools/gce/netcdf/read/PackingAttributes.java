@@ -0,0 +1,88 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import ucar.nc2.Attribute;
+import ucar.nc2.Variable;
+
+/**
+ * The scale_factor, add_offset, missing_value and _FillValue attributes of a variable, to turn the values stored in the file into the values
+ * given in a coverage.
+ */
+public final class PackingAttributes {
+
+    /**
+     * a variable without any of the attributes.
+     */
+    public static final PackingAttributes NONE = new PackingAttributes(1.0f, 0.0f, Float.NaN,
+            Float.NaN);
+
+    private final float scaleFactor;
+
+    private final float addOffset;
+
+    private final float missingValue;
+
+    private final float fillValue;
+
+    private PackingAttributes(float scaleFactor, float addOffset, float missingValue,
+            float fillValue) {
+        this.scaleFactor = scaleFactor;
+        this.addOffset = addOffset;
+        this.missingValue = missingValue;
+        this.fillValue = fillValue;
+    }
+
+    public static PackingAttributes getInstance(Variable variable) {
+        return new PackingAttributes(getValue(variable, "scale_factor", 1.0f), getValue(variable,
+                "add_offset", 0.0f), getValue(variable, "missing_value", Float.NaN), getValue(
+                variable, "_FillValue", Float.NaN));
+    }
+
+    private static float getValue(Variable variable, String name, float defaultValue) {
+        Attribute attribute = variable.findAttribute(name);
+        return attribute == null ? defaultValue : attribute.getNumericValue().floatValue();
+    }
+
+    /**
+     * Variable values can be stored as Shorts to conserve space. The Variable can have a scaleFactor and an addOffset to adjust the Short value back
+     * into its original Float value.
+     */
+    public float getAdjustedValue(float value) {
+        return (value * scaleFactor) + addOffset;
+    }
+
+    public boolean isMissingValue(float value) {
+        return Math.abs(value - missingValue) < .0000001;
+    }
+
+    public boolean isFillValue(float value) {
+        return Math.abs(value - fillValue) < .0000001;
+    }
+
+    /**
+     * @return the adjusted value of a value read from the file, NaN if it is a missing or fill value.
+     */
+    public float getValue(float dataValue) {
+        float adjustedValue = getAdjustedValue(dataValue);
+        if (isMissingValue(dataValue) || isMissingValue(adjustedValue) || isFillValue(dataValue)
+                || isFillValue(adjustedValue)) {
+            return Float.NaN;
+        }
+        return adjustedValue;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.util.logging.Logging;
+
+import ucar.ma2.InvalidRangeException;
+
+/**
+ * Reads a large request as row bands at the same time, on a ForkJoinPool shared by all the readers in the JVM, so decoding, scale/offset and
+ * missing value checks of one request use more than one core.
+ *
+ * Off by default: {@link ReadMetrics#getParallelism()} caps the bands of one request read at the same time, and is also the size of the pool.
+ * A band covers whole image rows, so bands write to separate parts of the image. NetcdfFile handles are not thread safe, so every band reads
+ * through a handle of its own, which the {@link BandReader} takes care of.
+ */
+public final class ParallelBandReads {
+
+    private static final Logger LOG = Logging.getLogger(ParallelBandReads.class);
+
+    /**
+     * bands per thread, so a slow band does not hold up the others and cancellation is checked often.
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    private static final ParallelBandReads INSTANCE = new ParallelBandReads();
+
+    private ForkJoinPool pool;
+
+    /**
+     * Reads the request rows of one band.
+     */
+    public interface BandReader {
+
+        /**
+         * @param longitudeIndices - file index of every request longitude, or NetCdfUtil.NOT_FOUND.
+         * @param latitudeIndices - file index of every request latitude of the band, NetCdfUtil.NOT_FOUND for the rows of the other bands.
+         * @param data - the image of the whole request.
+         */
+        void read(int[] longitudeIndices, int[] latitudeIndices, GrdDataEncapsulator data)
+                throws IOException, InvalidRangeException;
+    }
+
+    private ParallelBandReads() {
+    }
+
+    public static ParallelBandReads getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the number of bands to read a request of the given size in, 1 to read it on the request thread.
+     */
+    public int getBandCount(int width, int height) {
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        int parallelism = metrics.getParallelism();
+        if (parallelism <= 1) {
+            return 1;
+        }
+        long bands = (long) width * height / metrics.getMinBandValues();
+        bands = Math.min(bands, (long) parallelism * BANDS_PER_THREAD);
+        return (int) Math.max(1, Math.min(bands, height));
+    }
+
+    /**
+     * Split the request rows into bands of consecutive rows.
+     *
+     * @return for every band, the latitude indices with NetCdfUtil.NOT_FOUND outside the band.
+     */
+    static int[][] splitRows(int[] latitudeIndices, int bandCount) {
+        int[][] result = new int[bandCount][];
+        for (int band = 0; band < bandCount; band++) {
+            int first = (int) ((long) latitudeIndices.length * band / bandCount);
+            int end = (int) ((long) latitudeIndices.length * (band + 1) / bandCount);
+            result[band] = new int[latitudeIndices.length];
+            Arrays.fill(result[band], NetCdfUtil.NOT_FOUND);
+            System.arraycopy(latitudeIndices, first, result[band], first, end - first);
+        }
+        return result;
+    }
+
+    /**
+     * Read the request as bands on the shared pool, and wait for all of them.
+     *
+     * @throws CancellationException if the request was cancelled, or the waiting thread interrupted, before all the bands were read.
+     */
+    public void read(final BandReader reader, final int[] longitudeIndices,
+            int[] latitudeIndices, int bandCount, final GrdDataEncapsulator data,
+            final ParamInformation paramInfo) throws IOException, InvalidRangeException {
+        // the first band failure, once set the other bands are of no use any more.
+        final AtomicReference<Throwable> failures = new AtomicReference<Throwable>();
+        List<Runnable> bands = new ArrayList<Runnable>(bandCount);
+        for (final int[] band : splitRows(latitudeIndices, bandCount)) {
+            bands.add(new Runnable() {
+                public void run() {
+                    if (paramInfo.isCancelled() || failures.get() != null) {
+                        return;
+                    }
+                    try {
+                        reader.read(longitudeIndices, band, data);
+                    } catch (Throwable t) {
+                        failures.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        List<Future<?>> futures = submit(bands);
+        ReadMetrics.getInstance().recordParallelRead(bandCount);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                paramInfo.cancel();
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                failures.compareAndSet(null, e.getCause());
+            }
+        }
+
+        Throwable failure = failures.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof InvalidRangeException) {
+            throw (InvalidRangeException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IOException(failure);
+        }
+        if (paramInfo.isCancelled()) {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+            ReadMetrics.getInstance().recordCancelled();
+            throw new CancellationException("Read of " + paramInfo.getParameter()
+                    + " cancelled");
+        }
+    }
+
+    /**
+     * Submit the bands to the shared pool, under the lock that replaces it, so the pool can not be shut down between getting it and submitting
+     * to it.
+     */
+    private synchronized List<Future<?>> submit(List<Runnable> bands) {
+        ForkJoinPool bandPool = getPool();
+        List<Future<?>> futures = new ArrayList<Future<?>>(bands.size());
+        for (Runnable band : bands) {
+            futures.add(bandPool.submit(band));
+        }
+        return futures;
+    }
+
+    /**
+     * Shut the shared pool down, so its threads do not hold on to the class loader of this module. Bands already given to it still run, a later
+     * parallel read starts a new pool.
+     */
+    public synchronized void dispose() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * The shared pool, replaced when the parallelism has changed. Bands already given to the old pool still run there. must hold the lock.
+     */
+    private ForkJoinPool getPool() {
+        int parallelism = ReadMetrics.getInstance().getParallelism();
+        if (pool == null || pool.getParallelism() != parallelism) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(parallelism);
+            LOG.log(Level.INFO, "Reading NetCDF row bands on {0} threads", parallelism);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import org.geotools.gce.netcdf.NetCdfUtil;
+
+import ucar.nc2.Attribute;
+import ucar.nc2.Variable;
+
+/**
+ * Estimates how many bytes a read of a longitude/latitude window of a Variable takes from the file, and how many it holds in memory.
+ *
+ * The storage layout decides the bytes touched. A netCDF-3 variable, record or not, stores one longitude/latitude slice contiguously, so only the
+ * values read count: the other variables interleaved between two records are never inside the slice of one record. A chunked netCDF-4 variable
+ * is read a whole chunk at a time, so every chunk the window touches counts in full. Chunk sizes come from the <code>_ChunkSizes</code> attribute
+ * (<code>_ChunkSize</code> in some versions) that netcdf-java and NcML use to describe chunking.
+ */
+public class ReadCostModel {
+
+    private static final String[] CHUNK_SIZE_ATTRIBUTE_NAMES = { "_ChunkSizes", "_ChunkSize" };
+
+    private final int elementSize;
+
+    private final int lonChunk;
+
+    private final int latChunk;
+
+    /**
+     * number of values in one chunk along all the other dimensions, of which a single index is read.
+     */
+    private final long otherChunk;
+
+    private final boolean chunked;
+
+    public ReadCostModel(Variable variable) {
+        this.elementSize = variable.getElementSize();
+
+        int lonDimension = NetCdfUtil.getXDimensionIndex(variable);
+        int latDimension = NetCdfUtil.getYDimensionIndex(variable);
+        int[] chunkSizes = getChunkSizes(variable);
+
+        if (chunkSizes == null || lonDimension == NetCdfUtil.NOT_FOUND
+                || latDimension == NetCdfUtil.NOT_FOUND) {
+            chunked = false;
+            lonChunk = 1;
+            latChunk = 1;
+            otherChunk = 1;
+        } else {
+            chunked = true;
+            lonChunk = chunkSizes[lonDimension];
+            latChunk = chunkSizes[latDimension];
+            long other = 1;
+            for (int i = 0; i < chunkSizes.length; i++) {
+                if (i != lonDimension && i != latDimension) {
+                    other *= chunkSizes[i];
+                }
+            }
+            otherChunk = other;
+        }
+    }
+
+    /**
+     * Cost model for a variable with no known layout, used when only the element size is known.
+     */
+    ReadCostModel(int elementSize) {
+        this.elementSize = elementSize;
+        this.chunked = false;
+        this.lonChunk = 1;
+        this.latChunk = 1;
+        this.otherChunk = 1;
+    }
+
+    private static int[] getChunkSizes(Variable variable) {
+        for (String name : CHUNK_SIZE_ATTRIBUTE_NAMES) {
+            Attribute attribute = variable.findAttribute(name);
+            if (attribute != null && !attribute.isString()
+                    && attribute.getLength() == variable.getRank()) {
+                int[] result = new int[attribute.getLength()];
+                for (int i = 0; i < result.length; i++) {
+                    Number value = attribute.getNumericValue(i);
+                    if (value == null || value.intValue() < 1) {
+                        return null;
+                    }
+                    result[i] = value.intValue();
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public int getElementSize() {
+        return elementSize;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * @return bytes held in memory by a read of the window, the values read.
+     */
+    public long getBytesInMemory(int lonCount, int latCount) {
+        return (long) lonCount * latCount * elementSize;
+    }
+
+    /**
+     * @return bytes that have to come from the file to read the strided window.
+     */
+    public long getBytesTouched(int lonFirst, int lonLast, int lonStride, int latFirst,
+            int latLast, int latStride) {
+        int lonCount = (lonLast - lonFirst) / lonStride + 1;
+        int latCount = (latLast - latFirst) / latStride + 1;
+        if (!chunked) {
+            return getBytesInMemory(lonCount, latCount);
+        }
+        return getChunksTouched(lonFirst, lonLast, lonStride, lonChunk) * lonChunk
+                * getChunksTouched(latFirst, latLast, latStride, latChunk) * latChunk
+                * otherChunk * elementSize;
+    }
+
+    /**
+     * number of chunks along one axis holding at least one of the strided indices.
+     */
+    private static long getChunksTouched(int first, int last, int stride, int chunk) {
+        long spanned = last / chunk - first / chunk + 1;
+        if (stride < chunk) {
+            return spanned;
+        }
+        // every index is in a chunk of its own.
+        return Math.min(spanned, (last - first) / stride + 1);
+    }
+
+    /**
+     * Largest number of latitude rows of the given width a read may hold within the byte budget, at least 1.
+     */
+    public int getRowsWithinBudget(int lonCount, long maxBytes) {
+        long rowBytes = getBytesInMemory(lonCount, 1);
+        long rows = maxBytes / Math.max(rowBytes, 1);
+        return (int) Math.max(1, Math.min(rows, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public String toString() {
+        return "ReadCostModel [elementSize=" + elementSize
+                + (chunked ? ", chunks " + lonChunk + "x" + latChunk + "x" + otherChunk : "")
+                + "]";
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.geotools.gce.netcdf.cache.CacheMBeans;
+
+/**
+ * Read strategy decisions and bytes read, plus the tuning knobs of the {@link ReadStrategyFactory} and {@link ParallelBandReads}, registered with
+ * JMX as
+ * <code>org.geotools.gce.netcdf:type=ReadMetrics,loader=...</code> through {@link CacheMBeans}.
+ *
+ * The shared instance is disposed of by {@link org.geotools.gce.netcdf.NetCDFResources#dispose()}.
+ */
+public final class ReadMetrics implements ReadMetricsMBean {
+
+    /**
+     * System property holding the largest number of bytes a single read may hold in memory.
+     */
+    public static final String MAX_BYTES_PER_READ_KEY = "org.geotools.gce.netcdf.read.maxBytesPerRead";
+
+    /**
+     * System property holding the estimated cost of one read call, in bytes.
+     */
+    public static final String READ_OVERHEAD_BYTES_KEY = "org.geotools.gce.netcdf.read.readOverheadBytes";
+
+    /**
+     * System property holding the largest number of row bands of one request read at the same time, 1 to read on the request thread only.
+     */
+    public static final String PARALLELISM_KEY = "org.geotools.gce.netcdf.read.parallelism";
+
+    /**
+     * System property holding the smallest number of values worth reading as a band of its own.
+     */
+    public static final String MIN_BAND_VALUES_KEY = "org.geotools.gce.netcdf.read.minBandValues";
+
+    private static final long DEFAULT_MAX_BYTES_PER_READ = 64 * 1024 * 1024L;
+
+    private static final int DEFAULT_PARALLELISM = 1;
+
+    private static final long DEFAULT_MIN_BAND_VALUES = 512 * 1024L;
+
+    private static final String MBEAN_TYPE = "ReadMetrics";
+
+    private static final ReadMetrics INSTANCE = new ReadMetrics(Long.getLong(
+            MAX_BYTES_PER_READ_KEY, DEFAULT_MAX_BYTES_PER_READ), Long.getLong(
+            READ_OVERHEAD_BYTES_KEY, ReadStrategyFactory.READ_OVERHEAD_BYTES), Integer.getInteger(
+            PARALLELISM_KEY, DEFAULT_PARALLELISM), Long.getLong(MIN_BAND_VALUES_KEY,
+            DEFAULT_MIN_BAND_VALUES));
+
+    static {
+        INSTANCE.registerMBean();
+    }
+
+    private final AtomicLong overSamplingCount = new AtomicLong();
+
+    private final AtomicLong underSamplingCount = new AtomicLong();
+
+    private final AtomicLong stridedCount = new AtomicLong();
+
+    private final AtomicLong tiledCount = new AtomicLong();
+
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    private final AtomicLong actualBytes = new AtomicLong();
+
+    private final AtomicLong readCount = new AtomicLong();
+
+    private final AtomicLong parallelReadCount = new AtomicLong();
+
+    private final AtomicLong bandCount = new AtomicLong();
+
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    private volatile String lastDecision;
+
+    private volatile long maxBytesPerRead;
+
+    private volatile long readOverheadBytes;
+
+    private volatile int parallelism;
+
+    private volatile long minBandValues;
+
+    private ObjectName objectName;
+
+    private ReadMetrics(long maxBytesPerRead, long readOverheadBytes, int parallelism,
+            long minBandValues) {
+        this.maxBytesPerRead = maxBytesPerRead;
+        this.readOverheadBytes = readOverheadBytes;
+        this.parallelism = parallelism;
+        this.minBandValues = minBandValues;
+    }
+
+    public static ReadMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the strategy chosen for a request.
+     */
+    void recordDecision(ReadStrategy strategy, long estimated, boolean tiled, String decision) {
+        if (strategy instanceof OverSamplingReadStrategy) {
+            overSamplingCount.incrementAndGet();
+        } else if (strategy instanceof UnderSamplingReadStrategy) {
+            underSamplingCount.incrementAndGet();
+        } else if (strategy instanceof StridedSectionReadStrategy) {
+            stridedCount.incrementAndGet();
+        }
+        if (tiled) {
+            tiledCount.incrementAndGet();
+        }
+        estimatedBytes.addAndGet(estimated);
+        lastDecision = decision;
+    }
+
+    /**
+     * Record one Variable.read() call, of a read strategy or of another read of the module like a series read.
+     */
+    public void recordRead(long bytes) {
+        readCount.incrementAndGet();
+        actualBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Record a read split into row bands read at the same time.
+     */
+    void recordParallelRead(int bands) {
+        parallelReadCount.incrementAndGet();
+        bandCount.addAndGet(bands);
+    }
+
+    /**
+     * Record a read given up because its request was cancelled.
+     */
+    void recordCancelled() {
+        cancelledCount.incrementAndGet();
+    }
+
+    public long getOverSamplingCount() {
+        return overSamplingCount.get();
+    }
+
+    public long getUnderSamplingCount() {
+        return underSamplingCount.get();
+    }
+
+    public long getStridedCount() {
+        return stridedCount.get();
+    }
+
+    public long getTiledCount() {
+        return tiledCount.get();
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    public long getActualBytes() {
+        return actualBytes.get();
+    }
+
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    public long getParallelReadCount() {
+        return parallelReadCount.get();
+    }
+
+    public long getBandCount() {
+        return bandCount.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    public long getMaxBytesPerRead() {
+        return maxBytesPerRead;
+    }
+
+    public void setMaxBytesPerRead(long maxBytesPerRead) {
+        this.maxBytesPerRead = maxBytesPerRead;
+    }
+
+    public long getReadOverheadBytes() {
+        return readOverheadBytes;
+    }
+
+    public void setReadOverheadBytes(long readOverheadBytes) {
+        this.readOverheadBytes = readOverheadBytes;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public long getMinBandValues() {
+        return minBandValues;
+    }
+
+    public void setMinBandValues(long minBandValues) {
+        this.minBandValues = Math.max(1, minBandValues);
+    }
+
+    public void reset() {
+        overSamplingCount.set(0);
+        underSamplingCount.set(0);
+        stridedCount.set(0);
+        tiledCount.set(0);
+        estimatedBytes.set(0);
+        actualBytes.set(0);
+        readCount.set(0);
+        parallelReadCount.set(0);
+        bandCount.set(0);
+        cancelledCount.set(0);
+        lastDecision = null;
+    }
+
+    /**
+     * Unregister the MBean, so the class loader of this module can be collected.
+     */
+    public void dispose() {
+        ObjectName objectName;
+        synchronized (this) {
+            objectName = this.objectName;
+            this.objectName = null;
+        }
+        CacheMBeans.unregister(objectName);
+    }
+
+    private synchronized void registerMBean() {
+        objectName = CacheMBeans.register(this, MBEAN_TYPE);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+/**
+ * JMX management interface for the {@link ReadMetrics}.
+ */
+public interface ReadMetricsMBean {
+
+    /**
+     * @return number of requests read with the OverSamplingReadStrategy.
+     */
+    long getOverSamplingCount();
+
+    /**
+     * @return number of requests read with the UnderSamplingReadStrategy.
+     */
+    long getUnderSamplingCount();
+
+    /**
+     * @return number of requests read with the StridedSectionReadStrategy.
+     */
+    long getStridedCount();
+
+    /**
+     * @return number of requests split into tiles to stay within the memory budget.
+     */
+    long getTiledCount();
+
+    /**
+     * @return sum of the bytes the chosen strategies were estimated to touch in the files.
+     */
+    long getEstimatedBytes();
+
+    /**
+     * @return sum of the bytes actually returned by the file reads.
+     */
+    long getActualBytes();
+
+    /**
+     * @return number of Variable.read() calls.
+     */
+    long getReadCount();
+
+    /**
+     * @return the last strategy decision with its estimates, for tuning.
+     */
+    String getLastDecision();
+
+    /**
+     * @return number of reads split into row bands read at the same time.
+     */
+    long getParallelReadCount();
+
+    /**
+     * @return number of row bands of those reads.
+     */
+    long getBandCount();
+
+    /**
+     * @return number of reads given up because their request was cancelled.
+     */
+    long getCancelledCount();
+
+    /**
+     * @return largest number of bytes a single read of one request may hold in memory.
+     */
+    long getMaxBytesPerRead();
+
+    void setMaxBytesPerRead(long maxBytesPerRead);
+
+    /**
+     * @return estimated cost of one read call, in bytes.
+     */
+    long getReadOverheadBytes();
+
+    void setReadOverheadBytes(long readOverheadBytes);
+
+    /**
+     * @return largest number of row bands of one request read at the same time, 1 to read on the request thread only.
+     */
+    int getParallelism();
+
+    void setParallelism(int parallelism);
+
+    /**
+     * @return smallest number of values worth reading as a band of its own.
+     */
+    long getMinBandValues();
+
+    void setMinBandValues(long minBandValues);
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+}
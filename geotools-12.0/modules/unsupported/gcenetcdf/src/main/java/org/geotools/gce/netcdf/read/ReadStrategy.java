@@ -17,7 +17,6 @@
 package org.geotools.gce.netcdf.read;
 
 import java.io.IOException;
-import java.util.Map;
 
 import org.geotools.gce.netcdf.GrdDataEncapsulator;
 
@@ -34,14 +33,14 @@ public interface ReadStrategy {
     /**
      * Reads the desired grid from the NetCDF Variable into the GrdDataEncapsulator.
      * 
-     * @param longitudeIndices - Map where the keys are request indices and the values are file indices.
-     * @param latitudeIndices - Map where the keys are request indices and the values are file indices.
+     * @param longitudeIndices - file index of every request longitude, or NetCdfUtil.NOT_FOUND where it is outside the file.
+     * @param latitudeIndices - file index of every request latitude, or NetCdfUtil.NOT_FOUND where it is outside the file.
      * @param data - Object to store the image data to return in the response
      * @throws IOException
      * @throws InvalidRangeException
      */
-    void read(Map<Integer, Integer> longitudeIndices, Map<Integer, Integer> latitudeIndices,
-            GrdDataEncapsulator data) throws IOException, InvalidRangeException;
+    void read(int[] longitudeIndices, int[] latitudeIndices, GrdDataEncapsulator data)
+            throws IOException, InvalidRangeException;
 
     /**
      * Set the NetCDF Variable to read.
@@ -77,6 +76,13 @@ public interface ReadStrategy {
 
     void setRuntimeVariableNameInFile(String runtimeVariableNameInFile);
 
+    /**
+     * Set the largest number of bytes a single read of the Variable may return. Larger reads are split into tiles.
+     * 
+     * @param maxBytesPerRead
+     */
+    void setMaxBytesPerRead(long maxBytesPerRead);
+
     /**
      * Get the Elevation dimension index for this NetCDF Variable.
      * 
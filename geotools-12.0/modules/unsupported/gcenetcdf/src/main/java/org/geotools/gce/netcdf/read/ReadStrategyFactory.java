@@ -16,12 +16,15 @@
  */
 package org.geotools.gce.netcdf.read;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.geotools.gce.netcdf.NetCdfUtil;
 import org.geotools.util.logging.Logging;
 import ucar.ma2.Array;
+import ucar.nc2.Variable;
 
 /**
  * Provides a static getReadStrategy method for getting the most appropriate ReadStrategy for the situation.
@@ -33,17 +36,27 @@ public class ReadStrategyFactory {
     private static final Logger LOG = Logging.getLogger(ReadStrategyFactory.class);
 
     /**
-     * Threshold that determines at which point to switch from the UnderSamplingReadStrategy to the OverSamplingReadStrategy when using sampling
-     * factor.
+     * @deprecated no longer used, the strategy is the cheapest one for the {@link ReadCostModel} of the Variable, whatever the sampling factor.
      */
+    @Deprecated
     public static final double SAMPLING_FACTOR_THRESHOLD = .7;
 
     /**
-     * Threshold that determines at which point to switch from the UnderSamplingReadStrategy to the OverSamplingReadStrategy when using the file's
-     * grid size.
+     * Largest bounding box, in file grid points, the OverSamplingReadStrategy used to be allowed to read at once.
+     * 
+     * @deprecated no longer used, reads are split into tiles within the memory budget of {@link ReadMetrics#getMaxBytesPerRead()} instead.
      */
+    @Deprecated
     public static final long FILE_GRID_SIZE_THRESHOLD = 200000;
 
+    /**
+     * Default estimated cost of one Variable.read() call, in bytes read. Covers the section setup and the seek(s), and is what makes a few larger
+     * reads cheaper than many small ones. Tuned with {@link ReadMetrics#setReadOverheadBytes(long)}.
+     */
+    public static final long READ_OVERHEAD_BYTES = 16 * 1024;
+
+    private static final int DEFAULT_ELEMENT_SIZE = 4;
+
     /**
      * Determines the sampling factor for the current request.
      * 
@@ -56,91 +69,184 @@ public class ReadStrategyFactory {
     }
 
     /**
-     * Determines which ReadStrategy to return based on a threshold function.
+     * Determines which ReadStrategy to return based on the estimated cost of each strategy, assuming 4 byte values.
      * 
      * @param longitudeIndices - Map where the keys are request indices and the values are file indices.
      * @param latitudeIndices - Map where the keys are request indices and the values are file indices.
      * @param fileLongitudes - Array of all the longitude values in the file.
      * @param fileLatitudes - Array of all the latitude values in the file.
      * @return ReadStrategy
+     * @deprecated use {@link #getReadStrategy(Map, Map, Variable)}, which knows the size of the values and the layout of the file.
      */
+    @Deprecated
     public static ReadStrategy getReadStrategy(Map<Integer, Integer> longitudeIndices,
             Map<Integer, Integer> latitudeIndices, Array fileLongitudes, Array fileLatitudes) {
-        int numberOfRequestLongitudes = longitudeIndices.size();
-        int numberOfRequestLatitudes = latitudeIndices.size();
-
-        int numberOfFileLongitudes = Collections.max(longitudeIndices.values())
-                - Collections.min(longitudeIndices.values());
-        int numberOfFileLatitudes = Collections.max(latitudeIndices.values())
-                - Collections.min(latitudeIndices.values());
-
-        return getReadStrategy(numberOfRequestLongitudes, numberOfRequestLatitudes,
-                numberOfFileLongitudes, numberOfFileLatitudes);
+        return getReadStrategy(toIndices(longitudeIndices), toIndices(latitudeIndices),
+                new ReadCostModel(DEFAULT_ELEMENT_SIZE));
     }
 
-    /*
-     * Determines which ReadStrategy to return based on a threshold function.
-     * 
-     * @param numberOfRequestLongitudes - Width of the request image
-     * 
-     * @param numberOfRequestLatitudes - Height of the request image
-     * 
-     * @param numberOfFileLongitudes - Width of the file grid
+    /**
+     * Determines which ReadStrategy to return for index Maps.
      * 
-     * @param numberOfFileLatitudes - Height of the file grid
+     * @param longitudeIndices - Map where the keys are request indices and the values are file indices.
+     * @param latitudeIndices - Map where the keys are request indices and the values are file indices.
+     * @param variable - the Variable that will be read.
+     * @return ReadStrategy
+     * @deprecated use {@link #getReadStrategy(int[], int[], Variable)}.
+     */
+    @Deprecated
+    public static ReadStrategy getReadStrategy(Map<Integer, Integer> longitudeIndices,
+            Map<Integer, Integer> latitudeIndices, Variable variable) {
+        return getReadStrategy(toIndices(longitudeIndices), toIndices(latitudeIndices), variable);
+    }
+
+    /**
+     * Determines which ReadStrategy to return based on the estimated cost of each strategy: the bytes the {@link ReadCostModel} of the Variable
+     * expects to come from the file, plus {@link ReadMetrics#getReadOverheadBytes()} per read call. Reads that would hold more than
+     * {@link ReadMetrics#getMaxBytesPerRead()} in memory are split into tiles, which adds read calls to the cost. The decision and its estimate are
+     * recorded in the {@link ReadMetrics}.
      * 
+     * @param longitudeIndices - file index of every request longitude, or NetCdfUtil.NOT_FOUND where it is outside the file.
+     * @param latitudeIndices - file index of every request latitude, or NetCdfUtil.NOT_FOUND where it is outside the file.
+     * @param variable - the Variable that will be read.
      * @return ReadStrategy
      */
-    private static ReadStrategy getReadStrategy(int numberOfRequestLongitudes,
-            int numberOfRequestLatitudes, int numberOfFileLongitudes, int numberOfFileLatitudes) {
+    public static ReadStrategy getReadStrategy(int[] longitudeIndices, int[] latitudeIndices,
+            Variable variable) {
+        return getReadStrategy(longitudeIndices, latitudeIndices, new ReadCostModel(variable));
+    }
 
-        if (LOG.isLoggable(Level.INFO)) {
-            LOG.log(Level.INFO, "Request dimensions [{0},{1}]. File dimensions [{2},{3}].",
-                    new Object[] { numberOfRequestLongitudes, numberOfRequestLatitudes,
-                            numberOfFileLongitudes, numberOfFileLatitudes });
+    /**
+     * Convert an index Map to an index array, with NetCdfUtil.NOT_FOUND for the request indices that are not in the Map.
+     * 
+     * @param indices - Map where the keys are request indices and the values are file indices.
+     * @return int[]
+     */
+    static int[] toIndices(Map<Integer, Integer> indices) {
+        int size = indices.isEmpty() ? 0 : Collections.max(indices.keySet()) + 1;
+        int[] result = new int[size];
+        Arrays.fill(result, NetCdfUtil.NOT_FOUND);
+        for (Map.Entry<Integer, Integer> entry : indices.entrySet()) {
+            result[entry.getKey()] = entry.getValue();
         }
-
-        return getReadStrategy(numberOfRequestLongitudes * numberOfRequestLatitudes,
-                numberOfFileLongitudes * numberOfFileLatitudes);
+        return result;
     }
 
-    /*
-     * Determines which ReadStrategy to return based on a threshold function.
-     * 
-     * @param numberOfRequestPoints - Area of the request image
-     * 
-     * @param numberOfFilePoints - Area of the file grid
-     * 
-     * @return ReadStrategy
+    /**
+     * @return number of the indices that are not NetCdfUtil.NOT_FOUND.
      */
-    private static ReadStrategy getReadStrategy(int numberOfRequestPoints, int numberOfFilePoints) {
-        if (LOG.isLoggable(Level.INFO)) {
-            double samplingFactor = getSamplingFactor(numberOfRequestPoints, numberOfFilePoints);
+    private static int countFound(int[] indices) {
+        int count = 0;
+        for (int index : indices) {
+            if (index != NetCdfUtil.NOT_FOUND) {
+                count++;
+            }
+        }
+        return count;
+    }
 
-            LOG.log(Level.INFO, "Sampling Factor is {0} and the Threshold is {1}", new Object[] {
-                    samplingFactor, SAMPLING_FACTOR_THRESHOLD });
+    private static ReadStrategy getReadStrategy(int[] longitudeIndices, int[] latitudeIndices,
+            ReadCostModel costModel) {
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        long maxBytesPerRead = metrics.getMaxBytesPerRead();
+        long readOverhead = metrics.getReadOverheadBytes();
 
-            LOG.log(Level.INFO, "File Grid Size is {0} and the Threshold is {1}", new Object[] {
-                    numberOfFilePoints, FILE_GRID_SIZE_THRESHOLD });
+        int numberOfRequestLongitudes = countFound(longitudeIndices);
+        int numberOfRequestLatitudes = countFound(latitudeIndices);
+
+        if (numberOfRequestLongitudes == 0 || numberOfRequestLatitudes == 0) {
+            // nothing of the file in the request, whatever strategy will not read anything.
+            return new StridedSectionReadStrategy();
         }
 
-        // This really needs to be engineered better. Need to find the right mix of memory usage
-        // and request speed. The OverSampling strategy is (almost?) always faster as it only needs
-        // to read the file once. But reading too many points at once causes an Out Of Memory
-        // Exception. Reading all the points in a high resolution file for a low resolution request
-        // is unnecessary since most of the data points won't be used anyway.
-
-        // Was going to use sampling factor as the threshold, but for the NCML layers the sampling
-        // factor can easily be low (just saw .165, maybe the threshold should be lower than that?).
-        // And there is a serious speed degredation when using UnderSampingReadStrategy on NCML
-        // layers. So I figured the real problem is just the shear number of points being requested.
-        // We always want to be as fast as possible and only want to slow down when memory
-        // consumption becomes catastrophic. So switching to an implementation where we decide which
-        // strategy to use based on the number of points in the file for the bounding box requested.
-        if (numberOfFilePoints > FILE_GRID_SIZE_THRESHOLD) {
-            return new UnderSamplingReadStrategy();
+        int minFileLongitude = Integer.MAX_VALUE;
+        int maxFileLongitude = NetCdfUtil.NOT_FOUND;
+        for (int index : longitudeIndices) {
+            if (index != NetCdfUtil.NOT_FOUND) {
+                minFileLongitude = Math.min(minFileLongitude, index);
+                maxFileLongitude = Math.max(maxFileLongitude, index);
+            }
+        }
+        int minFileLatitude = Integer.MAX_VALUE;
+        int maxFileLatitude = NetCdfUtil.NOT_FOUND;
+        for (int index : latitudeIndices) {
+            if (index != NetCdfUtil.NOT_FOUND) {
+                minFileLatitude = Math.min(minFileLatitude, index);
+                maxFileLatitude = Math.max(maxFileLatitude, index);
+            }
+        }
+        int numberOfFileLongitudes = maxFileLongitude - minFileLongitude + 1;
+        int numberOfFileLatitudes = maxFileLatitude - minFileLatitude + 1;
+
+        long numberOfRequestPoints = (long) numberOfRequestLongitudes * numberOfRequestLatitudes;
+        double samplingFactor = (double) numberOfRequestPoints
+                / ((long) numberOfFileLongitudes * numberOfFileLatitudes);
+
+        if (LOG.isLoggable(Level.INFO)) {
+            LOG.log(Level.INFO, "Request dimensions [{0},{1}]. File dimensions [{2},{3}]. "
+                    + "Sampling factor {4}. {5}", new Object[] { numberOfRequestLongitudes,
+                    numberOfRequestLatitudes, numberOfFileLongitudes, numberOfFileLatitudes,
+                    samplingFactor, costModel });
+        }
+
+        // the bounding box, in tiles of whole rows within the memory budget.
+        int overSamplingRowsPerRead = costModel.getRowsWithinBudget(numberOfFileLongitudes,
+                maxBytesPerRead);
+        long overSamplingReads = (numberOfFileLatitudes + overSamplingRowsPerRead - 1)
+                / overSamplingRowsPerRead;
+        long overSamplingBytes = costModel.getBytesTouched(minFileLongitude, maxFileLongitude, 1,
+                minFileLatitude, maxFileLatitude, 1);
+        long overSamplingCost = overSamplingBytes + overSamplingReads * readOverhead;
+
+        // one read per point, which never needs tiling.
+        long underSamplingBytes = numberOfRequestPoints
+                * costModel.getBytesTouched(0, 0, 1, 0, 0, 1);
+        long underSamplingCost = underSamplingBytes + numberOfRequestPoints * readOverhead;
+
+        // the bands of the plan, each in tiles of whole rows within the memory budget.
+        StridedReadPlan plan = new StridedReadPlan(longitudeIndices, latitudeIndices);
+        int stridedRowsPerRead = costModel.getRowsWithinBudget(plan.getLonCount(),
+                maxBytesPerRead);
+        long stridedReads = 0;
+        long stridedBytes = 0;
+        for (int band = 0; band < plan.getBandCount(); band++) {
+            stridedReads += (plan.getBandRowCount(band) + stridedRowsPerRead - 1)
+                    / stridedRowsPerRead;
+            stridedBytes += costModel.getBytesTouched(plan.getLonFirst(), plan.getLonLast(),
+                    plan.getLonStride(), plan.getBandFirst(band), plan.getBandLast(band),
+                    plan.getBandStride(band));
+        }
+        long stridedCost = stridedBytes + stridedReads * readOverhead;
+
+        ReadStrategy strategy;
+        long estimatedBytes;
+        boolean tiled;
+        if (overSamplingCost <= stridedCost && overSamplingCost <= underSamplingCost) {
+            strategy = new OverSamplingReadStrategy();
+            estimatedBytes = overSamplingBytes;
+            tiled = overSamplingReads > 1;
+        } else if (underSamplingCost < stridedCost) {
+            strategy = new UnderSamplingReadStrategy();
+            estimatedBytes = underSamplingBytes;
+            tiled = false;
         } else {
-            return new OverSamplingReadStrategy();
+            strategy = new StridedSectionReadStrategy(plan);
+            estimatedBytes = stridedBytes;
+            tiled = stridedReads > plan.getBandCount();
         }
+        strategy.setMaxBytesPerRead(maxBytesPerRead);
+
+        String decision = strategy.getClass().getSimpleName() + " [over sampling "
+                + overSamplingCost + " bytes in " + overSamplingReads + " reads, under sampling "
+                + underSamplingCost + " bytes in " + numberOfRequestPoints + " reads, strided "
+                + stridedCost + " bytes in " + stridedReads + " reads, sampling factor "
+                + samplingFactor + ", budget " + maxBytesPerRead + " bytes per read]";
+        metrics.recordDecision(strategy, estimatedBytes, tiled, decision);
+
+        if (LOG.isLoggable(Level.INFO)) {
+            LOG.log(Level.INFO, "Estimated cost: {0}", decision);
+        }
+
+        return strategy;
     }
 }
@@ -0,0 +1,182 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geotools.gce.netcdf.NetCdfUtil;
+
+/**
+ * The file index ranges a {@link StridedSectionReadStrategy} reads for one request: a single strided longitude range, and the latitude indices
+ * grouped into bands that can each be read with one strided range.
+ */
+class StridedReadPlan {
+
+    /**
+     * One strided read over all latitudes is used when it reads at most this many times the rows actually needed.
+     */
+    private static final int MAX_SINGLE_BAND_WASTE = 2;
+
+    private final int lonFirst;
+
+    private final int lonLast;
+
+    private final int lonStride;
+
+    private final int[] bandFirst;
+
+    private final int[] bandLast;
+
+    private final int[] bandStride;
+
+    /**
+     * @param longitudeIndices - file index of every request longitude or NetCdfUtil.NOT_FOUND, with at least one found.
+     * @param latitudeIndices - file index of every request latitude or NetCdfUtil.NOT_FOUND, with at least one found.
+     */
+    StridedReadPlan(int[] longitudeIndices, int[] latitudeIndices) {
+        int[] lons = distinctSorted(longitudeIndices);
+        lonFirst = lons[0];
+        lonLast = lons[lons.length - 1];
+        lonStride = gcdOfSteps(lons);
+
+        int[] lats = distinctSorted(latitudeIndices);
+        int latStride = gcdOfSteps(lats);
+        int rowsInSingleBand = (lats[lats.length - 1] - lats[0]) / latStride + 1;
+        if (rowsInSingleBand <= MAX_SINGLE_BAND_WASTE * lats.length) {
+            bandFirst = new int[] { lats[0] };
+            bandLast = new int[] { lats[lats.length - 1] };
+            bandStride = new int[] { latStride };
+        } else {
+            // split into runs of evenly spaced rows, each run is read with its own stride.
+            List<int[]> bands = new ArrayList<int[]>();
+            int start = 0;
+            while (start < lats.length) {
+                int end = start;
+                int step = 1;
+                if (start + 1 < lats.length) {
+                    step = lats[start + 1] - lats[start];
+                    end = start + 1;
+                    while (end + 1 < lats.length && lats[end + 1] - lats[end] == step) {
+                        end++;
+                    }
+                }
+                bands.add(new int[] { lats[start], lats[end], step });
+                start = end + 1;
+            }
+            bandFirst = new int[bands.size()];
+            bandLast = new int[bands.size()];
+            bandStride = new int[bands.size()];
+            for (int i = 0; i < bands.size(); i++) {
+                bandFirst[i] = bands.get(i)[0];
+                bandLast[i] = bands.get(i)[1];
+                bandStride[i] = bands.get(i)[2];
+            }
+        }
+    }
+
+    /**
+     * The file indices without the NOT_FOUND ones, sorted and without duplicates.
+     */
+    private static int[] distinctSorted(int[] indices) {
+        int[] sorted = indices.clone();
+        Arrays.sort(sorted);
+
+        int count = 0;
+        for (int j = 0; j < sorted.length; j++) {
+            if (sorted[j] != NetCdfUtil.NOT_FOUND
+                    && (count == 0 || sorted[j] != sorted[count - 1])) {
+                sorted[count++] = sorted[j];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * The largest stride that still hits every index, 1 for a single index.
+     */
+    private static int gcdOfSteps(int[] distinctSorted) {
+        int gcd = 0;
+        for (int i = 1; i < distinctSorted.length && gcd != 1; i++) {
+            gcd = gcd(gcd, distinctSorted[i] - distinctSorted[i - 1]);
+        }
+        return gcd == 0 ? 1 : gcd;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    int getLonFirst() {
+        return lonFirst;
+    }
+
+    int getLonLast() {
+        return lonLast;
+    }
+
+    int getLonStride() {
+        return lonStride;
+    }
+
+    int getLonCount() {
+        return (lonLast - lonFirst) / lonStride + 1;
+    }
+
+    int getBandCount() {
+        return bandFirst.length;
+    }
+
+    int getBandFirst(int band) {
+        return bandFirst[band];
+    }
+
+    int getBandLast(int band) {
+        return bandLast[band];
+    }
+
+    int getBandStride(int band) {
+        return bandStride[band];
+    }
+
+    int getBandRowCount(int band) {
+        return (bandLast[band] - bandFirst[band]) / bandStride[band] + 1;
+    }
+
+    /**
+     * @return number of values read from the file over all bands.
+     */
+    long getPointCount() {
+        long rows = 0;
+        for (int band = 0; band < getBandCount(); band++) {
+            rows += getBandRowCount(band);
+        }
+        return rows * getLonCount();
+    }
+
+    @Override
+    public String toString() {
+        return "StridedReadPlan [lon " + lonFirst + ":" + lonLast + ":" + lonStride + ", "
+                + getBandCount() + " latitude bands, " + getPointCount() + " points]";
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.geotools.util.logging.Logging;
+
+import ucar.ma2.Array;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+
+/**
+ * ReadStrategy that reads only the file rows and columns the request needs: one strided Section read per band of evenly spaced latitude rows, with
+ * the longitude range strided by the largest step that still hits every needed column. The values are then scattered into the image through the
+ * index maps, so a row or column used by several pixels is read once. Bands that do not fit in the memory budget set with
+ * {@link #setMaxBytesPerRead(long)} are read in tiles of whole rows.
+ */
+public class StridedSectionReadStrategy extends AbstractReadStrategy {
+
+    private static final Logger LOG = Logging.getLogger(StridedSectionReadStrategy.class);
+
+    private StridedReadPlan plan;
+
+    public StridedSectionReadStrategy() {
+    }
+
+    /**
+     * @param plan computed for the index maps given to read, so the factory does not compute it twice.
+     */
+    StridedSectionReadStrategy(StridedReadPlan plan) {
+        this.plan = plan;
+    }
+
+    @Override
+    public void read(int[] longitudes, int[] latitudes, GrdDataEncapsulator data)
+            throws IOException, InvalidRangeException {
+        int[] lonKeys = getRequestIndices(longitudes);
+        int[] latKeys = getRequestIndices(latitudes);
+        if (lonKeys.length == 0 || latKeys.length == 0) {
+            return;
+        }
+        if (plan == null) {
+            plan = new StridedReadPlan(longitudes, latitudes);
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Reading {0} with {1}", new Object[] { variable.getShortName(),
+                    plan });
+        }
+
+        // position in the strided longitude range of every requested longitude in the file.
+        int[] lonPositions = new int[lonKeys.length];
+        for (int i = 0; i < lonKeys.length; i++) {
+            lonPositions[i] = (longitudes[lonKeys[i]] - plan.getLonFirst()) / plan.getLonStride();
+        }
+
+        // band and position in the band of every requested latitude in the file.
+        int bandCount = plan.getBandCount();
+        int[] bandFirsts = new int[bandCount];
+        for (int band = 0; band < bandCount; band++) {
+            bandFirsts[band] = plan.getBandFirst(band);
+        }
+        int[] latBands = new int[latKeys.length];
+        int[] latPositions = new int[latKeys.length];
+        int[] bandSizes = new int[bandCount];
+        for (int i = 0; i < latKeys.length; i++) {
+            int fileLat = latitudes[latKeys[i]];
+            int band = Arrays.binarySearch(bandFirsts, fileLat);
+            if (band < 0) {
+                band = -band - 2;
+            }
+            latBands[i] = band;
+            latPositions[i] = (fileLat - plan.getBandFirst(band)) / plan.getBandStride(band);
+            bandSizes[band]++;
+        }
+
+        int lonDimension = getLongitudeDimensionIndex();
+        int latDimension = getLatitudeDimensionIndex();
+        int imageHeight = data.getDesiredLats().size();
+        Range lonRange = new Range(plan.getLonFirst(), plan.getLonLast(), plan.getLonStride());
+
+        int rowsPerTile = getRowsPerRead(plan.getLonCount());
+
+        for (int band = 0; band < bandCount; band++) {
+            if (bandSizes[band] == 0) {
+                continue;
+            }
+            // bands larger than the memory budget are read in tiles of rowsPerTile rows.
+            int bandRows = plan.getBandRowCount(band);
+            int bandStride = plan.getBandStride(band);
+            for (long tile = 0; tile < bandRows; tile += rowsPerTile) {
+                int tileFirstRow = (int) tile;
+                int tileLastRow = (int) Math.min(tile + rowsPerTile - 1, bandRows - 1);
+                Range latRange = new Range(plan.getBandFirst(band) + tileFirstRow * bandStride,
+                        plan.getBandFirst(band) + tileLastRow * bandStride, bandStride);
+                Array array = read(getReadSection(lonRange, latRange));
+
+                // all other dimensions are a single index, left at 0.
+                Index arrayIndex = array.getIndex();
+                int[] indices = new int[array.getRank()];
+
+                for (int lat = 0; lat < latKeys.length; lat++) {
+                    if (latBands[lat] != band || latPositions[lat] < tileFirstRow
+                            || latPositions[lat] > tileLastRow) {
+                        continue;
+                    }
+                    indices[latDimension] = latPositions[lat] - tileFirstRow;
+                    int dataLatIndex = (imageHeight - 1) - latKeys[lat];
+
+                    for (int lon = 0; lon < lonKeys.length; lon++) {
+                        indices[lonDimension] = lonPositions[lon];
+                        arrayIndex.set(indices);
+
+                        float dataValue = array.getFloat(arrayIndex);
+                        float adjustedValue = getAdjustedValue(dataValue);
+
+                        // Don't add the point if it's a missing or fill value.
+                        // The point will just be NaN in the result coverage.
+                        if (isMissingValue(dataValue) || isMissingValue(adjustedValue)
+                                || isFillValue(dataValue) || isFillValue(adjustedValue)) {
+                            continue;
+                        }
+
+                        data.setValue(lonKeys[lon], dataLatIndex, adjustedValue);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The request indices whose coordinate is in the file.
+     */
+    private static int[] getRequestIndices(int[] fileIndices) {
+        int[] result = new int[fileIndices.length];
+        int count = 0;
+        for (int i = 0; i < fileIndices.length; i++) {
+            if (fileIndices[i] != NetCdfUtil.NOT_FOUND) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
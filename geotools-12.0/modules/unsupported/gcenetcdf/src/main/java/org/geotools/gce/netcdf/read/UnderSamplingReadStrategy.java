@@ -17,11 +17,11 @@
 package org.geotools.gce.netcdf.read;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCdfUtil;
 import org.geotools.util.logging.Logging;
 import ucar.ma2.Array;
 import ucar.ma2.InvalidRangeException;
@@ -36,18 +36,24 @@ public class UnderSamplingReadStrategy extends AbstractReadStrategy {
     private static final Logger LOG = Logging.getLogger(UnderSamplingReadStrategy.class);
 
     @Override
-    public void read(Map<Integer, Integer> longitudes, Map<Integer, Integer> latitudes,
-            GrdDataEncapsulator data) throws IOException, InvalidRangeException {
+    public void read(int[] longitudes, int[] latitudes, GrdDataEncapsulator data)
+            throws IOException, InvalidRangeException {
 
-        for (Map.Entry<Integer, Integer> latEntry : latitudes.entrySet()) {
-            int latIndex = latEntry.getValue();
+        for (int requestLat = 0; requestLat < latitudes.length; requestLat++) {
+            int latIndex = latitudes[requestLat];
+            if (latIndex == NetCdfUtil.NOT_FOUND) {
+                continue;
+            }
 
-            for (Map.Entry<Integer, Integer> lonEntry : longitudes.entrySet()) {
-                int lonIndex = lonEntry.getValue();
+            for (int requestLon = 0; requestLon < longitudes.length; requestLon++) {
+                int lonIndex = longitudes[requestLon];
+                if (lonIndex == NetCdfUtil.NOT_FOUND) {
+                    continue;
+                }
 
                 // Read the Variable from the NetCDF file.
                 // This returns a one-dimensional UCAR array.
-                Array array = variable.read(getReadParameter(String.valueOf(lonIndex),
+                Array array = read(getReadParameter(String.valueOf(lonIndex),
                         String.valueOf(latIndex)));
 
                 // Since we are reading each point individually, the current value is always at the
@@ -63,8 +69,8 @@ public class UnderSamplingReadStrategy extends AbstractReadStrategy {
                 }
 
                 // Get the indices to use in the data object.
-                int dataLonIndex = lonEntry.getKey();
-                int dataLatIndex = (data.getDesiredLats().size() - 1) - latEntry.getKey();
+                int dataLonIndex = requestLon;
+                int dataLatIndex = (data.getDesiredLats().size() - 1) - requestLat;
 
                 if (LOG.isLoggable(Level.FINER)) {
                     LOG.log(Level.FINER, "Setting the data at lon[{0}] lat[{1}] to {2}",
@@ -72,7 +78,7 @@ public class UnderSamplingReadStrategy extends AbstractReadStrategy {
                 }
 
                 // Add the current adjusted value from the file to the data object.
-                data.getImageArray()[dataLonIndex][dataLatIndex] = adjustedValue;
+                data.setValue(dataLonIndex, dataLatIndex, adjustedValue);
             }
         }
     }
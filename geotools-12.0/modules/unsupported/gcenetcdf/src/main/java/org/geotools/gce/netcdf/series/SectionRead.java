@@ -0,0 +1,238 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.series;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.derived.DerivedVariable;
+import org.geotools.gce.netcdf.read.PackingAttributes;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+import org.geotools.util.logging.Logging;
+
+import ucar.ma2.Array;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.Variable;
+
+/**
+ * Reads a {@link VerticalSection}, the values of a variable along a path of grid cells across a range of elevations.
+ *
+ * Consecutive cells of the path are read together, as the hyperslab of their bounding box across the elevations, as long as the values of the
+ * box that are not on the path cost less than another read, see {@link ReadMetrics#getReadOverheadBytes()}, and the box fits within
+ * {@link ReadMetrics#getMaxBytesPerRead()}. A profile at a point is a single read of all its elevations, and a section along a row or column of
+ * the grid is a single read as well.
+ */
+public final class SectionRead {
+
+    private static final Logger LOG = Logging.getLogger(SectionRead.class);
+
+    private final List<Variable> variables;
+
+    private final DerivedVariable derivedVariable;
+
+    private final Range[] ranges;
+
+    private final int longitudeDimension;
+
+    private final int latitudeDimension;
+
+    private final int elevationDimension;
+
+    /**
+     * @param variables - the variable, or the source variables of the derived variable, all with the same dimensions.
+     * @param derivedVariable - null to give the values of the variable itself.
+     * @param ranges - the file indices to read along every dimension of the variables, in their order: the elevations of the section and a
+     *        single index of every other dimension but longitude and latitude, whose ranges are not used.
+     * @param elevationDimension - the elevation dimension of the variables, -1 if they have none.
+     */
+    public SectionRead(List<Variable> variables, DerivedVariable derivedVariable,
+            List<Range> ranges, int longitudeDimension, int latitudeDimension,
+            int elevationDimension) {
+        if (variables.isEmpty() || ranges.size() != variables.get(0).getRank()) {
+            throw new IllegalArgumentException("Expected a range for each of the "
+                    + (variables.isEmpty() ? 0 : variables.get(0).getRank())
+                    + " dimensions of the variable, got " + ranges);
+        }
+        if (longitudeDimension < 0 || latitudeDimension < 0) {
+            throw new IllegalArgumentException("A section needs longitude and latitude dimensions");
+        }
+        this.variables = variables;
+        this.derivedVariable = derivedVariable;
+        this.ranges = ranges.toArray(new Range[ranges.size()]);
+        this.longitudeDimension = longitudeDimension;
+        this.latitudeDimension = latitudeDimension;
+        this.elevationDimension = elevationDimension;
+    }
+
+    /**
+     * @return the number of elevations of the section, 1 if the variables have no elevation dimension.
+     */
+    public int getElevationCount() {
+        return elevationDimension < 0 ? 1 : ranges[elevationDimension].length();
+    }
+
+    /**
+     * Read the values of the cells of the path.
+     *
+     * @param lonIndexes - the longitude index of each cell of the path.
+     * @param latIndexes - the latitude index of each cell of the path.
+     * @param longitudes - the longitude of each cell, for the section.
+     * @param latitudes - the latitude of each cell, for the section.
+     * @param elevations - the elevation of each row, for the section.
+     * @param kilometersPerUnit - see {@link VerticalSection}, NaN for a grid of longitudes and latitudes.
+     * @param paramInfo - the request, checked for cancellation between reads. May be null.
+     * @throws CancellationException if paramInfo is cancelled.
+     */
+    public VerticalSection read(int[] lonIndexes, int[] latIndexes, double[] longitudes,
+            double[] latitudes, double[] elevations, Date time, double kilometersPerUnit,
+            ParamInformation paramInfo) throws IOException, InvalidRangeException {
+        int width = lonIndexes.length;
+        int elevationCount = getElevationCount();
+        float[] values = new float[width * elevationCount];
+
+        PackingAttributes[] packings = new PackingAttributes[variables.size()];
+        for (int i = 0; i < packings.length; i++) {
+            packings[i] = PackingAttributes.getInstance(variables.get(i));
+        }
+
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        long bytesPerCell = (long) variables.get(0).getElementSize() * variables.size()
+                * elevationCount;
+        List<Integer> runEnds = getRunEnds(lonIndexes, latIndexes, bytesPerCell,
+                metrics.getMaxBytesPerRead(), metrics.getReadOverheadBytes());
+        int start = 0;
+        for (int end : runEnds) {
+            if (paramInfo != null && paramInfo.isCancelled()) {
+                throw new CancellationException("Section read of "
+                        + variables.get(0).getShortName() + " cancelled");
+            }
+            readRun(lonIndexes, latIndexes, start, end, packings, values);
+            start = end;
+        }
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Read section of {0} cells of {1} in {2} reads", new Object[] {
+                    width, variables.get(0).getShortName(), runEnds.size() });
+        }
+        return new VerticalSection(longitudes, latitudes, elevations, time, values,
+                kilometersPerUnit);
+    }
+
+    /**
+     * Split the path into runs of consecutive cells read as the hyperslab of their bounding box. A run grows while the values its box gains
+     * beyond the next cell cost less than a read of their own, and while the box fits within maxBytesPerRead.
+     *
+     * @param bytesPerCell - the bytes read for one cell of the grid, across the elevations and the variables.
+     * @return the index past the last cell of each run.
+     */
+    static List<Integer> getRunEnds(int[] lonIndexes, int[] latIndexes, long bytesPerCell,
+            long maxBytesPerRead, long readOverheadBytes) {
+        List<Integer> result = new ArrayList<Integer>();
+        int start = 0;
+        while (start < lonIndexes.length) {
+            int minLon = lonIndexes[start];
+            int maxLon = minLon;
+            int minLat = latIndexes[start];
+            int maxLat = minLat;
+            int end = start + 1;
+            while (end < lonIndexes.length) {
+                int nextMinLon = Math.min(minLon, lonIndexes[end]);
+                int nextMaxLon = Math.max(maxLon, lonIndexes[end]);
+                int nextMinLat = Math.min(minLat, latIndexes[end]);
+                int nextMaxLat = Math.max(maxLat, latIndexes[end]);
+                long boxBytes = (long) (maxLon - minLon + 1) * (maxLat - minLat + 1)
+                        * bytesPerCell;
+                long nextBoxBytes = (long) (nextMaxLon - nextMinLon + 1)
+                        * (nextMaxLat - nextMinLat + 1) * bytesPerCell;
+                if (nextBoxBytes > maxBytesPerRead
+                        || nextBoxBytes - boxBytes - bytesPerCell > readOverheadBytes) {
+                    break;
+                }
+                minLon = nextMinLon;
+                maxLon = nextMaxLon;
+                minLat = nextMinLat;
+                maxLat = nextMaxLat;
+                end++;
+            }
+            result.add(end);
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Read the bounding box of the cells from start to end and copy the values of the cells into the section values.
+     */
+    private void readRun(int[] lonIndexes, int[] latIndexes, int start, int end,
+            PackingAttributes[] packings, float[] values) throws IOException,
+            InvalidRangeException {
+        int minLon = Integer.MAX_VALUE;
+        int maxLon = Integer.MIN_VALUE;
+        int minLat = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            minLon = Math.min(minLon, lonIndexes[i]);
+            maxLon = Math.max(maxLon, lonIndexes[i]);
+            minLat = Math.min(minLat, latIndexes[i]);
+            maxLat = Math.max(maxLat, latIndexes[i]);
+        }
+        Range[] runRanges = ranges.clone();
+        runRanges[longitudeDimension] = new Range(minLon, maxLon);
+        runRanges[latitudeDimension] = new Range(minLat, maxLat);
+        Section section = new Section(Arrays.asList(runRanges));
+
+        int runCells = end - start;
+        int elevationCount = getElevationCount();
+        float[][] sources = new float[variables.size()][runCells * elevationCount];
+        for (int v = 0; v < sources.length; v++) {
+            Array array = variables.get(v).read(section);
+            ReadMetrics.getInstance().recordRead(array.getSizeBytes());
+            Index index = array.getIndex();
+            for (int cell = 0; cell < runCells; cell++) {
+                index.setDim(longitudeDimension, lonIndexes[start + cell] - minLon);
+                index.setDim(latitudeDimension, latIndexes[start + cell] - minLat);
+                for (int row = 0; row < elevationCount; row++) {
+                    if (elevationDimension >= 0) {
+                        index.setDim(elevationDimension, row);
+                    }
+                    sources[v][row * runCells + cell] = packings[v].getValue(array
+                            .getFloat(index));
+                }
+            }
+        }
+
+        float[] runValues = sources[0];
+        if (derivedVariable != null) {
+            runValues = new float[runCells * elevationCount];
+            derivedVariable.evaluate(sources, runValues.length, runValues);
+        }
+        int width = lonIndexes.length;
+        for (int row = 0; row < elevationCount; row++) {
+            System.arraycopy(runValues, row * runCells, values, row * width + start, runCells);
+        }
+    }
+}
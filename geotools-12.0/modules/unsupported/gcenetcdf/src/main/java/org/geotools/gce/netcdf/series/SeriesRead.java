@@ -0,0 +1,263 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.series;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.derived.DerivedVariable;
+import org.geotools.gce.netcdf.index.GridAxis;
+import org.geotools.gce.netcdf.read.PackingAttributes;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+import org.geotools.util.logging.Logging;
+
+import ucar.ma2.Array;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.Variable;
+
+/**
+ * Reads a hyperslab of a variable, the cells of a small box across every time, reference time and elevation asked for, and gives its values
+ * to a {@link SeriesVisitor} as they are read.
+ *
+ * The hyperslab is read with as few reads as {@link ReadMetrics#getMaxBytesPerRead()} allows, split along the first dimension of the variable
+ * when it does not fit: a point time series of a forecast is one read instead of one coverage read per time. Each part is given to the visitor
+ * before the next one is read, so the memory used does not grow with the length of the series.
+ *
+ * The coordinates of the cells are set with the setters for the dimensions the variable has, a dimension that is not set gives null (or NaN)
+ * coordinates.
+ */
+public final class SeriesRead {
+
+    private static final Logger LOG = Logging.getLogger(SeriesRead.class);
+
+    private final List<Variable> variables;
+
+    private final DerivedVariable derivedVariable;
+
+    private final Range[] ranges;
+
+    private int longitudeDimension = -1;
+
+    private GridAxis longitudes;
+
+    private int latitudeDimension = -1;
+
+    private GridAxis latitudes;
+
+    private int timeDimension = -1;
+
+    /**
+     * times by runtime index, then time index. a single row when the time variable has no runtime dimension.
+     */
+    private Date[][] times;
+
+    private int elevationDimension = -1;
+
+    private Double[] elevations;
+
+    private int runtimeDimension = -1;
+
+    /**
+     * reference times by runtime index, or the one reference time of the file without a runtime dimension.
+     */
+    private Date[] referenceTimes;
+
+    /**
+     * @param variables - the variable, or the source variables of the derived variable, all with the same dimensions.
+     * @param derivedVariable - null to give the values of the variable itself.
+     * @param ranges - the file indices to read along every dimension of the variables, in their order.
+     */
+    public SeriesRead(List<Variable> variables, DerivedVariable derivedVariable, List<Range> ranges) {
+        if (variables.isEmpty() || ranges.size() != variables.get(0).getRank()) {
+            throw new IllegalArgumentException("Expected a range for each of the "
+                    + (variables.isEmpty() ? 0 : variables.get(0).getRank())
+                    + " dimensions of the variable, got " + ranges);
+        }
+        this.variables = variables;
+        this.derivedVariable = derivedVariable;
+        this.ranges = ranges.toArray(new Range[ranges.size()]);
+    }
+
+    public void setLongitudes(int dimension, GridAxis longitudes) {
+        this.longitudeDimension = dimension;
+        this.longitudes = longitudes;
+    }
+
+    public void setLatitudes(int dimension, GridAxis latitudes) {
+        this.latitudeDimension = dimension;
+        this.latitudes = latitudes;
+    }
+
+    /**
+     * @param times - times by runtime index then time index, or a single row of times by time index.
+     */
+    public void setTimes(int dimension, Date[][] times) {
+        this.timeDimension = dimension;
+        this.times = times;
+    }
+
+    /**
+     * @param elevations - elevations by file index.
+     */
+    public void setElevations(int dimension, Double[] elevations) {
+        this.elevationDimension = dimension;
+        this.elevations = elevations;
+    }
+
+    /**
+     * @param dimension - the runtime dimension, -1 if the variable has none.
+     * @param referenceTimes - reference times by runtime index, or a single reference time for a variable without runtime dimension.
+     */
+    public void setReferenceTimes(int dimension, Date[] referenceTimes) {
+        this.runtimeDimension = dimension;
+        this.referenceTimes = referenceTimes;
+    }
+
+    /**
+     * @return the number of values of the hyperslab.
+     */
+    public long getSize() {
+        return new Section(Arrays.asList(ranges)).computeSize();
+    }
+
+    /**
+     * Read the hyperslab and give its values to the visitor.
+     *
+     * @param paramInfo - the request, checked for cancellation between reads. May be null.
+     * @return false if the visitor stopped the read.
+     * @throws CancellationException if paramInfo is cancelled.
+     */
+    public boolean read(SeriesVisitor visitor, ParamInformation paramInfo) throws IOException,
+            InvalidRangeException {
+        Range outer = ranges[0];
+        long innerSize = 1;
+        for (int dimension = 1; dimension < ranges.length; dimension++) {
+            innerSize *= ranges[dimension].length();
+        }
+        long bytesPerOuterIndex = innerSize * variables.get(0).getElementSize()
+                * variables.size();
+        long maxBytesPerRead = ReadMetrics.getInstance().getMaxBytesPerRead();
+        int outerPerRead = (int) Math.max(1, Math.min(outer.length(), maxBytesPerRead
+                / Math.max(1, bytesPerOuterIndex)));
+
+        PackingAttributes[] packings = new PackingAttributes[variables.size()];
+        for (int i = 0; i < packings.length; i++) {
+            packings[i] = PackingAttributes.getInstance(variables.get(i));
+        }
+
+        int readCount = 0;
+        try {
+            for (int first = 0; first < outer.length(); first += outerPerRead) {
+                if (paramInfo != null && paramInfo.isCancelled()) {
+                    throw new CancellationException("Series read of "
+                            + variables.get(0).getShortName() + " cancelled");
+                }
+                int last = Math.min(outer.length(), first + outerPerRead) - 1;
+                Range[] partRanges = ranges.clone();
+                partRanges[0] = new Range(outer.first() + first * outer.stride(), outer.first()
+                        + last * outer.stride(), outer.stride());
+                Section section = new Section(Arrays.asList(partRanges));
+
+                float[] values = readValues(section, packings);
+                readCount++;
+                if (!visit(visitor, partRanges, section.getShape(), values)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.log(Level.FINE, "Read series of {0} {1} in {2} reads", new Object[] {
+                        variables.get(0).getShortName(), Arrays.asList(ranges), readCount });
+            }
+        }
+    }
+
+    /**
+     * @return the values of the section, in row-major order, derived from the source variables if there is a derived variable.
+     */
+    private float[] readValues(Section section, PackingAttributes[] packings) throws IOException,
+            InvalidRangeException {
+        float[][] sources = new float[variables.size()][];
+        for (int i = 0; i < sources.length; i++) {
+            Array array = variables.get(i).read(section);
+            ReadMetrics.getInstance().recordRead(array.getSizeBytes());
+            float[] values = new float[(int) array.getSize()];
+            IndexIterator iterator = array.getIndexIterator();
+            for (int j = 0; j < values.length; j++) {
+                values[j] = packings[i].getValue(iterator.getFloatNext());
+            }
+            sources[i] = values;
+        }
+        if (derivedVariable == null) {
+            return sources[0];
+        }
+        float[] result = new float[sources[0].length];
+        derivedVariable.evaluate(sources, result.length, result);
+        return result;
+    }
+
+    private boolean visit(SeriesVisitor visitor, Range[] partRanges, int[] shape, float[] values) {
+        int rank = shape.length;
+        int[] counter = new int[rank];
+        int[] fileIndices = new int[rank];
+        for (int dimension = 0; dimension < rank; dimension++) {
+            fileIndices[dimension] = partRanges[dimension].first();
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            int runtimeIndex = runtimeDimension < 0 ? 0 : fileIndices[runtimeDimension];
+            Date referenceTime = referenceTimes == null || referenceTimes.length == 0 ? null
+                    : referenceTimes[runtimeDimension < 0 ? 0 : runtimeIndex];
+            Date time = null;
+            if (timeDimension >= 0 && times != null) {
+                Date[] row = times[times.length == 1 ? 0 : runtimeIndex];
+                time = row[fileIndices[timeDimension]];
+            }
+            Double elevation = elevationDimension < 0 || elevations == null ? null
+                    : elevations[fileIndices[elevationDimension]];
+            double longitude = longitudeDimension < 0 ? Double.NaN : longitudes
+                    .getValue(fileIndices[longitudeDimension]);
+            double latitude = latitudeDimension < 0 ? Double.NaN : latitudes
+                    .getValue(fileIndices[latitudeDimension]);
+
+            if (!visitor.visit(referenceTime, time, elevation, longitude, latitude, values[i])) {
+                return false;
+            }
+
+            // next index, last dimension fastest.
+            for (int dimension = rank - 1; dimension >= 0; dimension--) {
+                if (++counter[dimension] < shape[dimension]) {
+                    fileIndices[dimension] += partRanges[dimension].stride();
+                    break;
+                }
+                counter[dimension] = 0;
+                fileIndices[dimension] = partRanges[dimension].first();
+            }
+        }
+        return true;
+    }
+}
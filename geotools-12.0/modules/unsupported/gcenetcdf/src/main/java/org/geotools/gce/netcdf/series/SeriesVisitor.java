@@ -0,0 +1,41 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.series;
+
+import java.util.Date;
+
+/**
+ * Receives the values of a series read, like a meteogram of a point, one value at a time as they are read from the file, so a series of any
+ * length is never held in memory as a whole.
+ *
+ * Values come in the order of the dimensions of the variable in the file: for temp(time, depth, lat, lon), every cell of every depth of the first
+ * time before the values of the next time.
+ */
+public interface SeriesVisitor {
+
+    /**
+     * @param referenceTime - the reference time (runtime) of the value, null if the file has none. Shared between calls, not to be modified.
+     * @param time - the time of the value, null if the variable has no time dimension. Shared between calls, not to be modified.
+     * @param elevation - the elevation of the value, as in the file, null if the variable has no elevation dimension.
+     * @param longitude - the longitude of the cell in the file.
+     * @param latitude - the latitude of the cell in the file.
+     * @param value - the value, scaled and offset, NaN if it is missing.
+     * @return false to stop the read, the remaining values are not read.
+     */
+    boolean visit(Date referenceTime, Date time, Double elevation, double longitude,
+            double latitude, float value);
+}
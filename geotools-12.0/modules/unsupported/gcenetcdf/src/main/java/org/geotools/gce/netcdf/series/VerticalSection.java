@@ -0,0 +1,217 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.series;
+
+import java.awt.Point;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Date;
+
+import org.geotools.geometry.Envelope2D;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.opengis.geometry.Envelope;
+
+/**
+ * The values of a variable along a path of grid cells and a range of elevations at one time: a vertical profile when the path is a single cell,
+ * a vertical section along a track otherwise.
+ *
+ * Columns are the cells of the path in order, rows the elevations in the order of the file. The cells are given by longitude and latitude, or by the
+ * x and y of the native CRS of a projected grid.
+ */
+public final class VerticalSection {
+
+    private static final int N_BITS_32 = 32;
+
+    /**
+     * mean radius of the earth, in kilometers, for the distances along the path.
+     */
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double[] longitudes;
+
+    private final double[] latitudes;
+
+    private final double[] distances;
+
+    private final double[] elevations;
+
+    private final Date time;
+
+    private final float[] values;
+
+    /**
+     * Section of cells given by longitude and latitude, with great circle distances along the path.
+     */
+    public VerticalSection(double[] longitudes, double[] latitudes, double[] elevations,
+            Date time, float[] values) {
+        this(longitudes, latitudes, elevations, time, values, Double.NaN);
+    }
+
+    /**
+     * @param longitudes - the longitude of each cell of the path, as in the file, not copied.
+     * @param latitudes - the latitude of each cell of the path, as in the file, not copied.
+     * @param elevations - the elevation of each row, as in the file, a single NaN if the variable has no elevation dimension. Not copied.
+     * @param time - the time of the values, null if the variable has no time dimension.
+     * @param values - the values, row-major: the value of column x and row y at index y * longitudes.length + x. Not copied.
+     * @param kilometersPerUnit - the kilometers of a unit of the x and y of the cells on a projected grid, for straight line distances along the
+     *        path, NaN for great circle distances between longitudes and latitudes.
+     */
+    public VerticalSection(double[] longitudes, double[] latitudes, double[] elevations,
+            Date time, float[] values, double kilometersPerUnit) {
+        if (longitudes.length != latitudes.length
+                || values.length != longitudes.length * elevations.length) {
+            throw new IllegalArgumentException("Expected " + longitudes.length + " by "
+                    + elevations.length + " values, got " + values.length);
+        }
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+        this.elevations = elevations;
+        this.time = time;
+        this.values = values;
+
+        distances = new double[longitudes.length];
+        for (int i = 1; i < distances.length; i++) {
+            if (Double.isNaN(kilometersPerUnit)) {
+                distances[i] = distances[i - 1]
+                        + getDistance(longitudes[i - 1], latitudes[i - 1], longitudes[i],
+                                latitudes[i]);
+            } else {
+                distances[i] = distances[i - 1]
+                        + Math.hypot(longitudes[i] - longitudes[i - 1], latitudes[i]
+                                - latitudes[i - 1]) * kilometersPerUnit;
+            }
+        }
+    }
+
+    /**
+     * @return the great circle distance between two points, in kilometers.
+     */
+    static double getDistance(double lon1, double lat1, double lon2, double lat2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinDeltaLambda = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinDeltaPhi * sinDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinDeltaLambda
+                * sinDeltaLambda;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * @return the number of cells of the path.
+     */
+    public int getWidth() {
+        return longitudes.length;
+    }
+
+    /**
+     * @return the number of elevations.
+     */
+    public int getHeight() {
+        return elevations.length;
+    }
+
+    public float getValue(int column, int row) {
+        return values[row * longitudes.length + column];
+    }
+
+    public double getLongitude(int column) {
+        return longitudes[column];
+    }
+
+    public double getLatitude(int column) {
+        return latitudes[column];
+    }
+
+    /**
+     * @return the distance of the cell from the first cell of the path, along the path, in kilometers.
+     */
+    public double getDistance(int column) {
+        return distances[column];
+    }
+
+    public double getElevation(int row) {
+        return elevations[row];
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * @return the values, row-major, not to be modified.
+     */
+    public float[] getValues() {
+        return values;
+    }
+
+    /**
+     * Provides a raster of the section to build a coverage with {@link #getEnvelope()}: columns by distance along the path and rows by elevation,
+     * with the first row at the highest elevation.
+     */
+    public WritableRaster getWritableRaster() {
+        int width = getWidth();
+        int height = getHeight();
+        float[] imageData = values;
+        if (height > 1 && elevations[0] < elevations[height - 1]) {
+            imageData = new float[values.length];
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(values, row * width, imageData, (height - 1 - row) * width, width);
+            }
+        }
+        int[] nBits = { N_BITS_32 };
+        ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
+        ColorModel cm = new ComponentColorModel(cs, nBits, false, true, Transparency.OPAQUE,
+                DataBuffer.TYPE_FLOAT);
+        SampleModel sm = cm.createCompatibleSampleModel(width, height);
+        return Raster.createWritableRaster(sm, new DataBufferFloat(imageData, imageData.length),
+                new Point(0, 0));
+    }
+
+    /**
+     * Provides the envelope of {@link #getWritableRaster()}, in a cartesian CRS of the distance along the path in kilometers and the elevation as
+     * in the file. The cells are evenly spaced over the envelope, and a single column or row is given a width of 1.
+     */
+    public Envelope getEnvelope() {
+        int width = getWidth();
+        int height = getHeight();
+        double totalDistance = distances[width - 1];
+        double columnWidth = width > 1 ? totalDistance / (width - 1) : 1;
+        double minElevation = height > 1 ? Math.min(elevations[0], elevations[height - 1]) : 0;
+        double maxElevation = height > 1 ? Math.max(elevations[0], elevations[height - 1]) : 0;
+        if (height == 1 && !Double.isNaN(elevations[0])) {
+            minElevation = elevations[0];
+            maxElevation = elevations[0];
+        }
+        double rowHeight = height > 1 ? (maxElevation - minElevation) / (height - 1) : 1;
+        return new Envelope2D(DefaultEngineeringCRS.CARTESIAN_2D, -columnWidth / 2, minElevation
+                - rowHeight / 2, totalDistance + columnWidth, maxElevation - minElevation
+                + rowHeight);
+    }
+
+    @Override
+    public String toString() {
+        return "VerticalSection [" + getWidth() + " cells, " + getHeight() + " elevations, "
+                + distances[getWidth() - 1] + " km]";
+    }
+}
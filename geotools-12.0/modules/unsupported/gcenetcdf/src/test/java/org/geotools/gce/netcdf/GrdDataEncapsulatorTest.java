@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.geometry.GeneralEnvelope;
+import org.junit.Test;
+
+public class GrdDataEncapsulatorTest {
+
+    private GrdDataEncapsulator createData(int width, int height) {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setRequestedEnvelope(new GeneralEnvelope(new double[] { 0, 0 }, new double[] {
+                width, height }));
+        paramInfo.setDim(new GridEnvelope2D(0, 0, width, height));
+        return new GrdDataEncapsulator(paramInfo);
+    }
+
+    @Test
+    public void testInitializedToNaN() {
+        GrdDataEncapsulator data = createData(4, 3);
+        assertEquals(12, data.getImageData().length);
+        for (float value : data.getImageData()) {
+            assertTrue(Float.isNaN(value));
+        }
+    }
+
+    @Test
+    public void testRasterSharesBuffer() {
+        GrdDataEncapsulator data = createData(4, 3);
+        data.setValue(1, 2, 5f);
+        WritableRaster raster = data.getWritableRaster();
+        assertEquals(4, raster.getWidth());
+        assertEquals(3, raster.getHeight());
+        assertEquals(5f, raster.getSampleFloat(1, 2, 0), 0f);
+
+        // writes after the raster was created show up in it, nothing was copied.
+        data.setValue(3, 0, 7f);
+        assertEquals(7f, raster.getSampleFloat(3, 0, 0), 0f);
+    }
+
+    @Test
+    public void testBandedRaster() {
+        GrdDataEncapsulator first = createData(4, 3);
+        GrdDataEncapsulator second = createData(4, 3);
+        first.setValue(1, 2, 5f);
+        second.setValue(1, 2, 6f);
+        WritableRaster raster = GrdDataEncapsulator.getWritableRaster(Arrays.asList(first,
+                second));
+        assertEquals(2, raster.getNumBands());
+        assertEquals(5f, raster.getSampleFloat(1, 2, 0), 0f);
+        assertEquals(6f, raster.getSampleFloat(1, 2, 1), 0f);
+
+        second.setValue(3, 0, 7f);
+        assertEquals(7f, raster.getSampleFloat(3, 0, 1), 0f);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testImageArrayCompatibility() {
+        GrdDataEncapsulator data = createData(4, 3);
+        data.setValue(1, 2, 5f);
+        Float[][] imageArray = data.getImageArray();
+        assertEquals(4, imageArray.length);
+        assertEquals(3, imageArray[0].length);
+        assertEquals(5f, imageArray[1][2], 0f);
+
+        imageArray[0][1] = 9f;
+        data.setImageArray(imageArray);
+        assertEquals(9f, data.getValue(0, 1), 0f);
+        assertEquals(5f, data.getValue(1, 2), 0f);
+    }
+}
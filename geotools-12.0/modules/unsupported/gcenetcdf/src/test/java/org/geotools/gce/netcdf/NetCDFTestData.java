@@ -0,0 +1,233 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf;
+
+import java.io.File;
+import java.io.IOException;
+
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriteable;
+
+/**
+ * Writes small netCDF-3 files for the tests, so no binary test data is needed.
+ */
+public final class NetCDFTestData {
+
+    /**
+     * 2000-01-01 00:00:00 GMT, the time origin of the test files.
+     */
+    public static final long TIME_ORIGIN = 946684800000L;
+
+    public static final long HOUR = 60 * 60 * 1000L;
+
+    public static final String VARIABLE = "temp";
+
+    private NetCDFTestData() {
+        throw new AssertionError();
+    }
+
+    /**
+     * The value of {@link #VARIABLE} at the given time, latitude and longitude indices.
+     */
+    public static float expected(int t, int y, int x) {
+        return t * 10000 + y * 100 + x;
+    }
+
+    /**
+     * Create a temporary file with hourly times from {@link #TIME_ORIGIN}, 1 degree latitudes from 0 and 1 degree longitudes from 0, and a float
+     * variable {@link #VARIABLE}(time, lat, lon) holding {@link #expected(int, int, int)}.
+     */
+    public static File createGrid(int numTime, int numLat, int numLon) throws IOException,
+            InvalidRangeException {
+        File file = File.createTempFile("gcenetcdf", ".nc");
+        NetcdfFileWriteable writer = NetcdfFileWriteable.createNew(file.getAbsolutePath(), false);
+        try {
+            Dimension time = writer.addDimension("time", numTime);
+            Dimension lat = writer.addDimension("lat", numLat);
+            Dimension lon = writer.addDimension("lon", numLon);
+            writer.addVariable("time", DataType.DOUBLE, new Dimension[] { time });
+            writer.addVariableAttribute("time", "units", "hour since 2000-01-01 00:00:00");
+            writer.addVariable("lat", DataType.DOUBLE, new Dimension[] { lat });
+            writer.addVariable("lon", DataType.DOUBLE, new Dimension[] { lon });
+            writer.addVariable(VARIABLE, DataType.FLOAT, new Dimension[] { time, lat, lon });
+            writer.create();
+
+            ArrayDouble.D1 times = new ArrayDouble.D1(numTime);
+            for (int t = 0; t < numTime; t++) {
+                times.set(t, t);
+            }
+            ArrayDouble.D1 lats = new ArrayDouble.D1(numLat);
+            for (int y = 0; y < numLat; y++) {
+                lats.set(y, y);
+            }
+            ArrayDouble.D1 lons = new ArrayDouble.D1(numLon);
+            for (int x = 0; x < numLon; x++) {
+                lons.set(x, x);
+            }
+            ArrayFloat.D3 values = new ArrayFloat.D3(numTime, numLat, numLon);
+            for (int t = 0; t < numTime; t++) {
+                for (int y = 0; y < numLat; y++) {
+                    for (int x = 0; x < numLon; x++) {
+                        values.set(t, y, x, expected(t, y, x));
+                    }
+                }
+            }
+            writer.write("time", times);
+            writer.write("lat", lats);
+            writer.write("lon", lons);
+            writer.write(VARIABLE, values);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * The value of {@link #VARIABLE} at the given time, depth, latitude and longitude indices of a {@link #createDepthGrid} file.
+     */
+    public static float expected(int t, int z, int y, int x) {
+        return t * 1000000 + z * 10000 + y * 100 + x;
+    }
+
+    /**
+     * Create a temporary file like {@link #createGrid(int, int, int)} with a depth dimension of depths 0, 10, 20 and so on, and a float
+     * variable {@link #VARIABLE}(time, depth, lat, lon) holding {@link #expected(int, int, int, int)}.
+     */
+    public static File createDepthGrid(int numTime, int numDepth, int numLat, int numLon)
+            throws IOException, InvalidRangeException {
+        File file = File.createTempFile("gcenetcdf", ".nc");
+        NetcdfFileWriteable writer = NetcdfFileWriteable.createNew(file.getAbsolutePath(), false);
+        try {
+            Dimension time = writer.addDimension("time", numTime);
+            Dimension depth = writer.addDimension("depth", numDepth);
+            Dimension lat = writer.addDimension("lat", numLat);
+            Dimension lon = writer.addDimension("lon", numLon);
+            writer.addVariable("time", DataType.DOUBLE, new Dimension[] { time });
+            writer.addVariableAttribute("time", "units", "hour since 2000-01-01 00:00:00");
+            writer.addVariable("depth", DataType.DOUBLE, new Dimension[] { depth });
+            writer.addVariableAttribute("depth", "units", "m");
+            writer.addVariable("lat", DataType.DOUBLE, new Dimension[] { lat });
+            writer.addVariable("lon", DataType.DOUBLE, new Dimension[] { lon });
+            writer.addVariable(VARIABLE, DataType.FLOAT, new Dimension[] { time, depth, lat, lon });
+            writer.create();
+
+            ArrayDouble.D1 times = new ArrayDouble.D1(numTime);
+            for (int t = 0; t < numTime; t++) {
+                times.set(t, t);
+            }
+            ArrayDouble.D1 depths = new ArrayDouble.D1(numDepth);
+            for (int z = 0; z < numDepth; z++) {
+                depths.set(z, z * 10);
+            }
+            ArrayDouble.D1 lats = new ArrayDouble.D1(numLat);
+            for (int y = 0; y < numLat; y++) {
+                lats.set(y, y);
+            }
+            ArrayDouble.D1 lons = new ArrayDouble.D1(numLon);
+            for (int x = 0; x < numLon; x++) {
+                lons.set(x, x);
+            }
+            ArrayFloat.D4 values = new ArrayFloat.D4(numTime, numDepth, numLat, numLon);
+            for (int t = 0; t < numTime; t++) {
+                for (int z = 0; z < numDepth; z++) {
+                    for (int y = 0; y < numLat; y++) {
+                        for (int x = 0; x < numLon; x++) {
+                            values.set(t, z, y, x, expected(t, z, y, x));
+                        }
+                    }
+                }
+            }
+            writer.write("time", times);
+            writer.write("depth", depths);
+            writer.write("lat", lats);
+            writer.write("lon", lons);
+            writer.write(VARIABLE, values);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Create a temporary file like {@link #createGrid(int, int, int)} on a north polar stereographic grid: x and y in kilometers, 100 km apart
+     * from -100 km, with a polar_stereographic grid mapping variable, and a float variable {@link #VARIABLE}(time, y, x) holding
+     * {@link #expected(int, int, int)}.
+     */
+    public static File createPolarStereographicGrid(int numTime, int numY, int numX)
+            throws IOException, InvalidRangeException {
+        File file = File.createTempFile("gcenetcdf", ".nc");
+        NetcdfFileWriteable writer = NetcdfFileWriteable.createNew(file.getAbsolutePath(), false);
+        try {
+            Dimension time = writer.addDimension("time", numTime);
+            Dimension y = writer.addDimension("y", numY);
+            Dimension x = writer.addDimension("x", numX);
+            writer.addVariable("time", DataType.DOUBLE, new Dimension[] { time });
+            writer.addVariableAttribute("time", "units", "hour since 2000-01-01 00:00:00");
+            writer.addVariable("y", DataType.DOUBLE, new Dimension[] { y });
+            writer.addVariableAttribute("y", "standard_name", "projection_y_coordinate");
+            writer.addVariableAttribute("y", "units", "km");
+            writer.addVariable("x", DataType.DOUBLE, new Dimension[] { x });
+            writer.addVariableAttribute("x", "standard_name", "projection_x_coordinate");
+            writer.addVariableAttribute("x", "units", "km");
+            writer.addVariable("polar_stereographic", DataType.INT, new Dimension[0]);
+            writer.addVariableAttribute("polar_stereographic", "grid_mapping_name",
+                    "polar_stereographic");
+            writer.addVariableAttribute("polar_stereographic",
+                    "straight_vertical_longitude_from_pole", -45.0);
+            writer.addVariableAttribute("polar_stereographic", "standard_parallel", 70.0);
+            writer.addVariableAttribute("polar_stereographic", "latitude_of_projection_origin",
+                    90.0);
+            writer.addVariableAttribute("polar_stereographic", "semi_major_axis", 6378137.0);
+            writer.addVariableAttribute("polar_stereographic", "inverse_flattening", 298.257223563);
+            writer.addVariable(VARIABLE, DataType.FLOAT, new Dimension[] { time, y, x });
+            writer.addVariableAttribute(VARIABLE, "grid_mapping", "polar_stereographic");
+            writer.create();
+
+            ArrayDouble.D1 times = new ArrayDouble.D1(numTime);
+            for (int t = 0; t < numTime; t++) {
+                times.set(t, t);
+            }
+            ArrayDouble.D1 ys = new ArrayDouble.D1(numY);
+            for (int j = 0; j < numY; j++) {
+                ys.set(j, -100 + j * 100);
+            }
+            ArrayDouble.D1 xs = new ArrayDouble.D1(numX);
+            for (int i = 0; i < numX; i++) {
+                xs.set(i, -100 + i * 100);
+            }
+            ArrayFloat.D3 values = new ArrayFloat.D3(numTime, numY, numX);
+            for (int t = 0; t < numTime; t++) {
+                for (int j = 0; j < numY; j++) {
+                    for (int i = 0; i < numX; i++) {
+                        values.set(t, j, i, expected(t, j, i));
+                    }
+                }
+            }
+            writer.write("time", times);
+            writer.write("y", ys);
+            writer.write("x", xs);
+            writer.write(VARIABLE, values);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
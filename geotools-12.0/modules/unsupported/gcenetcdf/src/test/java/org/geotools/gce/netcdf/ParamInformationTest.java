@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+public class ParamInformationTest {
+
+    private static Date time(int t) {
+        return new Date(NetCDFTestData.TIME_ORIGIN + t * NetCDFTestData.HOUR);
+    }
+
+    @Test
+    public void testSlices() {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter("temp");
+        paramInfo.setTime(time(0));
+        assertEquals(Collections.singletonList(paramInfo), paramInfo.getSlices());
+
+        paramInfo.setParameters(Arrays.asList("u", "v"));
+        paramInfo.setTimes(Arrays.asList(time(0), time(1), time(2)));
+        assertEquals("u", paramInfo.getParameter());
+        assertEquals(time(0), paramInfo.getTime());
+
+        List<ParamInformation> slices = paramInfo.getSlices();
+        assertEquals(6, slices.size());
+        assertEquals("u", slices.get(2).getParameter());
+        assertEquals(time(2), slices.get(2).getTime());
+        assertEquals("v", slices.get(3).getParameter());
+        assertEquals(time(0), slices.get(3).getTime());
+        assertEquals(Collections.singletonList(slices.get(3)), slices.get(3).getSlices());
+
+        // a single value replaces the list.
+        paramInfo.setTime(time(1));
+        assertEquals(2, paramInfo.getSlices().size());
+
+        // slices are cancelled with their request.
+        assertFalse(slices.get(0).isCancelled());
+        paramInfo.cancel();
+        assertTrue(slices.get(0).isCancelled());
+    }
+
+    @Test
+    public void testReadSlices() throws Exception {
+        File file = NetCDFTestData.createGrid(3, 4, 5);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            ParamInformation paramInfo = new ParamInformation();
+            paramInfo.setParameter(NetCDFTestData.VARIABLE);
+            paramInfo.setTimes(Arrays.asList(time(2), time(0)));
+            paramInfo.setRequestedEnvelope(inspector
+                    .getOriginalEnvelope(DefaultGeographicCRS.WGS84));
+            paramInfo.setDim(new GridEnvelope2D(inspector.getOriginalDim()));
+
+            List<ParamInformation> slices = paramInfo.getSlices();
+            List<GrdDataEncapsulator> bands = inspector.parseFiles(slices);
+            assertEquals(2, bands.size());
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 5; x++) {
+                    assertEquals(NetCDFTestData.expected(2, y, x), bands.get(0).getValue(x,
+                            3 - y), 0f);
+                    assertEquals(NetCDFTestData.expected(0, y, x), bands.get(1).getValue(x,
+                            3 - y), 0f);
+                }
+            }
+        } finally {
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ucar.nc2.NetcdfFile;
+
+public class NetCDFFileCacheTest {
+
+    private File first;
+
+    private File second;
+
+    @Before
+    public void createFiles() throws Exception {
+        first = NetCDFTestData.createGrid(1, 2, 3);
+        second = NetCDFTestData.createGrid(1, 2, 3);
+    }
+
+    @After
+    public void deleteFiles() {
+        first.delete();
+        second.delete();
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        NetCDFFileCache cache = new NetCDFFileCache(4, 60000);
+        NetcdfFile handle = cache.acquire(first);
+        // a concurrent caller gets a handle of its own.
+        NetcdfFile other = cache.acquire(first);
+        assertNotSame(handle, other);
+        assertEquals(2, cache.getLeasedHandleCount());
+        cache.release(other);
+        cache.release(handle);
+        assertEquals(0, cache.getLeasedHandleCount());
+        assertEquals(2, cache.getIdleHandleCount());
+
+        // the most recently released handle is reused.
+        assertSame(handle, cache.acquire(first));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        cache.release(handle);
+        cache.clear();
+        assertEquals(0, cache.getIdleHandleCount());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        NetCDFFileCache cache = new NetCDFFileCache(1, 60000);
+        NetcdfFile firstHandle = cache.acquire(first);
+        NetcdfFile secondHandle = cache.acquire(second);
+        cache.release(firstHandle);
+        cache.release(secondHandle);
+        // the handle of the least recently used file is closed.
+        assertEquals(1, cache.getIdleHandleCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(secondHandle, cache.acquire(second));
+        NetcdfFile reopened = cache.acquire(first);
+        assertNotSame(firstHandle, reopened);
+        cache.release(reopened);
+        cache.release(secondHandle);
+        cache.clear();
+    }
+
+    @Test
+    public void testSweep() throws Exception {
+        NetCDFFileCache cache = new NetCDFFileCache(4, 60000);
+        cache.release(cache.acquire(first));
+        cache.sweep();
+        assertEquals(1, cache.getIdleHandleCount());
+        cache.setIdleTimeoutMillis(-1);
+        assertEquals(0, cache.getIdleHandleCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testSweeperAndDispose() throws Exception {
+        NetCDFFileCache cache = new NetCDFFileCache(4, 10);
+        cache.registerMBean("NetCDFFileCacheTest");
+        ObjectName name = CacheMBeans.getObjectName("NetCDFFileCacheTest");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(name));
+        // suffixed, so the cache of another web application is left alone.
+        assertNotNull(name.getKeyProperty("loader"));
+
+        cache.startSweeper(10);
+        cache.release(cache.acquire(first));
+        long timeout = System.currentTimeMillis() + 5000;
+        while (cache.getIdleHandleCount() > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getIdleHandleCount());
+
+        NetcdfFile leased = cache.acquire(first);
+        cache.dispose();
+        assertFalse(server.isRegistered(name));
+        // released after dispose, closed rather than kept.
+        cache.release(leased);
+        assertEquals(0, cache.getIdleHandleCount());
+        assertEquals(0, cache.getLeasedHandleCount());
+    }
+
+    @Test
+    public void testStaleHandle() throws Exception {
+        NetCDFFileCache cache = new NetCDFFileCache(4, 60000);
+        NetcdfFile idle = cache.acquire(first);
+        NetcdfFile leased = cache.acquire(first);
+        cache.release(idle);
+
+        assertTrue(first.setLastModified(first.lastModified() + 2000));
+        NetcdfFile reopened = cache.acquire(first);
+        assertNotSame(idle, reopened);
+        assertNotSame(leased, reopened);
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(NetCDFTestData.expected(0, 1, 2),
+                reopened.findVariable(NetCDFTestData.VARIABLE).read().getFloat(5), 0f);
+
+        // a handle of the old version is closed on release, the new one is kept.
+        cache.release(leased);
+        assertEquals(0, cache.getIdleHandleCount());
+        cache.release(reopened);
+        assertEquals(1, cache.getIdleHandleCount());
+        cache.clear();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Date;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.index.InterpolationKernel;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+import org.geotools.geometry.GeneralEnvelope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TileCacheTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws Exception {
+        file = File.createTempFile("tilecache", ".nc");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    private TileCache.Key key(int timeIndex, int... lons) {
+        return new TileCache.Key(file, NetCDFTestData.VARIABLE, timeIndex, null, null,
+                InterpolationKernel.NEAREST, lons, new int[] { 0, 1 }, null, null);
+    }
+
+    private static float[] values(int count, float value) {
+        float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = value + i;
+        }
+        return result;
+    }
+
+    @Test
+    public void testDisabled() {
+        TileCache cache = new TileCache(0, false);
+        cache.put(key(0, 1, 2), values(4, 0));
+        assertFalse(cache.get(key(0, 1, 2), new float[4]));
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testHitAndLeastRecentlyUsedEviction() {
+        TileCache.Key first = key(0, 1, 2);
+        long tileBytes = 4 * 4 + first.getSizeBytes();
+        TileCache cache = new TileCache(2 * tileBytes, false);
+
+        float[] values = values(4, 10);
+        cache.put(first, values);
+        // the cache keeps a copy.
+        values[0] = -1;
+        float[] read = new float[4];
+        assertTrue(cache.get(key(0, 1, 2), read));
+        assertArrayEquals(values(4, 10), read, 0f);
+        assertFalse(cache.get(key(1, 1, 2), read));
+        assertFalse(cache.get(key(0, 1, 3), read));
+
+        cache.put(key(1, 1, 2), values(4, 20));
+        // first is used again, so the second is the least recently used.
+        assertTrue(cache.get(first, read));
+        cache.put(key(2, 1, 2), values(4, 30));
+        assertEquals(2, cache.getTileCount());
+        assertEquals(2 * tileBytes, cache.getSizeBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.get(first, read));
+        assertFalse(cache.get(key(1, 1, 2), read));
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        // a smaller size evicts at once.
+        cache.setMaxBytes(tileBytes);
+        assertEquals(1, cache.getTileCount());
+        assertTrue(cache.get(first, read));
+    }
+
+    @Test
+    public void testModifiedFileInvalidates() {
+        TileCache cache = new TileCache(1024 * 1024, false);
+        cache.put(key(0, 1, 2), values(4, 0));
+        cache.put(key(1, 1, 2), values(4, 0));
+        assertTrue(file.setLastModified(file.lastModified() - 60000));
+
+        assertFalse(cache.get(key(0, 1, 2), new float[4]));
+        assertEquals(2, cache.getInvalidationCount());
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getSizeBytes());
+
+        cache.put(key(0, 1, 2), values(4, 0));
+        cache.invalidate(file);
+        assertEquals(3, cache.getInvalidationCount());
+        assertFalse(cache.get(key(0, 1, 2), new float[4]));
+    }
+
+    @Test
+    public void testOffHeap() {
+        TileCache cache = new TileCache(1024 * 1024, true);
+        cache.put(key(0, 1, 2), values(6, 5));
+        float[] read = new float[6];
+        assertTrue(cache.get(key(0, 1, 2), read));
+        assertArrayEquals(values(6, 5), read, 0f);
+        // and again, the buffer position does not move.
+        read = new float[6];
+        assertTrue(cache.get(key(0, 1, 2), read));
+        assertArrayEquals(values(6, 5), read, 0f);
+    }
+
+    @Test
+    public void testRepeatedReadIsCached() throws Exception {
+        File grid = NetCDFTestData.createGrid(2, 10, 20);
+        TileCache cache = TileCache.getInstance();
+        cache.setMaxBytes(1024 * 1024);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(grid);
+            long hits = cache.getHitCount();
+            GrdDataEncapsulator first = inspector.parseFiles(request(2.5));
+            long reads = ReadMetrics.getInstance().getReadCount();
+            // another envelope resolving to the same cells.
+            GrdDataEncapsulator second = inspector.parseFiles(request(2.6));
+            assertEquals(hits + 1, cache.getHitCount());
+            assertEquals(reads, ReadMetrics.getInstance().getReadCount());
+            assertArrayEquals(first.getImageData(), second.getImageData(), 0f);
+            assertEquals(NetCDFTestData.expected(1, 3, 3), second.getValue(0, 4), 0f);
+        } finally {
+            cache.setMaxBytes(0);
+            cache.clear();
+            HeaderIndex.getSidecarFile(grid).delete();
+            grid.delete();
+        }
+    }
+
+    private ParamInformation request(double minimum) {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter(NetCDFTestData.VARIABLE);
+        paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + NetCDFTestData.HOUR));
+        paramInfo.setRequestedEnvelope(new GeneralEnvelope(new double[] { minimum, minimum },
+                new double[] { minimum + 5, minimum + 5 }));
+        paramInfo.setDim(new GridEnvelope2D(0, 0, 5, 5));
+        return paramInfo;
+    }
+}
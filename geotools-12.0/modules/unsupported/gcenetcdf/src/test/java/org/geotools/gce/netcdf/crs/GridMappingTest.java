@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.crs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Date;
+
+import javax.measure.unit.SI;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.series.VerticalSection;
+import org.geotools.referencing.CRS;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+public class GridMappingTest {
+
+    @Test
+    public void testPolarStereographic() throws Exception {
+        File file = NetCDFTestData.createPolarStereographicGrid(2, 4, 5);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            CoordinateReferenceSystem crs = inspector.getCoordinateReferenceSystem();
+            assertTrue(crs instanceof ProjectedCRS);
+            assertEquals(SI.KILOMETER, crs.getCoordinateSystem().getAxis(0).getUnit());
+            assertEquals(70, ((ProjectedCRS) crs).getConversionFromBase().getParameterValues()
+                    .parameter("Standard_Parallel_1").doubleValue(), 0);
+
+            // the pole is at the origin of the grid.
+            double[] pole = new double[2];
+            ((ProjectedCRS) crs).getConversionFromBase().getMathTransform().transform(
+                    new double[] { -45, 90 }, 0, pole, 0, 1);
+            assertEquals(0, pole[0], 1e-6);
+            assertEquals(0, pole[1], 1e-6);
+
+            // bounds are in kilometers, not longitudes of a (0 to 360) grid.
+            assertFalse(inspector.isLongitudeIn0to360());
+            float[] bounds = inspector.getBounds();
+            assertEquals(-150, bounds[0], 0);
+            assertEquals(350, bounds[1], 0);
+            assertEquals(-150, bounds[2], 0);
+            assertEquals(250, bounds[3], 0);
+
+            // a read of the whole grid in its native CRS gives every cell.
+            ParamInformation paramInfo = new ParamInformation();
+            paramInfo.setParameter(NetCDFTestData.VARIABLE);
+            paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + NetCDFTestData.HOUR));
+            paramInfo.setRequestedEnvelope(inspector.getOriginalEnvelope(crs));
+            paramInfo.setDim(new GridEnvelope2D(inspector.getOriginalDim()));
+            GrdDataEncapsulator data = inspector.parseFiles(paramInfo);
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 5; x++) {
+                    assertEquals(NetCDFTestData.expected(1, y, x), data.getValue(x, 3 - y), 0f);
+                }
+            }
+            assertTrue(CRS.equalsIgnoreMetadata(crs, data.getGeneralEnvelope()
+                    .getCoordinateReferenceSystem()));
+            assertEquals(350, data.getGeneralEnvelope().getMaximum(0), 0);
+
+            // distances along a section are straight lines in kilometers.
+            ParamInformation sectionInfo = new ParamInformation();
+            sectionInfo.setParameter(NetCDFTestData.VARIABLE);
+            sectionInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN));
+            sectionInfo.setSectionPath(new Coordinate[] { new Coordinate(-100, 0),
+                    new Coordinate(300, 0) });
+            VerticalSection section = inspector.readSection(sectionInfo);
+            assertEquals(5, section.getWidth());
+            assertEquals(400, section.getDistance(4), 1e-6);
+            assertEquals(NetCDFTestData.expected(0, 1, 4), section.getValue(4, 0), 0f);
+
+            // the CRS is kept in the header index.
+            NetCDFFileInspector indexed = new NetCDFFileInspector(file);
+            assertTrue(CRS.equalsIgnoreMetadata(crs, indexed.getCoordinateReferenceSystem()));
+        } finally {
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLongitudeLatitude() throws Exception {
+        File file = NetCDFTestData.createGrid(1, 2, 3);
+        try {
+            assertNull(new NetCDFFileInspector(file).getCoordinateReferenceSystem());
+        } finally {
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}
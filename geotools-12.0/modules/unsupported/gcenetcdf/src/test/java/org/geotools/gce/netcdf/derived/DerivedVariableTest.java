@@ -0,0 +1,133 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.derived;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+public class DerivedVariableTest {
+
+    private static float[] evaluate(String expression, int width, float[]... sources) {
+        float[] result = new float[sources[0].length];
+        new DerivedVariable("test", expression).evaluate(sources, width, result);
+        return result;
+    }
+
+    @Test
+    public void testMagnitude() {
+        DerivedVariable magnitude = DerivedVariables.getInstance().get("adcircMagnitude");
+        assertEquals(Arrays.asList("u-vel", "v-vel"), magnitude.getSourceNames());
+
+        float[] u = { 3, -6, Float.NaN, 0, 1.5f, 0.1f };
+        float[] v = { 4, 8, 1, Float.NaN, -2, 0.2f };
+        float[] result = new float[u.length];
+        magnitude.evaluate(new float[][] { u, v }, 4, result);
+        for (int i = 0; i < u.length; i++) {
+            // the values the former hardcoded magnitude gave.
+            assertEquals(i + "", (float) Math.sqrt((u[i] * u[i]) + (v[i] * v[i])), result[i], 0f);
+        }
+    }
+
+    @Test
+    public void testOperators() {
+        float[] a = { 1, 2, 3, 4 };
+        float[] b = { 8, 4, 2, 1 };
+        assertTrue(Arrays.equals(new float[] { -15, -4, 3, 8 },
+                evaluate("a * 3 - b / 2 * (1 + 1) * 2 + -2", 2, a, b)));
+        assertTrue(Arrays.equals(new float[] { 4, 8, 9, 0 },
+                evaluate("a ^ 2 * c ^ 0.5 ^ 1", 3, a, new float[] { 16, 4, 1, 0 })));
+        assertTrue(Arrays.equals(new float[] { 1, 2, 2, 1 }, evaluate("min(a, b)", 4, a, b)));
+        assertTrue(Arrays.equals(new float[] { 5, 6, 7, 8 }, evaluate("a + 4", 1, a)));
+    }
+
+    @Test
+    public void testDirection() {
+        // wind from the north, east, south and west.
+        float[] u = { 0, -5, 0, 5 };
+        float[] v = { -5, 0, 5, 0 };
+        float[] result = evaluate("mod(degrees(atan2(-\"u-wind\", -\"v-wind\")), 360)", 4, u, v);
+        float[] expected = { 0, 90, 180, 270 };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], result[i], 1e-4f);
+        }
+    }
+
+    @Test
+    public void testResultMayBeSource() {
+        float[] a = { 1, 2, 3, 4, 5, 6 };
+        float[] b = { 1, 1, 1, 1, 1, 1 };
+        new DerivedVariable("test", "a + b").evaluate(new float[][] { a, b }, 2, a);
+        assertTrue(Arrays.equals(new float[] { 2, 3, 4, 5, 6, 7 }, a));
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        for (String expression : new String[] { "a +", "sqrt(a, b)", "foo(a)", "(a", "\"a", "2",
+                "a $ b" }) {
+            try {
+                new DerivedVariable("test", expression);
+                fail(expression);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParseFiles() throws Exception {
+        File file = NetCDFTestData.createGrid(2, 4, 6);
+        DerivedVariables.getInstance().register("doubleTemp",
+                "2 * " + NetCDFTestData.VARIABLE + " + 1");
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            assertTrue(inspector.getVariables().contains("doubleTemp"));
+
+            ParamInformation paramInfo = new ParamInformation();
+            paramInfo.setParameter("doubleTemp");
+            paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + NetCDFTestData.HOUR));
+            paramInfo.setRequestedEnvelope(inspector
+                    .getOriginalEnvelope(DefaultGeographicCRS.WGS84));
+            paramInfo.setDim(new GridEnvelope2D(inspector.getOriginalDim()));
+
+            GrdDataEncapsulator data = inspector.parseFiles(paramInfo);
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 6; x++) {
+                    assertEquals(2 * NetCDFTestData.expected(1, y, x) + 1,
+                            data.getValue(x, 3 - y), 0f);
+                }
+            }
+        } finally {
+            DerivedVariables.getInstance().remove("doubleTemp");
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}
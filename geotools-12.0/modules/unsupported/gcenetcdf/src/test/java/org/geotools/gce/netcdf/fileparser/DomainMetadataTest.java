@@ -0,0 +1,119 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.fileparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.junit.Test;
+
+public class DomainMetadataTest {
+
+    private static SortedSet<Date> hours(int... hours) {
+        SortedSet<Date> result = new TreeSet<Date>();
+        for (int hour : hours) {
+            result.add(new Date(NetCDFTestData.TIME_ORIGIN + hour * NetCDFTestData.HOUR));
+        }
+        return result;
+    }
+
+    private static SortedSet<Object> elevations(Object... elevations) {
+        return new TreeSet<Object>(Arrays.asList(elevations));
+    }
+
+    @Test
+    public void testTimeList() {
+        DomainMetadata metadata = new DomainMetadata(hours(0, 3, 6), null, null, null, false);
+        assertEquals("2000-01-01T00:00:00.000Z,2000-01-01T03:00:00.000Z,2000-01-01T06:00:00.000Z",
+                metadata.getTimeString());
+        assertEquals("2000-01-01T00:00:00.000Z", metadata.getTimeMinimum());
+        assertEquals("2000-01-01T06:00:00.000Z", metadata.getTimeMaximum());
+        assertEquals("PT3H", metadata.getTimeResolution());
+        assertFalse(metadata.hasElevations());
+        assertNull(metadata.getElevationString());
+    }
+
+    @Test
+    public void testPeriodEncoding() {
+        DomainMetadata regular = new DomainMetadata(hours(0, 24, 48, 72), null, null, null, true);
+        assertEquals("2000-01-01T00:00:00.000Z/2000-01-04T00:00:00.000Z/P1D",
+                regular.getTimeString());
+
+        // not evenly spaced, or too short to gain anything, stay a list.
+        DomainMetadata irregular = new DomainMetadata(hours(0, 1, 3), null, null, null, true);
+        assertEquals(3, irregular.getTimeString().split(NetCdfUtil.LIST_AS_STRING_DELIMITER).length);
+        assertNull(irregular.getTimeResolution());
+        DomainMetadata pair = new DomainMetadata(hours(0, 6), null, null, null, true);
+        assertEquals("2000-01-01T00:00:00.000Z,2000-01-01T06:00:00.000Z", pair.getTimeString());
+    }
+
+    @Test
+    public void testPeriod() {
+        assertEquals("PT3H", DomainMetadata.getPeriod(3 * NetCDFTestData.HOUR));
+        assertEquals("P1DT12H", DomainMetadata.getPeriod(36 * NetCDFTestData.HOUR));
+        assertEquals("PT30M", DomainMetadata.getPeriod(NetCDFTestData.HOUR / 2));
+    }
+
+    @Test
+    public void testElevations() {
+        DomainMetadata metadata = new DomainMetadata(null, elevations(0.0, 10.0, 20.0),
+                Arrays.asList(new Date(NetCDFTestData.TIME_ORIGIN)), null, false);
+        assertTrue(metadata.hasElevations());
+        assertEquals("0.0,10.0,20.0", metadata.getElevationString());
+        assertEquals("0.0", metadata.getElevationMinimum());
+        assertEquals("20.0", metadata.getElevationMaximum());
+        assertEquals("10.0", metadata.getElevationResolution());
+        assertEquals("2000-01-01T00:00:00.000Z", metadata.getReferenceTimeString());
+        assertNull(metadata.getTimeString());
+
+        DomainMetadata surface = new DomainMetadata(null,
+                elevations(NetCdfUtil.ELEVATION_SURFACE), null, null, false);
+        assertTrue(surface.hasElevations());
+        assertNull(surface.getElevationMinimum());
+    }
+
+    @Test
+    public void testInspectorReadsOncePerFileVersion() throws Exception {
+        File file = NetCDFTestData.createGrid(4, 3, 5);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            DomainMetadata metadata = inspector.getDomainMetadata();
+            assertEquals(4, metadata.getTimes().size());
+            assertEquals("2000-01-01T03:00:00.000Z", inspector.getTimeMaximum());
+            assertTrue(inspector.getVariables().contains(NetCDFTestData.VARIABLE));
+            assertSame(metadata, inspector.getDomainMetadata());
+
+            // a different variable name to look for reads the domains again.
+            inspector.setElevationVariableNameInFile("depth");
+            assertEquals(metadata.getTimeString(), inspector.getDomainMetadata().getTimeString());
+        } finally {
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.fileparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.junit.Test;
+
+public class HeaderIndexTest {
+
+    @Test
+    public void testReadWrite() throws Exception {
+        File source = File.createTempFile("gcenetcdf", ".nc");
+        File sidecar = HeaderIndex.getSidecarFile(source);
+        try {
+            SortedSet<Object> elevations = new TreeSet<Object>();
+            elevations.add(NetCdfUtil.ELEVATION_SURFACE);
+            SortedSet<String> variables = new TreeSet<String>(Arrays.asList("lat", "lon", "temp"));
+            HeaderIndex index = new HeaderIndex(10, 20, new float[] { -0.5f, 4.5f, -0.5f, 2.5f },
+                    5, 3, false, new double[] { 0, 1, 2, 3, 4 }, new double[] { 0, 1, 2 }, null,
+                    null, null, null, null, null);
+            index.withDomains("key", new TreeSet<Date>(Arrays.asList(new Date(0), new Date(
+                    NetCDFTestData.HOUR))), elevations, Collections.singletonList(new Date(0)),
+                    variables).write(source);
+
+            HeaderIndex read = HeaderIndex.read(source, 10, 20);
+            assertTrue(Arrays.equals(index.getBounds(), read.getBounds()));
+            assertEquals(5, read.getWidth());
+            assertEquals(3, read.getHeight());
+            assertTrue(Arrays.equals(new double[] { 0, 1, 2 }, read.getLatitudes()));
+            assertNull(read.getDomainMetadata("other key", false));
+            DomainMetadata domains = read.getDomainMetadata("key", false);
+            assertEquals(2, domains.getTimes().size());
+            assertEquals(elevations, domains.getElevations());
+            assertEquals(variables, domains.getVariables());
+
+            // of another version of the file.
+            assertNull(HeaderIndex.read(source, 11, 20));
+            assertNull(HeaderIndex.read(source, 10, 21));
+        } finally {
+            sidecar.delete();
+            source.delete();
+        }
+    }
+
+    @Test
+    public void testInspector() throws Exception {
+        File file = NetCDFTestData.createGrid(3, 4, 5);
+        File sidecar = HeaderIndex.getSidecarFile(file);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            assertTrue(sidecar.exists());
+            float[] bounds = inspector.getBounds();
+            String times = inspector.getTimeString();
+
+            // a new inspector of the same version does not open the file, even when it is not a NetCDF file any more.
+            long length = file.length();
+            long lastModified = file.lastModified();
+            OutputStream output = new FileOutputStream(file);
+            try {
+                output.write(new byte[(int) length]);
+            } finally {
+                output.close();
+            }
+            assertTrue(file.setLastModified(lastModified));
+            NetCDFFileInspector indexed = new NetCDFFileInspector(file);
+            assertTrue(Arrays.equals(bounds, indexed.getBounds()));
+            assertEquals(new Rectangle(0, 0, 5, 4), indexed.getOriginalDim());
+            assertEquals(times, indexed.getTimeString());
+            assertEquals(inspector.getVariablesString(), indexed.getVariablesString());
+
+            // a new version of the file is read again.
+            File changed = NetCDFTestData.createGrid(2, 6, 7);
+            try {
+                assertTrue(file.delete() && changed.renameTo(file));
+            } finally {
+                changed.delete();
+            }
+            NetCDFFileInspector reread = new NetCDFFileInspector(file);
+            assertEquals(new Rectangle(0, 0, 7, 6), reread.getOriginalDim());
+            assertEquals(2, reread.getTimes().size());
+            assertEquals(new Rectangle(0, 0, 7, 6), new NetCDFFileInspector(file)
+                    .getOriginalDim());
+        } finally {
+            sidecar.delete();
+            file.delete();
+        }
+    }
+}
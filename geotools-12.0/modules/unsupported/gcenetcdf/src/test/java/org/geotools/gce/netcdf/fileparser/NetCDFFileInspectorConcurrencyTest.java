@@ -0,0 +1,118 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.fileparser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs many parseFiles calls at the same time against one inspector and checks that every result matches the file, i.e. that concurrent requests
+ * do not see each other's time or variable names.
+ */
+public class NetCDFFileInspectorConcurrencyTest {
+
+    private static final int NUM_LON = 36;
+
+    private static final int NUM_LAT = 18;
+
+    private static final int NUM_TIME = 8;
+
+    private static final int NUM_THREADS = 16;
+
+    private static final int NUM_REQUESTS = 400;
+
+    private static File file;
+
+    @BeforeClass
+    public static void createFile() throws Exception {
+        file = NetCDFTestData.createGrid(NUM_TIME, NUM_LAT, NUM_LON);
+    }
+
+    @AfterClass
+    public static void deleteFile() {
+        if (file != null) {
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentParseFiles() throws Exception {
+        final NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int i = 0; i < NUM_REQUESTS; i++) {
+                final int t = i % NUM_TIME;
+                // every other request names the time variable itself, the others rely on the defaults.
+                final String timeVariableName = (i % 2 == 0) ? "time" : null;
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        start.await();
+                        checkSlice(inspector, t, timeVariableName);
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void checkSlice(NetCDFFileInspector inspector, int t, String timeVariableName) {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter(NetCDFTestData.VARIABLE);
+        paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + t * NetCDFTestData.HOUR));
+        paramInfo.setTimeVariableNameInFile(timeVariableName);
+        paramInfo.setRequestedEnvelope(inspector.getOriginalEnvelope(DefaultGeographicCRS.WGS84));
+        paramInfo.setDim(new GridEnvelope2D(inspector.getOriginalDim()));
+
+        GrdDataEncapsulator data = inspector.parseFiles(paramInfo);
+        assertEquals(NUM_LON, data.getImageWidth());
+        assertEquals(NUM_LAT, data.getImageHeight());
+        for (int y = 0; y < NUM_LAT; y++) {
+            for (int x = 0; x < NUM_LON; x++) {
+                // image rows go north to south.
+                assertEquals(NetCDFTestData.expected(t, y, x), data.getValue(x, NUM_LAT - 1 - y), 0f);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.junit.Test;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+public class DimensionIndexTest {
+
+    private static DimensionIndex index1D(double... values) {
+        return new DimensionIndex(Array.factory(DataType.DOUBLE, new int[] { values.length },
+                values));
+    }
+
+    /**
+     * time(runtime, time) of a forecast file: runtimes 6 hours apart, each with 4 times 3 hours apart, so runtimes overlap.
+     */
+    private static DimensionIndex forecastTimes() {
+        double[] values = new double[3 * 4];
+        for (int runtime = 0; runtime < 3; runtime++) {
+            for (int time = 0; time < 4; time++) {
+                values[runtime * 4 + time] = runtime * 6 + time * 3;
+            }
+        }
+        return new DimensionIndex(Array.factory(DataType.DOUBLE, new int[] { 3, 4 }, values));
+    }
+
+    @Test
+    public void testFindFirst() {
+        DimensionIndex index = index1D(0, 10, 20, 10, 5);
+        assertEquals(1, index.getRank());
+        assertEquals(5, index.getSize());
+        assertEquals(1, index.findFirst(10));
+        assertEquals(4, index.findFirst(5));
+        assertEquals(NetCdfUtil.NOT_FOUND, index.findFirst(7));
+        assertEquals(3, index.getRow(index.findLast(10)));
+        assertEquals(0, index.getColumn(3));
+    }
+
+    @Test
+    public void testForecastTimes() {
+        DimensionIndex index = forecastTimes();
+        assertEquals(2, index.getRank());
+
+        // hour 6 is time 2 of runtime 0 and time 0 of runtime 1, the latest runtime wins.
+        int last = index.findLast(6);
+        assertEquals(1, index.getRow(last));
+        assertEquals(0, index.getColumn(last));
+
+        int inRow = index.findLastInRow(6, 0);
+        assertEquals(0, index.getRow(inRow));
+        assertEquals(2, index.getColumn(inRow));
+        assertEquals(NetCdfUtil.NOT_FOUND, index.findLastInRow(6, 2));
+
+        assertEquals(9, index.getMaximum(0), 0);
+        assertEquals(21, index.getMaximum(2), 0);
+        assertTrue(Double.isNaN(index.getMaximum(3)));
+    }
+
+    @Test
+    public void testNearestAndInterval() {
+        DimensionIndex index = index1D(30, 0, 10, 20);
+        assertEquals(2, index.findNearest(12));
+        // halfway between 10 and 20, the lower value.
+        assertEquals(2, index.findNearest(15));
+        assertEquals(1, index.findNearest(-100));
+        assertEquals(0, index.findNearest(100));
+
+        assertArrayEquals(new int[] { 0, 2, 3 }, index.findInterval(5, 30));
+        assertArrayEquals(new int[0], index.findInterval(21, 29));
+        assertArrayEquals(new int[0], index.findInterval(30, 0));
+    }
+
+    @Test
+    public void testDistinctValues() {
+        assertArrayEquals(new double[] { 0, 3, 6, 9, 12, 15, 18, 21 },
+                forecastTimes().getDistinctValues(), 0);
+    }
+
+    @Test
+    public void testNaN() {
+        DimensionIndex index = index1D(Double.NaN, 1, Double.NaN, 2);
+        // matches like Double.equals does.
+        assertEquals(0, index.findFirst(Double.NaN));
+        assertEquals(2, index.findLast(Double.NaN));
+        assertEquals(3, index.findNearest(5));
+        assertEquals(NetCdfUtil.NOT_FOUND, index.findNearest(Double.NaN));
+        assertEquals(2, index.getMaximum(3), 0);
+        assertTrue(Double.isNaN(index.getMaximum(0)));
+        assertArrayEquals(new int[] { 1, 3 }, index.findInterval(0, 10));
+    }
+}
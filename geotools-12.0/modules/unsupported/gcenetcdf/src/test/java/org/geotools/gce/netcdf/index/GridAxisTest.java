@@ -0,0 +1,187 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.junit.Test;
+
+import ucar.ma2.Array;
+
+public class GridAxisTest {
+
+    private static double[] regular(int count, double first, double step) {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = first + i * step;
+        }
+        return result;
+    }
+
+    /**
+     * The GridAxis must find the same index as the nearest neighbor walk on the same values.
+     */
+    private void assertSameAsNearestNeighbor(double[] values) {
+        Array array = Array.factory(values);
+        IndexingStrategy walk = new NearestNeighborAscending();
+        if (values[0] > values[values.length - 1]) {
+            walk = new NearestNeighborDescending();
+        }
+        GridAxis axis = new GridAxis(values);
+
+        double min = Math.min(values[0], values[values.length - 1]);
+        double max = Math.max(values[0], values[values.length - 1]);
+        double margin = (max - min) / values.length * 2;
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            double target = min - margin + random.nextDouble() * (max - min + 2 * margin);
+            assertEquals("at " + target, walk.getCoordinateIndex(array, target),
+                    axis.getCoordinateIndex(target));
+        }
+        for (double value : values) {
+            assertEquals("at " + value, walk.getCoordinateIndex(array, value),
+                    axis.getCoordinateIndex(value));
+        }
+
+        // the coordinates of a request, in either order, and in no order.
+        double[] request = new double[500];
+        for (int i = 0; i < request.length; i++) {
+            request[i] = min - margin + (max - min + 2 * margin) * i / (request.length - 1);
+        }
+        assertSameIndexes(axis, request);
+        double[] reversed = new double[request.length];
+        for (int i = 0; i < request.length; i++) {
+            reversed[i] = request[request.length - 1 - i];
+        }
+        assertSameIndexes(axis, reversed);
+        for (int i = 0; i < request.length; i++) {
+            request[i] = min - margin + random.nextDouble() * (max - min + 2 * margin);
+        }
+        assertSameIndexes(axis, request);
+    }
+
+    private void assertSameIndexes(GridAxis axis, double[] coordinates) {
+        int[] indexes = axis.getCoordinateIndexes(coordinates);
+        for (int i = 0; i < coordinates.length; i++) {
+            assertEquals("at " + coordinates[i], axis.getCoordinateIndex(coordinates[i]),
+                    indexes[i]);
+        }
+    }
+
+    @Test
+    public void testRegularAscending() {
+        double[] values = regular(360, 0, 1);
+        assertTrue(new GridAxis(values).isRegular());
+        assertSameAsNearestNeighbor(values);
+        assertSameAsNearestNeighbor(regular(1441, -180, 0.25));
+    }
+
+    @Test
+    public void testRegularDescending() {
+        double[] values = regular(181, 90, -1);
+        GridAxis axis = new GridAxis(values);
+        assertTrue(axis.isRegular());
+        assertTrue(axis.isDescending());
+        assertEquals(-1, axis.getResolution(), 0);
+        assertSameAsNearestNeighbor(values);
+    }
+
+    @Test
+    public void testIrregular() {
+        // a gaussian grid like spacing.
+        double[] values = new double[94];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = -88.5 + 177 * Math.sin(Math.PI / 2 * i / (values.length - 1));
+        }
+        assertFalse(new GridAxis(values).isRegular());
+        assertSameAsNearestNeighbor(values);
+
+        double[] descending = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            descending[i] = values[values.length - 1 - i];
+        }
+        assertSameAsNearestNeighbor(descending);
+    }
+
+    @Test
+    public void testEdges() {
+        GridAxis axis = new GridAxis(regular(10, 0, 1));
+        // half a cell before the first value is outside, half a cell after the last is inside.
+        assertEquals(NetCdfUtil.NOT_FOUND, axis.getCoordinateIndex(-0.5));
+        assertEquals(0, axis.getCoordinateIndex(-0.49));
+        assertEquals(9, axis.getCoordinateIndex(9.5));
+        assertEquals(NetCdfUtil.NOT_FOUND, axis.getCoordinateIndex(9.51));
+        // halfway between two values is the lower index.
+        assertEquals(3, axis.getCoordinateIndex(3.5));
+        assertEquals(NetCdfUtil.NOT_FOUND, axis.getCoordinateIndex(Double.NaN));
+    }
+
+    @Test
+    public void testCoordinatePositions() {
+        GridAxis axis = new GridAxis(regular(10, 0, 2));
+        double[] positions = axis.getCoordinatePositions(new double[] { 0, 3, 4.5, 18, 18.5,
+                -0.5, 20 });
+        assertEquals(0, positions[0], 1e-9);
+        assertEquals(1.5, positions[1], 1e-9);
+        assertEquals(2.25, positions[2], 1e-9);
+        assertEquals(9, positions[3], 1e-9);
+        // beyond the ends within the tolerance of the nearest value lookup is at the end value.
+        assertEquals(9, positions[4], 1e-9);
+        assertEquals(0, positions[5], 1e-9);
+        assertTrue(Double.isNaN(positions[6]));
+
+        GridAxis descending = new GridAxis(regular(10, 90, -1));
+        positions = descending.getCoordinatePositions(new double[] { 89.5, 81.25 });
+        assertEquals(0.5, positions[0], 1e-9);
+        assertEquals(8.75, positions[1], 1e-9);
+
+        GridAxis irregular = new GridAxis(new double[] { 0, 1, 3, 7, 15 });
+        positions = irregular.getCoordinatePositions(new double[] { 0.5, 2, 5, 13, 1 });
+        assertEquals(0.5, positions[0], 1e-9);
+        assertEquals(1.5, positions[1], 1e-9);
+        assertEquals(2.5, positions[2], 1e-9);
+        assertEquals(3.75, positions[3], 1e-9);
+        assertEquals(1, positions[4], 1e-9);
+    }
+
+    @Test
+    public void testKernelWeights() {
+        for (InterpolationKernel kernel : InterpolationKernel.values()) {
+            double[] weights = new double[kernel.getSupport() + 1];
+            for (double fraction = 0; fraction <= 1; fraction += 0.125) {
+                kernel.getWeights(fraction, weights, 1);
+                double sum = 0;
+                for (int i = 1; i < weights.length; i++) {
+                    sum += weights[i];
+                }
+                assertEquals(kernel + " at " + fraction, 1, sum, 1e-9);
+            }
+        }
+        // on a value, only that value is weighed.
+        double[] weights = new double[4];
+        InterpolationKernel.BICUBIC.getWeights(0, weights, 0);
+        assertEquals(0, weights[0], 1e-9);
+        assertEquals(1, weights[1], 1e-9);
+        assertEquals(0, weights[2], 1e-9);
+        assertEquals(0, weights[3], 1e-9);
+    }
+}
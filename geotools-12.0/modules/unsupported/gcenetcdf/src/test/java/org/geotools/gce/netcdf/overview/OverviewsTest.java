@@ -0,0 +1,219 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.overview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.index.GridAxis;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.After;
+import org.junit.Test;
+
+public class OverviewsTest {
+
+    @After
+    public void clearLevels() {
+        System.clearProperty(Overviews.LEVELS_KEY);
+    }
+
+    @Test
+    public void testLevelCount() {
+        assertEquals(0, Overviews.getLevelCount(4320, 2160));
+        System.setProperty(Overviews.LEVELS_KEY, "3");
+        assertEquals(3, Overviews.getLevelCount(4320, 2160));
+        assertEquals(2, Overviews.getLevelCount(16, 7));
+        assertEquals(0, Overviews.getLevelCount(16, 2));
+        assertEquals(3, Overviews.getSize(5, 1));
+        assertEquals(2, Overviews.getSize(5, 2));
+        assertEquals(1, Overviews.getSize(5, 3));
+    }
+
+    @Test
+    public void testAverage() {
+        // 3 by 3, the last column and row are averaged on their own.
+        float[] values = { 1, 3, 5, Float.NaN, Float.NaN, 7, 2, 4, Float.NaN };
+        assertTrue(Arrays.equals(new float[] { 2, 6, 3, Float.NaN }, Overviews.average(values,
+                3, 3)));
+
+        float[][] levels = Overviews.buildLevels(values, 3, 3, 2);
+        assertEquals(2, levels.length);
+        assertTrue(Arrays.equals(new float[] { (2 + 6 + 3) / 3f }, levels[1]));
+
+        GridAxis axis = Overviews.getAxis(new GridAxis(new double[] { 0, 1, 2, 3, 4 }), 1);
+        assertEquals(3, axis.getSize());
+        assertEquals(0.5, axis.getValue(0), 0);
+        assertEquals(4, axis.getValue(2), 0);
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        File source = File.createTempFile("gcenetcdf", ".nc");
+        File sidecar = OverviewStore.getSidecarFile(source);
+        try {
+            OverviewStore store = new OverviewStore(source, 10, 20);
+            assertNull(store.read("temp/null/0/null", 1));
+            store.write("temp/null/0/null", new float[][] { { 1, 2, Float.NaN, 4 }, { 3 } });
+            store.write("temp/null/1/null", new float[][] { { 5, 6, 7, 8 }, { 9 } });
+            assertTrue(Arrays.equals(new float[] { 3 }, store.read("temp/null/0/null", 2)));
+
+            // another reader of the same version finds the levels in the sidecar.
+            OverviewStore reopened = new OverviewStore(source, 10, 20);
+            assertTrue(Arrays.equals(new float[] { 1, 2, Float.NaN, 4 }, reopened.read(
+                    "temp/null/0/null", 1)));
+            assertTrue(Arrays.equals(new float[] { 9 }, reopened.read("temp/null/1/null", 2)));
+
+            // a new version of the file does not use them, and replaces them.
+            OverviewStore changed = new OverviewStore(source, 11, 20);
+            assertNull(changed.read("temp/null/0/null", 1));
+            changed.write("temp/null/1/null", new float[][] { { 0 } });
+            assertNull(new OverviewStore(source, 11, 20).read("temp/null/0/null", 1));
+            assertTrue(Arrays.equals(new float[] { 0 }, new OverviewStore(source, 11, 20).read(
+                    "temp/null/1/null", 1)));
+        } finally {
+            sidecar.delete();
+            source.delete();
+        }
+    }
+
+    @Test
+    public void testParseFiles() throws Exception {
+        System.setProperty(Overviews.LEVELS_KEY, "2");
+        File file = NetCDFTestData.createGrid(2, 8, 16);
+        File sidecar = OverviewStore.getSidecarFile(file);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            ParamInformation paramInfo = new ParamInformation();
+            paramInfo.setParameter(NetCDFTestData.VARIABLE);
+            paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + NetCDFTestData.HOUR));
+            paramInfo.setRequestedEnvelope(inspector
+                    .getOriginalEnvelope(DefaultGeographicCRS.WGS84));
+            paramInfo.setDim(new GridEnvelope2D(0, 0, 8, 4));
+            paramInfo.setOverviewLevel(1);
+
+            assertFalse(sidecar.exists());
+            GrdDataEncapsulator data = inspector.parseFiles(paramInfo);
+            assertTrue(sidecar.exists());
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 8; x++) {
+                    // the mean of the 2 by 2 block of the file grid.
+                    float expected = NetCDFTestData.expected(1, 2 * y, 2 * x) + 50.5f;
+                    assertEquals(expected, data.getValue(x, 3 - y), 1e-3f);
+                }
+            }
+
+            // a new inspector reads the level from the sidecar built by the first.
+            long built = sidecar.length();
+            assertTrue(new NetCDFFileInspector(file).buildOverviews(paramInfo));
+            data = new NetCDFFileInspector(file).parseFiles(paramInfo);
+            assertEquals(built, sidecar.length());
+            assertEquals(NetCDFTestData.expected(1, 6, 14) + 50.5f, data.getValue(7, 0), 1e-3f);
+        } finally {
+            sidecar.delete();
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSharedStore() throws Exception {
+        File source = File.createTempFile("overviews", ".nc");
+        try {
+            OverviewStore store = OverviewStore.getInstance(source, 10, 20);
+            assertSame(store, OverviewStore.getInstance(new File(source.getParentFile(), "."
+                    + File.separator + source.getName()), 10, 20));
+            assertSame(store.getBuildLock("temp/null/0/null"), OverviewStore.getInstance(source, 10, 20)
+                    .getBuildLock("temp/null/0/null"));
+
+            // a new version of the file replaces the store.
+            OverviewStore changed = OverviewStore.getInstance(source, 11, 20);
+            assertNotSame(store, changed);
+            assertSame(changed, OverviewStore.getInstance(source, 11, 20));
+        } finally {
+            OverviewStore.getSidecarFile(source).delete();
+            source.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentInspectors() throws Exception {
+        System.setProperty(Overviews.LEVELS_KEY, "2");
+        final File file = NetCDFTestData.createGrid(2, 8, 16);
+        File sidecar = OverviewStore.getSidecarFile(file);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final NetCDFFileInspector first = new NetCDFFileInspector(file);
+            final NetCDFFileInspector second = new NetCDFFileInspector(file);
+            final ParamInformation paramInfo = new ParamInformation();
+            paramInfo.setParameter(NetCDFTestData.VARIABLE);
+            paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN));
+            paramInfo.setRequestedEnvelope(first.getOriginalEnvelope(DefaultGeographicCRS.WGS84));
+            paramInfo.setDim(new GridEnvelope2D(0, 0, 8, 4));
+            paramInfo.setOverviewLevel(1);
+
+            Future<GrdDataEncapsulator> firstData = executor.submit(new Callable<GrdDataEncapsulator>() {
+                public GrdDataEncapsulator call() throws Exception {
+                    return first.parseFiles(paramInfo);
+                }
+            });
+            Future<GrdDataEncapsulator> secondData = executor.submit(new Callable<GrdDataEncapsulator>() {
+                public GrdDataEncapsulator call() throws Exception {
+                    return second.parseFiles(paramInfo);
+                }
+            });
+            float expected = NetCDFTestData.expected(0, 6, 14) + 50.5f;
+            assertEquals(expected, firstData.get().getValue(7, 0), 1e-3f);
+            assertEquals(expected, secondData.get().getValue(7, 0), 1e-3f);
+
+            // the slice was built and stored once, as by a single inspector of the same grid.
+            File single = NetCDFTestData.createGrid(2, 8, 16);
+            File singleSidecar = OverviewStore.getSidecarFile(single);
+            try {
+                new NetCDFFileInspector(single).parseFiles(paramInfo);
+                assertTrue(sidecar.length() > 0);
+                assertEquals(singleSidecar.length(), sidecar.length());
+            } finally {
+                singleSidecar.delete();
+                HeaderIndex.getSidecarFile(single).delete();
+                single.delete();
+            }
+        } finally {
+            executor.shutdown();
+            sidecar.delete();
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelBandReadsTest {
+
+    private static final int NUM_LON = 40;
+
+    private static final int NUM_LAT = 30;
+
+    private int parallelism;
+
+    private long minBandValues;
+
+    @Before
+    public void turnOn() {
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        parallelism = metrics.getParallelism();
+        minBandValues = metrics.getMinBandValues();
+        metrics.setParallelism(3);
+        metrics.setMinBandValues(NUM_LON * 2);
+    }
+
+    @After
+    public void restore() {
+        ReadMetrics.getInstance().setParallelism(parallelism);
+        ReadMetrics.getInstance().setMinBandValues(minBandValues);
+    }
+
+    @Test
+    public void testSplitRows() {
+        int nf = NetCdfUtil.NOT_FOUND;
+        int[][] bands = ParallelBandReads.splitRows(new int[] { 5, 6, 7, 8, 9 }, 2);
+        assertArrayEquals(new int[] { 5, 6, nf, nf, nf }, bands[0]);
+        assertArrayEquals(new int[] { nf, nf, 7, 8, 9 }, bands[1]);
+    }
+
+    @Test
+    public void testBandCount() {
+        ParallelBandReads reads = ParallelBandReads.getInstance();
+        assertEquals(1, reads.getBandCount(NUM_LON, 1));
+        assertEquals(5, reads.getBandCount(NUM_LON, 10));
+        assertEquals(12, reads.getBandCount(NUM_LON, 1000));
+        ReadMetrics.getInstance().setParallelism(1);
+        assertEquals(1, reads.getBandCount(NUM_LON, 1000));
+    }
+
+    private static ParamInformation request(NetCDFFileInspector inspector, int t) {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter(NetCDFTestData.VARIABLE);
+        paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + t * NetCDFTestData.HOUR));
+        paramInfo.setRequestedEnvelope(inspector.getOriginalEnvelope(DefaultGeographicCRS.WGS84));
+        paramInfo.setDim(new GridEnvelope2D(inspector.getOriginalDim()));
+        return paramInfo;
+    }
+
+    @Test
+    public void testParallelRead() throws Exception {
+        File file = NetCDFTestData.createGrid(2, NUM_LAT, NUM_LON);
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+            long parallelReads = ReadMetrics.getInstance().getParallelReadCount();
+
+            GrdDataEncapsulator data = inspector.parseFiles(request(inspector, 1));
+            assertTrue(ReadMetrics.getInstance().getParallelReadCount() > parallelReads);
+            for (int y = 0; y < NUM_LAT; y++) {
+                for (int x = 0; x < NUM_LON; x++) {
+                    assertEquals(NetCDFTestData.expected(1, y, x),
+                            data.getValue(x, NUM_LAT - 1 - y), 0f);
+                }
+            }
+
+            ParamInformation cancelled = request(inspector, 0);
+            cancelled.cancel();
+            try {
+                inspector.parseFiles(cancelled);
+                fail("cancelled request read");
+            } catch (CancellationException e) {
+                // expected
+            }
+        } finally {
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadAfterDispose() throws Exception {
+        ParallelBandReads reads = ParallelBandReads.getInstance();
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setDim(new GridEnvelope2D(0, 0, 2, 8));
+        paramInfo.setRequestedEnvelope(new GeneralEnvelope(new double[] { 0, 0 }, new double[] { 2, 8 }));
+        GrdDataEncapsulator data = new GrdDataEncapsulator(paramInfo);
+        final AtomicInteger bands = new AtomicInteger();
+        ParallelBandReads.BandReader reader = new ParallelBandReads.BandReader() {
+            public void read(int[] longitudeIndices, int[] latitudeIndices, GrdDataEncapsulator data) {
+                bands.incrementAndGet();
+            }
+        };
+        int[] lons = { 0, 1 };
+        int[] lats = { 0, 1, 2, 3, 4, 5, 6, 7 };
+
+        reads.read(reader, lons, lats, 4, data, paramInfo);
+        reads.dispose();
+        // a new pool is started for the next read.
+        reads.read(reader, lons, lats, 4, data, paramInfo);
+        assertEquals(8, bands.get());
+    }
+
+    @Test
+    public void testReadWhileParallelismChanges() throws Exception {
+        final ParallelBandReads reads = ParallelBandReads.getInstance();
+        final ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setDim(new GridEnvelope2D(0, 0, 2, 8));
+        paramInfo.setRequestedEnvelope(new GeneralEnvelope(new double[] { 0, 0 }, new double[] { 2, 8 }));
+        final GrdDataEncapsulator data = new GrdDataEncapsulator(paramInfo);
+        final int[] lons = { 0, 1 };
+        final int[] lats = { 0, 1, 2, 3, 4, 5, 6, 7 };
+        final ParallelBandReads.BandReader reader = new ParallelBandReads.BandReader() {
+            public void read(int[] longitudeIndices, int[] latitudeIndices, GrdDataEncapsulator data) {
+                // nothing to read, the pool is what is tested.
+            }
+        };
+
+        // readers replace the pool, and shut the old one down, as the parallelism changes while others submit bands.
+        final AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<Future<?>>();
+            for (int t = 0; t < 3; t++) {
+                readers.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 2000; i++) {
+                            reads.read(reader, lons, lats, 4, data, paramInfo);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            Future<?> changes = executor.submit(new Runnable() {
+                public void run() {
+                    for (int i = 0; !done.get(); i++) {
+                        ReadMetrics.getInstance().setParallelism(2 + i % 2);
+                        Thread.yield();
+                    }
+                }
+            });
+            try {
+                for (Future<?> future : readers) {
+                    future.get();
+                }
+            } finally {
+                done.set(true);
+            }
+            changes.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.geotools.gce.netcdf.cache.CacheMBeans;
+import org.junit.Test;
+
+public class ReadMetricsTest {
+
+    @Test
+    public void testRegisterAndDispose() throws Exception {
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        ObjectName name = CacheMBeans.getObjectName("ReadMetrics");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(name));
+        // suffixed, so the MBean of another web application is left alone.
+        assertNotNull(name.getKeyProperty("loader"));
+
+        metrics.dispose();
+        assertFalse(server.isRegistered(name));
+        // still counts after dispose.
+        long count = metrics.getReadCount();
+        metrics.recordRead(8);
+        assertTrue(metrics.getReadCount() > count);
+        metrics.dispose();
+    }
+}
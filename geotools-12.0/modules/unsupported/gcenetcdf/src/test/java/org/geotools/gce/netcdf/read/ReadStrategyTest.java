@@ -0,0 +1,332 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.gce.netcdf.GrdDataEncapsulator;
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.NetCdfUtil;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.index.InterpolationKernel;
+import org.geotools.geometry.GeneralEnvelope;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+public class ReadStrategyTest {
+
+    private static final int NUM_LON = 100;
+
+    private static final int NUM_LAT = 60;
+
+    private static final int NUM_TIME = 3;
+
+    private static File file;
+
+    private static NetcdfFile ncFile;
+
+    @BeforeClass
+    public static void createFile() throws Exception {
+        file = NetCDFTestData.createGrid(NUM_TIME, NUM_LAT, NUM_LON);
+        ncFile = NetcdfFile.open(file.getAbsolutePath());
+    }
+
+    @AfterClass
+    public static void deleteFile() throws Exception {
+        if (ncFile != null) {
+            ncFile.close();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    /**
+     * request index i maps to file index first + i * step, rounded like the nearest neighbor lookup does.
+     */
+    private static int[] indexes(int count, double first, double step) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) Math.round(first + i * step);
+        }
+        return result;
+    }
+
+    private GrdDataEncapsulator read(ReadStrategy strategy, int[] lons, int[] lats, int time)
+            throws Exception {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setRequestedEnvelope(new GeneralEnvelope(new double[] { 0, 0 }, new double[] {
+                1, 1 }));
+        paramInfo.setDim(new GridEnvelope2D(0, 0, lons.length, lats.length));
+        GrdDataEncapsulator data = new GrdDataEncapsulator(paramInfo);
+
+        strategy.setVariable(ncFile.findVariable(NetCDFTestData.VARIABLE));
+        strategy.setTimeIndex(time);
+        strategy.read(lons, lats, data);
+        return data;
+    }
+
+    private void assertRead(ReadStrategy strategy, int[] lons, int[] lats, int time)
+            throws Exception {
+        GrdDataEncapsulator data = read(strategy, lons, lats, time);
+        for (int y = 0; y < lats.length; y++) {
+            for (int x = 0; x < lons.length; x++) {
+                float expected = Float.NaN;
+                if (lons[x] != NetCdfUtil.NOT_FOUND && lats[y] != NetCdfUtil.NOT_FOUND) {
+                    expected = NetCDFTestData.expected(time, lats[y], lons[x]);
+                }
+                int row = lats.length - 1 - y;
+                assertEquals(strategy + " at " + x + ", " + y, expected, data.getValue(x, row), 0f);
+            }
+        }
+    }
+
+    private void assertAllStrategies(int[] lons, int[] lats) throws Exception {
+        assertRead(new OverSamplingReadStrategy(), lons, lats, 1);
+        assertRead(new UnderSamplingReadStrategy(), lons, lats, 1);
+        assertRead(new StridedSectionReadStrategy(), lons, lats, 1);
+        assertRead(ReadStrategyFactory.getReadStrategy(lons, lats,
+                ncFile.findVariable(NetCDFTestData.VARIABLE)), lons, lats, 2);
+    }
+
+    @Test
+    public void testRegularUnderSampling() throws Exception {
+        assertAllStrategies(indexes(25, 0, 4), indexes(20, 1, 3));
+    }
+
+    @Test
+    public void testIrregularUnderSampling() throws Exception {
+        assertAllStrategies(indexes(40, 0, 2.5), indexes(16, 0, 3.7));
+    }
+
+    @Test
+    public void testOverSampling() throws Exception {
+        assertAllStrategies(indexes(50, 10, 0.4), indexes(30, 5, 0.3));
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        // a 0 to 360 file read across the prime meridian: the last columns, then the first.
+        int[] lons = new int[12];
+        for (int i = 0; i < 10; i++) {
+            lons[i] = 90 + i;
+        }
+        lons[10] = 0;
+        lons[11] = 1;
+        assertAllStrategies(lons, indexes(10, 0, 6));
+    }
+
+    @Test
+    public void testPartlyOutsideFile() throws Exception {
+        // a request overlapping the south west corner of the file.
+        int[] lons = indexes(20, -10, 1);
+        int[] lats = indexes(10, -4, 1);
+        for (int i = 0; i < lons.length; i++) {
+            lons[i] = lons[i] < 0 ? NetCdfUtil.NOT_FOUND : lons[i];
+        }
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = lats[i] < 0 ? NetCdfUtil.NOT_FOUND : lats[i];
+        }
+        assertAllStrategies(lons, lats);
+    }
+
+    @Test
+    public void testPlanRegular() {
+        StridedReadPlan plan = new StridedReadPlan(indexes(25, 0, 4), indexes(20, 1, 3));
+        assertEquals(4, plan.getLonStride());
+        assertEquals(25, plan.getLonCount());
+        assertEquals(1, plan.getBandCount());
+        assertEquals(3, plan.getBandStride(0));
+        assertEquals(25 * 20, plan.getPointCount());
+    }
+
+    @Test
+    public void testPlanSplitsSparseLatitudes() {
+        // rows 0, 5, 10 and 41, 43: one strided read would cover 43 rows for 5 needed.
+        int[] lats = { 0, 5, 10, 41, 43 };
+        StridedReadPlan plan = new StridedReadPlan(indexes(10, 0, 1), lats);
+        assertEquals(2, plan.getBandCount());
+        assertEquals(5, plan.getBandStride(0));
+        assertEquals(2, plan.getBandStride(1));
+        assertEquals(10 * 5, plan.getPointCount());
+    }
+
+    @Test
+    public void testFactoryAvoidsPerPixelReads() {
+        int[] lons = indexes(768, 0, 13);
+        int[] lats = indexes(768, 0, 13);
+        ReadStrategy strategy = ReadStrategyFactory.getReadStrategy(lons, lats,
+                ncFile.findVariable(NetCDFTestData.VARIABLE));
+        assertTrue(strategy.toString(), strategy instanceof StridedSectionReadStrategy);
+    }
+
+    @Test
+    public void testTiledReads() throws Exception {
+        // columns 10 to 30 and rows 5 to 14, read 3 rows of 4 byte values at a time.
+        int[] lons = indexes(50, 10, 0.4);
+        int[] lats = indexes(30, 5, 0.3);
+        long budget = 3 * 21 * 4;
+
+        OverSamplingReadStrategy over = new OverSamplingReadStrategy();
+        over.setMaxBytesPerRead(budget);
+        long reads = ReadMetrics.getInstance().getReadCount();
+        assertRead(over, lons, lats, 1);
+        assertEquals(4, ReadMetrics.getInstance().getReadCount() - reads);
+
+        StridedSectionReadStrategy strided = new StridedSectionReadStrategy();
+        strided.setMaxBytesPerRead(budget);
+        assertRead(strided, lons, lats, 2);
+
+        strided = new StridedSectionReadStrategy();
+        strided.setMaxBytesPerRead(budget);
+        assertRead(strided, indexes(25, 0, 4), indexes(20, 1, 3), 1);
+    }
+
+    @Test
+    public void testFactoryRecordsMetrics() throws Exception {
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        long decisions = metrics.getOverSamplingCount() + metrics.getUnderSamplingCount()
+                + metrics.getStridedCount();
+        long estimated = metrics.getEstimatedBytes();
+        long actual = metrics.getActualBytes();
+
+        int[] lons = indexes(50, 10, 0.4);
+        int[] lats = indexes(30, 5, 0.3);
+        ReadStrategy strategy = ReadStrategyFactory.getReadStrategy(lons, lats,
+                ncFile.findVariable(NetCDFTestData.VARIABLE));
+        read(strategy, lons, lats, 0);
+
+        assertEquals(decisions + 1, metrics.getOverSamplingCount()
+                + metrics.getUnderSamplingCount() + metrics.getStridedCount());
+        // a netCDF-3 file has no chunks, so the estimate is exact.
+        assertEquals(metrics.getEstimatedBytes() - estimated, metrics.getActualBytes() - actual);
+        assertTrue(metrics.getLastDecision(),
+                metrics.getLastDecision().startsWith(strategy.getClass().getSimpleName()));
+    }
+
+    @Test
+    public void testCostModel() throws Exception {
+        Variable variable = ncFile.findVariable(NetCDFTestData.VARIABLE);
+        ReadCostModel contiguous = new ReadCostModel(variable);
+        assertFalse(contiguous.isChunked());
+        assertEquals(4, contiguous.getElementSize());
+        assertEquals(10 * 5 * 4, contiguous.getBytesTouched(0, 18, 2, 3, 7, 1));
+        assertEquals(25, contiguous.getRowsWithinBudget(10, 1000));
+        assertEquals(1, contiguous.getRowsWithinBudget(10, 1));
+
+        // time, lat, lon chunks of 1 x 16 x 32.
+        variable.addAttribute(new Attribute("_ChunkSizes", Arrays.asList(new Integer[] { 1, 16,
+                32 })));
+        try {
+            ReadCostModel chunked = new ReadCostModel(variable);
+            assertTrue(chunked.isChunked());
+            // columns 0 to 18 and rows 3 to 7 are in a single chunk.
+            assertEquals(16 * 32 * 4, chunked.getBytesTouched(0, 18, 2, 3, 7, 1));
+            // columns 0, 40 and 80 are in chunks of their own, rows 0 to 20 span two chunks.
+            assertEquals(3 * 32 * 2 * 16 * 4, chunked.getBytesTouched(0, 80, 40, 0, 20, 1));
+        } finally {
+            variable.removeAttribute("_ChunkSizes");
+        }
+    }
+
+    /**
+     * Read fractional file positions with the kernel, the nearest index of each as the request index.
+     */
+    private GrdDataEncapsulator interpolate(InterpolationKernel kernel, double[] lonPositions,
+            double[] latPositions, long budget) throws Exception {
+        int[] lons = new int[lonPositions.length];
+        for (int i = 0; i < lons.length; i++) {
+            lons[i] = (int) Math.round(lonPositions[i]);
+        }
+        int[] lats = new int[latPositions.length];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = (int) Math.round(latPositions[i]);
+        }
+        InterpolatingReadStrategy strategy = new InterpolatingReadStrategy(kernel, lonPositions,
+                latPositions);
+        strategy.setMaxBytesPerRead(budget);
+        return read(strategy, lons, lats, 1);
+    }
+
+    private static double[] positions(int count, double first, double step) {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = first + i * step;
+        }
+        return result;
+    }
+
+    /**
+     * The test values are linear in the file indices, so both kernels give them back exactly between the values, away from the edges for
+     * bicubic.
+     */
+    private void assertInterpolated(InterpolationKernel kernel, double[] lonPositions,
+            double[] latPositions, long budget) throws Exception {
+        GrdDataEncapsulator data = interpolate(kernel, lonPositions, latPositions, budget);
+        for (int y = 0; y < latPositions.length; y++) {
+            for (int x = 0; x < lonPositions.length; x++) {
+                float expected = (float) (10000 + latPositions[y] * 100 + lonPositions[x]);
+                int row = latPositions.length - 1 - y;
+                assertEquals(kernel + " at " + x + ", " + y, expected, data.getValue(x, row), 1e-2f);
+            }
+        }
+    }
+
+    @Test
+    public void testBilinear() throws Exception {
+        assertInterpolated(InterpolationKernel.BILINEAR, positions(30, 0, 0.75),
+                positions(20, 0.5, 2.9), Long.MAX_VALUE);
+        // at the last values of the file.
+        assertInterpolated(InterpolationKernel.BILINEAR, new double[] { NUM_LON - 1.5,
+                NUM_LON - 1 }, new double[] { NUM_LAT - 1 }, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testBicubic() throws Exception {
+        assertInterpolated(InterpolationKernel.BICUBIC, positions(30, 1, 0.75),
+                positions(20, 1.5, 2.8), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testTiledInterpolation() throws Exception {
+        // 4 rows of the 25 columns around the request at a time.
+        long reads = ReadMetrics.getInstance().getReadCount();
+        assertInterpolated(InterpolationKernel.BICUBIC, positions(30, 2, 0.75),
+                positions(20, 1.5, 1.3), 4 * 25 * 4);
+        assertTrue(ReadMetrics.getInstance().getReadCount() - reads > 1);
+    }
+
+    @Test
+    public void testInterpolatedEdges() throws Exception {
+        // bicubic neighbors beyond the file repeat the edge values, so the edge values are read back.
+        GrdDataEncapsulator data = interpolate(InterpolationKernel.BICUBIC, new double[] { 0,
+                NUM_LON - 1 }, new double[] { 0 }, Long.MAX_VALUE);
+        assertEquals(NetCDFTestData.expected(1, 0, 0), data.getValue(0, 0), 1e-3f);
+        assertEquals(NetCDFTestData.expected(1, 0, NUM_LON - 1), data.getValue(1, 0), 1e-3f);
+    }
+}
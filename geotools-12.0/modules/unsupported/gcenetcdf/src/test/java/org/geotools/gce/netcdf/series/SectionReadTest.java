@@ -0,0 +1,126 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.series;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+import org.geotools.util.NumberRange;
+import org.junit.Test;
+import org.opengis.geometry.Envelope;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+public class SectionReadTest {
+
+    private static final int NUM_DEPTH = 4;
+
+    private static ParamInformation request(int t, Coordinate... path) {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter(NetCDFTestData.VARIABLE);
+        paramInfo.setTime(new Date(NetCDFTestData.TIME_ORIGIN + t * NetCDFTestData.HOUR));
+        paramInfo.setSectionPath(path);
+        return paramInfo;
+    }
+
+    @Test
+    public void testRunEnds() {
+        // a row of the grid is one read.
+        assertEquals(Arrays.asList(4), SectionRead.getRunEnds(new int[] { 0, 1, 2, 3 },
+                new int[] { 2, 2, 2, 2 }, 8, 1000, 0));
+        // a diagonal is one read per cell when reads cost nothing, one read when they cost more than the box.
+        int[] diagonal = new int[] { 0, 1, 2, 3 };
+        assertEquals(Arrays.asList(1, 2, 3, 4), SectionRead.getRunEnds(diagonal, diagonal, 8,
+                1000, 0));
+        assertEquals(Arrays.asList(4), SectionRead.getRunEnds(diagonal, diagonal, 8, 1000, 1000));
+        // and is split where the box would not fit a read.
+        assertEquals(Arrays.asList(2, 4), SectionRead.getRunEnds(diagonal, diagonal, 8, 32, 1000));
+    }
+
+    @Test
+    public void testReadSection() throws Exception {
+        File file = NetCDFTestData.createDepthGrid(2, NUM_DEPTH, 5, 6);
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        long readOverheadBytes = metrics.getReadOverheadBytes();
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+
+            // a profile at a point is one read of all its depths.
+            metrics.reset();
+            VerticalSection profile = inspector.readSection(request(1, new Coordinate(2, 1)));
+            assertEquals(1, metrics.getReadCount());
+            assertEquals(1, profile.getWidth());
+            assertEquals(NUM_DEPTH, profile.getHeight());
+            for (int z = 0; z < NUM_DEPTH; z++) {
+                assertEquals(z * 10, profile.getElevation(z), 0);
+                assertEquals(NetCDFTestData.expected(1, z, 1, 2), profile.getValue(0, z), 0f);
+            }
+
+            ParamInformation range = request(0, new Coordinate(2, 1));
+            range.setElevationRange(NumberRange.create(5.0, 20.0));
+            VerticalSection ranged = inspector.readSection(range);
+            assertEquals(2, ranged.getHeight());
+            assertEquals(10, ranged.getElevation(0), 0);
+            assertEquals(NetCDFTestData.expected(0, 2, 1, 2), ranged.getValue(0, 1), 0f);
+
+            // a section along a row of the grid is one read.
+            metrics.reset();
+            VerticalSection row = inspector.readSection(request(0, new Coordinate(0, 3),
+                    new Coordinate(5, 3)));
+            assertEquals(1, metrics.getReadCount());
+            assertEquals(6, row.getWidth());
+            for (int x = 0; x < 6; x++) {
+                assertEquals(NetCDFTestData.expected(0, 3, 3, x), row.getValue(x, 3), 0f);
+            }
+            assertEquals(0, row.getDistance(0), 0);
+            assertEquals(5 * 111.2 * Math.cos(Math.toRadians(3)), row.getDistance(5), 1);
+
+            // a diagonal is read a cell at a time when reads cost nothing.
+            metrics.setReadOverheadBytes(0);
+            metrics.reset();
+            VerticalSection diagonal = inspector.readSection(request(0, new Coordinate(0, 0),
+                    new Coordinate(4, 4)));
+            assertEquals(5, metrics.getReadCount());
+            assertEquals(5, diagonal.getWidth());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i, diagonal.getLongitude(i), 0);
+                assertEquals(NetCDFTestData.expected(0, 1, i, i), diagonal.getValue(i, 1), 0f);
+            }
+
+            // the raster of the section has the row of the highest elevation first.
+            WritableRaster raster = profile.getWritableRaster();
+            assertEquals(NetCDFTestData.expected(1, NUM_DEPTH - 1, 1, 2),
+                    raster.getSampleFloat(0, 0, 0), 0f);
+            Envelope envelope = profile.getEnvelope();
+            assertEquals(-5, envelope.getMinimum(1), 0);
+            assertEquals(35, envelope.getMaximum(1), 0);
+        } finally {
+            metrics.setReadOverheadBytes(readOverheadBytes);
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.netcdf.series;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.gce.netcdf.NetCDFTestData;
+import org.geotools.gce.netcdf.ParamInformation;
+import org.geotools.gce.netcdf.fileparser.HeaderIndex;
+import org.geotools.gce.netcdf.fileparser.NetCDFFileInspector;
+import org.geotools.gce.netcdf.read.ReadMetrics;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+public class SeriesReadTest {
+
+    private static final int NUM_TIME = 5;
+
+    /**
+     * keeps the values and times it is given.
+     */
+    private static class CollectingVisitor implements SeriesVisitor {
+
+        private final List<Float> values = new ArrayList<Float>();
+
+        private final List<Date> times = new ArrayList<Date>();
+
+        private final int limit;
+
+        CollectingVisitor(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean visit(Date referenceTime, Date time, Double elevation, double longitude,
+                double latitude, float value) {
+            assertNull(elevation);
+            values.add(value);
+            times.add(time);
+            return values.size() < limit;
+        }
+    }
+
+    private static ParamInformation request(double minLon, double minLat, double maxLon,
+            double maxLat) {
+        ParamInformation paramInfo = new ParamInformation();
+        paramInfo.setParameter(NetCDFTestData.VARIABLE);
+        GeneralEnvelope envelope = new GeneralEnvelope(new double[] { minLon, minLat },
+                new double[] { maxLon, maxLat });
+        envelope.setCoordinateReferenceSystem(DefaultGeographicCRS.WGS84);
+        paramInfo.setRequestedEnvelope(envelope);
+        return paramInfo;
+    }
+
+    @Test
+    public void testReadSeries() throws Exception {
+        File file = NetCDFTestData.createGrid(NUM_TIME, 4, 6);
+        ReadMetrics metrics = ReadMetrics.getInstance();
+        long maxBytesPerRead = metrics.getMaxBytesPerRead();
+        try {
+            NetCDFFileInspector inspector = new NetCDFFileInspector(file);
+
+            // a point is one read of every time.
+            metrics.reset();
+            CollectingVisitor point = new CollectingVisitor(Integer.MAX_VALUE);
+            assertTrue(inspector.readSeries(request(2, 1, 2, 1), point));
+            assertEquals(1, metrics.getReadCount());
+            assertEquals(NUM_TIME, point.values.size());
+            for (int t = 0; t < NUM_TIME; t++) {
+                assertEquals(NetCDFTestData.expected(t, 1, 2), point.values.get(t), 0f);
+                assertEquals(new Date(NetCDFTestData.TIME_ORIGIN + t * NetCDFTestData.HOUR),
+                        point.times.get(t));
+            }
+
+            CollectingVisitor box = new CollectingVisitor(Integer.MAX_VALUE);
+            assertTrue(inspector.readSeries(request(1, 0, 3, 2), box));
+            assertEquals(NUM_TIME * 3 * 3, box.values.size());
+            assertEquals(NetCDFTestData.expected(0, 0, 1), box.values.get(0), 0f);
+            assertEquals(NetCDFTestData.expected(NUM_TIME - 1, 2, 3),
+                    box.values.get(box.values.size() - 1), 0f);
+
+            // a series larger than a read is read in parts.
+            metrics.reset();
+            metrics.setMaxBytesPerRead(2 * 3 * 3 * 4);
+            CollectingVisitor parts = new CollectingVisitor(Integer.MAX_VALUE);
+            assertTrue(inspector.readSeries(request(1, 0, 3, 2), parts));
+            assertEquals(3, metrics.getReadCount());
+            assertEquals(box.values, parts.values);
+
+            // the visitor stops the read.
+            metrics.reset();
+            CollectingVisitor stopped = new CollectingVisitor(2);
+            assertFalse(inspector.readSeries(request(1, 0, 3, 2), stopped));
+            assertEquals(2, stopped.values.size());
+            assertEquals(1, metrics.getReadCount());
+        } finally {
+            metrics.setMaxBytesPerRead(maxBytesPerRead);
+            HeaderIndex.getSidecarFile(file).delete();
+            file.delete();
+        }
+    }
+}